@@ -1,9 +1,17 @@
 package com.stocker.cartservice;
 
+import com.stocker.common.axon.AggregateCacheConfig;
+import com.stocker.common.axon.EventProcessingConfig;
+import com.stocker.common.axon.command.CommandBusConfig;
+import com.stocker.common.axon.eventstore.EventStoreConfig;
+import com.stocker.common.axon.serialization.SerializerConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import({AggregateCacheConfig.class, CommandBusConfig.class, EventProcessingConfig.class,
+        SerializerConfig.class, EventStoreConfig.class})
 public class CartServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,26 @@
+package com.stocker.cartservice.config;
+
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Snapshotting of the {@link com.stocker.cartservice.domain.Cart} aggregate, so a cart loads from
+ * its latest snapshot plus the few events after it instead of its whole edit history.
+ */
+@Configuration
+public class CartSnapshotConfig {
+
+    @Value("${cart.snapshot.event-threshold:50}")
+    private int eventThreshold;
+
+    @Value("${cart.snapshot.load-time-threshold-ms:200}")
+    private long loadTimeThresholdMillis;
+
+    @Bean
+    public SnapshotTriggerDefinition cartSnapshotTrigger(Snapshotter snapshotter) {
+        return new CartSnapshotTriggerDefinition(snapshotter, eventThreshold, loadTimeThresholdMillis);
+    }
+}
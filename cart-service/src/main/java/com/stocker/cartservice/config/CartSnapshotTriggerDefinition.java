@@ -0,0 +1,65 @@
+package com.stocker.cartservice.config;
+
+import org.axonframework.eventsourcing.AbstractSnapshotTrigger;
+import org.axonframework.eventsourcing.SnapshotTrigger;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+
+/**
+ * Snapshot trigger definition firing when an aggregate handled a number of events since its last
+ * snapshot, or when loading it took longer than a time threshold, whichever comes first.
+ * A threshold of zero or less disables that trigger.
+ */
+public class CartSnapshotTriggerDefinition implements SnapshotTriggerDefinition {
+
+    private final Snapshotter snapshotter;
+    private final int eventThreshold;
+    private final long loadTimeThresholdMillis;
+
+    public CartSnapshotTriggerDefinition(Snapshotter snapshotter, int eventThreshold, long loadTimeThresholdMillis) {
+        this.snapshotter = snapshotter;
+        this.eventThreshold = eventThreshold;
+        this.loadTimeThresholdMillis = loadTimeThresholdMillis;
+    }
+
+    @Override
+    public SnapshotTrigger prepareTrigger(Class<?> aggregateType) {
+        return new EventCountOrLoadTimeTrigger(snapshotter, aggregateType, eventThreshold, loadTimeThresholdMillis);
+    }
+
+    @Override
+    public SnapshotTrigger reconfigure(Class<?> aggregateType, SnapshotTrigger trigger) {
+        if (trigger instanceof AbstractSnapshotTrigger snapshotTrigger) {
+            snapshotTrigger.setSnapshotter(snapshotter);
+        }
+        return trigger;
+    }
+
+    private static class EventCountOrLoadTimeTrigger extends AbstractSnapshotTrigger {
+
+        private final int eventThreshold;
+        private final long loadTimeThresholdMillis;
+        private int counter;
+        private long startTime = System.currentTimeMillis();
+
+        EventCountOrLoadTimeTrigger(Snapshotter snapshotter, Class<?> aggregateType,
+                                    int eventThreshold, long loadTimeThresholdMillis) {
+            super(snapshotter, aggregateType);
+            this.eventThreshold = eventThreshold;
+            this.loadTimeThresholdMillis = loadTimeThresholdMillis;
+        }
+
+        @Override
+        public boolean exceeded() {
+            counter++;
+            return (eventThreshold > 0 && counter >= eventThreshold)
+                    || (loadTimeThresholdMillis > 0 && System.currentTimeMillis() - startTime > loadTimeThresholdMillis);
+        }
+
+        @Override
+        public void reset() {
+            counter = 0;
+            startTime = System.currentTimeMillis();
+        }
+    }
+}
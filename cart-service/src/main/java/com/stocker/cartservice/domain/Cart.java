@@ -14,18 +14,16 @@ import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.spring.stereotype.Aggregate;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
-@Aggregate
+@Aggregate(snapshotTriggerDefinition = "cartSnapshotTrigger", cache = "aggregateCache")
 @NoArgsConstructor
 public class Cart {
 
     @AggregateIdentifier
     private String cartId;
     private String userId;
-    private Map<String, CartItem> items = new HashMap<>();
+    private CartItems items = new CartItems();
 
     @CommandHandler
     public Cart(CreateCartCommand command) {
@@ -39,7 +37,7 @@ public class Cart {
     public void on(CartCreatedEvent event) {
         this.cartId = event.getCartId();
         this.userId = event.getUserId();
-        this.items = new HashMap<>();
+        this.items = new CartItems();
     }
 
     @CommandHandler
@@ -68,12 +66,12 @@ public class Cart {
                 event.getUnitPrice()
         );
         
-        this.items.put(event.getCartItemId(), item);
+        this.items.put(item);
     }
 
     @CommandHandler
     public void handle(RemoveItemFromCartCommand command) {
-        if (!items.containsKey(command.getCartItemId())) {
+        if (!items.contains(command.getCartItemId())) {
             throw new IllegalArgumentException("Item not found in cart: " + command.getCartItemId());
         }
         
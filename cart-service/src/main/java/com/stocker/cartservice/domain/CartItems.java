@@ -0,0 +1,160 @@
+package com.stocker.cartservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Items of a {@link Cart}, serialized into a compact binary form when the cart is snapshotted.
+ * Only the encoded bytes are written; the item map is transient and decoded again the first time
+ * a command needs it, so loading a snapshot costs nothing until the items are used.
+ */
+public class CartItems {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private byte[] encoded;
+    private transient Map<String, CartItem> items;
+
+    public CartItems() {
+        this.items = new LinkedHashMap<>();
+    }
+
+    private CartItems(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    @JsonCreator
+    public static CartItems fromBytes(byte[] encoded) {
+        return new CartItems(encoded);
+    }
+
+    @JsonValue
+    public byte[] toBytes() {
+        if (encoded == null) {
+            encoded = encode(items());
+        }
+        return encoded;
+    }
+
+    public boolean contains(String cartItemId) {
+        return items().containsKey(cartItemId);
+    }
+
+    public CartItem get(String cartItemId) {
+        return items().get(cartItemId);
+    }
+
+    public void put(CartItem item) {
+        items().put(item.getCartItemId(), item);
+        encoded = null;
+    }
+
+    public void remove(String cartItemId) {
+        if (items().remove(cartItemId) != null) {
+            encoded = null;
+        }
+    }
+
+    private Map<String, CartItem> items() {
+        if (items == null) {
+            items = decode(encoded);
+        }
+        return items;
+    }
+
+    /**
+     * Called by field-based serializers such as XStream before writing, so the bytes are current.
+     */
+    private Object writeReplace() {
+        toBytes();
+        return this;
+    }
+
+    private static byte[] encode(Map<String, CartItem> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + items.size() * 96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(items.size());
+            for (CartItem item : items.values()) {
+                writeString(out, item.getCartItemId());
+                writeString(out, item.getProductId());
+                writeString(out, item.getProductName());
+                out.writeInt(item.getQuantity());
+                writeDecimal(out, item.getUnitPrice());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, CartItem> decode(byte[] encoded) {
+        Map<String, CartItem> items = new LinkedHashMap<>();
+        if (encoded == null || encoded.length == 0) {
+            return items;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported cart items format version: " + version);
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                CartItem item = new CartItem(
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        in.readInt(),
+                        readDecimal(in)
+                );
+                items.put(item.getCartItemId(), item);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return items;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+}
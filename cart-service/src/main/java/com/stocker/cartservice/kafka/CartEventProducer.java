@@ -4,6 +4,7 @@ import com.stocker.common.events.cart.CartCreatedEvent;
 import com.stocker.common.events.cart.ItemAddedToCartEvent;
 import com.stocker.common.events.cart.ItemRemovedFromCartEvent;
 import com.stocker.kafkaconfig.KafkaEventUtils;
+import com.stocker.kafkaconfig.outbox.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -19,6 +20,7 @@ import reactor.core.publisher.Mono;
 public class CartEventProducer {
 
     private final KafkaEventUtils kafkaEventUtils;
+    private final OutboxWriter outboxWriter;
     private static final String TOPIC = "cart-events";
 
     /**
@@ -86,4 +88,40 @@ public class CartEventProducer {
         log.info("Sending ItemRemovedFromCartEvent to Kafka asynchronously: {}", event);
         kafkaEventUtils.sendEventAsync(TOPIC, event.getCartId(), event);
     }
+
+    /**
+     * Add a CartCreatedEvent to the outbox for publishing to the cart-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The CartCreatedEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueueCartCreatedEvent(CartCreatedEvent event) {
+        log.debug("Adding CartCreatedEvent to outbox: {}", event.getCartId());
+        return outboxWriter.append(TOPIC, event.getCartId(), event);
+    }
+
+    /**
+     * Add an ItemAddedToCartEvent to the outbox for publishing to the cart-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The ItemAddedToCartEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueueItemAddedToCartEvent(ItemAddedToCartEvent event) {
+        log.debug("Adding ItemAddedToCartEvent to outbox: {}", event.getCartId());
+        return outboxWriter.append(TOPIC, event.getCartId(), event);
+    }
+
+    /**
+     * Add an ItemRemovedFromCartEvent to the outbox for publishing to the cart-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The ItemRemovedFromCartEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueueItemRemovedFromCartEvent(ItemRemovedFromCartEvent event) {
+        log.debug("Adding ItemRemovedFromCartEvent to outbox: {}", event.getCartId());
+        return outboxWriter.append(TOPIC, event.getCartId(), event);
+    }
 }
\ No newline at end of file
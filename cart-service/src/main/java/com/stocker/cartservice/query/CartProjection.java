@@ -1,5 +1,6 @@
 package com.stocker.cartservice.query;
 
+import com.stocker.cartservice.kafka.CartEventProducer;
 import com.stocker.cartservice.repository.CartItemRepository;
 import com.stocker.cartservice.repository.CartRepository;
 import com.stocker.cartservice.repository.entity.CartEntity;
@@ -9,37 +10,47 @@ import com.stocker.common.events.cart.ItemAddedToCartEvent;
 import com.stocker.common.events.cart.ItemRemovedFromCartEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.ReplayStatus;
 import org.axonframework.queryhandling.QueryHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 
 @Component
+@ProcessingGroup("cart-projection")
 @RequiredArgsConstructor
 @Slf4j
 public class CartProjection {
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final CartEventProducer cartEventProducer;
+    private final TransactionalOperator transactionalOperator;
 
     @EventHandler
-    public void on(CartCreatedEvent event) {
+    public void on(CartCreatedEvent event, ReplayStatus replayStatus) {
         log.info("Handling CartCreatedEvent: {}", event.getCartId());
         CartEntity cartEntity = new CartEntity();
         cartEntity.setCartId(event.getCartId());
         cartEntity.setUserId(event.getUserId());
         
-        cartRepository.save(cartEntity).subscribe(
-            savedCart -> log.info("Cart saved: {}", savedCart.getCartId()),
-            error -> log.error("Error saving cart: {}", error.getMessage())
-        );
+        cartRepository.save(cartEntity)
+            .flatMap(savedCart -> replayStatus.isReplay()
+                ? Mono.just(savedCart)
+                : cartEventProducer.enqueueCartCreatedEvent(event).thenReturn(savedCart))
+            .as(transactionalOperator::transactional)
+            .doOnSuccess(savedCart -> log.info("Cart saved: {}", savedCart.getCartId()))
+            .doOnError(error -> log.error("Error saving cart: {}", error.getMessage()))
+            .block();
     }
 
     @EventHandler
-    public void on(ItemAddedToCartEvent event) {
+    public void on(ItemAddedToCartEvent event, ReplayStatus replayStatus) {
         log.info("Handling ItemAddedToCartEvent: {}", event.getCartItemId());
         CartItemEntity cartItemEntity = new CartItemEntity();
         cartItemEntity.setCartItemId(event.getCartItemId());
@@ -49,19 +60,25 @@ public class CartProjection {
         cartItemEntity.setQuantity(event.getQuantity());
         cartItemEntity.setUnitPrice(event.getUnitPrice());
         
-        cartItemRepository.save(cartItemEntity).subscribe(
-            savedItem -> log.info("Cart item saved: {}", savedItem.getCartItemId()),
-            error -> log.error("Error saving cart item: {}", error.getMessage())
-        );
+        cartItemRepository.save(cartItemEntity)
+            .flatMap(savedItem -> replayStatus.isReplay()
+                ? Mono.just(savedItem)
+                : cartEventProducer.enqueueItemAddedToCartEvent(event).thenReturn(savedItem))
+            .as(transactionalOperator::transactional)
+            .doOnSuccess(savedItem -> log.info("Cart item saved: {}", savedItem.getCartItemId()))
+            .doOnError(error -> log.error("Error saving cart item: {}", error.getMessage()))
+            .block();
     }
 
     @EventHandler
-    public void on(ItemRemovedFromCartEvent event) {
+    public void on(ItemRemovedFromCartEvent event, ReplayStatus replayStatus) {
         log.info("Handling ItemRemovedFromCartEvent: {}", event.getCartItemId());
-        cartItemRepository.deleteById(event.getCartItemId()).subscribe(
-            () -> log.info("Cart item deleted: {}", event.getCartItemId()),
-            error -> log.error("Error deleting cart item: {}", error.getMessage())
-        );
+        cartItemRepository.deleteById(event.getCartItemId())
+            .then(replayStatus.isReplay() ? Mono.empty() : cartEventProducer.enqueueItemRemovedFromCartEvent(event))
+            .as(transactionalOperator::transactional)
+            .doOnSuccess(v -> log.info("Cart item deleted: {}", event.getCartItemId()))
+            .doOnError(error -> log.error("Error deleting cart item: {}", error.getMessage()))
+            .block();
     }
 
     @QueryHandler
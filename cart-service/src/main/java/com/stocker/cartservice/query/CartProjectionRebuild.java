@@ -0,0 +1,59 @@
+package com.stocker.cartservice.query;
+
+import com.stocker.common.axon.rebuild.ProjectionRebuild;
+import com.stocker.common.axon.rebuild.RebuildTable;
+import com.stocker.common.axon.rebuild.RebuildWriter;
+import com.stocker.common.events.cart.CartCreatedEvent;
+import com.stocker.common.events.cart.ItemAddedToCartEvent;
+import com.stocker.common.events.cart.ItemRemovedFromCartEvent;
+import org.axonframework.eventhandling.EventMessage;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Rebuilds the {@code carts} and {@code cart_items} tables of {@link CartProjection}.
+ * Removed items are deleted while folding, so only the current content of each cart is loaded.
+ */
+@Component
+public class CartProjectionRebuild implements ProjectionRebuild {
+
+    private static final List<String> CART_COLUMNS = List.of("cart_id", "user_id", "created_at", "updated_at");
+    private static final List<String> ITEM_COLUMNS = List.of("cart_item_id", "cart_id", "product_id",
+            "product_name", "quantity", "unit_price", "created_at", "updated_at");
+
+    @Override
+    public String processingGroup() {
+        return "cart-projection";
+    }
+
+    @Override
+    public List<RebuildTable> tables() {
+        return List.of(new RebuildTable("carts", CART_COLUMNS), new RebuildTable("cart_items", ITEM_COLUMNS));
+    }
+
+    @Override
+    public Fold newFold(RebuildWriter writer) {
+        return event -> {
+            Class<?> type = event.getPayloadType();
+            if (type == CartCreatedEvent.class) {
+                CartCreatedEvent created = (CartCreatedEvent) event.getPayload();
+                LocalDateTime at = timestamp(event);
+                writer.write("carts", created.getCartId(), created.getUserId(), at, at);
+            } else if (type == ItemAddedToCartEvent.class) {
+                ItemAddedToCartEvent added = (ItemAddedToCartEvent) event.getPayload();
+                LocalDateTime at = timestamp(event);
+                writer.write("cart_items", added.getCartItemId(), added.getCartId(), added.getProductId(),
+                        added.getProductName(), added.getQuantity(), added.getUnitPrice(), at, at);
+            } else if (type == ItemRemovedFromCartEvent.class) {
+                writer.delete("cart_items", ((ItemRemovedFromCartEvent) event.getPayload()).getCartItemId());
+            }
+        };
+    }
+
+    private static LocalDateTime timestamp(EventMessage<?> event) {
+        return LocalDateTime.ofInstant(event.getTimestamp(), ZoneId.systemDefault());
+    }
+}
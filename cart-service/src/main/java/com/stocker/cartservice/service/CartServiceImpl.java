@@ -1,7 +1,6 @@
 package com.stocker.cartservice.service;
 
 import com.stocker.cartservice.domain.CartItem;
-import com.stocker.cartservice.kafka.CartEventProducer;
 import com.stocker.cartservice.repository.CartItemRepository;
 import com.stocker.cartservice.repository.CartRepository;
 import com.stocker.cartservice.repository.entity.CartEntity;
@@ -11,9 +10,6 @@ import com.stocker.cartservice.service.dto.CartItemDTO;
 import com.stocker.common.commands.cart.AddItemToCartCommand;
 import com.stocker.common.commands.cart.CreateCartCommand;
 import com.stocker.common.commands.cart.RemoveItemFromCartCommand;
-import com.stocker.common.events.cart.CartCreatedEvent;
-import com.stocker.common.events.cart.ItemAddedToCartEvent;
-import com.stocker.common.events.cart.ItemRemovedFromCartEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.gateway.CommandGateway;
@@ -36,30 +32,19 @@ public class CartServiceImpl implements CartService {
     private final CartItemRepository cartItemRepository;
     private final CommandGateway commandGateway;
     private final QueryGateway queryGateway;
-    private final CartEventProducer cartEventProducer;
 
     @Override
     public Mono<CartDTO> createCart(String userId) {
         String cartId = UUID.randomUUID().toString();
         
+        // Cart events are published to Kafka through the outbox by CartProjection
         return Mono.fromFuture(commandGateway.send(new CreateCartCommand(cartId, userId)))
                 .then(Mono.just(CartDTO.builder()
                         .cartId(cartId)
                         .userId(userId)
                         .items(List.of())
                         .totalAmount(BigDecimal.ZERO)
-                        .build()))
-                .flatMap(cartDTO -> {
-                    // Publish CartCreatedEvent to Kafka
-                    CartCreatedEvent event = CartCreatedEvent.builder()
-                            .cartId(cartDTO.getCartId())
-                            .userId(cartDTO.getUserId())
-                            .timestamp(System.currentTimeMillis())
-                            .build();
-                    
-                    return cartEventProducer.sendCartCreatedEvent(event)
-                            .thenReturn(cartDTO);
-                });
+                        .build()));
     }
 
     @Override
@@ -83,47 +68,16 @@ public class CartServiceImpl implements CartService {
                 cartItemDTO.getQuantity(),
                 cartItemDTO.getUnitPrice()
         )))
-        .then(getCart(cartId))
-        .flatMap(cartDTO -> {
-            // Publish ItemAddedToCartEvent to Kafka
-            ItemAddedToCartEvent event = ItemAddedToCartEvent.builder()
-                    .cartId(cartId)
-                    .productId(cartItemDTO.getProductId())
-                    .productName(cartItemDTO.getProductName())
-                    .quantity(cartItemDTO.getQuantity())
-                    .unitPrice(cartItemDTO.getUnitPrice())
-                    .timestamp(System.currentTimeMillis())
-                    .build();
-            
-            return cartEventProducer.sendItemAddedToCartEvent(event)
-                    .thenReturn(cartDTO);
-        });
+        .then(getCart(cartId));
     }
 
     @Override
     public Mono<CartDTO> removeItemFromCart(String cartId, String cartItemId) {
-        // First get the cart item details before removing it
-        return cartItemRepository.findById(cartItemId)
-                .flatMap(cartItemEntity -> {
-                    // Then remove the item
-                    return Mono.fromFuture(commandGateway.send(new RemoveItemFromCartCommand(
-                            cartId,
-                            cartItemId
-                    )))
-                    .then(getCart(cartId))
-                    .flatMap(cartDTO -> {
-                        // Publish ItemRemovedFromCartEvent to Kafka
-                        ItemRemovedFromCartEvent event = ItemRemovedFromCartEvent.builder()
-                                .cartId(cartId)
-                                .cartItemId(cartItemId)
-                                .productId(cartItemEntity.getProductId())
-                                .timestamp(System.currentTimeMillis())
-                                .build();
-                        
-                        return cartEventProducer.sendItemRemovedFromCartEvent(event)
-                                .thenReturn(cartDTO);
-                    });
-                });
+        return Mono.fromFuture(commandGateway.send(new RemoveItemFromCartCommand(
+                cartId,
+                cartItemId
+        )))
+        .then(getCart(cartId));
     }
 
     @Override
@@ -18,4 +18,63 @@ CREATE TABLE IF NOT EXISTS cart_items (
 
 CREATE INDEX IF NOT EXISTS idx_carts_user_id ON carts(user_id);
 CREATE INDEX IF NOT EXISTS idx_cart_items_cart_id ON cart_items(cart_id);
-CREATE INDEX IF NOT EXISTS idx_cart_items_product_id ON cart_items(product_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_cart_items_product_id ON cart_items(product_id);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_id VARCHAR(36) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    event_key VARCHAR(255),
+    event_type VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    claimed_until TIMESTAMP
+);
+
+-- Tables created before outbox rows carried an event id
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS event_id VARCHAR(36);
+UPDATE outbox_events SET event_id = gen_random_uuid()::text WHERE event_id IS NULL;
+ALTER TABLE outbox_events ALTER COLUMN event_id SET NOT NULL;
+
+-- Tables created before the relay claimed its batches
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS token_entry (
+    processor_name VARCHAR(255) NOT NULL,
+    segment INTEGER NOT NULL,
+    token BYTEA,
+    token_type VARCHAR(255),
+    timestamp VARCHAR(255),
+    owner VARCHAR(255),
+    PRIMARY KEY (processor_name, segment)
+);
+
+CREATE TABLE IF NOT EXISTS domain_event_entry (
+    global_index BIGSERIAL NOT NULL,
+    event_identifier VARCHAR(255) NOT NULL,
+    meta_data BYTEA,
+    payload BYTEA NOT NULL,
+    payload_revision VARCHAR(255),
+    payload_type VARCHAR(255) NOT NULL,
+    time_stamp VARCHAR(255) NOT NULL,
+    aggregate_identifier VARCHAR(255) NOT NULL,
+    sequence_number BIGINT NOT NULL,
+    type VARCHAR(255),
+    PRIMARY KEY (global_index),
+    UNIQUE (aggregate_identifier, sequence_number),
+    UNIQUE (event_identifier)
+);
+
+CREATE TABLE IF NOT EXISTS snapshot_event_entry (
+    aggregate_identifier VARCHAR(255) NOT NULL,
+    sequence_number BIGINT NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    event_identifier VARCHAR(255) NOT NULL,
+    meta_data BYTEA,
+    payload BYTEA NOT NULL,
+    payload_revision VARCHAR(255),
+    payload_type VARCHAR(255) NOT NULL,
+    time_stamp VARCHAR(255) NOT NULL,
+    PRIMARY KEY (aggregate_identifier, sequence_number),
+    UNIQUE (event_identifier)
+);
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.stocker.common.axon.eventstore;
+
+import com.stocker.common.axon.AxonJdbcPool;
+import com.stocker.common.axon.serialization.SerializerConfig;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.models.Order.OrderStatus;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.eventstore.DomainEventStream;
+import org.axonframework.eventsourcing.eventstore.EventStorageEngine;
+import org.axonframework.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the {@code postgres} and {@code jdbc} engines of {@link EventStoreConfig} on appends of a
+ * unit of work's events and on aggregate loads, against a Postgres container with the services'
+ * schema. Each engine runs on a pool configured as the services configure it for that engine, and
+ * is wrapped in a {@link MeteredEventStorageEngine}, whose mean append and read times are printed
+ * once per trial.
+ * Run with {@code mvn -pl common -Pjmh test-compile exec:exec -Djmh.benchmarks=EventStorageEngineBenchmark};
+ * Docker must be available.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EventStorageEngineBenchmark {
+
+    private static final Path SCHEMA = Path.of("../order-service/src/main/resources/schema.sql");
+
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 3, 14, 9, 26, 53);
+
+    /**
+     * The engine under test, on an empty event store.
+     */
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({"postgres", "jdbc"})
+        private String engine;
+
+        private PostgreSQLContainer<?> postgres;
+        private AxonJdbcPool pool;
+        private SimpleMeterRegistry registry;
+        private EventStorageEngine storageEngine;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            pool = new AxonJdbcPool(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), 4,
+                    "postgres".equals(engine));
+            try (Connection connection = pool.getDataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(createStatement("domain_event_entry"));
+                statement.execute(createStatement("snapshot_event_entry"));
+            }
+            Serializer serializer = SerializerConfig.newSerializer("cbor");
+            registry = new SimpleMeterRegistry();
+            // The defaults of the axon.event-store.* properties
+            storageEngine = new MeteredEventStorageEngine(
+                    EventStoreConfig.engineBuilder(engine, pool, 500, 15000, 10000, 250)
+                            .snapshotSerializer(serializer)
+                            .eventSerializer(serializer)
+                            .build(),
+                    registry, engine);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Timer append = registry.get("axon.event-store.append").timer();
+            Timer read = registry.get("axon.event-store.aggregate.read").timer();
+            System.out.printf("%n%s: append %.3f ms, aggregate read %.3f ms%n", engine,
+                    append.mean(TimeUnit.MILLISECONDS), read.mean(TimeUnit.MILLISECONDS));
+            registry.close();
+            pool.close();
+            postgres.stop();
+        }
+    }
+
+    /**
+     * New aggregates receiving the events of one unit of work per append.
+     */
+    @State(Scope.Thread)
+    public static class Appends {
+
+        @Param({"1", "10"})
+        private int eventsPerAppend;
+    }
+
+    /**
+     * One stored aggregate, loaded from its first event.
+     */
+    @State(Scope.Thread)
+    public static class StoredAggregate {
+
+        @Param({"10", "100"})
+        private int events;
+
+        private String aggregateId;
+
+        @Setup(Level.Trial)
+        public void setUp(Engine engine) {
+            aggregateId = UUID.randomUUID().toString();
+            engine.storageEngine.appendEvents(events(aggregateId, events));
+        }
+    }
+
+    @Benchmark
+    public void append(Engine engine, Appends appends) {
+        engine.storageEngine.appendEvents(events(UUID.randomUUID().toString(), appends.eventsPerAppend));
+    }
+
+    @Benchmark
+    public Long loadAggregate(Engine engine, StoredAggregate aggregate) {
+        DomainEventStream stream = engine.storageEngine.readEvents(aggregate.aggregateId, 0);
+        while (stream.hasNext()) {
+            stream.next();
+        }
+        return stream.getLastSequenceNumber();
+    }
+
+    private static List<DomainEventMessage<?>> events(String aggregateId, int count) {
+        List<DomainEventMessage<?>> events = new ArrayList<>(count);
+        for (int sequence = 0; sequence < count; sequence++) {
+            OrderStatusUpdatedEvent payload = OrderStatusUpdatedEvent.builder()
+                    .orderId(aggregateId)
+                    .previousStatus(OrderStatus.PROCESSING)
+                    .newStatus(OrderStatus.PROCESSING)
+                    .reason("Update " + sequence)
+                    .updatedAt(AT)
+                    .build();
+            events.add(new GenericDomainEventMessage<>("Order", aggregateId, sequence, payload));
+        }
+        return events;
+    }
+
+    private static String createStatement(String table) throws Exception {
+        Matcher matcher = Pattern.compile("CREATE TABLE IF NOT EXISTS " + table + " \\(.*?\\);", Pattern.DOTALL)
+                .matcher(Files.readString(SCHEMA));
+        if (!matcher.find()) {
+            throw new IllegalStateException(table + " is not defined in " + SCHEMA);
+        }
+        return matcher.group();
+    }
+}
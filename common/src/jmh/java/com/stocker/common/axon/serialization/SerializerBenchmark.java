@@ -0,0 +1,127 @@
+package com.stocker.common.axon.serialization;
+
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.models.Order.OrderStatus;
+import com.stocker.common.models.OrderItem;
+import com.stocker.common.models.Payment.PaymentMethod;
+import com.stocker.common.models.Payment.PaymentStatus;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Jackson formats of {@link SerializerConfig} with XStream, Axon's default, on event
+ * payloads. Payloads go through a {@link MeteredSerializer} as they do in the services, and the mean
+ * serialized size it recorded is printed per format and event once per trial.
+ * Run with {@code mvn -pl common -Pjmh test-compile exec:exec -Djmh.benchmarks=SerializerBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 3, 14, 9, 26, 53);
+
+    @Param({"cbor", "json", "xstream"})
+    private String format;
+
+    @Param({"OrderCreatedEvent", "OrderStatusUpdatedEvent", "PaymentProcessedEvent"})
+    private String eventType;
+
+    private SimpleMeterRegistry registry;
+    private Serializer serializer;
+    private Object event;
+    private SerializedObject<byte[]> serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        serializer = new MeteredSerializer(SerializerConfig.newSerializer(format), registry, format, "events");
+        event = event(eventType);
+        serialized = serializer.serialize(event, byte[].class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DistributionSummary size = registry.get("axon.serializer.size").summary();
+        System.out.printf("%n%s %s: %.0f bytes%n", format, eventType, size.mean());
+        registry.close();
+    }
+
+    @Benchmark
+    public SerializedObject<byte[]> serialize() {
+        return serializer.serialize(event, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+
+    private static Object event(String eventType) {
+        return switch (eventType) {
+            case "OrderCreatedEvent" -> OrderCreatedEvent.builder()
+                    .orderId("order-1")
+                    .userId("user-1")
+                    .cartId("cart-1")
+                    .items(List.of(orderItem("order-item-1", 2), orderItem("order-item-2", 1)))
+                    .totalAmount(new BigDecimal("59.70"))
+                    .shippingAddress("1 Main Street")
+                    .createdAt(AT)
+                    .build();
+            case "OrderStatusUpdatedEvent" -> OrderStatusUpdatedEvent.builder()
+                    .orderId("order-1")
+                    .previousStatus(OrderStatus.CREATED)
+                    .newStatus(OrderStatus.PAYMENT_COMPLETED)
+                    .updatedAt(AT)
+                    .build();
+            case "PaymentProcessedEvent" -> PaymentProcessedEvent.builder()
+                    .paymentId("payment-1")
+                    .orderId("order-1")
+                    .userId("user-1")
+                    .amount(new BigDecimal("59.70"))
+                    .status(PaymentStatus.COMPLETED)
+                    .paymentMethod(PaymentMethod.CREDIT_CARD)
+                    .transactionId("tx-1")
+                    .processedAt(AT)
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown event type " + eventType);
+        };
+    }
+
+    private static OrderItem orderItem(String orderItemId, int quantity) {
+        return OrderItem.builder()
+                .orderItemId(orderItemId)
+                .orderId("order-1")
+                .productId("product-" + orderItemId)
+                .productName("Widget")
+                .quantity(quantity)
+                .unitPrice(new BigDecimal("19.90"))
+                .subtotal(new BigDecimal("19.90").multiply(BigDecimal.valueOf(quantity)))
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package com.stocker.common.axon;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.axonframework.common.Registration;
+import org.axonframework.common.caching.Cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Axon {@link Cache} for aggregate repositories and saga stores, bounded by size and by time since
+ * last access.
+ * Hits, misses and evictions are published as {@code cache.*} meters tagged with the cache name.
+ */
+public class AggregateCache implements Cache {
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache;
+    private final List<EntryListener> listeners = new CopyOnWriteArrayList<>();
+
+    public AggregateCache(long maximumSize, Duration expireAfterAccess) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .removalListener((key, value, cause) -> {
+                    if (cause == RemovalCause.EXPIRED || cause == RemovalCause.SIZE) {
+                        listeners.forEach(listener -> listener.onEntryExpired(key));
+                    }
+                })
+                .build();
+    }
+
+    public AggregateCache bindTo(MeterRegistry registry, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> V get(K key) {
+        V value = (V) cache.getIfPresent(key);
+        if (value != null) {
+            listeners.forEach(listener -> listener.onEntryRead(key, value));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object previous = cache.asMap().put(key, value);
+        listeners.forEach(listener -> {
+            if (previous == null) {
+                listener.onEntryCreated(key, value);
+            } else {
+                listener.onEntryUpdated(key, value);
+            }
+        });
+    }
+
+    @Override
+    public boolean putIfAbsent(Object key, Object value) {
+        boolean absent = cache.asMap().putIfAbsent(key, value) == null;
+        if (absent) {
+            listeners.forEach(listener -> listener.onEntryCreated(key, value));
+        }
+        return absent;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(Object key, Supplier<T> valueSupplier) {
+        return (T) cache.get(key, k -> valueSupplier.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> void computeIfPresent(Object key, UnaryOperator<V> update) {
+        cache.asMap().computeIfPresent(key, (k, value) -> update.apply((V) value));
+    }
+
+    @Override
+    public boolean remove(Object key) {
+        boolean removed = cache.asMap().remove(key) != null;
+        if (removed) {
+            listeners.forEach(listener -> listener.onEntryRemoved(key));
+        }
+        return removed;
+    }
+
+    public void removeAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return cache.asMap().containsKey(key);
+    }
+
+    @Override
+    public Registration registerCacheEntryListener(EntryListener cacheEntryListener) {
+        listeners.add(cacheEntryListener);
+        return () -> listeners.remove(cacheEntryListener);
+    }
+}
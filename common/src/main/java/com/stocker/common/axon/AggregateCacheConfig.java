@@ -0,0 +1,55 @@
+package com.stocker.common.axon;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.commandhandling.gateway.DefaultCommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Aggregate cache shared by the {@code @Aggregate} repositories of a service, referenced with
+ * {@code @Aggregate(cache = "aggregateCache")}. Cached aggregates skip the event store read on
+ * every command after the first. The command gateway retries commands rejected because a cached
+ * aggregate was stale, see {@link StaleAggregateRetryScheduler}.
+ */
+@Configuration
+public class AggregateCacheConfig {
+
+    @Value("${aggregate.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${aggregate.cache.expire-after-access-ms:600000}")
+    private long expireAfterAccessMs;
+
+    @Value("${aggregate.cache.stale-retries:2}")
+    private int staleRetries;
+
+    @Value("${aggregate.cache.stale-retry-initial-backoff-ms:20}")
+    private long staleRetryInitialBackoffMs;
+
+    @Value("${aggregate.cache.stale-retry-max-backoff-ms:500}")
+    private long staleRetryMaxBackoffMs;
+
+    @Bean
+    public AggregateCache aggregateCache(MeterRegistry meterRegistry) {
+        return new AggregateCache(maximumSize, Duration.ofMillis(expireAfterAccessMs))
+                .bindTo(meterRegistry, "axon.aggregates");
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public StaleAggregateRetryScheduler staleAggregateRetryScheduler() {
+        return new StaleAggregateRetryScheduler(staleRetries, staleRetryInitialBackoffMs, staleRetryMaxBackoffMs);
+    }
+
+    @Bean
+    public CommandGateway commandGateway(CommandBus commandBus, StaleAggregateRetryScheduler retryScheduler) {
+        return DefaultCommandGateway.builder()
+                .commandBus(commandBus)
+                .retryScheduler(retryScheduler)
+                .build();
+    }
+}
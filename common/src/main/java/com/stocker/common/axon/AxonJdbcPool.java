@@ -0,0 +1,79 @@
+package com.stocker.common.axon;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.axonframework.common.jdbc.ConnectionProvider;
+import org.axonframework.common.jdbc.UnitOfWorkAwareConnectionProviderWrapper;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.spring.jdbc.SpringDataSourceConnectionProvider;
+import org.axonframework.spring.messaging.unitofwork.SpringTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pool of the Axon JDBC infrastructure of a service: token store, embedded event store
+ * and projection rebuilds. It is deliberately not a {@code DataSource} bean, so the JDBC
+ * auto-configuration of Spring Boot and Axon stays off next to R2DBC.
+ * For the {@code postgres} event store engine, batched inserts are rewritten by the driver into
+ * multi-row inserts; otherwise each row of a batch is its own insert. Connections join the
+ * transaction of the {@link #transactionManager()} when one is active, and are in autocommit mode
+ * otherwise.
+ */
+public class AxonJdbcPool implements AutoCloseable {
+
+    private final HikariDataSource dataSource;
+    private final TransactionManager transactionManager;
+
+    /**
+     * @param url      JDBC url, or the R2DBC url of the service's database
+     * @param username Database user
+     * @param password Database password
+     * @param poolSize Maximum number of connections
+     */
+    public AxonJdbcPool(String url, String username, String password, int poolSize) {
+        this(url, username, password, poolSize, false);
+    }
+
+    /**
+     * @param url                   JDBC url, or the R2DBC url of the service's database
+     * @param username              Database user
+     * @param password              Database password
+     * @param poolSize              Maximum number of connections
+     * @param rewriteBatchedInserts Whether the driver rewrites batched inserts into multi-row inserts
+     */
+    public AxonJdbcPool(String url, String username, String password, int poolSize, boolean rewriteBatchedInserts) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url.startsWith("r2dbc:") ? "jdbc:" + url.substring("r2dbc:".length()) : url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setPoolName("axon-jdbc");
+        config.addDataSourceProperty("reWriteBatchedInserts", Boolean.toString(rewriteBatchedInserts));
+        this.dataSource = new HikariDataSource(config);
+        this.transactionManager = new SpringTransactionManager(new DataSourceTransactionManager(dataSource));
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Connections bound to the current unit of work, committed or rolled back with it.
+     */
+    public ConnectionProvider connectionProvider() {
+        return new UnitOfWorkAwareConnectionProviderWrapper(new SpringDataSourceConnectionProvider(dataSource));
+    }
+
+    /**
+     * JDBC transactions on this pool, for units of work writing through the {@link #connectionProvider()}.
+     */
+    public TransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
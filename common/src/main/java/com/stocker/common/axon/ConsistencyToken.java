@@ -0,0 +1,20 @@
+package com.stocker.common.axon;
+
+import lombok.Value;
+
+/**
+ * Position of a write in an aggregate's event stream: a read is consistent with the write once a
+ * projection has applied the event with this sequence number, or a later one, of the aggregate.
+ */
+@Value(staticConstructor = "of")
+public class ConsistencyToken {
+    String aggregateId;
+    long sequenceNumber;
+
+    /**
+     * Token of the first event of an aggregate, as returned by a creation command.
+     */
+    public static ConsistencyToken created(String aggregateId) {
+        return of(aggregateId, 0);
+    }
+}
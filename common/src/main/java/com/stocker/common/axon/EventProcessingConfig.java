@@ -0,0 +1,165 @@
+package com.stocker.common.axon;
+
+import com.stocker.common.axon.rebuild.ProjectionRebuild;
+import com.stocker.common.axon.rebuild.ProjectionRebuildEndpoint;
+import com.stocker.common.axon.rebuild.ProjectionRebuilder;
+import org.axonframework.config.ConfigurerModule;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.PropagatingErrorHandler;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.async.SequencingPolicy;
+import org.axonframework.eventhandling.async.SequentialPerAggregatePolicy;
+import org.axonframework.eventhandling.tokenstore.TokenStore;
+import org.axonframework.eventhandling.tokenstore.jdbc.JdbcTokenStore;
+import org.axonframework.eventhandling.tokenstore.jdbc.TokenSchema;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.messaging.StreamableMessageSource;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Event processor infrastructure shared by the projections of a service.
+ * Tracking tokens are stored in the service's Postgres database (table {@code token_entry}), so
+ * segments can be claimed by several threads and nodes and survive restarts. The database is the
+ * one of {@code spring.r2dbc.url} unless {@code axon.token-store.url} is set; its
+ * {@link AxonJdbcPool} is shared with the {@link ProjectionRebuilder} and the embedded event store.
+ * Processors are configured per processing group with {@code axon.eventhandling.processors.*}.
+ * Projections with a {@link ProjectionRebuild} bean can be rebuilt through the {@code projections}
+ * actuator endpoint, and report applied events to the {@link ProjectionNotifier} for
+ * read-your-writes queries; the {@link PostgresProjectionRelay} passes these reports between nodes.
+ */
+@Configuration
+public class EventProcessingConfig {
+
+    @Value("${axon.token-store.url:${spring.r2dbc.url}}")
+    private String url;
+
+    @Value("${axon.token-store.username:${spring.r2dbc.username}}")
+    private String username;
+
+    @Value("${axon.token-store.password:${spring.r2dbc.password}}")
+    private String password;
+
+    @Value("${axon.token-store.pool-size:8}")
+    private int poolSize;
+
+    @Value("${axon.event-store.engine:}")
+    private String eventStoreEngine;
+
+    @Value("${axon.projection-rebuild.idle-timeout-ms:5000}")
+    private long rebuildIdleTimeoutMs;
+
+    @Value("${axon.projection-rebuild.batch-size:10000}")
+    private int rebuildBatchSize;
+
+    @Value("${axon.projection.await-timeout-ms:2000}")
+    private long projectionAwaitTimeoutMs;
+
+    @Value("${axon.eventhandling.start-at-head:}")
+    private String[] startAtHead;
+
+    @Bean
+    public AxonJdbcPool axonJdbcPool() {
+        // Only the postgres event store engine gets multi-row inserts, the jdbc engine stays a baseline
+        return new AxonJdbcPool(url, username, password, poolSize, "postgres".equals(eventStoreEngine));
+    }
+
+    @Bean
+    public TokenStore tokenStore(AxonJdbcPool axonJdbcPool, Serializer serializer) {
+        return JdbcTokenStore.builder()
+                .connectionProvider(axonJdbcPool.connectionProvider())
+                .schema(tokenSchema())
+                .serializer(serializer)
+                .build();
+    }
+
+    /**
+     * The snake_case {@code token_entry} table of the services' schema.sql.
+     */
+    public static TokenSchema tokenSchema() {
+        return TokenSchema.builder()
+                .setTokenTable("token_entry")
+                .setProcessorNameColumn("processor_name")
+                .setSegmentColumn("segment")
+                .setTokenColumn("token")
+                .setTokenTypeColumn("token_type")
+                .setTimestampColumn("timestamp")
+                .setOwnerColumn("owner")
+                .build();
+    }
+
+    @Bean
+    @SuppressWarnings("unchecked")
+    public ProjectionRebuilder projectionRebuilder(AxonJdbcPool axonJdbcPool,
+                                                   EventStore eventStore,
+                                                   EventProcessingConfiguration processingConfiguration,
+                                                   ObjectProvider<ProjectionRebuild> rebuilds) {
+        if (!(eventStore instanceof StreamableMessageSource<?>)) {
+            throw new IllegalStateException("Projection rebuilds need a streamable event store");
+        }
+        return new ProjectionRebuilder(axonJdbcPool.getDataSource(),
+                (StreamableMessageSource<TrackedEventMessage<?>>) eventStore,
+                processingConfiguration, rebuilds.orderedStream().toList(), rebuildIdleTimeoutMs,
+                rebuildBatchSize);
+    }
+
+    @Bean
+    public ProjectionRebuildEndpoint projectionRebuildEndpoint(ProjectionRebuilder projectionRebuilder) {
+        return new ProjectionRebuildEndpoint(projectionRebuilder);
+    }
+
+    @Bean
+    public ProjectionNotifier projectionNotifier() {
+        return new ProjectionNotifier(100_000, Duration.ofMinutes(5), Duration.ofMillis(projectionAwaitTimeoutMs));
+    }
+
+    /**
+     * Shares the {@link ProjectionNotifier} signals between the nodes of the service, so
+     * read-your-writes waits complete wherever the projection segment runs.
+     */
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(name = "axon.projection.relay.enabled", havingValue = "true", matchIfMissing = true)
+    public PostgresProjectionRelay projectionRelay(AxonJdbcPool axonJdbcPool, ProjectionNotifier projectionNotifier) {
+        return new PostgresProjectionRelay(axonJdbcPool.getDataSource(), projectionNotifier, 65_536);
+    }
+
+    /**
+     * Projection handlers block on their writes; a failed write fails the handler, and with it the
+     * batch, so the processor retries from the last stored token instead of logging and moving on.
+     */
+    @Bean
+    public ConfigurerModule propagatingHandlerErrors() {
+        return configurer -> configurer.eventProcessing()
+                .registerDefaultListenerInvocationErrorHandler(configuration -> PropagatingErrorHandler.instance());
+    }
+
+    /**
+     * Pooled processors listed in {@code axon.eventhandling.start-at-head} begin at the head of the
+     * event store when they have no token yet, instead of at its first event. Meant for handlers with
+     * side effects, which must not act on the history of the store.
+     */
+    @Bean
+    public ConfigurerModule headStartingProcessors() {
+        return configurer -> {
+            for (String processorName : startAtHead) {
+                configurer.eventProcessing().registerPooledStreamingEventProcessorConfiguration(processorName,
+                        (configuration, builder) -> builder.initialToken(StreamableMessageSource::createHeadToken));
+            }
+        };
+    }
+
+    /**
+     * Keeps the events of one aggregate in order while spreading aggregates over the segments.
+     */
+    @Bean
+    public SequencingPolicy<EventMessage<?>> sequentialPerAggregatePolicy() {
+        return SequentialPerAggregatePolicy.instance();
+    }
+}
@@ -0,0 +1,196 @@
+package com.stocker.common.axon;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries the signals of a {@link ProjectionNotifier} between the nodes of a service over Postgres
+ * {@code LISTEN}/{@code NOTIFY}, so a read waiting on one node completes when the projection
+ * segment of its aggregate runs on another.
+ * Applied positions are queued and sent by one thread, a batch per {@code pg_notify} statement.
+ * A second thread keeps a connection listening on the channel and hands every position it
+ * receives, its own node's included, to the notifier. Signals are best effort: when the queue is
+ * full or the connection is lost they are dropped, and the reads waiting for them end after
+ * their timeout.
+ */
+@Slf4j
+public class PostgresProjectionRelay implements AutoCloseable {
+
+    static final String CHANNEL = "projection_applied";
+
+    private static final String NOTIFY_SQL =
+            "SELECT pg_notify('" + CHANNEL + "', payload) FROM unnest(?) AS payload";
+
+    private static final char SEPARATOR = ':';
+    private static final int MAX_BATCH = 1000;
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final DataSource dataSource;
+    private final ProjectionNotifier notifier;
+    private final BlockingQueue<String> pending;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread publisher;
+    private Thread listener;
+
+    /**
+     * @param dataSource    Pool of the service's database; the listener holds one connection of it
+     * @param notifier      The notifier whose signals are relayed
+     * @param queueCapacity Signals waiting to be sent before new ones are dropped
+     */
+    public PostgresProjectionRelay(DataSource dataSource, ProjectionNotifier notifier, int queueCapacity) {
+        this.dataSource = dataSource;
+        this.notifier = notifier;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void start() {
+        running = true;
+        notifier.relayThrough(this);
+        publisher = start("projection-relay-publisher", this::publishLoop);
+        listener = start("projection-relay-listener", this::listenLoop);
+        log.info("Relaying projection signals over Postgres channel {}", CHANNEL);
+    }
+
+    /**
+     * Queue a position for the other nodes.
+     */
+    void publish(String aggregateId, long sequenceNumber) {
+        if (running && !pending.offer(aggregateId + SEPARATOR + sequenceNumber)) {
+            log.debug("Projection relay queue full, dropping the signal for {}", aggregateId);
+        }
+    }
+
+    /**
+     * @return Whether the listener is currently receiving signals
+     */
+    boolean isListening() {
+        return listening;
+    }
+
+    private void publishLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            try {
+                String first = pending.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, MAX_BATCH - 1);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException e) {
+                log.warn("Unable to send {} projection signals: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<String> payloads) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL)) {
+            statement.setArray(1, connection.createArrayOf("text", payloads.toArray()));
+            statement.execute();
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try {
+                    listen(connection);
+                } finally {
+                    listening = false;
+                    unlisten(connection);
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Projection relay lost its listening connection, reconnecting: {}", e.getMessage());
+                    sleep(RECONNECT_DELAY_MS);
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        listening = true;
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    receive(notification.getParameter());
+                }
+            }
+        }
+    }
+
+    /**
+     * The connection goes back to the pool, which must not hand it out still subscribed.
+     */
+    private static void unlisten(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UNLISTEN " + CHANNEL);
+        } catch (SQLException e) {
+            log.debug("Unable to unlisten, the connection is broken: {}", e.getMessage());
+        }
+    }
+
+    private void receive(String payload) {
+        int separator = payload.lastIndexOf(SEPARATOR);
+        try {
+            notifier.signal(payload.substring(0, separator), Long.parseLong(payload.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.debug("Ignoring malformed projection signal {}", payload);
+        }
+    }
+
+    private static Thread start(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (publisher != null) {
+            publisher.interrupt();
+            publisher.join(RECONNECT_DELAY_MS);
+        }
+        if (listener != null) {
+            // Leaves its wait for notifications within POLL_TIMEOUT_MS
+            listener.join(RECONNECT_DELAY_MS + POLL_TIMEOUT_MS);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.stocker.common.axon;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process signal between projections and the reads that must see a write.
+ * Projections report every event they committed with {@link #applied}; a reader waits on the
+ * {@link ConsistencyToken} of its command with {@link #awaitApplied} and reads once it completes,
+ * instead of polling the read model. Recently applied positions are remembered, so a wait started
+ * after the projection caught up completes at once. Signals of projection segments running on
+ * other nodes arrive through a {@link PostgresProjectionRelay}; without one, or when a signal is
+ * lost, the wait ends after the timeout and the read may miss the write.
+ */
+@Slf4j
+public class ProjectionNotifier {
+
+    private final Cache<String, Long> appliedPositions;
+    private final Map<String, List<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private volatile PostgresProjectionRelay relay;
+
+    public ProjectionNotifier(long maximumPositions, Duration retention, Duration timeout) {
+        this.appliedPositions = Caffeine.newBuilder()
+                .maximumSize(maximumPositions)
+                .expireAfterWrite(retention)
+                .build();
+        this.timeout = timeout;
+    }
+
+    /**
+     * Report that a projection committed an event of an aggregate.
+     */
+    public void applied(String aggregateId, long sequenceNumber) {
+        signal(aggregateId, sequenceNumber);
+        PostgresProjectionRelay current = relay;
+        if (current != null) {
+            current.publish(aggregateId, sequenceNumber);
+        }
+    }
+
+    /**
+     * Send the signals of this node to the other nodes, and receive theirs, through a relay.
+     */
+    void relayThrough(PostgresProjectionRelay relay) {
+        this.relay = relay;
+    }
+
+    /**
+     * Complete the waits for an applied event, whichever node applied it.
+     */
+    void signal(String aggregateId, long sequenceNumber) {
+        appliedPositions.asMap().merge(aggregateId, sequenceNumber, Math::max);
+        List<Waiter> pending = waiters.get(aggregateId);
+        if (pending != null) {
+            pending.removeIf(waiter -> waiter.sequenceNumber <= sequenceNumber && waiter.complete());
+            waiters.computeIfPresent(aggregateId, (id, list) -> list.isEmpty() ? null : list);
+        }
+    }
+
+    /**
+     * Wait until the projection applied the token's event.
+     *
+     * @return Mono<Void> that completes when the event was applied, or after the timeout
+     */
+    public Mono<Void> awaitApplied(ConsistencyToken token) {
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter(token.getSequenceNumber());
+            waiters.compute(token.getAggregateId(), (id, list) -> {
+                List<Waiter> registered = list != null ? list : new CopyOnWriteArrayList<>();
+                registered.add(waiter);
+                return registered;
+            });
+            // Checked after registering, so a signal between the check and the registration is not lost
+            Long applied = appliedPositions.getIfPresent(token.getAggregateId());
+            if (applied != null && applied >= token.getSequenceNumber()) {
+                waiter.complete();
+            }
+            return waiter.sink.asMono()
+                    .timeout(timeout, Mono.fromRunnable(() ->
+                            log.debug("No projection signal for {} within {}", token, timeout)))
+                    .doFinally(signal -> waiters.computeIfPresent(token.getAggregateId(), (id, list) -> {
+                        list.remove(waiter);
+                        return list.isEmpty() ? null : list;
+                    }));
+        });
+    }
+
+    private static final class Waiter {
+
+        private final long sequenceNumber;
+        private final Sinks.Empty<Void> sink = Sinks.empty();
+
+        private Waiter(long sequenceNumber) {
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        private boolean complete() {
+            sink.tryEmitEmpty();
+            return true;
+        }
+    }
+}
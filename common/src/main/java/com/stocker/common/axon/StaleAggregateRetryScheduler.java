@@ -0,0 +1,87 @@
+package com.stocker.common.axon;
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.gateway.RetryScheduler;
+import org.axonframework.common.AxonThreadFactory;
+import org.axonframework.modelling.command.ConcurrencyException;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries commands that failed on a stale cached aggregate.
+ * When commands for an aggregate move to another node of a distributed command bus, the copy left
+ * in the previous node's cache misses the events appended elsewhere. Its next event then conflicts
+ * with the event store's sequence number, the repository evicts the entry on rollback and the
+ * command fails with a {@link ConcurrencyException}; dispatching it again loads the current state.
+ * Other failures are not retried.
+ * Retries are dispatched from a scheduler thread after an exponential backoff, doubling from
+ * {@code initialBackoffMs} up to {@code maxBackoffMs}, with a random jitter of up to half the
+ * delay. The failed caller's thread is not held, and commands that collided on a hot aggregate
+ * do not collide again in lockstep. At most {@code maxRetries} retries are made.
+ */
+@Slf4j
+public class StaleAggregateRetryScheduler implements RetryScheduler {
+
+    private final int maxRetries;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new AxonThreadFactory("stale-aggregate-retry"));
+
+    public StaleAggregateRetryScheduler(int maxRetries, long initialBackoffMs, long maxBackoffMs) {
+        this.maxRetries = maxRetries;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean scheduleRetry(CommandMessage commandMessage, RuntimeException lastFailure,
+                                 List<Class<? extends Throwable>[]> failures, Runnable commandDispatch) {
+        if (failures.size() > maxRetries || !isConcurrencyFailure(lastFailure)) {
+            return false;
+        }
+        long delayMs = backoff(failures.size());
+        log.debug("Retrying command {} in {} ms after a concurrency failure (attempt {})",
+                commandMessage.getCommandName(), delayMs, failures.size());
+        try {
+            executor.schedule(commandDispatch, delayMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Not retrying command {}, the scheduler is shut down", commandMessage.getCommandName());
+            return false;
+        }
+    }
+
+    /**
+     * @param attempt The number of failed attempts so far, starting at 1
+     * @return the delay before the next attempt, between half and all of the exponential backoff
+     */
+    long backoff(int attempt) {
+        long delay = initialBackoffMs << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > maxBackoffMs) {
+            delay = maxBackoffMs;
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static boolean isConcurrencyFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+package com.stocker.common.axon.command;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.distributed.AnnotationRoutingStrategy;
+import org.axonframework.commandhandling.distributed.RoutingStrategy;
+import org.axonframework.commandhandling.distributed.UnresolvedRoutingKeyPolicy;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.messaging.interceptors.CorrelationDataInterceptor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Command routing shared by the services.
+ * Commands are routed by their {@code @TargetAggregateIdentifier}; Axon Server sends all commands
+ * with the same routing key to the same instance by consistent hashing, so an aggregate stays hot
+ * in one instance's cache and only a share of the aggregates moves when instances come or go.
+ * Instances take a share proportional to {@code axon.axonserver.command-load-factor}.
+ * Within an instance, the {@code localSegment} handling the routed commands is a
+ * {@link SegmentedCommandBus} with {@code axon.command-bus.segments} threads, one per core by default,
+ * each queueing at most {@code axon.command-bus.segment-queue-capacity} commands.
+ */
+@Configuration
+public class CommandBusConfig {
+
+    @Value("${axon.command-bus.segments:0}")
+    private int segments;
+
+    @Value("${axon.command-bus.segment-queue-capacity:1024}")
+    private int segmentQueueCapacity;
+
+    /**
+     * Every command must name its aggregate; a random routing key would scatter an aggregate's commands.
+     */
+    @Bean
+    public RoutingStrategy routingStrategy() {
+        return AnnotationRoutingStrategy.builder()
+                .fallbackRoutingStrategy(UnresolvedRoutingKeyPolicy.ERROR)
+                .build();
+    }
+
+    @Bean
+    @Qualifier("localSegment")
+    public CommandBus localSegment(TransactionManager transactionManager,
+                                   org.axonframework.config.Configuration configuration,
+                                   RoutingStrategy routingStrategy,
+                                   MeterRegistry meterRegistry) {
+        SimpleCommandBus commandBus = SimpleCommandBus.builder()
+                .transactionManager(transactionManager)
+                .messageMonitor(configuration.messageMonitor(CommandBus.class, "commandBus"))
+                .build();
+        commandBus.registerHandlerInterceptor(new CorrelationDataInterceptor<>(configuration.correlationDataProviders()));
+        int segmentCount = segments > 0 ? segments : Runtime.getRuntime().availableProcessors();
+        return new SegmentedCommandBus(commandBus, routingStrategy, segmentCount, segmentQueueCapacity)
+                .bindTo(meterRegistry);
+    }
+}
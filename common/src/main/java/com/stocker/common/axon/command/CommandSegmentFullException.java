@@ -0,0 +1,14 @@
+package com.stocker.common.axon.command;
+
+import org.axonframework.common.AxonTransientException;
+
+/**
+ * Thrown when a command is dispatched to a {@link SegmentedCommandBus} segment whose queue is full.
+ * The command was not handled; it is transient, so it may be sent again once the segment caught up.
+ */
+public class CommandSegmentFullException extends AxonTransientException {
+
+    public CommandSegmentFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,126 @@
+package com.stocker.common.axon.command;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandResultMessage;
+import org.axonframework.commandhandling.distributed.RoutingStrategy;
+import org.axonframework.common.AxonThreadFactory;
+import org.axonframework.common.Registration;
+import org.axonframework.messaging.MessageDispatchInterceptor;
+import org.axonframework.messaging.MessageHandler;
+import org.axonframework.messaging.MessageHandlerInterceptor;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local command bus that handles commands on a fixed number of single-threaded segments, chosen
+ * by the command's routing key. Commands for one aggregate run one after another on the same
+ * thread in dispatch order, so they never wait on the aggregate lock or conflict with each other,
+ * while different aggregates are handled in parallel on all segments.
+ * A command handler must not wait for the result of another command, which may be queued behind it.
+ * Each segment queues at most {@code queueCapacity} commands. A command for a full segment is not
+ * queued; its callback fails at once with a {@link CommandSegmentFullException}, so an overloaded
+ * instance sheds load instead of queueing work its callers have long given up on.
+ */
+@Slf4j
+public class SegmentedCommandBus implements CommandBus {
+
+    private final CommandBus delegate;
+    private final RoutingStrategy routingStrategy;
+    private final ThreadPoolExecutor[] segments;
+    private final int queueCapacity;
+    private Counter rejected;
+
+    /**
+     * @param delegate        The bus handling the commands, usually a {@code SimpleCommandBus}
+     * @param routingStrategy Resolves the routing key, the aggregate identifier, of a command
+     * @param segmentCount    Number of segment threads
+     * @param queueCapacity   Commands each segment queues before rejecting new ones
+     */
+    public SegmentedCommandBus(CommandBus delegate, RoutingStrategy routingStrategy, int segmentCount,
+                               int queueCapacity) {
+        this.delegate = delegate;
+        this.routingStrategy = routingStrategy;
+        this.queueCapacity = queueCapacity;
+        this.segments = new ThreadPoolExecutor[segmentCount];
+        AxonThreadFactory threadFactory = new AxonThreadFactory("command-segment");
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        }
+    }
+
+    public SegmentedCommandBus bindTo(MeterRegistry registry) {
+        Gauge.builder("axon.command.segments.queued", this, SegmentedCommandBus::queued)
+                .description("Commands waiting for their segment")
+                .register(registry);
+        rejected = Counter.builder("axon.command.segments.rejected")
+                .description("Commands rejected because their segment's queue was full")
+                .register(registry);
+        return this;
+    }
+
+    @Override
+    public <C, R> void dispatch(CommandMessage<C> command, CommandCallback<? super C, ? super R> callback) {
+        int index = Math.floorMod(routingStrategy.getRoutingKey(command).hashCode(), segments.length);
+        ThreadPoolExecutor segment = segments[index];
+        try {
+            segment.execute(() -> delegate.dispatch(command, callback));
+        } catch (RejectedExecutionException e) {
+            Exception failure = e;
+            if (!segment.isShutdown()) {
+                failure = new CommandSegmentFullException("Command segment " + index + " has " + queueCapacity
+                        + " commands queued, rejected " + command.getCommandName());
+                if (rejected != null) {
+                    rejected.increment();
+                }
+            }
+            callback.onResult(command, GenericCommandResultMessage.asCommandResultMessage(failure));
+        }
+    }
+
+    @Override
+    public Registration subscribe(String commandName, MessageHandler<? super CommandMessage<?>> handler) {
+        return delegate.subscribe(commandName, handler);
+    }
+
+    @Override
+    public Registration registerDispatchInterceptor(
+            MessageDispatchInterceptor<? super CommandMessage<?>> dispatchInterceptor) {
+        return delegate.registerDispatchInterceptor(dispatchInterceptor);
+    }
+
+    @Override
+    public Registration registerHandlerInterceptor(
+            MessageHandlerInterceptor<? super CommandMessage<?>> handlerInterceptor) {
+        return delegate.registerHandlerInterceptor(handlerInterceptor);
+    }
+
+    private int queued() {
+        return Arrays.stream(segments).mapToInt(segment -> segment.getQueue().size()).sum();
+    }
+
+    /**
+     * Stop accepting commands and let the queued ones finish.
+     */
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor segment : segments) {
+            segment.shutdown();
+        }
+        for (ThreadPoolExecutor segment : segments) {
+            if (!segment.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Command segment did not finish its queued commands, {} dropped",
+                        segment.shutdownNow().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.stocker.common.axon.deadline;
+
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.config.ConfigurationScopeAwareProvider;
+import org.axonframework.deadline.DeadlineManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Deadline manager of a service whose sagas or aggregates schedule deadlines, see
+ * {@link TimingWheelDeadlineManager}. The default tick keeps a saga's step timeouts within a
+ * tenth of a second while the wheel thread wakes up only ten times a second.
+ */
+@Configuration
+public class DeadlineConfig {
+
+    @Value("${axon.deadline.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${axon.deadline.ticks-per-wheel:1024}")
+    private int ticksPerWheel;
+
+    @Value("${axon.deadline.worker-threads:4}")
+    private int workerThreads;
+
+    @Bean
+    public DeadlineManager deadlineManager(org.axonframework.config.Configuration configuration,
+                                           TransactionManager transactionManager) {
+        return new TimingWheelDeadlineManager(new ConfigurationScopeAwareProvider(configuration),
+                transactionManager, Duration.ofMillis(tickMs), ticksPerWheel, workerThreads);
+    }
+}
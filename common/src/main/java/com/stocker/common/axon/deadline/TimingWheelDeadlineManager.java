@@ -0,0 +1,158 @@
+package com.stocker.common.axon.deadline;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.common.AxonThreadFactory;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.deadline.AbstractDeadlineManager;
+import org.axonframework.deadline.DeadlineException;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.deadline.GenericDeadlineMessage;
+import org.axonframework.messaging.DefaultInterceptorChain;
+import org.axonframework.messaging.ResultMessage;
+import org.axonframework.messaging.ScopeAwareProvider;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline manager on a hashed timing wheel. Scheduling and cancelling a deadline take constant
+ * time however many deadlines are pending, and the wheel thread only hands expired deadlines to a
+ * worker pool, which delivers each in its own unit of work.
+ * Deadlines are held in memory: the ones pending when the service stops are lost, so whatever
+ * relies on them needs a backstop that finds the work they should have timed out.
+ */
+@Slf4j
+public class TimingWheelDeadlineManager extends AbstractDeadlineManager {
+
+    private final ScopeAwareProvider scopeAwareProvider;
+    private final TransactionManager transactionManager;
+    private final ExecutorService workers;
+    private final HashedWheelTimer wheel;
+    private final Map<String, ScheduledDeadline> scheduled = new ConcurrentHashMap<>();
+
+    /**
+     * @param scopeAwareProvider Finds the sagas and aggregates a deadline is delivered to
+     * @param transactionManager Transaction of the unit of work delivering a deadline
+     * @param tickDuration       Precision of the deadlines; a deadline fires up to one tick late
+     * @param ticksPerWheel      Slots of the wheel; deadlines further out than one turn wait for later turns
+     * @param workerThreads      Threads delivering expired deadlines
+     */
+    public TimingWheelDeadlineManager(ScopeAwareProvider scopeAwareProvider, TransactionManager transactionManager,
+                                      Duration tickDuration, int ticksPerWheel, int workerThreads) {
+        this.scopeAwareProvider = scopeAwareProvider;
+        this.transactionManager = transactionManager;
+        this.workers = Executors.newFixedThreadPool(workerThreads, new AxonThreadFactory("deadline-worker"));
+        this.wheel = new HashedWheelTimer(new AxonThreadFactory("deadline-wheel"), tickDuration.toMillis(),
+                TimeUnit.MILLISECONDS, ticksPerWheel, false, -1, workers);
+    }
+
+    @Override
+    public String schedule(Instant triggerDateTime, String deadlineName, Object messageOrPayload,
+                           ScopeDescriptor deadlineScope) {
+        DeadlineMessage<Object> deadlineMessage =
+                GenericDeadlineMessage.asDeadlineMessage(deadlineName, messageOrPayload, triggerDateTime);
+        String scheduleId = deadlineMessage.getIdentifier();
+        runOnPrepareCommitOrNow(() -> {
+            DeadlineMessage<Object> interceptedMessage = processDispatchInterceptors(deadlineMessage);
+            long delayMs = Math.max(0, Duration.between(Instant.now(), triggerDateTime).toMillis());
+            Timeout timeout = wheel.newTimeout(expired -> deliver(scheduleId, interceptedMessage, deadlineScope),
+                    delayMs, TimeUnit.MILLISECONDS);
+            ScheduledDeadline deadline = new ScheduledDeadline(deadlineName, deadlineScope, timeout);
+            scheduled.put(scheduleId, deadline);
+            if (timeout.isExpired()) {
+                // Already delivered before it was registered
+                scheduled.remove(scheduleId, deadline);
+            }
+        });
+        return scheduleId;
+    }
+
+    @Override
+    public void cancelSchedule(String deadlineName, String scheduleId) {
+        runOnPrepareCommitOrNow(() -> {
+            ScheduledDeadline deadline = scheduled.get(scheduleId);
+            if (deadline != null && deadline.name().equals(deadlineName) && scheduled.remove(scheduleId, deadline)) {
+                deadline.timeout().cancel();
+            }
+        });
+    }
+
+    @Override
+    public void cancelAll(String deadlineName) {
+        runOnPrepareCommitOrNow(() -> cancelMatching(deadlineName, null));
+    }
+
+    @Override
+    public void cancelAllWithinScope(String deadlineName, ScopeDescriptor scope) {
+        runOnPrepareCommitOrNow(() -> cancelMatching(deadlineName, scope));
+    }
+
+    private void cancelMatching(String deadlineName, ScopeDescriptor scope) {
+        scheduled.entrySet().removeIf(entry -> {
+            ScheduledDeadline deadline = entry.getValue();
+            boolean matches = deadline.name().equals(deadlineName)
+                    && (scope == null || scope.equals(deadline.scope()));
+            if (matches) {
+                deadline.timeout().cancel();
+            }
+            return matches;
+        });
+    }
+
+    private void deliver(String scheduleId, DeadlineMessage<?> deadlineMessage, ScopeDescriptor deadlineScope) {
+        scheduled.remove(scheduleId);
+        DefaultUnitOfWork<DeadlineMessage<?>> unitOfWork = DefaultUnitOfWork.startAndGet(deadlineMessage);
+        unitOfWork.attachTransaction(transactionManager);
+        DefaultInterceptorChain<DeadlineMessage<?>> chain =
+                new DefaultInterceptorChain<>(unitOfWork, handlerInterceptors(), message -> {
+                    scopeAwareProvider.provideScopeAwareStream(deadlineScope)
+                            .filter(scopeAware -> scopeAware.canResolve(deadlineScope))
+                            .forEach(scopeAware -> {
+                                try {
+                                    scopeAware.send(message, deadlineScope);
+                                } catch (Exception e) {
+                                    throw new DeadlineException(
+                                            "Failed to send deadline " + message.getDeadlineName(), e);
+                                }
+                            });
+                    return null;
+                });
+        ResultMessage<?> result = unitOfWork.executeWithResult(chain::proceed);
+        if (result.isExceptional()) {
+            log.error("Deadline {} of {} failed", deadlineMessage.getDeadlineName(), deadlineScope,
+                    result.exceptionResult());
+        }
+    }
+
+    /**
+     * Stop the wheel, dropping the pending deadlines, and let the deadlines being delivered finish.
+     */
+    @Override
+    public void shutdown() {
+        int dropped = wheel.stop().size();
+        if (dropped > 0) {
+            log.warn("Deadline manager stopped with {} pending deadlines", dropped);
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduled.clear();
+    }
+
+    private record ScheduledDeadline(String name, ScopeDescriptor scope, Timeout timeout) {
+    }
+}
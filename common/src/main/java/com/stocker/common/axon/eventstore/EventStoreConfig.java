@@ -0,0 +1,170 @@
+package com.stocker.common.axon.eventstore;
+
+import com.stocker.common.axon.AxonJdbcPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.eventhandling.EventSchema;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.EventStorageEngine;
+import org.axonframework.eventsourcing.eventstore.jdbc.JdbcEventStorageEngine;
+import org.axonframework.eventsourcing.eventstore.jdbc.statements.JdbcEventStorageEngineStatements;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Embedded event store in the service's Postgres database instead of Axon Server, enabled with
+ * {@code axon.event-store.engine} together with {@code axon.axonserver.enabled=false}. Events are
+ * stored in {@code domain_event_entry} and {@code snapshot_event_entry} of the database of the
+ * {@link AxonJdbcPool}; services whose events are handled by another service's saga must share
+ * that database.
+ * <ul>
+ *     <li>{@code postgres}: the units of work's events are appended as one batch, rewritten by the
+ *     driver into multi-row inserts, and read in large batches fetched in one round trip. Gap
+ *     detection of the tracking processors is tuned for many concurrent appends.</li>
+ *     <li>{@code jdbc}: Axon's JDBC engine with its defaults, as a baseline.</li>
+ * </ul>
+ * Both engines are metered by {@link MeteredEventStorageEngine}. Appends run in a JDBC transaction
+ * on the pool, which also becomes the units of work's transaction, so the events of a command are
+ * committed together or not at all.
+ */
+@Configuration
+@ConditionalOnProperty(name = "axon.event-store.engine")
+public class EventStoreConfig {
+
+    @Value("${axon.event-store.engine}")
+    private String engine;
+
+    @Value("${axon.event-store.batch-size:500}")
+    private int batchSize;
+
+    @Value("${axon.event-store.gap-timeout-ms:15000}")
+    private int gapTimeoutMs;
+
+    @Value("${axon.event-store.max-gap-offset:10000}")
+    private int maxGapOffset;
+
+    @Value("${axon.event-store.gap-cleaning-threshold:250}")
+    private int gapCleaningThreshold;
+
+    @Value("${axon.event-store.fetch-delay-ms:100}")
+    private long fetchDelayMs;
+
+    @Value("${axon.event-store.cached-events:10000}")
+    private int cachedEvents;
+
+    @Bean
+    public EventStorageEngine eventStorageEngine(AxonJdbcPool axonJdbcPool,
+                                                 Serializer serializer,
+                                                 @Qualifier("eventSerializer") Serializer eventSerializer,
+                                                 org.axonframework.config.Configuration configuration,
+                                                 MeterRegistry meterRegistry) {
+        JdbcEventStorageEngine.Builder builder =
+                engineBuilder(engine, axonJdbcPool, batchSize, gapTimeoutMs, maxGapOffset, gapCleaningThreshold)
+                        .snapshotSerializer(serializer)
+                        .eventSerializer(eventSerializer)
+                        .upcasterChain(configuration.upcasterChain());
+        return new MeteredEventStorageEngine(builder.build(), meterRegistry, engine);
+    }
+
+    /**
+     * Builder of the storage engine of {@code axon.event-store.engine} over the pool, still lacking
+     * its serializers and upcasters. The batch size and gap settings only apply to the
+     * {@code postgres} engine.
+     */
+    public static JdbcEventStorageEngine.Builder engineBuilder(String engine, AxonJdbcPool axonJdbcPool,
+                                                                int batchSize, int gapTimeoutMs,
+                                                                int maxGapOffset, int gapCleaningThreshold) {
+        JdbcEventStorageEngine.Builder builder = JdbcEventStorageEngine.builder()
+                .connectionProvider(axonJdbcPool.connectionProvider())
+                .transactionManager(axonJdbcPool.transactionManager())
+                .schema(eventSchema())
+                .persistenceExceptionResolver(EventStoreConfig::isDuplicateKeyViolation);
+        switch (engine) {
+            case "postgres" -> builder
+                    .batchSize(batchSize)
+                    // Concurrent appends commit out of index order, leaving short-lived gaps
+                    .gapTimeout(gapTimeoutMs)
+                    .maxGapOffset(maxGapOffset)
+                    .gapCleaningThreshold(gapCleaningThreshold)
+                    .readEventDataForAggregate((connection, schema, identifier, firstSequenceNumber, size) ->
+                            fetchBatch(JdbcEventStorageEngineStatements.readEventDataForAggregate(
+                                    connection, schema, identifier, firstSequenceNumber, size), size))
+                    .readEventDataWithoutGaps((connection, schema, globalIndex, size) ->
+                            fetchBatch(JdbcEventStorageEngineStatements.readEventDataWithoutGaps(
+                                    connection, schema, globalIndex, size), size))
+                    .readEventDataWithGaps((connection, schema, globalIndex, size, gaps) ->
+                            fetchBatch(JdbcEventStorageEngineStatements.readEventDataWithGaps(
+                                    connection, schema, globalIndex, size, gaps), size));
+            case "jdbc" -> {
+            }
+            default -> throw new IllegalArgumentException("Unknown axon.event-store.engine: " + engine);
+        }
+        return builder;
+    }
+
+    /**
+     * Command handling units of work commit the appended events in the pool's transaction.
+     */
+    @Bean
+    @Primary
+    public TransactionManager eventStoreTransactionManager(AxonJdbcPool axonJdbcPool) {
+        return axonJdbcPool.transactionManager();
+    }
+
+    @Bean
+    public EmbeddedEventStore eventStore(EventStorageEngine eventStorageEngine) {
+        EmbeddedEventStore.Builder builder = EmbeddedEventStore.builder().storageEngine(eventStorageEngine);
+        if ("postgres".equals(engine)) {
+            // Tracking processors tail the store closely, which keeps read-your-writes waits short
+            builder.fetchDelay(fetchDelayMs).cachedEvents(cachedEvents);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The snake_case {@code domain_event_entry} and {@code snapshot_event_entry} tables of the
+     * services' schema.sql.
+     */
+    public static EventSchema eventSchema() {
+        return EventSchema.builder()
+                .eventTable("domain_event_entry")
+                .snapshotTable("snapshot_event_entry")
+                .globalIndexColumn("global_index")
+                .eventIdentifierColumn("event_identifier")
+                .metaDataColumn("meta_data")
+                .payloadColumn("payload")
+                .payloadRevisionColumn("payload_revision")
+                .payloadTypeColumn("payload_type")
+                .timestampColumn("time_stamp")
+                .aggregateIdentifierColumn("aggregate_identifier")
+                .sequenceNumberColumn("sequence_number")
+                .typeColumn("type")
+                .build();
+    }
+
+    private static PreparedStatement fetchBatch(PreparedStatement statement, int size) throws SQLException {
+        statement.setFetchSize(size);
+        return statement;
+    }
+
+    /**
+     * Postgres reports unique violations, such as two appends of the same aggregate sequence
+     * number, with SQL state 23505. They surface as concurrency conflicts, which commands retry.
+     */
+    private static boolean isDuplicateKeyViolation(Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && "23505".equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
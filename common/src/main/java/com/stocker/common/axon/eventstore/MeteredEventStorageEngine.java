@@ -0,0 +1,160 @@
+package com.stocker.common.axon.eventstore;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.eventsourcing.eventstore.DomainEventStream;
+import org.axonframework.eventsourcing.eventstore.EventStorageEngine;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine that records append and aggregate read times, tagged by engine, so storage
+ * engines can be compared on the same workload.
+ * An aggregate read is timed until its event stream is exhausted.
+ */
+public class MeteredEventStorageEngine implements EventStorageEngine {
+
+    private final EventStorageEngine delegate;
+    private final String engine;
+    private final Timer appendTimer;
+    private final DistributionSummary appendSize;
+    private final Timer aggregateReadTimer;
+    private final DistributionSummary aggregateReadSize;
+    private final Timer snapshotReadTimer;
+
+    /**
+     * @param delegate The engine doing the work
+     * @param registry The registry to record to
+     * @param engine   The engine tag, e.g. {@code postgres}
+     */
+    public MeteredEventStorageEngine(EventStorageEngine delegate, MeterRegistry registry, String engine) {
+        this.delegate = delegate;
+        this.engine = engine;
+        this.appendTimer = Timer.builder("axon.event-store.append")
+                .description("Time spent appending the events of a unit of work")
+                .tag("engine", engine)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.appendSize = DistributionSummary.builder("axon.event-store.append.events")
+                .description("Events appended at once")
+                .tag("engine", engine)
+                .register(registry);
+        this.aggregateReadTimer = Timer.builder("axon.event-store.aggregate.read")
+                .description("Time until the events of an aggregate were read")
+                .tag("engine", engine)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.aggregateReadSize = DistributionSummary.builder("axon.event-store.aggregate.events")
+                .description("Events read per aggregate load")
+                .tag("engine", engine)
+                .register(registry);
+        this.snapshotReadTimer = Timer.builder("axon.event-store.snapshot.read")
+                .description("Time spent reading an aggregate snapshot")
+                .tag("engine", engine)
+                .register(registry);
+    }
+
+    @Override
+    public void appendEvents(List<? extends EventMessage<?>> events) {
+        long start = System.nanoTime();
+        delegate.appendEvents(events);
+        appendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        appendSize.record(events.size());
+    }
+
+    @Override
+    public void storeSnapshot(DomainEventMessage<?> snapshot) {
+        delegate.storeSnapshot(snapshot);
+    }
+
+    @Override
+    public Stream<? extends TrackedEventMessage<?>> readEvents(TrackingToken trackingToken, boolean mayBlock) {
+        return delegate.readEvents(trackingToken, mayBlock);
+    }
+
+    @Override
+    public DomainEventStream readEvents(String aggregateIdentifier, long firstSequenceNumber) {
+        return new TimedDomainEventStream(delegate.readEvents(aggregateIdentifier, firstSequenceNumber));
+    }
+
+    @Override
+    public Optional<DomainEventMessage<?>> readSnapshot(String aggregateIdentifier) {
+        long start = System.nanoTime();
+        Optional<DomainEventMessage<?>> snapshot = delegate.readSnapshot(aggregateIdentifier);
+        snapshotReadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return snapshot;
+    }
+
+    @Override
+    public Optional<Long> lastSequenceNumberFor(String aggregateIdentifier) {
+        return delegate.lastSequenceNumberFor(aggregateIdentifier);
+    }
+
+    @Override
+    public TrackingToken createTailToken() {
+        return delegate.createTailToken();
+    }
+
+    @Override
+    public TrackingToken createHeadToken() {
+        return delegate.createHeadToken();
+    }
+
+    @Override
+    public TrackingToken createTokenAt(Instant dateTime) {
+        return delegate.createTokenAt(dateTime);
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredEventStorageEngine[" + engine + "]";
+    }
+
+    private final class TimedDomainEventStream implements DomainEventStream {
+
+        private final DomainEventStream delegate;
+        private final long start = System.nanoTime();
+        private int events;
+        private boolean recorded;
+
+        private TimedDomainEventStream(DomainEventStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public DomainEventMessage<?> peek() {
+            return delegate.peek();
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext && !recorded) {
+                recorded = true;
+                aggregateReadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                aggregateReadSize.record(events);
+            }
+            return hasNext;
+        }
+
+        @Override
+        public DomainEventMessage<?> next() {
+            events++;
+            return delegate.next();
+        }
+
+        @Override
+        public Long getLastSequenceNumber() {
+            return delegate.getLastSequenceNumber();
+        }
+    }
+}
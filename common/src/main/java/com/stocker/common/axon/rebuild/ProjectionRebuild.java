@@ -0,0 +1,42 @@
+package com.stocker.common.axon.rebuild;
+
+import org.axonframework.eventhandling.EventMessage;
+
+import java.util.List;
+
+/**
+ * Rebuild definition of a projection, registered as a bean and run by {@link ProjectionRebuilder}.
+ * A rebuild folds the event stream into the final rows of the projection's tables, instead of
+ * applying every event to the database like the projection's event handlers. Rows are handed to a
+ * {@link RebuildWriter}, which merges the changes to a row in memory and writes them in bounded
+ * batches, so a fold keeps no rows of its own.
+ */
+public interface ProjectionRebuild {
+
+    /**
+     * The processing group of the projection; its processor is reset once the tables are swapped.
+     */
+    String processingGroup();
+
+    /**
+     * The tables rebuilt, each written by the fold under its name.
+     */
+    List<RebuildTable> tables();
+
+    /**
+     * Start a rebuild.
+     *
+     * @param writer Writer of the rows to the shadow tables, used for this rebuild only
+     * @return A fold receiving the events in order
+     */
+    Fold newFold(RebuildWriter writer);
+
+    interface Fold {
+
+        /**
+         * Apply an event. Events of other types must be ignored, preferably by checking
+         * {@link EventMessage#getPayloadType()} before deserializing the payload.
+         */
+        void apply(EventMessage<?> event);
+    }
+}
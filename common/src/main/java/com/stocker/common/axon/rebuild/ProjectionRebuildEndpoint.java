@@ -0,0 +1,78 @@
+package com.stocker.common.axon.rebuild;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Actuator endpoint starting projection rebuilds: {@code POST /actuator/projections/{processingGroup}}
+ * starts one in the background, {@code GET /actuator/projections} shows the state of each projection.
+ * Rebuilds run one at a time.
+ */
+@Endpoint(id = "projections")
+@Slf4j
+public class ProjectionRebuildEndpoint implements DisposableBean {
+
+    private final ProjectionRebuilder rebuilder;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "projection-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+
+    public ProjectionRebuildEndpoint(ProjectionRebuilder rebuilder) {
+        this.rebuilder = rebuilder;
+    }
+
+    @ReadOperation
+    public Map<String, String> states() {
+        Map<String, String> result = new TreeMap<>();
+        rebuilder.processingGroups().forEach(group -> result.put(group, states.getOrDefault(group, "idle")));
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, String> rebuild(@Selector String processingGroup) {
+        if (!rebuilder.processingGroups().contains(processingGroup)) {
+            return Map.of(processingGroup, "unknown");
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        states.compute(processingGroup, (group, current) -> {
+            if ("queued".equals(current) || "running".equals(current)) {
+                return current;
+            }
+            started.set(true);
+            return "queued";
+        });
+        if (started.get()) {
+            executor.execute(() -> run(processingGroup));
+        }
+        return Map.of(processingGroup, states.get(processingGroup));
+    }
+
+    private void run(String processingGroup) {
+        states.put(processingGroup, "running");
+        try {
+            states.put(processingGroup, "completed: " + rebuilder.rebuild(processingGroup));
+        } catch (Exception e) {
+            log.error("Rebuild of {} failed", processingGroup, e);
+            states.put(processingGroup, "failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,302 @@
+package com.stocker.common.axon.rebuild;
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.common.stream.BlockingStream;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.StreamingEventProcessor;
+import org.axonframework.eventhandling.TrackedEventMessage;
+import org.axonframework.eventhandling.TrackingToken;
+import org.axonframework.messaging.StreamableMessageSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds projections from the event store without replaying events through their handlers.
+ * <ol>
+ *     <li>The events up to the current head of the event store are streamed into the
+ *     projection's {@link ProjectionRebuild.Fold}, while the projection keeps serving reads and
+ *     handling new events. The fold's rows are written into shadow tables in batches of
+ *     {@code batchSize} rows by a {@link RebuildWriter}. If the stream goes idle for
+ *     {@code idleTimeoutMs} before reaching the head, the rebuild fails and nothing is swapped.</li>
+ *     <li>The shadow tables get the primary key up front, the table's other indexes are built once
+ *     all rows are in.</li>
+ *     <li>The projection's processor is stopped, the shadow tables replace the live tables in one
+ *     transaction, and the processor's tokens are reset to the head position the rebuild stopped
+ *     at. When restarted, the processor replays the events it handled during the rebuild onto the
+ *     new tables, so its handlers must be idempotent and should not publish again during replay.</li>
+ * </ol>
+ * The token reset needs every segment to be unclaimed, so processors of the group on other nodes
+ * must be stopped first. Tables are expected to own no sequences.
+ */
+@Slf4j
+public class ProjectionRebuilder {
+
+    private static final String SHADOW_SUFFIX = "_rebuild";
+    private static final String RETIRED_SUFFIX = "_retired";
+
+    private final DataSource dataSource;
+    private final StreamableMessageSource<TrackedEventMessage<?>> eventSource;
+    private final EventProcessingConfiguration processingConfiguration;
+    private final Map<String, ProjectionRebuild> rebuilds;
+    private final long idleTimeoutMs;
+    private final int batchSize;
+
+    public ProjectionRebuilder(DataSource dataSource,
+                               StreamableMessageSource<TrackedEventMessage<?>> eventSource,
+                               EventProcessingConfiguration processingConfiguration,
+                               List<ProjectionRebuild> rebuilds,
+                               long idleTimeoutMs,
+                               int batchSize) {
+        this.dataSource = dataSource;
+        this.eventSource = eventSource;
+        this.processingConfiguration = processingConfiguration;
+        this.rebuilds = rebuilds.stream()
+                .collect(Collectors.toMap(ProjectionRebuild::processingGroup, Function.identity()));
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.batchSize = batchSize;
+    }
+
+    public Set<String> processingGroups() {
+        return rebuilds.keySet();
+    }
+
+    /**
+     * Rebuild the tables of a projection and swap them in.
+     *
+     * @param processingGroup The processing group of the projection
+     * @return A short summary of the rebuild
+     */
+    public String rebuild(String processingGroup) throws Exception {
+        ProjectionRebuild rebuild = rebuilds.get(processingGroup);
+        if (rebuild == null) {
+            throw new IllegalArgumentException("No rebuild defined for processing group: " + processingGroup);
+        }
+        StreamingEventProcessor processor = processingConfiguration
+                .eventProcessor(processingGroup, StreamingEventProcessor.class)
+                .orElseThrow(() -> new IllegalStateException("No streaming processor for: " + processingGroup));
+
+        long start = System.nanoTime();
+        TrackingToken head = eventSource.createHeadToken();
+        List<RebuildTable> tables = rebuild.tables();
+        long events;
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            try {
+                for (RebuildTable table : tables) {
+                    createShadow(connection, table);
+                }
+                try (RebuildWriter writer = new RebuildWriter(connection, tables, SHADOW_SUFFIX, batchSize)) {
+                    events = head != null ? streamEvents(head, rebuild.newFold(writer), writer) : 0;
+                    writer.flush();
+                    log.info("Folded {} events for {} into {} row writes in {} ms",
+                            events, processingGroup, writer.written(), elapsedMs(start));
+                }
+                for (RebuildTable table : tables) {
+                    rows += indexShadow(connection, table);
+                }
+            } catch (Exception e) {
+                dropShadows(connection, tables);
+                throw e;
+            }
+            processor.shutDown();
+            try {
+                swap(connection, tables);
+                if (head != null) {
+                    processor.resetTokens(head);
+                }
+            } finally {
+                processor.start();
+            }
+            for (RebuildTable table : tables) {
+                execute(connection, "ANALYZE " + table.getName());
+            }
+        }
+        String summary = String.format("%d events, %d rows in %d ms", events, rows, elapsedMs(start));
+        log.info("Rebuilt projection {}: {}", processingGroup, summary);
+        return summary;
+    }
+
+    /**
+     * Fold the events up to {@code head}. Failing when the stream goes idle before reaching it
+     * keeps a partial rebuild from being swapped in with tokens claiming it is complete.
+     */
+    private long streamEvents(TrackingToken head, ProjectionRebuild.Fold fold, RebuildWriter writer)
+            throws InterruptedException, SQLException {
+        long count = 0;
+        try (BlockingStream<TrackedEventMessage<?>> stream = eventSource.openStream(null)) {
+            while (true) {
+                if (!stream.hasNextAvailable(idleTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("No event for " + idleTimeoutMs + " ms after " + count
+                            + " events, before reaching the head position " + head);
+                }
+                TrackedEventMessage<?> event = stream.nextAvailable();
+                fold.apply(event);
+                count++;
+                if (writer.isFull()) {
+                    writer.flush();
+                }
+                if (reached(event.trackingToken(), head)) {
+                    return count;
+                }
+            }
+        }
+    }
+
+    private static boolean reached(TrackingToken token, TrackingToken head) {
+        if (token == null) {
+            return false;
+        }
+        if (token.covers(head)) {
+            return true;
+        }
+        // Gaps below the head that are never filled keep a token from covering it
+        OptionalLong position = token.position();
+        OptionalLong headPosition = head.position();
+        return position.isPresent() && headPosition.isPresent()
+                && position.getAsLong() >= headPosition.getAsLong();
+    }
+
+    private static void createShadow(Connection connection, RebuildTable table) throws SQLException {
+        String shadow = table.getName() + SHADOW_SUFFIX;
+        execute(connection, "DROP TABLE IF EXISTS " + shadow);
+        execute(connection, "CREATE TABLE " + shadow + " (LIKE " + table.getName()
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        // The writer merges rows on the primary key, so it is the only index built up front
+        Set<String> primaryKeys = primaryKeys(connection, table.getName());
+        for (String[] index : indexes(connection, table.getName())) {
+            if (primaryKeys.contains(index[0])) {
+                createShadowIndex(connection, table.getName(), index, true);
+            }
+        }
+    }
+
+    private static long indexShadow(Connection connection, RebuildTable table) throws SQLException {
+        String shadow = table.getName() + SHADOW_SUFFIX;
+        // Indexes are built once the rows are in, which is much faster than maintaining them per row
+        Set<String> primaryKeys = primaryKeys(connection, table.getName());
+        for (String[] index : indexes(connection, table.getName())) {
+            if (!primaryKeys.contains(index[0])) {
+                createShadowIndex(connection, table.getName(), index, false);
+            }
+        }
+        long rows;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM " + shadow)) {
+            resultSet.next();
+            rows = resultSet.getLong(1);
+        }
+        log.info("Loaded {} rows into {}", rows, shadow);
+        return rows;
+    }
+
+    private static void createShadowIndex(Connection connection, String table, String[] index, boolean primaryKey)
+            throws SQLException {
+        String name = index[0];
+        execute(connection, shadowIndexDefinition(index[1], name, table));
+        if (primaryKey) {
+            execute(connection, "ALTER TABLE " + table + SHADOW_SUFFIX + " ADD CONSTRAINT " + name + SHADOW_SUFFIX
+                    + " PRIMARY KEY USING INDEX " + name + SHADOW_SUFFIX);
+        }
+    }
+
+    private static void dropShadows(Connection connection, List<RebuildTable> tables) {
+        for (RebuildTable table : tables) {
+            try {
+                execute(connection, "DROP TABLE IF EXISTS " + table.getName() + SHADOW_SUFFIX);
+            } catch (SQLException e) {
+                log.warn("Unable to drop shadow table of {}: {}", table.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private static void swap(Connection connection, List<RebuildTable> tables) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            for (RebuildTable table : tables) {
+                String name = table.getName();
+                List<String[]> shadowIndexes = indexes(connection, name + SHADOW_SUFFIX);
+                execute(connection, "ALTER TABLE " + name + " RENAME TO " + name + RETIRED_SUFFIX);
+                execute(connection, "ALTER TABLE " + name + SHADOW_SUFFIX + " RENAME TO " + name);
+                execute(connection, "DROP TABLE " + name + RETIRED_SUFFIX);
+                for (String[] index : shadowIndexes) {
+                    String indexName = index[0];
+                    if (indexName.endsWith(SHADOW_SUFFIX)) {
+                        execute(connection, "ALTER INDEX " + indexName + " RENAME TO "
+                                + indexName.substring(0, indexName.length() - SHADOW_SUFFIX.length()));
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static String shadowIndexDefinition(String definition, String name, String table) {
+        Matcher matcher = Pattern.compile("INDEX " + Pattern.quote(name) + " ON (ONLY )?(\\S+\\.)?"
+                + Pattern.quote(table) + " ").matcher(definition);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected index definition: " + definition);
+        }
+        return matcher.replaceFirst(Matcher.quoteReplacement("INDEX " + name + SHADOW_SUFFIX + " ON ")
+                + "$2" + Matcher.quoteReplacement(table + SHADOW_SUFFIX + " "));
+    }
+
+    private static List<String[]> indexes(Connection connection, String table) throws SQLException {
+        List<String[]> indexes = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT indexname, indexdef FROM pg_indexes WHERE schemaname = current_schema() AND tablename = ?")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    indexes.add(new String[]{resultSet.getString(1), resultSet.getString(2)});
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static Set<String> primaryKeys(Connection connection, String table) throws SQLException {
+        Set<String> names = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT conname FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'p'")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    names.add(resultSet.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,32 @@
+package com.stocker.common.axon.rebuild;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A read model table written by a rebuild into a shadow copy of the table.
+ * The first column is the table's primary key. Rows are written in {@code columns} order;
+ * {@code null} is written as SQL NULL. Columns listed in {@code insertOnly} keep the value
+ * they were first written with when a row is written again, such as a creation time.
+ */
+@Value
+public class RebuildTable {
+    String name;
+    List<String> columns;
+    List<String> insertOnly;
+
+    public RebuildTable(String name, List<String> columns, List<String> insertOnly) {
+        this.name = name;
+        this.columns = columns;
+        this.insertOnly = insertOnly;
+    }
+
+    public RebuildTable(String name, List<String> columns) {
+        this(name, columns, List.of());
+    }
+
+    public String getKey() {
+        return columns.get(0);
+    }
+}
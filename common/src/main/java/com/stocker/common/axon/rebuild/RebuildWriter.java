@@ -0,0 +1,309 @@
+package com.stocker.common.axon.rebuild;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the rows of a rebuild into the shadow tables of {@link ProjectionRebuilder}.
+ * Changes are merged per row in memory until the batch is full: a row written in full absorbs
+ * later updates of it, and a deleted row drops its pending changes. A batch is written in one
+ * transaction; deletes first, then the full rows, copied into a staging table with {@code COPY}
+ * and merged with {@code INSERT ... ON CONFLICT}, then the updates of rows written by earlier batches.
+ */
+public class RebuildWriter implements AutoCloseable {
+
+    private static final String STAGING_SUFFIX = "_batch";
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private final Connection connection;
+    private final int batchSize;
+    private final Map<String, TableBatch> batches = new LinkedHashMap<>();
+    private long written;
+
+    RebuildWriter(Connection connection, List<RebuildTable> tables, String shadowSuffix, int batchSize)
+            throws SQLException {
+        this.connection = connection;
+        this.batchSize = batchSize;
+        for (RebuildTable table : tables) {
+            TableBatch batch = new TableBatch(table, table.getName() + shadowSuffix);
+            execute(connection, "CREATE TEMP TABLE " + batch.staging + " (LIKE " + batch.shadow
+                    + " INCLUDING DEFAULTS)");
+            batches.put(table.getName(), batch);
+        }
+    }
+
+    /**
+     * Write a row in full, replacing the row with the same key except for its insert-only columns.
+     */
+    public void write(String table, Object... row) {
+        TableBatch batch = batch(table);
+        if (row.length != batch.table.getColumns().size()) {
+            throw new IllegalArgumentException("Expected " + batch.table.getColumns().size()
+                    + " values for " + table + ", got " + row.length);
+        }
+        Object key = row[0];
+        batch.updates.remove(key);
+        Object[] previous = batch.rows.put(key, row);
+        if (previous != null) {
+            for (int column : batch.insertOnly) {
+                row[column] = previous[column];
+            }
+        }
+    }
+
+    /**
+     * Update columns of an existing row; does nothing if the row does not exist.
+     *
+     * @param columnsAndValues Column names, each followed by its new value
+     */
+    public void update(String table, Object key, Object... columnsAndValues) {
+        TableBatch batch = batch(table);
+        if (columnsAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected column and value pairs for " + table);
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < columnsAndValues.length; i += 2) {
+            String column = (String) columnsAndValues[i];
+            if (batch.table.getColumns().indexOf(column) < 1) {
+                throw new IllegalArgumentException("Cannot update column " + column + " of " + table);
+            }
+            values.put(column, columnsAndValues[i + 1]);
+        }
+        Object[] row = batch.rows.get(key);
+        if (row != null) {
+            values.forEach((column, value) -> row[batch.table.getColumns().indexOf(column)] = value);
+        } else if (!batch.deletes.contains(key)) {
+            batch.updates.computeIfAbsent(key, k -> new LinkedHashMap<>()).putAll(values);
+        }
+    }
+
+    public void delete(String table, Object key) {
+        TableBatch batch = batch(table);
+        batch.rows.remove(key);
+        batch.updates.remove(key);
+        batch.deletes.add(key);
+    }
+
+    boolean isFull() {
+        int pending = 0;
+        for (TableBatch batch : batches.values()) {
+            pending += batch.rows.size() + batch.updates.size() + batch.deletes.size();
+        }
+        return pending >= batchSize;
+    }
+
+    /**
+     * @return The number of row changes written so far
+     */
+    long written() {
+        return written;
+    }
+
+    void flush() throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            for (TableBatch batch : batches.values()) {
+                written += flush(batch);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        for (TableBatch batch : batches.values()) {
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (TableBatch batch : batches.values()) {
+            execute(connection, "DROP TABLE IF EXISTS " + batch.staging);
+        }
+    }
+
+    private long flush(TableBatch batch) throws SQLException {
+        String key = batch.table.getKey();
+        long count = 0;
+        if (!batch.deletes.isEmpty()) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM " + batch.shadow + " WHERE " + key + " = ?")) {
+                for (Object id : batch.deletes) {
+                    bind(statement, 1, id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            count += batch.deletes.size();
+        }
+        if (!batch.rows.isEmpty()) {
+            copy(batch);
+            execute(connection, mergeSql(batch));
+            execute(connection, "TRUNCATE " + batch.staging);
+            count += batch.rows.size();
+        }
+        // Updates of the same columns share a statement
+        Map<List<String>, List<Map.Entry<Object, Map<String, Object>>>> byColumns = batch.updates.entrySet()
+                .stream()
+                .collect(Collectors.groupingBy(entry -> List.copyOf(entry.getValue().keySet()),
+                        LinkedHashMap::new, Collectors.toList()));
+        for (Map.Entry<List<String>, List<Map.Entry<Object, Map<String, Object>>>> group : byColumns.entrySet()) {
+            List<String> columns = group.getKey();
+            String sql = "UPDATE " + batch.shadow + " SET "
+                    + columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                    + " WHERE " + key + " = ?";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<Object, Map<String, Object>> update : group.getValue()) {
+                    int index = 1;
+                    for (String column : columns) {
+                        bind(statement, index++, update.getValue().get(column));
+                    }
+                    bind(statement, index, update.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            count += group.getValue().size();
+        }
+        return count;
+    }
+
+    private static String mergeSql(TableBatch batch) {
+        List<String> columns = batch.table.getColumns();
+        String columnList = String.join(", ", columns);
+        List<String> updated = new ArrayList<>();
+        for (String column : columns.subList(1, columns.size())) {
+            if (!batch.table.getInsertOnly().contains(column)) {
+                updated.add(column + " = EXCLUDED." + column);
+            }
+        }
+        return "INSERT INTO " + batch.shadow + " (" + columnList + ") SELECT " + columnList
+                + " FROM " + batch.staging + " ON CONFLICT (" + batch.table.getKey() + ") "
+                + (updated.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + String.join(", ", updated));
+    }
+
+    private void copy(TableBatch batch) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + batch.staging + " (" + String.join(", ", batch.table.getColumns())
+                        + ") FROM STDIN");
+        try {
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+            for (Object[] row : batch.rows.values()) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        buffer.append('\t');
+                    }
+                    appendValue(buffer, row[i]);
+                }
+                buffer.append('\n');
+                if (buffer.length() >= COPY_BUFFER_SIZE) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+            writeToCopy(copyIn, buffer);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Appends a value in the text format of {@code COPY}.
+     */
+    private static void appendValue(StringBuilder buffer, Object value) {
+        if (value == null) {
+            buffer.append("\\N");
+            return;
+        }
+        String text = text(value);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+    }
+
+    /**
+     * Binds a value as text of unspecified type, converted by Postgres like the values of {@code COPY}.
+     */
+    private static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.OTHER);
+        } else {
+            statement.setObject(index, text(value), Types.OTHER);
+        }
+    }
+
+    private static String text(Object value) {
+        return value instanceof BigDecimal decimal ? decimal.toPlainString()
+                : value instanceof Enum<?> constant ? constant.name()
+                : value.toString();
+    }
+
+    private TableBatch batch(String table) {
+        TableBatch batch = batches.get(table);
+        if (batch == null) {
+            throw new IllegalArgumentException("Table not part of the rebuild: " + table);
+        }
+        return batch;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static final class TableBatch {
+        private final RebuildTable table;
+        private final String shadow;
+        private final String staging;
+        private final int[] insertOnly;
+        private final Map<Object, Object[]> rows = new LinkedHashMap<>();
+        private final Map<Object, Map<String, Object>> updates = new LinkedHashMap<>();
+        private final Set<Object> deletes = new LinkedHashSet<>();
+
+        private TableBatch(RebuildTable table, String shadow) {
+            this.table = table;
+            this.shadow = shadow;
+            this.staging = shadow + STAGING_SUFFIX;
+            this.insertOnly = table.getInsertOnly().stream().mapToInt(table.getColumns()::indexOf).toArray();
+        }
+
+        private void clear() {
+            rows.clear();
+            updates.clear();
+            deletes.clear();
+        }
+    }
+}
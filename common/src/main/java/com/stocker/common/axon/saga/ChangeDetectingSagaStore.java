@@ -0,0 +1,111 @@
+package com.stocker.common.axon.saga;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.modelling.saga.AssociationValue;
+import org.axonframework.modelling.saga.AssociationValues;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.axonframework.serialization.Serializer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Saga store that skips the write of a saga whose state and associations did not change.
+ * The serialized state of the last write of each saga is remembered for a bounded number of
+ * sagas; an update with the same bytes and no association changes is dropped instead of being
+ * written again. Sagas without a remembered state are always written.
+ */
+public class ChangeDetectingSagaStore<T> implements SagaStore<T> {
+
+    private final SagaStore<T> delegate;
+    private final Serializer serializer;
+    private final Cache<String, byte[]> writtenStates;
+    private final Counter written;
+    private final Counter skipped;
+
+    /**
+     * @param delegate    The store writing the sagas
+     * @param serializer  The serializer of the delegate, so equal bytes mean equal stored state
+     * @param maximumSize Maximum number of sagas whose written state is remembered
+     * @param retention   How long the written state is remembered after the last access
+     * @param registry    The registry to record written and skipped updates to
+     */
+    public ChangeDetectingSagaStore(SagaStore<T> delegate, Serializer serializer, long maximumSize,
+                                    Duration retention, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.serializer = serializer;
+        this.writtenStates = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(retention)
+                .build();
+        this.written = Counter.builder("axon.saga.updates")
+                .description("Saga updates, by whether they were written")
+                .tag("written", "true")
+                .register(registry);
+        this.skipped = Counter.builder("axon.saga.updates")
+                .description("Saga updates, by whether they were written")
+                .tag("written", "false")
+                .register(registry);
+    }
+
+    @Override
+    public Set<String> findSagas(Class<? extends T> sagaType, AssociationValue associationValue) {
+        return delegate.findSagas(sagaType, associationValue);
+    }
+
+    @Override
+    public <S extends T> Entry<S> loadSaga(Class<S> sagaType, String sagaIdentifier) {
+        return delegate.loadSaga(sagaType, sagaIdentifier);
+    }
+
+    @Override
+    public void deleteSaga(Class<? extends T> sagaType, String sagaIdentifier, Set<AssociationValue> associationValues) {
+        writtenStates.invalidate(sagaIdentifier);
+        delegate.deleteSaga(sagaType, sagaIdentifier, associationValues);
+    }
+
+    @Override
+    public void insertSaga(Class<? extends T> sagaType, String sagaIdentifier, T saga,
+                           Set<AssociationValue> associationValues) {
+        byte[] state = serialize(saga);
+        delegate.insertSaga(sagaType, sagaIdentifier, saga, associationValues);
+        rememberOnCommit(sagaIdentifier, state);
+    }
+
+    @Override
+    public void updateSaga(Class<? extends T> sagaType, String sagaIdentifier, T saga,
+                           AssociationValues associationValues) {
+        byte[] state = serialize(saga);
+        byte[] writtenState = writtenStates.getIfPresent(sagaIdentifier);
+        if (writtenState != null && Arrays.equals(writtenState, state)
+                && associationValues.addedAssociations().isEmpty()
+                && associationValues.removedAssociations().isEmpty()) {
+            skipped.increment();
+            return;
+        }
+        delegate.updateSaga(sagaType, sagaIdentifier, saga, associationValues);
+        written.increment();
+        rememberOnCommit(sagaIdentifier, state);
+    }
+
+    private byte[] serialize(T saga) {
+        return serializer.serialize(saga, byte[].class).getData();
+    }
+
+    /**
+     * The state only counts as written once the unit of work writing it committed.
+     */
+    private void rememberOnCommit(String sagaIdentifier, byte[] state) {
+        if (CurrentUnitOfWork.isStarted()) {
+            writtenStates.invalidate(sagaIdentifier);
+            CurrentUnitOfWork.get().afterCommit(unitOfWork -> writtenStates.put(sagaIdentifier, state));
+        } else {
+            writtenStates.put(sagaIdentifier, state);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.stocker.common.axon.saga;
+
+import com.stocker.common.axon.AggregateCache;
+import com.stocker.common.axon.AxonJdbcPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.modelling.saga.repository.CachingSagaStore;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.axonframework.modelling.saga.repository.jdbc.JdbcSagaStore;
+import org.axonframework.modelling.saga.repository.jdbc.PostgresSagaSqlSchema;
+import org.axonframework.modelling.saga.repository.jdbc.SagaSchema;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Saga store of a service with sagas, in its Postgres database (tables {@code saga_entry} and
+ * {@code association_value_entry}).
+ * <ul>
+ *     <li>Sagas and the saga ids of association values are cached, so the events of an in-flight
+ *     saga are handled without reading the database.</li>
+ *     <li>The association table has no surrogate key: its primary key on value, key, saga type and
+ *     saga id answers association lookups from the index alone, and a second index on the saga id
+ *     serves loading and deleting a saga's associations.</li>
+ *     <li>A saga is only written when its serialized state or associations changed, see
+ *     {@link ChangeDetectingSagaStore}.</li>
+ * </ul>
+ */
+@Configuration
+public class SagaStoreConfig {
+
+    @Value("${axon.saga.cache.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${axon.saga.cache.expire-after-access-ms:600000}")
+    private long expireAfterAccessMs;
+
+    @Bean
+    public SagaStore<Object> sagaStore(AxonJdbcPool axonJdbcPool, Serializer serializer, MeterRegistry meterRegistry) {
+        SagaSchema schema = SagaSchema.builder()
+                .sagaEntryTable("saga_entry")
+                .associationValueEntryTable("association_value_entry")
+                .sagaIdColumn("saga_id")
+                .revisionColumn("revision")
+                .sagaTypeColumn("saga_type")
+                .serializedSagaColumn("serialized_saga")
+                .associationKeyColumn("association_key")
+                .associationValueColumn("association_value")
+                .build();
+        JdbcSagaStore jdbcSagaStore = JdbcSagaStore.builder()
+                .connectionProvider(axonJdbcPool.connectionProvider())
+                .sqlSchema(new PostgresSagaSqlSchema(schema))
+                .serializer(serializer)
+                .build();
+        Duration expireAfterAccess = Duration.ofMillis(expireAfterAccessMs);
+        return CachingSagaStore.builder()
+                .delegateSagaStore(new ChangeDetectingSagaStore<>(jdbcSagaStore, serializer, maximumSize,
+                        expireAfterAccess, meterRegistry))
+                .sagaCache(new AggregateCache(maximumSize, expireAfterAccess)
+                        .bindTo(meterRegistry, "axon.sagas"))
+                .associationsCache(new AggregateCache(maximumSize, expireAfterAccess)
+                        .bindTo(meterRegistry, "axon.saga-associations"))
+                .build();
+    }
+}
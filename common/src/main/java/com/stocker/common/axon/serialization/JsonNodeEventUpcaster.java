@@ -0,0 +1,49 @@
+package com.stocker.common.axon.serialization;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.SimpleSerializedType;
+import org.axonframework.serialization.upcasting.event.IntermediateEventRepresentation;
+import org.axonframework.serialization.upcasting.event.SingleEventUpcaster;
+
+/**
+ * Upcasts the payload of one event type from one {@code @Revision} to the next, working on the
+ * Jackson tree of events stored in the {@code json} or {@code cbor} format.
+ * Subclasses registered as beans are added to the upcaster chain of the event store; chains of
+ * revisions are expressed as one upcaster per step.
+ */
+public abstract class JsonNodeEventUpcaster extends SingleEventUpcaster {
+
+    private final SerializedType fromType;
+    private final SerializedType toType;
+
+    /**
+     * @param payloadType  The event class
+     * @param fromRevision The revision upcasted from, null for events stored before the first revision
+     * @param toRevision   The revision produced
+     */
+    protected JsonNodeEventUpcaster(Class<?> payloadType, String fromRevision, String toRevision) {
+        this.fromType = new SimpleSerializedType(payloadType.getName(), fromRevision);
+        this.toType = new SimpleSerializedType(payloadType.getName(), toRevision);
+    }
+
+    @Override
+    protected boolean canUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        return fromType.equals(intermediateRepresentation.getType());
+    }
+
+    @Override
+    protected IntermediateEventRepresentation doUpcast(IntermediateEventRepresentation intermediateRepresentation) {
+        return intermediateRepresentation.upcastPayload(toType, JsonNode.class,
+                payload -> upcast((ObjectNode) payload));
+    }
+
+    /**
+     * Convert the payload to the next revision.
+     *
+     * @param payload The payload in the old revision, may be modified in place
+     * @return the payload in the new revision
+     */
+    protected abstract JsonNode upcast(ObjectNode payload);
+}
@@ -0,0 +1,111 @@
+package com.stocker.common.axon.serialization;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializer that records serialization and deserialization time and the serialized size,
+ * tagged by format, usage and payload type, so formats can be compared on the same workload.
+ * Meters are registered once per payload type. The size is recorded for binary representations,
+ * which is what the event store and the token and saga stores write.
+ */
+public class MeteredSerializer implements Serializer {
+
+    private final Serializer delegate;
+    private final MeterRegistry registry;
+    private final String format;
+    private final String usage;
+    private final Map<Class<?>, SerializeMeters> serializeMeters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> deserializeTimers = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate The serializer doing the work
+     * @param registry The registry to record to
+     * @param format   The format tag, e.g. {@code cbor}
+     * @param usage    What the serializer is used for, e.g. {@code events}
+     */
+    public MeteredSerializer(Serializer delegate, MeterRegistry registry, String format, String usage) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.format = format;
+        this.usage = usage;
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        long start = System.nanoTime();
+        SerializedObject<T> serialized = delegate.serialize(object, expectedRepresentation);
+        long nanos = System.nanoTime() - start;
+        SerializeMeters meters = serializeMeters.computeIfAbsent(
+                object != null ? object.getClass() : Void.class, this::serializeMeters);
+        meters.time().record(nanos, TimeUnit.NANOSECONDS);
+        if (serialized.getData() instanceof byte[] bytes) {
+            meters.size().record(bytes.length);
+        }
+        return serialized;
+    }
+
+    @Override
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        long start = System.nanoTime();
+        T deserialized = delegate.deserialize(serializedObject);
+        deserializeTimers.computeIfAbsent(serializedObject.getType().getName(), this::deserializeTimer)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return deserialized;
+    }
+
+    private SerializeMeters serializeMeters(Class<?> type) {
+        String name = type == Void.class ? "none" : type.getSimpleName();
+        return new SerializeMeters(
+                Timer.builder("axon.serializer.serialize")
+                        .description("Time spent serializing Axon payloads")
+                        .tags("format", format, "usage", usage, "type", name)
+                        .register(registry),
+                DistributionSummary.builder("axon.serializer.size")
+                        .description("Serialized size of Axon payloads")
+                        .baseUnit("bytes")
+                        .tags("format", format, "usage", usage, "type", name)
+                        .register(registry));
+    }
+
+    private Timer deserializeTimer(String typeName) {
+        return Timer.builder("axon.serializer.deserialize")
+                .description("Time spent deserializing Axon payloads")
+                .tags("format", format, "usage", usage, "type", typeName.substring(typeName.lastIndexOf('.') + 1))
+                .register(registry);
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return delegate.canSerializeTo(expectedRepresentation);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Class classForType(SerializedType type) {
+        return delegate.classForType(type);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SerializedType typeForClass(Class type) {
+        return delegate.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return delegate.getConverter();
+    }
+
+    private record SerializeMeters(Timer time, DistributionSummary size) {
+    }
+}
\ No newline at end of file
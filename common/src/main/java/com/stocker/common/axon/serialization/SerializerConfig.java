@@ -0,0 +1,86 @@
+package com.stocker.common.axon.serialization;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.thoughtworks.xstream.XStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Axon serializers of a service in the format of {@code axon.serializer.format}: {@code cbor} or
+ * {@code json} for Jackson, or {@code xstream} for Axon's default XML format. Without the property
+ * Axon's own, unmetered serializers are used.
+ * One format covers events and snapshots, messages sent through Axon Server, sagas and tracking
+ * tokens. Every serializer is a {@link MeteredSerializer}, so running the same workload with each
+ * format compares serialized size and throughput. Stored events can only be read in the format they
+ * were written in, so the format is chosen before the event store holds events.
+ * Jackson serializes fields, so aggregates and sagas need no getters; older event revisions are
+ * upcast with {@link JsonNodeEventUpcaster} beans.
+ */
+@Configuration
+@ConditionalOnProperty(name = "axon.serializer.format")
+public class SerializerConfig {
+
+    @Value("${axon.serializer.format}")
+    private String format;
+
+    @Bean
+    @Primary
+    public Serializer serializer(MeterRegistry meterRegistry) {
+        return new MeteredSerializer(newSerializer(format), meterRegistry, format, "general");
+    }
+
+    @Bean
+    @Qualifier("eventSerializer")
+    public Serializer eventSerializer(MeterRegistry meterRegistry) {
+        return new MeteredSerializer(newSerializer(format), meterRegistry, format, "events");
+    }
+
+    @Bean
+    @Qualifier("messageSerializer")
+    public Serializer messageSerializer(MeterRegistry meterRegistry) {
+        return new MeteredSerializer(newSerializer(format), meterRegistry, format, "messages");
+    }
+
+    /**
+     * A new, unmetered serializer of the given format, configured as the services' serializers are.
+     *
+     * @param format {@code cbor}, {@code json} or {@code xstream}
+     */
+    public static Serializer newSerializer(String format) {
+        return switch (format) {
+            case "cbor" -> jackson(new CBORMapper());
+            case "json" -> jackson(new ObjectMapper());
+            case "xstream" -> {
+                XStream xStream = new XStream();
+                xStream.allowTypesByWildcard(new String[]{"com.stocker.**", "org.axonframework.**"});
+                yield XStreamSerializer.builder().xStream(xStream).build();
+            }
+            default -> throw new IllegalArgumentException("Unknown axon.serializer.format: " + format);
+        };
+    }
+
+    private static Serializer jackson(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return JacksonSerializer.builder()
+                .objectMapper(objectMapper)
+                .lenientDeserialization()
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.stocker.common.commands.dispatch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.modelling.command.TargetAggregateIdentifier;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrepareDispatchCommand {
+    @TargetAggregateIdentifier
+    private String dispatchId;
+    private String orderId;
+    private String shippingAddress;
+    private String carrier;
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.stocker.common.commands.dispatch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.modelling.command.TargetAggregateIdentifier;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseDispatchCommand {
+    @TargetAggregateIdentifier
+    private String dispatchId;
+    private String orderId;
+}
\ No newline at end of file
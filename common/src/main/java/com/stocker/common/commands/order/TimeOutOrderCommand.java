@@ -0,0 +1,17 @@
+package com.stocker.common.commands.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.modelling.command.TargetAggregateIdentifier;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeOutOrderCommand {
+    @TargetAggregateIdentifier
+    private String orderId;
+    private String reason;
+}
@@ -0,0 +1,23 @@
+package com.stocker.common.commands.payment;
+
+import com.stocker.common.models.Payment.PaymentMethod;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.modelling.command.TargetAggregateIdentifier;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorizePaymentCommand {
+    @TargetAggregateIdentifier
+    private String paymentId;
+    private String orderId;
+    private String userId;
+    private BigDecimal amount;
+    private PaymentMethod paymentMethod;
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.stocker.common.commands.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.axonframework.modelling.command.TargetAggregateIdentifier;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VoidPaymentCommand {
+    @TargetAggregateIdentifier
+    private String paymentId;
+    private String orderId;
+    private String reason;
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.stocker.common.events.dispatch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchCancelledEvent {
+    private String dispatchId;
+    private String orderId;
+    private String reason;
+    private LocalDateTime cancelledAt;
+}
\ No newline at end of file
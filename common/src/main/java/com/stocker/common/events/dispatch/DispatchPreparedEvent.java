@@ -0,0 +1,22 @@
+package com.stocker.common.events.dispatch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchPreparedEvent {
+    private String dispatchId;
+    private String orderId;
+    private String status;
+    private String shippingAddress;
+    private String carrier;
+    private String trackingNumber;
+    private LocalDateTime preparedAt;
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.stocker.common.events.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderTimedOutEvent {
+    private String orderId;
+    private String reason;
+    private LocalDateTime timedOutAt;
+}
@@ -0,0 +1,26 @@
+package com.stocker.common.events.payment;
+
+import com.stocker.common.models.Payment.PaymentMethod;
+import com.stocker.common.models.Payment.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentAuthorizedEvent {
+    private String paymentId;
+    private String orderId;
+    private String userId;
+    private BigDecimal amount;
+    private PaymentStatus status;
+    private PaymentMethod paymentMethod;
+    private String transactionId;
+    private LocalDateTime authorizedAt;
+}
\ No newline at end of file
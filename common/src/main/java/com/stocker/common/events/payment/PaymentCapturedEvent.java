@@ -0,0 +1,21 @@
+package com.stocker.common.events.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentCapturedEvent {
+    private String paymentId;
+    private String orderId;
+    private BigDecimal amount;
+    private String transactionId;
+    private LocalDateTime capturedAt;
+}
\ No newline at end of file
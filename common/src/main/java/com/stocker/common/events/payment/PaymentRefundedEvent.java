@@ -0,0 +1,22 @@
+package com.stocker.common.events.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentRefundedEvent {
+    private String paymentId;
+    private String orderId;
+    private BigDecimal amount;
+    private String transactionId;
+    private String reason;
+    private LocalDateTime refundedAt;
+}
@@ -0,0 +1,19 @@
+package com.stocker.common.events.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentVoidedEvent {
+    private String paymentId;
+    private String orderId;
+    private String reason;
+    private LocalDateTime voidedAt;
+}
\ No newline at end of file
@@ -26,8 +26,10 @@ public class Payment {
     public enum PaymentStatus {
         PENDING,
         PROCESSING,
+        AUTHORIZED,
         COMPLETED,
         FAILED,
+        VOIDED,
         REFUNDED
     }
     
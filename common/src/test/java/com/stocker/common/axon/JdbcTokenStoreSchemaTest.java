@@ -0,0 +1,95 @@
+package com.stocker.common.axon;
+
+import org.axonframework.eventhandling.GlobalSequenceTrackingToken;
+import org.axonframework.eventhandling.tokenstore.TokenStore;
+import org.axonframework.eventhandling.tokenstore.UnableToClaimTokenException;
+import org.axonframework.eventhandling.tokenstore.jdbc.JdbcTokenStore;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Claims and stores tokens in the {@code token_entry} table created by the services' schema.sql.
+ */
+@Testcontainers
+class JdbcTokenStoreSchemaTest {
+
+    private static final Path SCHEMA = Path.of("../order-service/src/main/resources/schema.sql");
+
+    private static final String PROCESSOR = "order-projection";
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private AxonJdbcPool pool;
+
+    @BeforeEach
+    void createTokenTable() throws Exception {
+        pool = new AxonJdbcPool(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), 2);
+        try (Connection connection = pool.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS token_entry");
+            statement.execute(createStatement("token_entry"));
+        }
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void claimsAndStoresTokens() {
+        TokenStore tokenStore = tokenStore("node-a");
+        tokenStore.initializeTokenSegments(PROCESSOR, 2);
+
+        assertThat(tokenStore.fetchToken(PROCESSOR, 0)).isNull();
+        tokenStore.storeToken(new GlobalSequenceTrackingToken(42), PROCESSOR, 0);
+
+        assertThat(tokenStore.fetchToken(PROCESSOR, 0)).isEqualTo(new GlobalSequenceTrackingToken(42));
+        assertThat(tokenStore.fetchSegments(PROCESSOR)).containsExactly(0, 1);
+    }
+
+    @Test
+    void claimedSegmentCannotBeTakenByAnotherNode() {
+        TokenStore owner = tokenStore("node-a");
+        owner.initializeTokenSegments(PROCESSOR, 1);
+        owner.fetchToken(PROCESSOR, 0);
+
+        assertThatThrownBy(() -> tokenStore("node-b").fetchToken(PROCESSOR, 0))
+                .isInstanceOf(UnableToClaimTokenException.class);
+
+        owner.releaseClaim(PROCESSOR, 0);
+        assertThat(tokenStore("node-b").fetchToken(PROCESSOR, 0)).isNull();
+    }
+
+    private TokenStore tokenStore(String nodeId) {
+        return JdbcTokenStore.builder()
+                .connectionProvider(pool.connectionProvider())
+                .schema(EventProcessingConfig.tokenSchema())
+                .serializer(JacksonSerializer.defaultSerializer())
+                .nodeId(nodeId)
+                .build();
+    }
+
+    private static String createStatement(String table) throws Exception {
+        Matcher matcher = Pattern.compile("CREATE TABLE IF NOT EXISTS " + table + " \\(.*?\\);", Pattern.DOTALL)
+                .matcher(Files.readString(SCHEMA));
+        assertThat(matcher.find()).as("%s in %s", table, SCHEMA).isTrue();
+        return matcher.group();
+    }
+}
@@ -0,0 +1,74 @@
+package com.stocker.common.axon;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+/**
+ * Completes reads waiting on one node with the projection signals of another.
+ */
+@Testcontainers
+class PostgresProjectionRelayTest {
+
+    private static final Duration AWAIT_TIMEOUT = Duration.ofSeconds(30);
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private AxonJdbcPool pool;
+    private ProjectionNotifier projectingNode;
+    private ProjectionNotifier readingNode;
+    private PostgresProjectionRelay projectingRelay;
+    private PostgresProjectionRelay readingRelay;
+
+    @BeforeEach
+    void startNodes() throws Exception {
+        pool = new AxonJdbcPool(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), 4);
+        projectingNode = new ProjectionNotifier(100, Duration.ofMinutes(1), AWAIT_TIMEOUT);
+        readingNode = new ProjectionNotifier(100, Duration.ofMinutes(1), AWAIT_TIMEOUT);
+        projectingRelay = new PostgresProjectionRelay(pool.getDataSource(), projectingNode, 100);
+        readingRelay = new PostgresProjectionRelay(pool.getDataSource(), readingNode, 100);
+        projectingRelay.start();
+        readingRelay.start();
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!readingRelay.isListening() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void stopNodes() throws Exception {
+        readingRelay.close();
+        projectingRelay.close();
+        pool.close();
+    }
+
+    @Test
+    void waitCompletesWhenAnotherNodeAppliesTheEvent() {
+        projectingNode.applied("payment-1", 2);
+
+        // Completing before the await timeout means the signal crossed nodes
+        assertThatCode(() -> readingNode.awaitApplied(ConsistencyToken.of("payment-1", 2))
+                .block(Duration.ofSeconds(10)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void waitStartedBeforeTheEventCompletesWhenItIsApplied() {
+        CompletableFuture<Void> wait = readingNode.awaitApplied(ConsistencyToken.of("payment-2", 0)).toFuture();
+
+        projectingNode.applied("payment-2", 0);
+
+        assertThatCode(() -> wait.get(10, TimeUnit.SECONDS))
+                .doesNotThrowAnyException();
+    }
+}
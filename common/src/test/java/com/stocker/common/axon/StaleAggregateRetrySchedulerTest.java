@@ -0,0 +1,68 @@
+package com.stocker.common.axon;
+
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.modelling.command.ConcurrencyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retries commands rejected by a stale aggregate after a jittered exponential backoff.
+ */
+class StaleAggregateRetrySchedulerTest {
+
+    private final StaleAggregateRetryScheduler scheduler = new StaleAggregateRetryScheduler(2, 20, 100);
+    private final CommandMessage<String> command = GenericCommandMessage.asCommandMessage("command");
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void retriesConcurrencyFailureAfterBackoff() throws InterruptedException {
+        CountDownLatch dispatched = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        boolean scheduled = scheduler.scheduleRetry(command, new ConcurrencyException("stale"),
+                failures(1), dispatched::countDown);
+
+        assertThat(scheduled).isTrue();
+        assertThat(dispatched.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void doesNotRetryOtherFailuresOrBeyondTheLimit() {
+        assertThat(scheduler.scheduleRetry(command, new IllegalStateException("invalid"), failures(1), () -> {
+        })).isFalse();
+        assertThat(scheduler.scheduleRetry(command, new ConcurrencyException("stale"), failures(3), () -> {
+        })).isFalse();
+    }
+
+    @Test
+    void backoffDoublesWithJitterUpToTheMaximum() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(scheduler.backoff(1)).isBetween(10L, 20L);
+            assertThat(scheduler.backoff(2)).isBetween(20L, 40L);
+            assertThat(scheduler.backoff(10)).isBetween(50L, 100L);
+            assertThat(scheduler.backoff(64)).isBetween(50L, 100L);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Class<? extends Throwable>[]> failures(int count) {
+        List<Class<? extends Throwable>[]> failures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            failures.add(new Class[]{ConcurrencyException.class});
+        }
+        return failures;
+    }
+}
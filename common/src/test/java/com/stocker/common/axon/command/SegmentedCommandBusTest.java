@@ -0,0 +1,64 @@
+package com.stocker.common.axon.command;
+
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.CommandResultMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rejects commands for a segment whose queue is full.
+ */
+class SegmentedCommandBusTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private SegmentedCommandBus bus;
+
+    @BeforeEach
+    void createBus() {
+        SimpleCommandBus delegate = SimpleCommandBus.builder().build();
+        delegate.subscribe(String.class.getName(), message -> {
+            started.countDown();
+            release.await();
+            return message.getPayload();
+        });
+        bus = new SegmentedCommandBus(delegate, command -> "aggregate-1", 1, 1);
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        release.countDown();
+        bus.shutdown();
+    }
+
+    @Test
+    void rejectsCommandsBeyondTheQueueCapacity() throws Exception {
+        CompletableFuture<CommandResultMessage<?>> running = dispatch("running");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<CommandResultMessage<?>> queued = dispatch("queued");
+
+        CommandResultMessage<?> rejected = dispatch("rejected").get(5, TimeUnit.SECONDS);
+
+        assertThat(rejected.isExceptional()).isTrue();
+        assertThat(rejected.exceptionResult()).isInstanceOf(CommandSegmentFullException.class);
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS).getPayload()).isEqualTo("running");
+        assertThat(queued.get(5, TimeUnit.SECONDS).getPayload()).isEqualTo("queued");
+    }
+
+    private CompletableFuture<CommandResultMessage<?>> dispatch(String payload) {
+        CompletableFuture<CommandResultMessage<?>> result = new CompletableFuture<>();
+        CommandMessage<String> command = GenericCommandMessage.asCommandMessage(payload);
+        bus.dispatch(command, (message, commandResult) -> result.complete(commandResult));
+        return result;
+    }
+}
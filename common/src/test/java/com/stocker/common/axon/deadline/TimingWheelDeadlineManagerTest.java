@@ -0,0 +1,141 @@
+package com.stocker.common.axon.deadline;
+
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.ScopeAware;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delivers scheduled deadlines to their scope when due, and never the cancelled ones.
+ */
+class TimingWheelDeadlineManagerTest {
+
+    private static final String DEADLINE = "order-payment";
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final Duration DELAY = Duration.ofMillis(100);
+    // Long enough for a deadline due after DELAY to have been delivered
+    private static final long SETTLE_MS = 500;
+
+    private final BlockingQueue<Delivery> delivered = new LinkedBlockingQueue<>();
+    private final TimingWheelDeadlineManager manager = new TimingWheelDeadlineManager(
+            scope -> Stream.of(new RecordingScope()), NoTransactionManager.INSTANCE, TICK, 64, 2);
+
+    @AfterEach
+    void shutdown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void scheduledDeadlineIsDeliveredToItsScopeWhenDue() throws InterruptedException {
+        Instant scheduledAt = Instant.now();
+
+        manager.schedule(DELAY, DEADLINE, "order-1", new TestScope("saga-1"));
+
+        Delivery delivery = delivered.poll(5, TimeUnit.SECONDS);
+        assertThat(delivery).isNotNull();
+        assertThat(delivery.message().getDeadlineName()).isEqualTo(DEADLINE);
+        assertThat(delivery.message().getPayload()).isEqualTo("order-1");
+        assertThat(delivery.scope()).isEqualTo(new TestScope("saga-1"));
+        // The delay is rounded down to whole milliseconds, so allow for a tick of slack
+        assertThat(delivery.at()).isAfterOrEqualTo(scheduledAt.plus(DELAY).minus(TICK));
+    }
+
+    @Test
+    void deadlineDueInThePastIsDeliveredRightAway() throws InterruptedException {
+        manager.schedule(Instant.now().minusSeconds(1), DEADLINE, "order-1", new TestScope("saga-1"));
+
+        assertThat(delivered.poll(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void cancelledDeadlineIsNotDelivered() throws InterruptedException {
+        String scheduleId = manager.schedule(DELAY, DEADLINE, "order-1", new TestScope("saga-1"));
+
+        manager.cancelSchedule(DEADLINE, scheduleId);
+
+        assertThat(delivered.poll(SETTLE_MS, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void cancellingUnderAnotherNameKeepsTheDeadline() throws InterruptedException {
+        String scheduleId = manager.schedule(DELAY, DEADLINE, "order-1", new TestScope("saga-1"));
+
+        manager.cancelSchedule("order-dispatch", scheduleId);
+
+        assertThat(delivered.poll(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void cancellingWithinAScopeKeepsTheDeadlinesOfOtherScopes() throws InterruptedException {
+        manager.schedule(DELAY, DEADLINE, "order-1", new TestScope("saga-1"));
+        manager.schedule(DELAY, DEADLINE, "order-2", new TestScope("saga-2"));
+
+        manager.cancelAllWithinScope(DEADLINE, new TestScope("saga-1"));
+
+        Delivery delivery = delivered.poll(5, TimeUnit.SECONDS);
+        assertThat(delivery).isNotNull();
+        assertThat(delivery.scope()).isEqualTo(new TestScope("saga-2"));
+        assertThat(delivered.poll(SETTLE_MS, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void cancellingAllOfANameKeepsDeadlinesOfOtherNames() throws InterruptedException {
+        manager.schedule(DELAY, DEADLINE, "order-1", new TestScope("saga-1"));
+        manager.schedule(DELAY, "order-dispatch", "order-1", new TestScope("saga-1"));
+
+        manager.cancelAll(DEADLINE);
+
+        Delivery delivery = delivered.poll(5, TimeUnit.SECONDS);
+        assertThat(delivery).isNotNull();
+        assertThat(delivery.message().getDeadlineName()).isEqualTo("order-dispatch");
+        assertThat(delivered.poll(SETTLE_MS, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void pendingDeadlinesAreDroppedOnShutdown() throws InterruptedException {
+        manager.schedule(DELAY, DEADLINE, "order-1", new TestScope("saga-1"));
+
+        manager.shutdown();
+
+        assertThat(delivered.poll(SETTLE_MS, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private record TestScope(String sagaId) implements ScopeDescriptor {
+
+        @Override
+        public String scopeDescription() {
+            return "TestScope for saga " + sagaId;
+        }
+    }
+
+    private record Delivery(DeadlineMessage<?> message, ScopeDescriptor scope, Instant at) {
+    }
+
+    /**
+     * Stands in for the sagas, recording the deadlines delivered to them.
+     */
+    private class RecordingScope implements ScopeAware {
+
+        @Override
+        public boolean canResolve(ScopeDescriptor scopeDescription) {
+            return scopeDescription instanceof TestScope;
+        }
+
+        @Override
+        public void send(Message<?> message, ScopeDescriptor scopeDescription) {
+            delivered.add(new Delivery((DeadlineMessage<?>) message, scopeDescription, Instant.now()));
+        }
+    }
+}
@@ -11,7 +11,7 @@ import org.axonframework.spring.stereotype.Aggregate;
 
 import java.time.LocalDateTime;
 
-@Aggregate
+@Aggregate(cache = "aggregateCache")
 @NoArgsConstructor
 public class Delivery {
 
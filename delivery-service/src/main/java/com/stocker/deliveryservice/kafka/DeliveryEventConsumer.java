@@ -3,34 +3,76 @@ package com.stocker.deliveryservice.kafka;
 import com.stocker.common.commands.delivery.DeliverOrderCommand;
 import com.stocker.common.events.dispatch.OrderDispatchedEvent;
 import com.stocker.deliveryservice.service.DeliveryService;
+import com.stocker.deliveryservice.service.dto.DeliveryDTO;
+import com.stocker.kafkaconfig.consumer.KeyOrderedExecutor;
+import com.stocker.kafkaconfig.dedupe.ProcessedEventStore;
+import com.stocker.kafkaconfig.retry.RetryTopicRouter;
+import com.stocker.kafkaconfig.routing.EventTypeRoutingDeserializer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Kafka consumer for delivery-related events.
  * This class is responsible for consuming events from Kafka topics and processing them.
+ * Only active with {@code orchestration.mode=choreography}; in saga mode the order service's saga
+ * sends the delivery commands.
  */
 @Component
+@ConditionalOnProperty(name = "orchestration.mode", havingValue = "choreography")
 @RequiredArgsConstructor
 @Slf4j
 public class DeliveryEventConsumer {
 
+    private static final String CONSUMER_GROUP = "delivery-service-group";
+
     private final DeliveryService deliveryService;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final ProcessedEventStore processedEventStore;
+    private final RetryTopicRouter retryTopicRouter;
+
+    /**
+     * Start the receivers for the dispatch-events retry topics.
+     */
+    @PostConstruct
+    public void startRetries() {
+        retryTopicRouter.startRetryReceivers(CONSUMER_GROUP, "dispatch-events", this::handleRecord);
+    }
 
     /**
      * Listen for OrderDispatchedEvent from the dispatch-events topic.
      * When an order is dispatched, we can initiate the delivery process.
+     * Records are consumed in batches and processed in parallel across keys;
+     * redelivered events are skipped so a delivery is only created once per dispatch.
+     * Failed records are retried through the retry topics instead of blocking the partition.
      *
-     * @param event The OrderDispatchedEvent received from Kafka
+     * @param records The batch of records received from Kafka
      */
-    @KafkaListener(topics = "dispatch-events", groupId = "delivery-service-group")
-    public void handleOrderDispatchedEvent(@Payload OrderDispatchedEvent event) {
-        log.info("Received OrderDispatchedEvent from Kafka: {}", event);
+    @KafkaListener(topics = "dispatch-events", groupId = CONSUMER_GROUP,
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = EventTypeRoutingDeserializer.ACCEPTED_TYPES_CONFIG + "=OrderDispatchedEvent")
+    public void handleOrderDispatchedEvents(List<ConsumerRecord<String, Object>> records) {
+        log.debug("Received batch of {} records from dispatch-events", records.size());
+        keyOrderedExecutor.execute(records, record -> retryTopicRouter.withRetry(CONSUMER_GROUP, record, this::handleRecord))
+            .block();
+    }
+
+    private Mono<DeliveryDTO> handleRecord(ConsumerRecord<String, Object> record) {
+        return record.value() instanceof OrderDispatchedEvent event
+                ? processedEventStore.processOnce(CONSUMER_GROUP, record, () -> handleOrderDispatchedEvent(event))
+                : Mono.empty();
+    }
+
+    private Mono<DeliveryDTO> handleOrderDispatchedEvent(OrderDispatchedEvent event) {
+        log.info("Received OrderDispatchedEvent from Kafka: {}", event.getDispatchId());
         
         if ("DISPATCHED".equals(event.getStatus())) {
             log.info("Order dispatched with tracking number {}, initiating delivery process", event.getTrackingNumber());
@@ -46,7 +88,7 @@ public class DeliveryEventConsumer {
                 .build();
             
             // Process the delivery
-            deliveryService.processDelivery(
+            return deliveryService.processDelivery(
                     command.getDeliveryId(), 
                     command.getDispatchId(), 
                     command.getOrderId(), 
@@ -54,12 +96,11 @@ public class DeliveryEventConsumer {
                     command.getDeliveryAddress(), 
                     command.getEstimatedDeliveryTime()
                 )
-                .subscribe(
-                    delivery -> log.info("Delivery created: {}", delivery),
-                    error -> log.error("Error creating delivery: {}", error.getMessage())
-                );
+                .doOnSuccess(delivery -> log.info("Delivery created: {}", delivery))
+                .doOnError(error -> log.error("Error creating delivery: {}", error.getMessage()));
         } else {
             log.info("Order not dispatched properly, status: {}, no delivery needed", event.getStatus());
+            return Mono.empty();
         }
     }
 }
\ No newline at end of file
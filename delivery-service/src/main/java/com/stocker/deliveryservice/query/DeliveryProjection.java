@@ -1,26 +1,31 @@
 package com.stocker.deliveryservice.query;
 
+import com.stocker.common.axon.ProjectionNotifier;
 import com.stocker.common.events.delivery.OrderDeliveredEvent;
 import com.stocker.deliveryservice.domain.DeliveryStatus;
 import com.stocker.deliveryservice.repository.DeliveryRepository;
 import com.stocker.deliveryservice.repository.entity.DeliveryEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.SequenceNumber;
 import org.axonframework.queryhandling.QueryHandler;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
+@ProcessingGroup("delivery-projection")
 @RequiredArgsConstructor
 @Slf4j
 public class DeliveryProjection {
 
     private final DeliveryRepository deliveryRepository;
+    private final ProjectionNotifier projectionNotifier;
 
     @EventHandler
-    public void on(OrderDeliveredEvent event) {
+    public void on(OrderDeliveredEvent event, @SequenceNumber long sequenceNumber) {
         log.info("Handling OrderDeliveredEvent: {}", event.getDeliveryId());
         
         DeliveryEntity deliveryEntity = new DeliveryEntity();
@@ -34,10 +39,13 @@ public class DeliveryProjection {
         deliveryEntity.setReceiverName(event.getReceiverName());
         deliveryEntity.setDeliveryNotes(event.getDeliveryNotes());
         
-        deliveryRepository.save(deliveryEntity).subscribe(
-            savedDelivery -> log.info("Delivery saved: {}", savedDelivery.getDeliveryId()),
-            error -> log.error("Error saving delivery: {}", error.getMessage())
-        );
+        deliveryRepository.save(deliveryEntity)
+            .doOnSuccess(savedDelivery -> {
+                log.info("Delivery saved: {}", savedDelivery.getDeliveryId());
+                projectionNotifier.applied(event.getDeliveryId(), sequenceNumber);
+            })
+            .doOnError(error -> log.error("Error saving delivery: {}", error.getMessage()))
+            .block();
     }
 
     @QueryHandler
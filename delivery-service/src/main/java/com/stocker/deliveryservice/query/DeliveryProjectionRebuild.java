@@ -0,0 +1,43 @@
+package com.stocker.deliveryservice.query;
+
+import com.stocker.common.axon.rebuild.ProjectionRebuild;
+import com.stocker.common.axon.rebuild.RebuildTable;
+import com.stocker.common.axon.rebuild.RebuildWriter;
+import com.stocker.common.events.delivery.OrderDeliveredEvent;
+import com.stocker.deliveryservice.domain.DeliveryStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rebuilds the {@code deliveries} table of {@link DeliveryProjection}.
+ */
+@Component
+public class DeliveryProjectionRebuild implements ProjectionRebuild {
+
+    private static final List<String> COLUMNS = List.of("delivery_id", "dispatch_id", "order_id",
+            "tracking_number", "delivery_address", "status", "delivered_at", "receiver_name", "delivery_notes");
+
+    @Override
+    public String processingGroup() {
+        return "delivery-projection";
+    }
+
+    @Override
+    public List<RebuildTable> tables() {
+        return List.of(new RebuildTable("deliveries", COLUMNS));
+    }
+
+    @Override
+    public Fold newFold(RebuildWriter writer) {
+        return event -> {
+            if (event.getPayloadType() == OrderDeliveredEvent.class) {
+                OrderDeliveredEvent delivered = (OrderDeliveredEvent) event.getPayload();
+                writer.write("deliveries", delivered.getDeliveryId(), delivered.getDispatchId(),
+                        delivered.getOrderId(), delivered.getTrackingNumber(), delivered.getDeliveryAddress(),
+                        DeliveryStatus.DELIVERED, delivered.getDeliveredAt(), delivered.getReceiverName(),
+                        delivered.getDeliveryNotes());
+            }
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package com.stocker.deliveryservice.service;
 
+import com.stocker.common.axon.ConsistencyToken;
+import com.stocker.common.axon.ProjectionNotifier;
 import com.stocker.common.commands.delivery.DeliverOrderCommand;
 import com.stocker.common.events.delivery.OrderDeliveredEvent;
 import com.stocker.deliveryservice.domain.DeliveryStatus;
@@ -17,6 +19,7 @@ import org.axonframework.commandhandling.gateway.CommandGateway;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -33,6 +36,8 @@ public class DeliveryServiceImpl implements DeliveryService {
     private final QueryGateway queryGateway;
     private final CommandGateway commandGateway;
     private final DeliveryEventProducer deliveryEventProducer;
+    private final TransactionalOperator transactionalOperator;
+    private final ProjectionNotifier projectionNotifier;
 
     @Override
     public Mono<DeliveryDTO> processDelivery(String deliveryId, String dispatchId, String orderId, 
@@ -53,7 +58,7 @@ public class DeliveryServiceImpl implements DeliveryService {
         deliveryEntity.setCreatedAt(Instant.now());
         deliveryEntity.setUpdatedAt(Instant.now());
         
-        // Save the delivery entity
+        // Save the delivery entity and queue the event in the same transaction
         return deliveryRepository.save(deliveryEntity)
             .flatMap(savedEntity -> {
                 // Simulate delivery completion (in a real system, this would be triggered by a delivery confirmation)
@@ -77,11 +82,12 @@ public class DeliveryServiceImpl implements DeliveryService {
                             .receiverName(deliveredEntity.getReceiverName())
                             .build();
                         
-                        // Send the event to Kafka
-                        return deliveryEventProducer.sendOrderDeliveredEvent(event)
+                        // The outbox relay publishes the event to Kafka once the transaction commits
+                        return deliveryEventProducer.enqueueOrderDeliveredEvent(event)
                             .thenReturn(mapToDTO(deliveredEntity));
                     });
-            });
+            })
+            .as(transactionalOperator::transactional);
     }
 
     @Override
@@ -102,7 +108,8 @@ public class DeliveryServiceImpl implements DeliveryService {
             .build();
         
         return Mono.fromFuture(commandGateway.send(command))
-            .then(getDelivery(deliveryId));
+            .then(projectionNotifier.awaitApplied(ConsistencyToken.created(deliveryId)))
+            .then(Mono.defer(() -> getDelivery(deliveryId)));
     }
 
     @Override
@@ -1,6 +1,11 @@
 package com.stocker.dispatchservice.domain;
 
+import com.stocker.common.commands.dispatch.CancelDispatchCommand;
 import com.stocker.common.commands.dispatch.DispatchOrderCommand;
+import com.stocker.common.commands.dispatch.PrepareDispatchCommand;
+import com.stocker.common.commands.dispatch.ReleaseDispatchCommand;
+import com.stocker.common.events.dispatch.DispatchCancelledEvent;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
 import com.stocker.common.events.dispatch.OrderDispatchedEvent;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,64 +16,161 @@ import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.spring.stereotype.Aggregate;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Random;
 
-@Aggregate
+@Aggregate(cache = "aggregateCache")
 @NoArgsConstructor
 @Slf4j
 public class Dispatch {
 
+    private static final List<String> CARRIERS = List.of("DHL", "FEDEX", "UPS");
+
     @AggregateIdentifier
     private String dispatchId;
     private String orderId;
+    private String shippingAddress;
     private DispatchStatus status;
     private String trackingNumber;
     private String carrier;
     private Instant dispatchedAt;
 
+    /**
+     * Dispatch in one step, for sagas started before dispatches were split into prepare and
+     * release. A dispatch the carrier did not accept fails the command, so no dispatch is created
+     * and the saga is told through the command's result.
+     */
     @CommandHandler
     public Dispatch(DispatchOrderCommand command) {
-        log.info("Processing dispatch for order: {}, carrier: {}", command.getOrderId(), command.getCarrier());
-        
+        String carrier = carrierFor(command.getOrderId());
+        log.info("Processing dispatch for order: {}, carrier: {}", command.getOrderId(), carrier);
+
+        // In a real implementation, we would integrate with a warehouse/logistics system
+        // For simplicity, we'll simulate dispatch processing with different carriers
+        DispatchResult result = processDispatch(command.getOrderId(), carrier);
+        log.info("Order dispatched: {}, status: {}, tracking: {}",
+                command.getOrderId(), result.getStatus(), result.getTrackingNumber());
+        if (result.getStatus() != DispatchStatus.DISPATCHED) {
+            throw new IllegalStateException("Dispatch of order " + command.getOrderId()
+                    + " was not accepted by " + carrier + ": " + result.getStatus());
+        }
+
+        AggregateLifecycle.apply(OrderDispatchedEvent.builder()
+                .dispatchId(command.getDispatchId())
+                .orderId(command.getOrderId())
+                .shippingAddress(command.getShippingAddress())
+                .trackingNumber(result.getTrackingNumber())
+                .carrier(carrier)
+                .dispatchedAt(LocalDateTime.now())
+                .estimatedDeliveryDate(LocalDateTime.now().plusDays(3))
+                .build());
+    }
+
+    /**
+     * Allocate a carrier and get a tracking number, without handing the order over yet;
+     * this is the slow part of a dispatch and runs while the payment is being authorized.
+     * The prepared dispatch is released or cancelled later.
+     */
+    @CommandHandler
+    public Dispatch(PrepareDispatchCommand command) {
+        String carrier = command.getCarrier() != null ? command.getCarrier() : carrierFor(command.getOrderId());
+        log.info("Preparing dispatch for order: {}, carrier: {}", command.getOrderId(), carrier);
+
+        DispatchStatus status;
+        String trackingNumber;
         try {
-            // In a real implementation, we would integrate with a warehouse/logistics system
-            // For simplicity, we'll simulate dispatch processing with different carriers
-            DispatchResult result = processDispatch(command.getOrderId(), command.getCarrier());
-            
-            log.info("Order dispatched: {}, status: {}, tracking: {}", 
-                    command.getOrderId(), result.getStatus(), result.getTrackingNumber());
-            
-            AggregateLifecycle.apply(new OrderDispatchedEvent(
-                    command.getDispatchId(),
-                    command.getOrderId(),
-                    result.getStatus().toString(),
-                    result.getTrackingNumber(),
-                    command.getCarrier(),
-                    Instant.now()
-            ));
+            DispatchResult result = processDispatch(command.getOrderId(), carrier);
+            status = result.getStatus() == DispatchStatus.DISPATCHED ? DispatchStatus.PREPARED : DispatchStatus.FAILED;
+            trackingNumber = result.getTrackingNumber();
         } catch (Exception ex) {
-            log.error("Error dispatching order: {}", command.getOrderId(), ex);
-            
-            // Even in case of technical errors, we need to apply an event to maintain the saga
-            AggregateLifecycle.apply(new OrderDispatchedEvent(
-                    command.getDispatchId(),
-                    command.getOrderId(),
-                    DispatchStatus.FAILED.toString(),
-                    null,
-                    command.getCarrier(),
-                    Instant.now()
-            ));
+            log.error("Error preparing dispatch for order: {}", command.getOrderId(), ex);
+            status = DispatchStatus.FAILED;
+            trackingNumber = null;
+        }
+
+        log.info("Dispatch preparation for order: {}, status: {}, tracking: {}",
+                command.getOrderId(), status, trackingNumber);
+        AggregateLifecycle.apply(DispatchPreparedEvent.builder()
+                .dispatchId(command.getDispatchId())
+                .orderId(command.getOrderId())
+                .status(status.toString())
+                .shippingAddress(command.getShippingAddress())
+                .carrier(carrier)
+                .trackingNumber(trackingNumber)
+                .preparedAt(LocalDateTime.now())
+                .build());
+    }
+
+    @CommandHandler
+    public void handle(ReleaseDispatchCommand command) {
+        if (status == DispatchStatus.DISPATCHED) {
+            return;
+        }
+        if (status != DispatchStatus.PREPARED) {
+            throw new IllegalStateException("Dispatch " + dispatchId + " cannot be released in status " + status);
         }
+        AggregateLifecycle.apply(OrderDispatchedEvent.builder()
+                .dispatchId(dispatchId)
+                .orderId(orderId)
+                .shippingAddress(shippingAddress)
+                .trackingNumber(trackingNumber)
+                .carrier(carrier)
+                .dispatchedAt(LocalDateTime.now())
+                .estimatedDeliveryDate(LocalDateTime.now().plusDays(3))
+                .build());
+    }
+
+    /**
+     * Cancel a prepared dispatch, or recall one already handed to the carrier.
+     */
+    @CommandHandler
+    public void handle(CancelDispatchCommand command) {
+        if (status == DispatchStatus.CANCELLED || status == DispatchStatus.FAILED) {
+            return;
+        }
+        if (status != DispatchStatus.PREPARED && status != DispatchStatus.DISPATCHED) {
+            throw new IllegalStateException("Dispatch " + dispatchId + " cannot be cancelled in status " + status);
+        }
+        AggregateLifecycle.apply(DispatchCancelledEvent.builder()
+                .dispatchId(dispatchId)
+                .orderId(orderId)
+                .reason(command.getReason())
+                .cancelledAt(LocalDateTime.now())
+                .build());
     }
 
     @EventSourcingHandler
-    public void on(OrderDispatchedEvent event) {
+    public void on(DispatchPreparedEvent event) {
         this.dispatchId = event.getDispatchId();
         this.orderId = event.getOrderId();
+        this.shippingAddress = event.getShippingAddress();
         this.status = DispatchStatus.valueOf(event.getStatus());
         this.trackingNumber = event.getTrackingNumber();
         this.carrier = event.getCarrier();
-        this.dispatchedAt = event.getDispatchedAt();
+    }
+
+    @EventSourcingHandler
+    public void on(DispatchCancelledEvent event) {
+        this.status = DispatchStatus.CANCELLED;
+    }
+
+    @EventSourcingHandler
+    public void on(OrderDispatchedEvent event) {
+        this.dispatchId = event.getDispatchId();
+        this.orderId = event.getOrderId();
+        this.shippingAddress = event.getShippingAddress();
+        this.status = DispatchStatus.DISPATCHED;
+        this.trackingNumber = event.getTrackingNumber();
+        this.carrier = event.getCarrier();
+        this.dispatchedAt = event.getDispatchedAt() != null
+                ? event.getDispatchedAt().atZone(ZoneId.systemDefault()).toInstant()
+                : null;
+    }
+
+    private static String carrierFor(String orderId) {
+        return CARRIERS.get(Math.floorMod(orderId.hashCode(), CARRIERS.size()));
     }
     
     private DispatchResult processDispatch(String orderId, String carrier) {
@@ -3,6 +3,7 @@ package com.stocker.dispatchservice.domain;
 public enum DispatchStatus {
     PENDING,
     PROCESSING,
+    PREPARED,
     DISPATCHED,
     FAILED,
     CANCELLED
@@ -1,67 +1,111 @@
 package com.stocker.dispatchservice.kafka;
 
-import com.stocker.common.commands.dispatch.DispatchOrderCommand;
 import com.stocker.common.events.order.OrderCreatedEvent;
 import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.models.Payment.PaymentStatus;
 import com.stocker.dispatchservice.service.DispatchService;
+import com.stocker.dispatchservice.service.dto.DispatchDTO;
+import com.stocker.kafkaconfig.consumer.KeyOrderedExecutor;
+import com.stocker.kafkaconfig.retry.RetryTopicRouter;
+import com.stocker.kafkaconfig.routing.EventHeaders;
+import com.stocker.kafkaconfig.routing.EventTypeRoutingDeserializer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
 /**
  * Kafka consumer for dispatch-related events.
  * This class is responsible for consuming events from Kafka topics and processing them.
+ * Only active with {@code orchestration.mode=choreography}; in saga mode the order service's saga
+ * sends the dispatch commands.
  */
 @Component
+@ConditionalOnProperty(name = "orchestration.mode", havingValue = "choreography")
 @RequiredArgsConstructor
 @Slf4j
 public class DispatchEventConsumer {
 
+    private static final String DEFAULT_CARRIER = "DEFAULT_CARRIER";
+
     private final DispatchService dispatchService;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final RetryTopicRouter retryTopicRouter;
+
+    /**
+     * Start the receivers for the payment-events retry topics.
+     */
+    @PostConstruct
+    public void startRetries() {
+        retryTopicRouter.startRetryReceivers("dispatch-service-group", "payment-events", this::handleRecord);
+    }
 
     /**
      * Listen for OrderCreatedEvent from the order-events topic.
-     * This is for informational purposes only, as dispatch typically waits for payment.
+     * This is for informational purposes only, as dispatch typically waits for payment,
+     * so the payload is left as raw bytes and the event is identified from its headers.
      *
-     * @param event The OrderCreatedEvent received from Kafka
+     * @param record The order-events record received from Kafka
      */
-    @KafkaListener(topics = "order-events", groupId = "dispatch-service-group")
-    public void handleOrderCreatedEvent(@Payload OrderCreatedEvent event) {
-        log.info("Received OrderCreatedEvent from Kafka: {}", event);
+    @KafkaListener(topics = "order-events", groupId = "dispatch-service-group",
+            properties = "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer")
+    public void handleOrderCreatedEvent(ConsumerRecord<String, byte[]> record) {
+        if (OrderCreatedEvent.class.getSimpleName().equals(EventHeaders.eventType(record.headers()))) {
+            log.info("Received OrderCreatedEvent from Kafka for order {}", record.key());
+        }
         // No action needed yet, as dispatch typically waits for payment confirmation
     }
 
     /**
      * Listen for PaymentProcessedEvent from the payment-events topic.
      * When a payment is successfully processed, we can initiate the dispatch process.
+     * Records are consumed in batches and processed in parallel across keys.
+     * Failed records are retried through the retry topics instead of blocking the partition.
      *
-     * @param event The PaymentProcessedEvent received from Kafka
+     * @param records The batch of records received from Kafka
      */
-    @KafkaListener(topics = "payment-events", groupId = "dispatch-service-group")
-    public void handlePaymentProcessedEvent(@Payload PaymentProcessedEvent event) {
-        log.info("Received PaymentProcessedEvent from Kafka: {}", event);
+    @KafkaListener(topics = "payment-events", groupId = "dispatch-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = EventTypeRoutingDeserializer.ACCEPTED_TYPES_CONFIG + "=PaymentProcessedEvent")
+    public void handlePaymentProcessedEvents(List<ConsumerRecord<String, Object>> records) {
+        log.debug("Received batch of {} records from payment-events", records.size());
+        keyOrderedExecutor.execute(records,
+                record -> retryTopicRouter.withRetry("dispatch-service-group", record, this::handleRecord))
+            .block();
+    }
+
+    private Mono<DispatchDTO> handleRecord(ConsumerRecord<String, Object> record) {
+        return record.value() instanceof PaymentProcessedEvent event
+                ? handlePaymentProcessedEvent(event)
+                : Mono.empty();
+    }
+
+    private Mono<DispatchDTO> handlePaymentProcessedEvent(PaymentProcessedEvent event) {
+        log.info("Received PaymentProcessedEvent from Kafka: {}", event.getPaymentId());
         
-        if ("COMPLETED".equals(event.getStatus())) {
+        if (event.getStatus() == PaymentStatus.COMPLETED) {
             log.info("Payment completed for order {}, initiating dispatch process", event.getOrderId());
             
-            // Create a dispatch order command
-            DispatchOrderCommand command = DispatchOrderCommand.builder()
-                .dispatchId(event.getPaymentId()) // Using paymentId as dispatchId for simplicity
-                .orderId(event.getOrderId())
-                .carrier("DEFAULT_CARRIER")
-                .build();
-            
-            // Process the dispatch order
-            dispatchService.processDispatch(command.getDispatchId(), command.getOrderId(), command.getCarrier())
-                .subscribe(
-                    dispatch -> log.info("Dispatch created: {}", dispatch),
-                    error -> log.error("Error creating dispatch: {}", error.getMessage())
-                );
+            // Process the dispatch order under the order's own dispatch id, so a redelivered payment
+            // finds the dispatch it already created
+            return dispatchService.processDispatch(dispatchIdFor(event.getOrderId()), event.getOrderId(), DEFAULT_CARRIER)
+                .doOnSuccess(dispatch -> log.info("Dispatch created: {}", dispatch))
+                .doOnError(error -> log.error("Error creating dispatch: {}", error.getMessage()));
         } else {
             log.info("Payment not completed for order {}, no dispatch needed", event.getOrderId());
+            return Mono.empty();
         }
     }
+
+    private static String dispatchIdFor(String orderId) {
+        return UUID.nameUUIDFromBytes(("dispatch:" + orderId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
 }
\ No newline at end of file
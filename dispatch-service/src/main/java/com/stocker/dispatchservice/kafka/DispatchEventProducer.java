@@ -2,14 +2,18 @@ package com.stocker.dispatchservice.kafka;
 
 import com.stocker.common.events.dispatch.OrderDispatchedEvent;
 import com.stocker.kafkaconfig.KafkaEventUtils;
+import com.stocker.kafkaconfig.outbox.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 /**
  * Kafka producer for dispatch events.
  * This class is responsible for sending dispatch-related events to Kafka topics.
+ * Events are only published with {@code orchestration.mode=choreography}, where the other
+ * services act on them; in saga mode nothing consumes them, so they are dropped.
  */
 @Component
 @RequiredArgsConstructor
@@ -17,8 +21,12 @@ import reactor.core.publisher.Mono;
 public class DispatchEventProducer {
 
     private final KafkaEventUtils kafkaEventUtils;
+    private final OutboxWriter outboxWriter;
     private static final String TOPIC = "dispatch-events";
 
+    @Value("${orchestration.mode:saga}")
+    private String orchestrationMode;
+
     /**
      * Send an OrderDispatchedEvent to the dispatch-events Kafka topic.
      *
@@ -26,6 +34,9 @@ public class DispatchEventProducer {
      * @return Mono<Void> that completes when the event is sent
      */
     public Mono<Void> sendOrderDispatchedEvent(OrderDispatchedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
         log.info("Sending OrderDispatchedEvent to Kafka: {}", event);
         return kafkaEventUtils.sendEvent(TOPIC, event.getOrderId(), event)
                 .then();
@@ -37,7 +48,29 @@ public class DispatchEventProducer {
      * @param event The OrderDispatchedEvent to send
      */
     public void sendOrderDispatchedEventAsync(OrderDispatchedEvent event) {
+        if (!publishing()) {
+            return;
+        }
         log.info("Sending OrderDispatchedEvent to Kafka asynchronously: {}", event);
         kafkaEventUtils.sendEventAsync(TOPIC, event.getOrderId(), event);
     }
-}
\ No newline at end of file
+
+    /**
+     * Add an OrderDispatchedEvent to the outbox for publishing to the dispatch-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The OrderDispatchedEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueueOrderDispatchedEvent(OrderDispatchedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
+        log.debug("Adding OrderDispatchedEvent to outbox: {}", event.getOrderId());
+        return outboxWriter.append(TOPIC, event.getOrderId(), event);
+    }
+
+    private boolean publishing() {
+        return "choreography".equals(orchestrationMode);
+    }
+}
@@ -1,28 +1,36 @@
 package com.stocker.dispatchservice.query;
 
+import com.stocker.common.axon.ProjectionNotifier;
+import com.stocker.common.events.dispatch.DispatchCancelledEvent;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
 import com.stocker.common.events.dispatch.OrderDispatchedEvent;
 import com.stocker.dispatchservice.domain.DispatchStatus;
 import com.stocker.dispatchservice.repository.DispatchRepository;
 import com.stocker.dispatchservice.repository.entity.DispatchEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.SequenceNumber;
 import org.axonframework.queryhandling.QueryHandler;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.time.ZoneId;
 
 @Component
+@ProcessingGroup("dispatch-projection")
 @RequiredArgsConstructor
 @Slf4j
 public class DispatchProjection {
 
     private final DispatchRepository dispatchRepository;
+    private final ProjectionNotifier projectionNotifier;
 
     @EventHandler
-    public void on(OrderDispatchedEvent event) {
+    public void on(OrderDispatchedEvent event, @SequenceNumber long sequenceNumber) {
         log.info("Handling OrderDispatchedEvent: {}", event.getDispatchId());
         
         DispatchEntity dispatchEntity = DispatchEntity.builder()
@@ -36,10 +44,52 @@ public class DispatchProjection {
                 .updatedAt(Instant.now())
                 .build();
         
-        dispatchRepository.save(dispatchEntity).subscribe(
-            savedDispatch -> log.info("Dispatch saved: {}", savedDispatch.getId()),
-            error -> log.error("Error saving dispatch: {}", error.getMessage())
-        );
+        dispatchRepository.save(dispatchEntity)
+            .doOnSuccess(savedDispatch -> {
+                log.info("Dispatch saved: {}", savedDispatch.getId());
+                projectionNotifier.applied(event.getDispatchId(), sequenceNumber);
+            })
+            .doOnError(error -> log.error("Error saving dispatch: {}", error.getMessage()))
+            .block();
+    }
+
+    @EventHandler
+    public void on(DispatchPreparedEvent event, @SequenceNumber long sequenceNumber) {
+        log.info("Handling DispatchPreparedEvent: {}, status: {}", event.getDispatchId(), event.getStatus());
+
+        Instant preparedAt = event.getPreparedAt().atZone(ZoneId.systemDefault()).toInstant();
+        DispatchEntity dispatchEntity = DispatchEntity.builder()
+                .id(event.getDispatchId())
+                .orderId(event.getOrderId())
+                .status(event.getStatus())
+                .trackingNumber(event.getTrackingNumber())
+                .carrier(event.getCarrier())
+                .createdAt(preparedAt)
+                .updatedAt(preparedAt)
+                .build();
+
+        save(dispatchRepository.save(dispatchEntity), event.getDispatchId(), sequenceNumber);
+    }
+
+    @EventHandler
+    public void on(DispatchCancelledEvent event, @SequenceNumber long sequenceNumber) {
+        log.info("Handling DispatchCancelledEvent: {}, reason: {}", event.getDispatchId(), event.getReason());
+
+        save(dispatchRepository.findById(event.getDispatchId())
+                .flatMap(dispatchEntity -> {
+                    dispatchEntity.setStatus(DispatchStatus.CANCELLED.toString());
+                    dispatchEntity.setUpdatedAt(event.getCancelledAt().atZone(ZoneId.systemDefault()).toInstant());
+                    return dispatchRepository.save(dispatchEntity);
+                }), event.getDispatchId(), sequenceNumber);
+    }
+
+    private void save(Mono<DispatchEntity> write, String dispatchId, long sequenceNumber) {
+        write.doOnSuccess(savedDispatch -> {
+                log.info("Dispatch saved: {}, status: {}", savedDispatch.getId(), savedDispatch.getStatus());
+                projectionNotifier.applied(dispatchId, sequenceNumber);
+            })
+            .doOnError(error -> log.error("Error saving dispatch: {}", error.getMessage()))
+            .block();
     }
 
     @QueryHandler
@@ -0,0 +1,55 @@
+package com.stocker.dispatchservice.query;
+
+import com.stocker.common.axon.rebuild.ProjectionRebuild;
+import com.stocker.common.axon.rebuild.RebuildTable;
+import com.stocker.common.axon.rebuild.RebuildWriter;
+import com.stocker.common.events.dispatch.DispatchCancelledEvent;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
+import com.stocker.common.events.dispatch.OrderDispatchedEvent;
+import com.stocker.dispatchservice.domain.DispatchStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Rebuilds the {@code dispatches} table of {@link DispatchProjection}.
+ */
+@Component
+public class DispatchProjectionRebuild implements ProjectionRebuild {
+
+    private static final List<String> COLUMNS = List.of("id", "order_id", "status", "tracking_number", "carrier",
+            "dispatched_at", "created_at", "updated_at");
+
+    @Override
+    public String processingGroup() {
+        return "dispatch-projection";
+    }
+
+    @Override
+    public List<RebuildTable> tables() {
+        // A released dispatch keeps the creation time of its preparation
+        return List.of(new RebuildTable("dispatches", COLUMNS, List.of("created_at")));
+    }
+
+    @Override
+    public Fold newFold(RebuildWriter writer) {
+        return event -> {
+            LocalDateTime at = LocalDateTime.ofInstant(event.getTimestamp(), ZoneId.systemDefault());
+            if (event.getPayloadType() == DispatchPreparedEvent.class) {
+                DispatchPreparedEvent prepared = (DispatchPreparedEvent) event.getPayload();
+                writer.write("dispatches", prepared.getDispatchId(), prepared.getOrderId(), prepared.getStatus(),
+                        prepared.getTrackingNumber(), prepared.getCarrier(), null, at, at);
+            } else if (event.getPayloadType() == OrderDispatchedEvent.class) {
+                OrderDispatchedEvent dispatched = (OrderDispatchedEvent) event.getPayload();
+                writer.write("dispatches", dispatched.getDispatchId(), dispatched.getOrderId(),
+                        DispatchStatus.DISPATCHED, dispatched.getTrackingNumber(), dispatched.getCarrier(),
+                        dispatched.getDispatchedAt(), at, at);
+            } else if (event.getPayloadType() == DispatchCancelledEvent.class) {
+                writer.update("dispatches", ((DispatchCancelledEvent) event.getPayload()).getDispatchId(),
+                        "status", DispatchStatus.CANCELLED, "updated_at", at);
+            }
+        };
+    }
+}
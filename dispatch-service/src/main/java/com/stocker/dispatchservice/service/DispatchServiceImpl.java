@@ -1,5 +1,7 @@
 package com.stocker.dispatchservice.service;
 
+import com.stocker.common.axon.ConsistencyToken;
+import com.stocker.common.axon.ProjectionNotifier;
 import com.stocker.common.commands.dispatch.DispatchOrderCommand;
 import com.stocker.common.events.dispatch.OrderDispatchedEvent;
 import com.stocker.dispatchservice.domain.DispatchStatus;
@@ -17,10 +19,13 @@ import org.axonframework.commandhandling.gateway.CommandGateway;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.UUID;
 
 @Service
@@ -32,11 +37,20 @@ public class DispatchServiceImpl implements DispatchService {
     private final CommandGateway commandGateway;
     private final QueryGateway queryGateway;
     private final DispatchEventProducer dispatchEventProducer;
+    private final TransactionalOperator transactionalOperator;
+    private final ProjectionNotifier projectionNotifier;
     
     @Override
     public Mono<DispatchDTO> processDispatch(String dispatchId, String orderId, String carrier) {
         log.info("Processing dispatch directly: dispatchId={}, orderId={}, carrier={}", dispatchId, orderId, carrier);
         
+        // A dispatch that already exists was created by an earlier delivery of the same request
+        return dispatchRepository.findById(dispatchId)
+            .map(this::mapToDispatchDTO)
+            .switchIfEmpty(Mono.defer(() -> createDispatch(dispatchId, orderId, carrier)));
+    }
+
+    private Mono<DispatchDTO> createDispatch(String dispatchId, String orderId, String carrier) {
         // Generate a tracking number
         String trackingNumber = "TRK-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         
@@ -51,23 +65,23 @@ public class DispatchServiceImpl implements DispatchService {
         dispatchEntity.setCreatedAt(Instant.now());
         dispatchEntity.setUpdatedAt(Instant.now());
         
-        // Save the dispatch entity
+        // Save the dispatch entity and queue the event in the same transaction
         return dispatchRepository.save(dispatchEntity)
             .flatMap(savedEntity -> {
                 // Create and send the OrderDispatchedEvent
                 OrderDispatchedEvent event = OrderDispatchedEvent.builder()
                     .dispatchId(savedEntity.getId())
                     .orderId(savedEntity.getOrderId())
-                    .status(savedEntity.getStatus())
                     .trackingNumber(savedEntity.getTrackingNumber())
                     .carrier(savedEntity.getCarrier())
-                    .dispatchedAt(savedEntity.getDispatchedAt().toString())
+                    .dispatchedAt(LocalDateTime.ofInstant(savedEntity.getDispatchedAt(), ZoneId.systemDefault()))
                     .build();
                 
-                // Send the event to Kafka
-                return dispatchEventProducer.sendOrderDispatchedEvent(event)
+                // The outbox relay publishes the event to Kafka once the transaction commits
+                return dispatchEventProducer.enqueueOrderDispatchedEvent(event)
                     .thenReturn(mapToDispatchDTO(savedEntity));
-            });
+            })
+            .as(transactionalOperator::transactional);
     }
 
     @Override
@@ -81,6 +95,7 @@ public class DispatchServiceImpl implements DispatchService {
                 .build();
         
         return Mono.fromFuture(commandGateway.send(command))
+                .then(projectionNotifier.awaitApplied(ConsistencyToken.created(dispatchId)))
                 .then(Mono.defer(() -> getDispatch(dispatchId)));
     }
 
@@ -0,0 +1,108 @@
+package com.stocker.dispatchservice.domain;
+
+import com.stocker.common.commands.dispatch.CancelDispatchCommand;
+import com.stocker.common.commands.dispatch.ReleaseDispatchCommand;
+import com.stocker.common.events.dispatch.DispatchCancelledEvent;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
+import com.stocker.common.events.dispatch.OrderDispatchedEvent;
+import org.axonframework.test.aggregate.AggregateTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.axonframework.test.matchers.Matchers.andNoMore;
+import static org.axonframework.test.matchers.Matchers.exactSequenceOf;
+import static org.axonframework.test.matchers.Matchers.payloadsMatching;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Releases a prepared dispatch to its carrier once, and cancels it before or after the release.
+ */
+class DispatchTest {
+
+    private static final String DISPATCH_ID = "dispatch-1";
+    private static final String ORDER_ID = "order-1";
+
+    private AggregateTestFixture<Dispatch> fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new AggregateTestFixture<>(Dispatch.class);
+    }
+
+    @Test
+    void releasingAPreparedDispatchDispatchesTheOrder() {
+        fixture.given(prepared(DispatchStatus.PREPARED))
+                .when(new ReleaseDispatchCommand(DISPATCH_ID, ORDER_ID))
+                .expectSuccessfulHandlerExecution()
+                .expectEventsMatching(payloadsMatching(exactSequenceOf(
+                        allOf(instanceOf(OrderDispatchedEvent.class),
+                                hasProperty("dispatchId", equalTo(DISPATCH_ID)),
+                                hasProperty("orderId", equalTo(ORDER_ID)),
+                                hasProperty("shippingAddress", equalTo("1 Main Street")),
+                                hasProperty("trackingNumber", equalTo("DHL-1")),
+                                hasProperty("carrier", equalTo("DHL"))),
+                        andNoMore())));
+    }
+
+    @Test
+    void releasingAReleasedDispatchAgainDoesNothing() {
+        fixture.given(prepared(DispatchStatus.PREPARED), dispatched())
+                .when(new ReleaseDispatchCommand(DISPATCH_ID, ORDER_ID))
+                .expectSuccessfulHandlerExecution()
+                .expectNoEvents();
+    }
+
+    @Test
+    void failedPreparationCannotBeReleased() {
+        fixture.given(prepared(DispatchStatus.FAILED))
+                .when(new ReleaseDispatchCommand(DISPATCH_ID, ORDER_ID))
+                .expectException(IllegalStateException.class);
+    }
+
+    @Test
+    void releasedDispatchCanBeCancelled() {
+        fixture.given(prepared(DispatchStatus.PREPARED), dispatched())
+                .when(new CancelDispatchCommand(DISPATCH_ID, ORDER_ID, "delivery timed out"))
+                .expectEventsMatching(payloadsMatching(exactSequenceOf(
+                        allOf(instanceOf(DispatchCancelledEvent.class),
+                                hasProperty("reason", equalTo("delivery timed out"))),
+                        andNoMore())));
+    }
+
+    @Test
+    void cancelledDispatchCannotBeReleased() {
+        fixture.given(prepared(DispatchStatus.PREPARED),
+                        new DispatchCancelledEvent(DISPATCH_ID, ORDER_ID, "payment timed out", LocalDateTime.now()))
+                .when(new ReleaseDispatchCommand(DISPATCH_ID, ORDER_ID))
+                .expectException(IllegalStateException.class);
+    }
+
+    private static DispatchPreparedEvent prepared(DispatchStatus status) {
+        return DispatchPreparedEvent.builder()
+                .dispatchId(DISPATCH_ID)
+                .orderId(ORDER_ID)
+                .status(status.toString())
+                .shippingAddress("1 Main Street")
+                .carrier("DHL")
+                .trackingNumber("DHL-1")
+                .preparedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static OrderDispatchedEvent dispatched() {
+        return OrderDispatchedEvent.builder()
+                .dispatchId(DISPATCH_ID)
+                .orderId(ORDER_ID)
+                .shippingAddress("1 Main Street")
+                .trackingNumber("DHL-1")
+                .carrier("DHL")
+                .dispatchedAt(LocalDateTime.now())
+                .estimatedDeliveryDate(LocalDateTime.now().plusDays(3))
+                .build();
+    }
+}
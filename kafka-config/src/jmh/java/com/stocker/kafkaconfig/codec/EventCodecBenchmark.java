@@ -0,0 +1,197 @@
+package com.stocker.kafkaconfig.codec;
+
+import com.stocker.common.events.cart.CartCreatedEvent;
+import com.stocker.common.events.cart.ItemAddedToCartEvent;
+import com.stocker.common.events.cart.ItemRemovedFromCartEvent;
+import com.stocker.common.events.delivery.OrderDeliveredEvent;
+import com.stocker.common.events.dispatch.OrderDispatchedEvent;
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.models.Order.OrderStatus;
+import com.stocker.common.models.OrderItem;
+import com.stocker.common.models.Payment.PaymentMethod;
+import com.stocker.common.models.Payment.PaymentStatus;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BinaryEventCodec} with the JSON serializer it replaces, for every registered event.
+ * Reports encode and decode throughput, and prints the bytes per event of both formats once per trial.
+ * JSON is measured as it goes over the wire: the serializer adds its type headers and the deserializer
+ * resolves the target class from them.
+ * Run with {@code mvn -pl kafka-config -Pjmh test-compile exec:exec} after installing {@code common}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    private static final String TOPIC = "benchmark-events";
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 3, 14, 9, 26, 53, 589_793_238);
+
+    @Param({"CartCreatedEvent", "ItemAddedToCartEvent", "ItemRemovedFromCartEvent", "OrderCreatedEvent",
+            "OrderStatusUpdatedEvent", "PaymentProcessedEvent", "OrderDispatchedEvent", "OrderDeliveredEvent"})
+    private String eventType;
+
+    private BinaryEventCodec binaryCodec;
+    private JsonSerializer<Object> jsonSerializer;
+    private JsonDeserializer<Object> jsonDeserializer;
+
+    private Object event;
+    private byte[] binary;
+    private byte[] json;
+    private Headers jsonHeaders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        binaryCodec = new BinaryEventCodec(EventSchemaRegistry.getDefault());
+        jsonSerializer = new JsonSerializer<>();
+        jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.stocker.common.*"), false);
+
+        event = event(eventType);
+        if (!binaryCodec.supports(event)) {
+            throw new IllegalStateException(eventType + " is not registered in " + EventSchemaRegistry.RESOURCE);
+        }
+        binary = binaryCodec.encode(event);
+        jsonHeaders = new RecordHeaders();
+        json = jsonSerializer.serialize(TOPIC, jsonHeaders, event);
+
+        int headerBytes = 0;
+        for (Header header : jsonHeaders) {
+            headerBytes += header.key().length() + header.value().length;
+        }
+        System.out.printf("%n%s: binary %d bytes, json %d bytes (+%d bytes of type headers)%n",
+                eventType, binary.length, json.length, headerBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jsonSerializer.close();
+        jsonDeserializer.close();
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public Object binaryDecode() {
+        return binaryCodec.decode(binary);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public Object jsonDecode() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, json);
+    }
+
+    private static Object event(String eventType) {
+        return switch (eventType) {
+            case "CartCreatedEvent" -> CartCreatedEvent.builder().cartId("cart-1").userId("user-1").build();
+            case "ItemAddedToCartEvent" -> ItemAddedToCartEvent.builder()
+                    .cartId("cart-1")
+                    .cartItemId("item-1")
+                    .productId("product-1")
+                    .productName("Widget")
+                    .quantity(3)
+                    .unitPrice(new BigDecimal("19.90"))
+                    .subtotal(new BigDecimal("59.70"))
+                    .build();
+            case "ItemRemovedFromCartEvent" -> ItemRemovedFromCartEvent.builder()
+                    .cartId("cart-1")
+                    .cartItemId("item-1")
+                    .productId("product-1")
+                    .build();
+            case "OrderCreatedEvent" -> OrderCreatedEvent.builder()
+                    .orderId("order-1")
+                    .userId("user-1")
+                    .cartId("cart-1")
+                    .items(List.of(orderItem("order-item-1", 2), orderItem("order-item-2", 1)))
+                    .totalAmount(new BigDecimal("59.70"))
+                    .shippingAddress("1 Main Street")
+                    .createdAt(AT)
+                    .build();
+            case "OrderStatusUpdatedEvent" -> OrderStatusUpdatedEvent.builder()
+                    .orderId("order-1")
+                    .previousStatus(OrderStatus.CREATED)
+                    .newStatus(OrderStatus.CANCELLED)
+                    .reason("Payment timed out")
+                    .updatedAt(AT)
+                    .build();
+            case "PaymentProcessedEvent" -> PaymentProcessedEvent.builder()
+                    .paymentId("payment-1")
+                    .orderId("order-1")
+                    .userId("user-1")
+                    .amount(new BigDecimal("59.70"))
+                    .status(PaymentStatus.COMPLETED)
+                    .paymentMethod(PaymentMethod.CREDIT_CARD)
+                    .transactionId("tx-1")
+                    .processedAt(AT)
+                    .build();
+            case "OrderDispatchedEvent" -> OrderDispatchedEvent.builder()
+                    .dispatchId("dispatch-1")
+                    .orderId("order-1")
+                    .shippingAddress("1 Main Street")
+                    .trackingNumber("TRK-1")
+                    .carrier("Carrier")
+                    .dispatchedAt(AT)
+                    .estimatedDeliveryDate(AT.plusDays(3))
+                    .build();
+            case "OrderDeliveredEvent" -> OrderDeliveredEvent.builder()
+                    .deliveryId("delivery-1")
+                    .dispatchId("dispatch-1")
+                    .orderId("order-1")
+                    .trackingNumber("TRK-1")
+                    .deliveryAddress("1 Main Street")
+                    .receiverName("Receiver")
+                    .deliveryNotes("Left at the door")
+                    .deliveredAt(AT)
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown event type " + eventType);
+        };
+    }
+
+    private static OrderItem orderItem(String orderItemId, int quantity) {
+        return OrderItem.builder()
+                .orderItemId(orderItemId)
+                .orderId("order-1")
+                .productId("product-" + orderItemId)
+                .productName("Widget")
+                .quantity(quantity)
+                .unitPrice(new BigDecimal("19.90"))
+                .subtotal(new BigDecimal("19.90").multiply(BigDecimal.valueOf(quantity)))
+                .build();
+    }
+}
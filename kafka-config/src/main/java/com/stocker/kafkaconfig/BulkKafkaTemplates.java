@@ -0,0 +1,52 @@
+package com.stocker.kafkaconfig;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of Kafka templates used for batched sends.
+ * Each topic resolves to a template built from its bulk producer profile; topics that
+ * share the same profile share one producer, so the number of producers stays small.
+ */
+public class BulkKafkaTemplates implements DisposableBean {
+
+    private final Function<String, Map<String, Object>> configResolver;
+    private final Function<Map<String, Object>, ProducerFactory<String, Object>> producerFactories;
+    private final Map<String, KafkaTemplate<String, Object>> templatesByTopic = new ConcurrentHashMap<>();
+    private final Map<Map<String, Object>, KafkaTemplate<String, Object>> templatesByProfile = new ConcurrentHashMap<>();
+
+    public BulkKafkaTemplates(Function<String, Map<String, Object>> configResolver,
+                              Function<Map<String, Object>, ProducerFactory<String, Object>> producerFactories) {
+        this.configResolver = configResolver;
+        this.producerFactories = producerFactories;
+    }
+
+    /**
+     * Get the template to use for bulk sends to a topic.
+     *
+     * @param topic The topic to send to
+     * @return KafkaTemplate configured with the topic's bulk profile
+     */
+    public KafkaTemplate<String, Object> forTopic(String topic) {
+        return templatesByTopic.computeIfAbsent(topic, t ->
+                templatesByProfile.computeIfAbsent(configResolver.apply(t), this::createTemplate));
+    }
+
+    private KafkaTemplate<String, Object> createTemplate(Map<String, Object> config) {
+        return new KafkaTemplate<>(producerFactories.apply(config));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (KafkaTemplate<String, Object> template : templatesByProfile.values()) {
+            if (template.getProducerFactory() instanceof DisposableBean factory) {
+                factory.destroy();
+            }
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package com.stocker.kafkaconfig;
 
+import com.stocker.kafkaconfig.consumer.OffsetCommitManager;
+import com.stocker.kafkaconfig.retry.RetryTiers;
+import com.stocker.kafkaconfig.routing.EventTypeRoutingDeserializer;
+import com.stocker.kafkaconfig.transport.EventTransport;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
-import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +32,29 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.group-id:amazon-platform}")
     private String groupId;
 
+    @Value("${kafka.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${kafka.consumer.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${kafka.consumer.batch.fetch-min-bytes:1}")
+    private int batchFetchMinBytes;
+
+    @Value("${kafka.consumer.batch.fetch-max-wait-ms:100}")
+    private int batchFetchMaxWaitMs;
+
+    @Value("${kafka.consumer.retry.delays-ms:1000,10000,60000}")
+    private long[] retryDelaysMs;
+
+    private final OffsetCommitManager offsetCommitManager;
+    private final EventTransport eventTransport;
+
+    public KafkaConsumerConfig(OffsetCommitManager offsetCommitManager, EventTransport eventTransport) {
+        this.offsetCommitManager = offsetCommitManager;
+        this.eventTransport = eventTransport;
+    }
+
     /**
      * Consumer configuration with common settings.
      * @return Map of consumer configuration properties
@@ -36,7 +65,8 @@ public class KafkaConsumerConfig {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // Accepts both JSON and binary encoded values, skipping event types the listener did not ask for
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, EventTypeRoutingDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.stocker.*");
@@ -49,7 +79,7 @@ public class KafkaConsumerConfig {
      */
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
-        return new DefaultKafkaConsumerFactory<>(consumerConfigs());
+        return eventTransport.consumerFactory(consumerConfigs());
     }
 
     /**
@@ -61,9 +91,78 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
-        factory.setConcurrency(3); // Number of threads to process messages
+        // Initial number of consumer threads, adjusted to the lag by ConcurrencyController
+        factory.setConcurrency(concurrency);
+        // Offsets are committed by OffsetCommitManager once processing has completed
+        factory.getContainerProperties().setAckMode(
+            org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(offsetCommitManager);
+        // Idle consumers still commit the work that completed after their last poll
+        factory.getContainerProperties().setIdleEventInterval(offsetCommitManager.commitIntervalMs());
+        factory.setRecordInterceptor(offsetCommitManager.recordInterceptor());
+        factory.setRecordFilterStrategy(this::discardUnrouted);
+        return factory;
+    }
+
+    /**
+     * Consumer factory for batch listeners, tuned to return larger polls.
+     * @return ConsumerFactory for creating batch Kafka consumers
+     */
+    @Bean
+    public ConsumerFactory<String, Object> batchConsumerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerConfigs());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchFetchMinBytes);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchFetchMaxWaitMs);
+        return eventTransport.consumerFactory(props);
+    }
+
+    /**
+     * Opt-in Kafka listener container factory delivering whole polls to the listener.
+     * Listeners using it receive a {@code List<ConsumerRecord>} and are expected to hand it to
+     * {@link com.stocker.kafkaconfig.consumer.KeyOrderedExecutor}, which keeps per-key order while
+     * processing different keys in parallel. Offsets are committed by {@link OffsetCommitManager}
+     * as records complete.
+     * @return ConcurrentKafkaListenerContainerFactory for batch listeners
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
         factory.getContainerProperties().setAckMode(
-            org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+            org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(offsetCommitManager);
+        // Idle consumers still commit the work that completed after their last poll
+        factory.getContainerProperties().setIdleEventInterval(offsetCommitManager.commitIntervalMs());
+        factory.setBatchInterceptor(offsetCommitManager.batchInterceptor());
+        factory.setRecordFilterStrategy(this::discardUnrouted);
         return factory;
     }
+
+    /**
+     * Retry tiers for records whose handler fails, see
+     * {@link com.stocker.kafkaconfig.retry.RetryTopicRouter}.
+     * @return RetryTiers with the configured delays
+     */
+    @Bean
+    public RetryTiers retryTiers() {
+        return new RetryTiers(Arrays.stream(retryDelaysMs).mapToObj(Duration::ofMillis).toList());
+    }
+
+    /**
+     * Record filter dropping records that {@link EventTypeRoutingDeserializer} skipped.
+     * Dropped records never reach the listener, so they are reported as complete here.
+     * @param record The received record
+     * @return true if the record should be discarded
+     */
+    private boolean discardUnrouted(ConsumerRecord<String, Object> record) {
+        if (record.value() != null) {
+            return false;
+        }
+        offsetCommitManager.complete(record);
+        return true;
+    }
 }
\ No newline at end of file
@@ -1,17 +1,25 @@
 package com.stocker.kafkaconfig;
 
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import com.stocker.kafkaconfig.routing.EventHeaders;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Utility class for Kafka event handling.
  * This class provides utility methods for sending and receiving Kafka events.
+ * Every record sent through it carries the {@link EventHeaders} type and version headers.
  */
 @Component
 @RequiredArgsConstructor
@@ -19,6 +27,14 @@ import java.util.concurrent.CompletableFuture;
 public class KafkaEventUtils {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final BulkKafkaTemplates bulkKafkaTemplates;
+    private final KafkaMetrics kafkaMetrics;
+
+    @Value("${kafka.producer.bulk.batch-records:500}")
+    private int batchRecords;
+
+    @Value("${kafka.producer.bulk.max-in-flight-batches:4}")
+    private int maxInFlightBatches;
 
     /**
      * Send an event to a Kafka topic.
@@ -29,13 +45,15 @@ public class KafkaEventUtils {
      * @return Mono<SendResult> The result of the send operation
      */
     public Mono<SendResult<String, Object>> sendEvent(String topic, String key, Object event) {
-        log.info("Sending event to topic {}: {}", topic, event);
-        
+        log.debug("Sending event to topic {}: {}", topic, event);
+
+        long start = System.nanoTime();
         return Mono.fromFuture(
-            kafkaTemplate.send(topic, key, event)
+            kafkaTemplate.send(createRecord(topic, key, event))
                 .whenComplete((result, ex) -> {
+                    kafkaMetrics.recordSend(topic, event, start, ex);
                     if (ex == null) {
-                        log.info("Event sent successfully to topic {}: {}", topic, event);
+                        log.info("Event sent successfully to topic {} with key {}", topic, key);
                         log.debug("Sent message with offset=[{}]", result.getRecordMetadata().offset());
                     } else {
                         log.error("Unable to send event to topic {}: {}", topic, ex.getMessage(), ex);
@@ -52,12 +70,14 @@ public class KafkaEventUtils {
      * @param event The event object
      */
     public void sendEventAsync(String topic, String key, Object event) {
-        log.info("Sending event asynchronously to topic {}: {}", topic, event);
-        
-        kafkaTemplate.send(topic, key, event)
+        log.debug("Sending event asynchronously to topic {}: {}", topic, event);
+
+        long start = System.nanoTime();
+        kafkaTemplate.send(createRecord(topic, key, event))
             .whenComplete((result, ex) -> {
+                kafkaMetrics.recordSend(topic, event, start, ex);
                 if (ex == null) {
-                    log.info("Event sent successfully to topic {}: {}", topic, event);
+                    log.info("Event sent successfully to topic {} with key {}", topic, key);
                     log.debug("Sent message with offset=[{}]", result.getRecordMetadata().offset());
                 } else {
                     log.error("Unable to send event to topic {}: {}", topic, ex.getMessage(), ex);
@@ -65,6 +85,73 @@ public class KafkaEventUtils {
             });
     }
 
+    /**
+     * Send a batch of events to a Kafka topic.
+     * All records are handed to the producer at once so they share producer batches;
+     * the returned Mono completes once every record in the batch is acknowledged.
+     *
+     * @param topic        The topic to send the events to
+     * @param events       The events to send, in order
+     * @param keyExtractor Function deriving the key from each event
+     * @return Mono<Integer> emitting the number of records sent
+     */
+    public <T> Mono<Integer> sendBatch(String topic, List<T> events, Function<? super T, String> keyExtractor) {
+        return sendRecords(events.stream()
+                .map(event -> createRecord(topic, keyExtractor.apply(event), event))
+                .toList());
+    }
+
+    /**
+     * Send a batch of pre-built records, possibly spanning several topics.
+     * Records for the same topic and key keep their relative order.
+     *
+     * @param records The records to send, in order
+     * @return Mono<Integer> emitting the number of records sent
+     */
+    public Mono<Integer> sendRecords(List<ProducerRecord<String, Object>> records) {
+        if (records.isEmpty()) {
+            return Mono.just(0);
+        }
+        return Mono.defer(() -> {
+            kafkaMetrics.recordBatch(records.size());
+            long start = System.nanoTime();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+            for (int i = 0; i < records.size(); i++) {
+                ProducerRecord<String, Object> record = records.get(i);
+                EventHeaders.stamp(record.headers(), record.value());
+                futures[i] = bulkKafkaTemplates.forTopic(record.topic()).send(record)
+                        .whenComplete((result, ex) -> kafkaMetrics.recordSend(record.topic(), record.value(), start, ex));
+            }
+            return Mono.fromFuture(CompletableFuture.allOf(futures))
+                    .thenReturn(records.size());
+        })
+        .doOnSuccess(count -> log.debug("Batch of {} records sent", count))
+        .doOnError(ex -> log.error("Unable to send batch of {} records: {}", records.size(), ex.getMessage(), ex));
+    }
+
+    /**
+     * Send a stream of events to a Kafka topic in bounded batches.
+     * Events are grouped into batches of {@code kafka.producer.bulk.batch-records} and at most
+     * {@code kafka.producer.bulk.max-in-flight-batches} batches are awaiting acknowledgement at once,
+     * so upstream demand is throttled by the broker instead of buffering without bound.
+     *
+     * @param topic        The topic to send the events to
+     * @param events       The events to send
+     * @param keyExtractor Function deriving the key from each event
+     * @return Flux<Integer> emitting the size of each batch once it has been acknowledged
+     */
+    public <T> Flux<Integer> sendEvents(String topic, Flux<T> events, Function<? super T, String> keyExtractor) {
+        return events
+                .buffer(batchRecords)
+                .flatMapSequential(batch -> sendBatch(topic, batch, keyExtractor), maxInFlightBatches);
+    }
+
+    private ProducerRecord<String, Object> createRecord(String topic, String key, Object event) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, key, event);
+        EventHeaders.stamp(record.headers(), event);
+        return record;
+    }
+
     /**
      * Get the topic name for a specific service's events.
      *
@@ -74,4 +161,4 @@ public class KafkaEventUtils {
     public String getTopicForService(String serviceName) {
         return serviceName + "-events";
     }
-}
\ No newline at end of file
+}
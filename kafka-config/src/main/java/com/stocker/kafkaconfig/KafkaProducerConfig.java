@@ -1,14 +1,17 @@
 package com.stocker.kafkaconfig;
 
+import com.stocker.kafkaconfig.codec.EventCodecSerializer;
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import com.stocker.kafkaconfig.partition.OrderAffinityPartitioner;
+import com.stocker.kafkaconfig.transport.EventTransport;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.core.env.Environment;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -20,9 +23,33 @@ import java.util.Map;
 @Configuration
 public class KafkaProducerConfig {
 
+    private static final String TOPIC_PROFILE_PREFIX = "kafka.producer.topics.";
+
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
+    @Value("${kafka.producer.bulk.linger-ms:20}")
+    private int bulkLingerMs;
+
+    @Value("${kafka.producer.bulk.batch-size:262144}")
+    private int bulkBatchSize;
+
+    @Value("${kafka.producer.bulk.compression-type:lz4}")
+    private String bulkCompressionType;
+
+    @Value("${kafka.codec.binary-topics:}")
+    private String binaryTopics;
+
+    private final Environment environment;
+    private final KafkaMetrics kafkaMetrics;
+    private final EventTransport eventTransport;
+
+    public KafkaProducerConfig(Environment environment, KafkaMetrics kafkaMetrics, EventTransport eventTransport) {
+        this.environment = environment;
+        this.kafkaMetrics = kafkaMetrics;
+        this.eventTransport = eventTransport;
+    }
+
     /**
      * Producer configuration with common settings.
      * @return Map of producer configuration properties
@@ -32,7 +59,12 @@ public class KafkaProducerConfig {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        // JSON by default, compact binary for the topics listed in kafka.codec.binary-topics
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, EventCodecSerializer.class);
+        props.put(EventCodecSerializer.BINARY_TOPICS_CONFIG, binaryTopics);
+        props.put(KafkaMetrics.CONFIG, kafkaMetrics);
+        // Events of one order share a partition number across topics
+        props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, OrderAffinityPartitioner.class);
         // Enable idempotence for exactly-once semantics
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         props.put(ProducerConfig.ACKS_CONFIG, "all");
@@ -40,13 +72,34 @@ public class KafkaProducerConfig {
         return props;
     }
 
+    /**
+     * Producer configuration for bulk sends to a given topic.
+     * Starts from the common settings and applies the bulk linger/batch-size/compression
+     * profile, which can be overridden per topic with
+     * {@code kafka.producer.topics.<topic>.linger-ms|batch-size|compression-type}.
+     *
+     * @param topic The topic the producer will send to
+     * @return Map of producer configuration properties
+     */
+    public Map<String, Object> bulkProducerConfigs(String topic) {
+        Map<String, Object> props = new HashMap<>(producerConfigs());
+        String prefix = TOPIC_PROFILE_PREFIX + topic + ".";
+        props.put(ProducerConfig.LINGER_MS_CONFIG,
+                environment.getProperty(prefix + "linger-ms", Integer.class, bulkLingerMs));
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG,
+                environment.getProperty(prefix + "batch-size", Integer.class, bulkBatchSize));
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+                environment.getProperty(prefix + "compression-type", bulkCompressionType));
+        return props;
+    }
+
     /**
      * Producer factory for creating producers.
      * @return ProducerFactory for creating Kafka producers
      */
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
-        return new DefaultKafkaProducerFactory<>(producerConfigs());
+        return eventTransport.producerFactory(producerConfigs());
     }
 
     /**
@@ -57,4 +110,13 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
-}
\ No newline at end of file
+
+    /**
+     * Per-topic Kafka templates used for batched sends.
+     * @return BulkKafkaTemplates resolving a template tuned for each topic's bulk profile
+     */
+    @Bean
+    public BulkKafkaTemplates bulkKafkaTemplates() {
+        return new BulkKafkaTemplates(this::bulkProducerConfigs, eventTransport::producerFactory);
+    }
+}
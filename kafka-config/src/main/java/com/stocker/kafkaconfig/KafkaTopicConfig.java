@@ -1,5 +1,6 @@
 package com.stocker.kafkaconfig;
 
+import com.stocker.kafkaconfig.retry.RetryTiers;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,19 +8,37 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.KafkaAdmin;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Kafka Topic Configuration.
  * This class provides the configuration for Kafka topics.
+ * All event topics get the same number of partitions, {@code kafka.topics.partitions}, so that
+ * {@link com.stocker.kafkaconfig.partition.OrderAffinityPartitioner} places the events of one
+ * order on the same partition number in every topic. Increasing the count on existing topics
+ * moves orders to other partitions, so it should only be done while the topics are drained.
  */
 @Configuration
 public class KafkaTopicConfig {
 
+    private static final List<String> EVENT_TOPICS =
+            List.of("cart-events", "order-events", "payment-events", "dispatch-events", "delivery-events");
+
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
+    @Value("${kafka.topics.partitions:3}")
+    private int partitions;
+
+    @Value("${kafka.topics.replication-factor:1}")
+    private short replicationFactor;
+
+    @Value("${kafka.transport:kafka}")
+    private String transport;
+
     /**
      * Kafka admin client configuration.
      * @return KafkaAdmin for creating and managing Kafka topics
@@ -28,7 +47,10 @@ public class KafkaTopicConfig {
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        return new KafkaAdmin(configs);
+        KafkaAdmin admin = new KafkaAdmin(configs);
+        // The in-memory transport creates its topics on first use
+        admin.setAutoCreate(!"in-memory".equals(transport));
+        return admin;
     }
 
     /**
@@ -37,7 +59,7 @@ public class KafkaTopicConfig {
      */
     @Bean
     public NewTopic cartEventsTopic() {
-        return new NewTopic("cart-events", 3, (short) 1);
+        return new NewTopic("cart-events", partitions, replicationFactor);
     }
 
     /**
@@ -46,7 +68,7 @@ public class KafkaTopicConfig {
      */
     @Bean
     public NewTopic orderEventsTopic() {
-        return new NewTopic("order-events", 3, (short) 1);
+        return new NewTopic("order-events", partitions, replicationFactor);
     }
 
     /**
@@ -55,7 +77,7 @@ public class KafkaTopicConfig {
      */
     @Bean
     public NewTopic paymentEventsTopic() {
-        return new NewTopic("payment-events", 3, (short) 1);
+        return new NewTopic("payment-events", partitions, replicationFactor);
     }
 
     /**
@@ -64,7 +86,7 @@ public class KafkaTopicConfig {
      */
     @Bean
     public NewTopic dispatchEventsTopic() {
-        return new NewTopic("dispatch-events", 3, (short) 1);
+        return new NewTopic("dispatch-events", partitions, replicationFactor);
     }
 
     /**
@@ -73,6 +95,23 @@ public class KafkaTopicConfig {
      */
     @Bean
     public NewTopic deliveryEventsTopic() {
-        return new NewTopic("delivery-events", 3, (short) 1);
+        return new NewTopic("delivery-events", partitions, replicationFactor);
+    }
+
+    /**
+     * Retry tier and dead-letter topics for every event topic.
+     * @param retryTiers The configured retry tiers
+     * @return NewTopics for the retry and dead-letter topics
+     */
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(RetryTiers retryTiers) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : EVENT_TOPICS) {
+            for (int tier = 0; tier < retryTiers.size(); tier++) {
+                topics.add(new NewTopic(retryTiers.retryTopic(topic, tier), partitions, replicationFactor));
+            }
+            topics.add(new NewTopic(retryTiers.deadLetterTopic(topic), partitions, replicationFactor));
+        }
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,532 @@
+package com.stocker.kafkaconfig.codec;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact, schema-versioned binary encoding for the events registered in {@link EventSchemaRegistry}.
+ * Layout: {@code MAGIC, varint typeId, varint version, fields...} where fields follow the schema's
+ * wire order with no names or type tags. Integers are zig-zag varints, strings are length-prefixed
+ * UTF-8, decimals are a scale plus an unscaled long when it fits, timestamps are epoch seconds and
+ * nanos (UTC), enums are written by name, and references carry a one-byte presence flag.
+ * Field accessors are resolved once per class and schema version and cached.
+ */
+public final class BinaryEventCodec {
+
+    /** First byte of every binary payload. Never the first byte of a UTF-8 JSON document. */
+    public static final byte MAGIC = (byte) 0xC1;
+
+    private final EventSchemaRegistry registry;
+    private final Map<Class<?>, ClassCodec[]> codecs = new ConcurrentHashMap<>();
+
+    public BinaryEventCodec(EventSchemaRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Check whether an event can be written by this codec.
+     *
+     * @param event The event to check
+     * @return true if the event's class is registered as a top-level event
+     */
+    public boolean supports(Object event) {
+        return event != null && registry.isEvent(event.getClass());
+    }
+
+    /**
+     * Check whether a payload was written by this codec.
+     *
+     * @param data The raw record value
+     * @return true if the payload starts with the binary marker
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    /**
+     * Encode an event with the latest schema version of its class.
+     *
+     * @param event The event to encode
+     * @return the encoded bytes
+     */
+    public byte[] encode(Object event) {
+        Class<?> type = event.getClass();
+        ClassCodec codec = latest(type);
+        Writer writer = new Writer(128);
+        writer.writeByte(MAGIC);
+        writer.writeVarInt(registry.typeId(type));
+        writer.writeVarInt(codec.version);
+        codec.write(writer, event);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decode an event using the schema version recorded in the payload.
+     *
+     * @param data The encoded bytes
+     * @return the decoded event
+     */
+    public Object decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary encoded event");
+        }
+        Reader reader = new Reader(data, 1);
+        Class<?> type = registry.eventClass(reader.readVarInt());
+        return forVersion(type, reader.readVarInt()).read(reader);
+    }
+
+    private ClassCodec latest(Class<?> type) {
+        return forVersion(type, registry.latestVersion(type));
+    }
+
+    private ClassCodec forVersion(Class<?> type, int version) {
+        ClassCodec[] byVersion = codecs.computeIfAbsent(type, t -> new ClassCodec[registry.latestVersion(t) + 1]);
+        if (version < 0 || version >= byVersion.length) {
+            throw new IllegalArgumentException("Unknown schema version " + version + " for " + type.getName());
+        }
+        ClassCodec codec = byVersion[version];
+        if (codec == null) {
+            // Benign race: two threads may build the same codec, both are equivalent
+            codec = new ClassCodec(type, version, registry.fields(type, version));
+            byVersion[version] = codec;
+        }
+        return codec;
+    }
+
+    private ValueCodec valueCodec(Type genericType) {
+        Class<?> type = genericType instanceof ParameterizedType parameterized
+                ? (Class<?>) parameterized.getRawType()
+                : (Class<?>) genericType;
+        if (type == int.class) {
+            return PrimitiveCodec.INT;
+        }
+        if (type == long.class) {
+            return PrimitiveCodec.LONG;
+        }
+        if (type == boolean.class) {
+            return PrimitiveCodec.BOOLEAN;
+        }
+        if (type == double.class) {
+            return PrimitiveCodec.DOUBLE;
+        }
+        ValueCodec codec = referenceCodec(type, genericType);
+        return new NullableCodec(codec);
+    }
+
+    private ValueCodec referenceCodec(Class<?> type, Type genericType) {
+        if (type == String.class) {
+            return new ValueCodec() {
+                public void write(Writer writer, Object value) {
+                    writer.writeString((String) value);
+                }
+
+                public Object read(Reader reader) {
+                    return reader.readString();
+                }
+            };
+        }
+        if (type == Integer.class) {
+            return PrimitiveCodec.INT;
+        }
+        if (type == Long.class) {
+            return PrimitiveCodec.LONG;
+        }
+        if (type == Boolean.class) {
+            return PrimitiveCodec.BOOLEAN;
+        }
+        if (type == Double.class) {
+            return PrimitiveCodec.DOUBLE;
+        }
+        if (type == BigDecimal.class) {
+            return new ValueCodec() {
+                public void write(Writer writer, Object value) {
+                    writer.writeDecimal((BigDecimal) value);
+                }
+
+                public Object read(Reader reader) {
+                    return reader.readDecimal();
+                }
+            };
+        }
+        if (type == LocalDateTime.class) {
+            return new ValueCodec() {
+                public void write(Writer writer, Object value) {
+                    LocalDateTime dateTime = (LocalDateTime) value;
+                    writer.writeVarLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+                    writer.writeVarInt(dateTime.getNano());
+                }
+
+                public Object read(Reader reader) {
+                    return LocalDateTime.ofEpochSecond(reader.readVarLong(), reader.readVarInt(), ZoneOffset.UTC);
+                }
+            };
+        }
+        if (type == LocalDate.class) {
+            return new ValueCodec() {
+                public void write(Writer writer, Object value) {
+                    writer.writeVarLong(((LocalDate) value).toEpochDay());
+                }
+
+                public Object read(Reader reader) {
+                    return LocalDate.ofEpochDay(reader.readVarLong());
+                }
+            };
+        }
+        if (type == Instant.class) {
+            return new ValueCodec() {
+                public void write(Writer writer, Object value) {
+                    Instant instant = (Instant) value;
+                    writer.writeVarLong(instant.getEpochSecond());
+                    writer.writeVarInt(instant.getNano());
+                }
+
+                public Object read(Reader reader) {
+                    return Instant.ofEpochSecond(reader.readVarLong(), reader.readVarInt());
+                }
+            };
+        }
+        if (type.isEnum()) {
+            return new EnumCodec(type);
+        }
+        if (List.class.isAssignableFrom(type) && genericType instanceof ParameterizedType parameterized) {
+            return new ListCodec(valueCodec(parameterized.getActualTypeArguments()[0]));
+        }
+        if (registry.hasSchema(type)) {
+            // Nested objects carry their own schema version so they can evolve independently
+            return new ValueCodec() {
+                public void write(Writer writer, Object value) {
+                    ClassCodec codec = latest(type);
+                    writer.writeVarInt(codec.version);
+                    codec.write(writer, value);
+                }
+
+                public Object read(Reader reader) {
+                    return forVersion(type, reader.readVarInt()).read(reader);
+                }
+            };
+        }
+        throw new IllegalArgumentException("No binary encoding for " + genericType.getTypeName()
+                + "; register a schema for it in " + EventSchemaRegistry.RESOURCE);
+    }
+
+    private interface ValueCodec {
+        void write(Writer writer, Object value);
+
+        Object read(Reader reader);
+    }
+
+    private final class ClassCodec {
+        private final int version;
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final ValueCodec[] fieldCodecs;
+
+        private ClassCodec(Class<?> type, int version, List<String> fieldNames) {
+            this.version = version;
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalArgumentException(type.getName() + " needs a no-args constructor", ex);
+            }
+            this.fields = new Field[fieldNames.size()];
+            this.fieldCodecs = new ValueCodec[fieldNames.size()];
+            for (int i = 0; i < fields.length; i++) {
+                Field field = findField(type, fieldNames.get(i));
+                field.setAccessible(true);
+                fields[i] = field;
+                fieldCodecs[i] = valueCodec(field.getGenericType());
+            }
+        }
+
+        private void write(Writer writer, Object value) {
+            try {
+                for (int i = 0; i < fields.length; i++) {
+                    fieldCodecs[i].write(writer, fields[i].get(value));
+                }
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private Object read(Reader reader) {
+            try {
+                Object value = constructor.newInstance();
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i].set(value, fieldCodecs[i].read(reader));
+                }
+                return value;
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private Field findField(Class<?> type, String name) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                try {
+                    return current.getDeclaredField(name);
+                } catch (NoSuchFieldException ignored) {
+                    // Keep looking in the superclass
+                }
+            }
+            throw new IllegalArgumentException("Schema field " + name + " not found on " + type.getName());
+        }
+    }
+
+    private enum PrimitiveCodec implements ValueCodec {
+        INT {
+            public void write(Writer writer, Object value) {
+                writer.writeVarInt((Integer) value);
+            }
+
+            public Object read(Reader reader) {
+                return reader.readVarInt();
+            }
+        },
+        LONG {
+            public void write(Writer writer, Object value) {
+                writer.writeVarLong((Long) value);
+            }
+
+            public Object read(Reader reader) {
+                return reader.readVarLong();
+            }
+        },
+        BOOLEAN {
+            public void write(Writer writer, Object value) {
+                writer.writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+            }
+
+            public Object read(Reader reader) {
+                return reader.readByte() != 0;
+            }
+        },
+        DOUBLE {
+            public void write(Writer writer, Object value) {
+                writer.writeFixedLong(Double.doubleToRawLongBits((Double) value));
+            }
+
+            public Object read(Reader reader) {
+                return Double.longBitsToDouble(reader.readFixedLong());
+            }
+        }
+    }
+
+    private record NullableCodec(ValueCodec delegate) implements ValueCodec {
+        public void write(Writer writer, Object value) {
+            if (value == null) {
+                writer.writeByte((byte) 0);
+            } else {
+                writer.writeByte((byte) 1);
+                delegate.write(writer, value);
+            }
+        }
+
+        public Object read(Reader reader) {
+            return reader.readByte() == 0 ? null : delegate.read(reader);
+        }
+    }
+
+    private record ListCodec(ValueCodec elementCodec) implements ValueCodec {
+        public void write(Writer writer, Object value) {
+            List<?> list = (List<?>) value;
+            writer.writeVarInt(list.size());
+            for (Object element : list) {
+                elementCodec.write(writer, element);
+            }
+        }
+
+        public Object read(Reader reader) {
+            int size = reader.readVarInt();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(elementCodec.read(reader));
+            }
+            return list;
+        }
+    }
+
+    private static final class EnumCodec implements ValueCodec {
+        private final Class<?> type;
+        private final Map<String, Object> constants = new ConcurrentHashMap<>();
+
+        private EnumCodec(Class<?> type) {
+            this.type = type;
+            Arrays.stream(type.getEnumConstants()).forEach(c -> constants.put(((Enum<?>) c).name(), c));
+        }
+
+        public void write(Writer writer, Object value) {
+            // Written by name so that reordering or adding constants stays compatible
+            writer.writeString(((Enum<?>) value).name());
+        }
+
+        public Object read(Reader reader) {
+            String name = reader.readString();
+            Object constant = constants.get(name);
+            if (constant == null) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " constant " + name);
+            }
+            return constant;
+        }
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        private Writer(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        private void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void writeVarInt(int value) {
+            writeUnsignedVarLong(Integer.toUnsignedLong((value << 1) ^ (value >> 31)));
+        }
+
+        private void writeVarLong(long value) {
+            writeUnsignedVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeUnsignedVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeFixedLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeDecimal(BigDecimal value) {
+            writeVarInt(value.scale());
+            BigInteger unscaled = value.unscaledValue();
+            if (unscaled.bitLength() < 64) {
+                writeByte((byte) 0);
+                writeVarLong(unscaled.longValue());
+            } else {
+                writeByte((byte) 1);
+                writeBytes(unscaled.toByteArray());
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        private byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated binary event");
+            }
+            return buffer[position++];
+        }
+
+        private byte[] readBytes() {
+            int length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("Truncated binary event");
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private int readVarInt() {
+            int raw = (int) readUnsignedVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readVarLong() {
+            long raw = readUnsignedVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        private long readUnsignedVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        private long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() {
+            int length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("Truncated binary event");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private BigDecimal readDecimal() {
+            int scale = readVarInt();
+            BigInteger unscaled = readByte() == 0
+                    ? BigInteger.valueOf(readVarLong())
+                    : new BigInteger(readBytes());
+            return new BigDecimal(unscaled, scale);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.stocker.kafkaconfig.codec;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Value deserializer accepting both wire formats.
+ * Payloads starting with {@link BinaryEventCodec#MAGIC} are decoded with the binary codec,
+ * anything else is handed to the regular JSON deserializer. Detection is per record, so a topic
+ * can be switched between formats without draining it first.
+ */
+public class EventCodecDeserializer implements Deserializer<Object> {
+
+    private final JsonDeserializer<Object> jsonDeserializer = new JsonDeserializer<>();
+    private BinaryEventCodec binaryCodec;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (BinaryEventCodec.isBinary(data)) {
+            return binaryCodec().decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (BinaryEventCodec.isBinary(data)) {
+            return binaryCodec().decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    private BinaryEventCodec binaryCodec() {
+        if (binaryCodec == null) {
+            // Consumers are single threaded, so lazy initialization needs no locking
+            binaryCodec = new BinaryEventCodec(EventSchemaRegistry.getDefault());
+        }
+        return binaryCodec;
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.stocker.kafkaconfig.codec;
+
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Value serializer that picks the wire format per topic.
+ * Topics listed in {@link #BINARY_TOPICS_CONFIG} are written with {@link BinaryEventCodec} for
+ * events that have a registered schema; everything else goes through the regular JSON serializer.
+ */
+public class EventCodecSerializer implements Serializer<Object> {
+
+    /** Producer property holding the comma separated topics that use the binary codec. */
+    public static final String BINARY_TOPICS_CONFIG = "stocker.codec.binary.topics";
+
+    private final JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+    private BinaryEventCodec binaryCodec;
+    private Set<String> binaryTopics = Set.of();
+    private KafkaMetrics kafkaMetrics;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonSerializer.configure(configs, isKey);
+        binaryTopics = parseTopics(configs.get(BINARY_TOPICS_CONFIG));
+        if (configs.get(KafkaMetrics.CONFIG) instanceof KafkaMetrics metrics) {
+            kafkaMetrics = metrics;
+        }
+        if (!binaryTopics.isEmpty()) {
+            binaryCodec = new BinaryEventCodec(EventSchemaRegistry.getDefault());
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        long start = System.nanoTime();
+        boolean binary = data != null && binaryTopics.contains(topic) && binaryCodec.supports(data);
+        byte[] bytes;
+        if (binary) {
+            bytes = binaryCodec.encode(data);
+        } else if (headers != null) {
+            bytes = jsonSerializer.serialize(topic, headers, data);
+        } else {
+            bytes = jsonSerializer.serialize(topic, data);
+        }
+        if (kafkaMetrics != null && bytes != null) {
+            kafkaMetrics.recordSerialization(topic, data, binary ? "binary" : "json",
+                    System.nanoTime() - start, bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+
+    static Set<String> parseTopics(Object value) {
+        if (value == null) {
+            return Set.of();
+        }
+        return Arrays.stream(value.toString().split(","))
+                .map(String::trim)
+                .filter(topic -> !topic.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
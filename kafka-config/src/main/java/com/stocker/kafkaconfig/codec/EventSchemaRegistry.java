@@ -0,0 +1,157 @@
+package com.stocker.kafkaconfig.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * In-repo schema registry for the compact binary event codec.
+ * Schemas are read from every {@code event-schemas.properties} on the classpath:
+ * <pre>
+ * type.&lt;id&gt;=&lt;class&gt;              wire id of a top-level event
+ * &lt;class&gt;.v&lt;n&gt;=&lt;field,field,...&gt;  wire order of the fields in schema version n
+ * </pre>
+ * Events are always written with their latest version and read with the version found on the
+ * wire, so new versions may append fields but must never remove or retype existing ones.
+ */
+public final class EventSchemaRegistry {
+
+    public static final String RESOURCE = "event-schemas.properties";
+
+    private static final String TYPE_PREFIX = "type.";
+    private static final String VERSION_MARKER = ".v";
+
+    private static volatile EventSchemaRegistry defaultRegistry;
+
+    private final Map<Integer, Class<?>> classesById = new HashMap<>();
+    private final Map<Class<?>, Integer> idsByClass = new HashMap<>();
+    private final Map<Class<?>, TreeMap<Integer, List<String>>> schemas = new HashMap<>();
+
+    private EventSchemaRegistry(Properties properties, ClassLoader classLoader) {
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (key.startsWith(TYPE_PREFIX)) {
+                int typeId = Integer.parseInt(key.substring(TYPE_PREFIX.length()));
+                Class<?> type = loadClass(value, classLoader);
+                if (classesById.put(typeId, type) != null) {
+                    throw new IllegalStateException("Duplicate event type id " + typeId);
+                }
+                idsByClass.put(type, typeId);
+            } else {
+                int marker = key.lastIndexOf(VERSION_MARKER);
+                Class<?> type = loadClass(key.substring(0, marker), classLoader);
+                int version = Integer.parseInt(key.substring(marker + VERSION_MARKER.length()));
+                List<String> fields = value.isEmpty()
+                        ? List.of()
+                        : Arrays.stream(value.split(",")).map(String::trim).toList();
+                schemas.computeIfAbsent(type, t -> new TreeMap<>()).put(version, fields);
+            }
+        }
+        idsByClass.keySet().forEach(type -> {
+            if (!schemas.containsKey(type)) {
+                throw new IllegalStateException("No schema defined for event type " + type.getName());
+            }
+        });
+    }
+
+    /**
+     * Get the registry built from the schema files on the classpath.
+     *
+     * @return the shared EventSchemaRegistry
+     */
+    public static EventSchemaRegistry getDefault() {
+        EventSchemaRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (EventSchemaRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = load(Thread.currentThread().getContextClassLoader());
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Build a registry from the schema files visible to a class loader.
+     *
+     * @param classLoader The class loader to read schema files and event classes from
+     * @return a new EventSchemaRegistry
+     */
+    public static EventSchemaRegistry load(ClassLoader classLoader) {
+        Properties properties = new Properties();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+            for (URL url : Collections.list(resources)) {
+                try (InputStream in = url.openStream()) {
+                    properties.load(in);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read " + RESOURCE, ex);
+        }
+        return new EventSchemaRegistry(properties, classLoader);
+    }
+
+    public boolean isEvent(Class<?> type) {
+        return idsByClass.containsKey(type);
+    }
+
+    public boolean hasSchema(Class<?> type) {
+        return schemas.containsKey(type);
+    }
+
+    public int typeId(Class<?> type) {
+        Integer typeId = idsByClass.get(type);
+        if (typeId == null) {
+            throw new IllegalArgumentException("Event type not registered: " + type.getName());
+        }
+        return typeId;
+    }
+
+    public Class<?> eventClass(int typeId) {
+        Class<?> type = classesById.get(typeId);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown event type id: " + typeId);
+        }
+        return type;
+    }
+
+    public int latestVersion(Class<?> type) {
+        return versions(type).lastKey();
+    }
+
+    public List<String> fields(Class<?> type, int version) {
+        List<String> fields = versions(type).get(version);
+        if (fields == null) {
+            throw new IllegalArgumentException("Unknown schema version " + version + " for " + type.getName());
+        }
+        return fields;
+    }
+
+    private TreeMap<Integer, List<String>> versions(Class<?> type) {
+        TreeMap<Integer, List<String>> versions = schemas.get(type);
+        if (versions == null) {
+            throw new IllegalArgumentException("No schema registered for " + type.getName());
+        }
+        return versions;
+    }
+
+    private static Class<?> loadClass(String name, ClassLoader classLoader) {
+        try {
+            return Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException("Schema refers to unknown class " + name, ex);
+        }
+    }
+}
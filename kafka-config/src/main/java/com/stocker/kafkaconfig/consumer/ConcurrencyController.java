@@ -0,0 +1,245 @@
+package com.stocker.kafkaconfig.consumer;
+
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scales listener container concurrency with consumer lag.
+ * Every {@code kafka.consumer.adaptive.interval-ms} the controller samples, for each listener
+ * container, the records-lag reported by its consumers and the mean handler time recorded since
+ * the previous sample. A container lagging more than {@code scale-up-lag} records per consumer
+ * gets enough consumers to bring it back under that bound, capped at the partition count of its
+ * topics and {@code max-concurrency}. A container that stays below {@code scale-down-lag} for
+ * {@code scale-down-samples} samples in a row gives up one consumer, down to
+ * {@code min-concurrency}. Changing concurrency restarts the container and rebalances its group,
+ * so a container is left alone for {@code cooldown-ms} after each change.
+ * When a lagging container's handlers are slower than {@code latency-target-ms}, the bottleneck
+ * is the work rather than the fetching, so the {@link KeyOrderedExecutor} parallelism is doubled
+ * as well; it is halved back to its configured value once no container has lagged for
+ * {@code scale-down-samples} samples.
+ */
+@Component
+// Needs the brokers' partition metadata and the Kafka client lag metrics
+@ConditionalOnExpression("${kafka.consumer.adaptive.enabled:true} and '${kafka.transport:kafka}' == 'kafka'")
+@RequiredArgsConstructor
+@Slf4j
+public class ConcurrencyController {
+
+    private static final String LAG_METRIC = "records-lag";
+    private static final String FETCH_METRICS_GROUP = "consumer-fetch-manager-metrics";
+
+    private final KafkaListenerEndpointRegistry endpointRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final KafkaMetrics kafkaMetrics;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+
+    private final Map<String, ContainerState> states = new ConcurrentHashMap<>();
+    private int quietExecutorSamples;
+    private Disposable subscription;
+
+    @Value("${kafka.consumer.adaptive.interval-ms:10000}")
+    private long intervalMs;
+
+    @Value("${kafka.consumer.adaptive.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${kafka.consumer.adaptive.max-concurrency:12}")
+    private int maxConcurrency;
+
+    @Value("${kafka.consumer.adaptive.scale-up-lag:1000}")
+    private long scaleUpLag;
+
+    @Value("${kafka.consumer.adaptive.scale-down-lag:100}")
+    private long scaleDownLag;
+
+    @Value("${kafka.consumer.adaptive.scale-down-samples:6}")
+    private int scaleDownSamples;
+
+    @Value("${kafka.consumer.adaptive.cooldown-ms:60000}")
+    private long cooldownMs;
+
+    @Value("${kafka.consumer.adaptive.latency-target-ms:200}")
+    private double latencyTargetMs;
+
+    @PostConstruct
+    public void start() {
+        // Restarting containers and describing topics block, so samples run on the bounded elastic pool
+        subscription = Flux.interval(Duration.ofMillis(intervalMs), Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .subscribe(tick -> sample());
+        log.info("Adaptive listener concurrency started, sampling every {} ms within {}..{} consumers",
+                intervalMs, minConcurrency, maxConcurrency);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Sample every listener container once and resize the ones that need it.
+     */
+    public void sample() {
+        boolean lagging = false;
+        boolean slowHandlers = false;
+        for (MessageListenerContainer container : endpointRegistry.getListenerContainers()) {
+            if (!(container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent)
+                    || !container.isRunning() || container.isPauseRequested()) {
+                continue;
+            }
+            try {
+                ContainerState state = states.computeIfAbsent(container.getListenerId(), id -> new ContainerState());
+                long lag = lag(container);
+                double latencyMs = meanLatencyMs(container, state);
+                if (lag > scaleUpLag * concurrent.getConcurrency()) {
+                    lagging = true;
+                    slowHandlers |= latencyMs > latencyTargetMs;
+                }
+                resize(concurrent, state, lag, latencyMs);
+            } catch (Exception ex) {
+                log.warn("Could not sample listener container {}: {}", container.getListenerId(), ex.getMessage());
+            }
+        }
+        resizeExecutor(lagging, slowHandlers);
+    }
+
+    private void resize(ConcurrentMessageListenerContainer<?, ?> container, ContainerState state,
+                        long lag, double latencyMs) {
+        int current = container.getConcurrency();
+        int limit = Math.max(minConcurrency, Math.min(maxConcurrency, partitions(container, state)));
+        int target = current;
+        if (lag > scaleUpLag * current) {
+            state.quietSamples = 0;
+            target = (int) Math.min(limit, (lag + scaleUpLag - 1) / scaleUpLag);
+        } else if (lag < scaleDownLag) {
+            if (++state.quietSamples >= scaleDownSamples) {
+                target = current - 1;
+            }
+        } else {
+            state.quietSamples = 0;
+        }
+        target = Math.max(minConcurrency, Math.min(target, limit));
+
+        long now = System.currentTimeMillis();
+        if (target == current || now - state.lastChange < cooldownMs) {
+            return;
+        }
+        state.lastChange = now;
+        state.quietSamples = 0;
+        log.info("Resizing listener container {} from {} to {} consumers (lag {}, mean handler time {} ms)",
+                container.getListenerId(), current, target, lag, String.format("%.1f", latencyMs));
+        // Concurrency only applies on start; stopping commits completed offsets for the revoked partitions
+        container.stop();
+        container.setConcurrency(target);
+        container.start();
+    }
+
+    private void resizeExecutor(boolean lagging, boolean slowHandlers) {
+        int current = keyOrderedExecutor.getParallelism();
+        int target = current;
+        if (lagging) {
+            quietExecutorSamples = 0;
+            if (slowHandlers) {
+                target = current * 2;
+            }
+        } else if (++quietExecutorSamples >= scaleDownSamples) {
+            quietExecutorSamples = 0;
+            target = Math.max(keyOrderedExecutor.getBaseParallelism(), current / 2);
+        }
+        if (target != current) {
+            keyOrderedExecutor.setParallelism(target);
+            log.info("Key ordered executor parallelism changed from {} to {}",
+                    current, keyOrderedExecutor.getParallelism());
+        }
+    }
+
+    /**
+     * Total records-lag over the partitions currently fetched by the container's consumers.
+     */
+    private static long lag(MessageListenerContainer container) {
+        double lag = 0;
+        for (Map<MetricName, ? extends Metric> clientMetrics : container.metrics().values()) {
+            for (Metric metric : clientMetrics.values()) {
+                MetricName name = metric.metricName();
+                // The partition tag singles out the per-partition lag from the per-client aggregates
+                if (LAG_METRIC.equals(name.name()) && FETCH_METRICS_GROUP.equals(name.group())
+                        && name.tags().containsKey("partition")
+                        && metric.metricValue() instanceof Double value && !value.isNaN()) {
+                    lag += value;
+                }
+            }
+        }
+        return (long) lag;
+    }
+
+    /**
+     * Mean handler time for the container's topics since the previous sample.
+     */
+    private double meanLatencyMs(MessageListenerContainer container, ContainerState state) {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (topics == null) {
+            return 0;
+        }
+        long count = 0;
+        double totalMs = 0;
+        for (String topic : topics) {
+            count += kafkaMetrics.processingCount(topic);
+            totalMs += kafkaMetrics.processingTime(topic, TimeUnit.MILLISECONDS);
+        }
+        long handled = count - state.lastCount;
+        double meanMs = handled > 0 ? (totalMs - state.lastTotalMs) / handled : 0;
+        state.lastCount = count;
+        state.lastTotalMs = totalMs;
+        return meanMs;
+    }
+
+    /**
+     * Number of partitions of the container's topics, the most consumers that can be given work.
+     */
+    private int partitions(MessageListenerContainer container, ContainerState state) {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (topics == null) {
+            return maxConcurrency;
+        }
+        if (state.partitions == 0) {
+            state.partitions = kafkaAdmin.describeTopics(topics).values().stream()
+                    .map(TopicDescription::partitions)
+                    .mapToInt(List::size)
+                    .sum();
+        }
+        return state.partitions;
+    }
+
+    private static final class ContainerState {
+        // Only accessed from the sampling thread
+        private int partitions;
+        private int quietSamples;
+        private long lastChange;
+        private long lastCount;
+        private double lastTotalMs;
+    }
+}
@@ -0,0 +1,127 @@
+package com.stocker.kafkaconfig.consumer;
+
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Processes a batch of Kafka records in parallel while keeping per-key order.
+ * Records sharing a key (e.g. an orderId) are handled one after another in offset order;
+ * records with different keys run concurrently on a bounded worker pool. This lets a single
+ * consumer instance use all cores without adding partitions. Each record is reported to
+ * {@link OffsetCommitManager} as soon as it is done, so offsets advance as work completes.
+ * The parallelism can be changed at runtime up to {@code kafka.consumer.key-ordered.max-parallelism};
+ * the new value applies from the next batch.
+ */
+@Component
+@Slf4j
+public class KeyOrderedExecutor {
+
+    private final int baseParallelism;
+    private final int maxParallelism;
+    private final Scheduler scheduler;
+    private final OffsetCommitManager offsetCommitManager;
+    private final KafkaMetrics kafkaMetrics;
+    private volatile int parallelism;
+
+    public KeyOrderedExecutor(@Value("${kafka.consumer.key-ordered.parallelism:0}") int parallelism,
+                              @Value("${kafka.consumer.key-ordered.max-parallelism:0}") int maxParallelism,
+                              OffsetCommitManager offsetCommitManager, KafkaMetrics kafkaMetrics) {
+        this.baseParallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxParallelism = Math.max(this.baseParallelism,
+                maxParallelism > 0 ? maxParallelism : 4 * this.baseParallelism);
+        this.parallelism = this.baseParallelism;
+        // Threads are created on demand, so sizing the pool for the maximum costs nothing until it is used
+        this.scheduler = Schedulers.newBoundedElastic(this.maxParallelism, Integer.MAX_VALUE, "kafka-key-ordered");
+        this.offsetCommitManager = offsetCommitManager;
+        this.kafkaMetrics = kafkaMetrics;
+    }
+
+    /**
+     * Process a batch of records, preserving order within each key.
+     *
+     * @param records The records of a batch, in offset order
+     * @param handler The reactive handler for a single record
+     * @return Mono<Void> that completes when every record has been handled
+     */
+    public <K, V> Mono<Void> execute(List<ConsumerRecord<K, V>> records,
+                                     Function<ConsumerRecord<K, V>, ? extends Publisher<?>> handler) {
+        if (records.isEmpty()) {
+            return Mono.empty();
+        }
+        int lanes = parallelism;
+        return Flux.fromIterable(groupByKey(records))
+                .flatMap(group -> Flux.fromIterable(group)
+                        .concatMap(record -> {
+                            long start = System.nanoTime();
+                            return Flux.from(handler.apply(record))
+                                    .doOnComplete(() -> kafkaMetrics.recordProcessing(
+                                            record.topic(), record.value(), record.timestamp(), start, true))
+                                    .doOnError(ex -> {
+                                        kafkaMetrics.recordProcessing(
+                                                record.topic(), record.value(), record.timestamp(), start, false);
+                                        log.error("Error handling record {}-{}@{}: {}",
+                                                record.topic(), record.partition(), record.offset(), ex.getMessage());
+                                    })
+                                    .onErrorResume(ex -> Mono.empty())
+                                    .doFinally(signal -> offsetCommitManager.complete(record));
+                        })
+                        .subscribeOn(scheduler), lanes)
+                .then();
+    }
+
+    private <K, V> List<List<ConsumerRecord<K, V>>> groupByKey(List<ConsumerRecord<K, V>> records) {
+        Map<Object, List<ConsumerRecord<K, V>>> groups = new LinkedHashMap<>();
+        for (ConsumerRecord<K, V> record : records) {
+            // Records without a key can only be ordered by partition
+            Object groupKey = record.key() != null ? record.key() : record.topic() + "-" + record.partition();
+            groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(record);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * The number of keys processed concurrently.
+     *
+     * @return the parallelism of the executor
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Change the number of keys processed concurrently, bounded by the configured maximum.
+     *
+     * @param parallelism The new parallelism
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, Math.min(parallelism, maxParallelism));
+    }
+
+    public int getBaseParallelism() {
+        return baseParallelism;
+    }
+
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,261 @@
+package com.stocker.kafkaconfig.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commits listener offsets once the work for them has completed.
+ * Every record handed to a listener is tracked as in flight for its partition until
+ * {@link #complete(ConsumerRecord)} is called, which may happen on any thread and in any order.
+ * The committable offset of a partition is its lowest in-flight offset, so a record finishing
+ * early never lets the commit skip a slower one before it. Commits are sent with
+ * {@code commitAsync} from the consumer thread, for each partition of the consumer once either
+ * {@code kafka.consumer.commit.count} of its records have completed or
+ * {@code kafka.consumer.commit.interval-ms} has passed since its last commit, and synchronously for
+ * partitions that are being revoked. The check runs at the end of every poll and, while a consumer
+ * receives nothing, on the container's idle events every commit interval, so work completing after
+ * the last poll is still committed. Partitions are tracked by topic and partition, so each topic
+ * must be consumed by a single group within a service.
+ */
+@Component
+@Slf4j
+public class OffsetCommitManager implements ConsumerAwareRebalanceListener {
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+
+    @Value("${kafka.consumer.commit.count:500}")
+    private int commitCount;
+
+    @Value("${kafka.consumer.commit.interval-ms:1000}")
+    private long commitIntervalMs;
+
+    /**
+     * Mark records as handed to a listener. Must be called on the consumer thread.
+     *
+     * @param records The records about to be processed
+     */
+    public void track(Iterable<? extends ConsumerRecord<?, ?>> records) {
+        for (ConsumerRecord<?, ?> record : records) {
+            track(record);
+        }
+    }
+
+    public void track(ConsumerRecord<?, ?> record) {
+        partitions.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                tp -> new PartitionOffsets()).track(record.offset());
+    }
+
+    /**
+     * Mark a record as fully processed. Safe to call from any thread.
+     *
+     * @param record The record whose processing has completed
+     */
+    public void complete(ConsumerRecord<?, ?> record) {
+        PartitionOffsets offsets = partitions.get(new TopicPartition(record.topic(), record.partition()));
+        // Completions for partitions revoked in the meantime are ignored
+        if (offsets != null) {
+            offsets.complete(record.offset());
+        }
+    }
+
+    /**
+     * The interval at which listener containers should publish idle events, so that
+     * {@link #onIdle} commits for consumers that are not receiving records.
+     */
+    public long commitIntervalMs() {
+        return commitIntervalMs;
+    }
+
+    /**
+     * Commit the completed offsets of the consumer's partitions that reached the count or time
+     * threshold, asynchronously. Must be called on the consumer thread.
+     *
+     * @param consumer The consumer owning the partitions to commit
+     */
+    public void commitIfDue(Consumer<?, ?> consumer) {
+        long now = System.currentTimeMillis();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition tp : consumer.assignment()) {
+            PartitionOffsets partitionOffsets = partitions.get(tp);
+            if (partitionOffsets == null || !partitionOffsets.isDue(now, commitCount, commitIntervalMs)) {
+                continue;
+            }
+            partitionOffsets.resetDue(now);
+            long committable = partitionOffsets.committable();
+            if (committable > partitionOffsets.committed) {
+                offsets.put(tp, new OffsetAndMetadata(committable));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        consumer.commitAsync(offsets, (committed, ex) -> {
+            if (ex != null) {
+                // A later commit covers the same offsets, so a failed async commit is not retried
+                log.warn("Async offset commit failed for {}: {}", committed.keySet(), ex.getMessage());
+            } else {
+                committed.forEach((tp, offset) -> markCommitted(tp, offset.offset()));
+                log.debug("Committed offsets {}", committed);
+            }
+        });
+    }
+
+    /**
+     * Commit for a consumer that has not received records for a while. Idle events are published
+     * on the consumer thread, so the consumer can be used here.
+     */
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        Consumer<?, ?> consumer = event.getConsumer();
+        if (consumer != null) {
+            commitIfDue(consumer);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = committableOffsets(revoked);
+        if (!offsets.isEmpty()) {
+            try {
+                consumer.commitSync(offsets);
+                log.info("Committed offsets for revoked partitions {}", offsets);
+            } catch (Exception ex) {
+                log.warn("Offset commit for revoked partitions {} failed: {}", revoked, ex.getMessage());
+            }
+        }
+        revoked.forEach(partitions::remove);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        // The partitions already belong to another member, committing would fail
+        lost.forEach(partitions::remove);
+    }
+
+    /**
+     * Record interceptor tracking each record and completing it once the listener returns.
+     *
+     * @return RecordInterceptor for record listener containers
+     */
+    public <K, V> RecordInterceptor<K, V> recordInterceptor() {
+        return new RecordInterceptor<>() {
+            @Override
+            public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                track(record);
+                return record;
+            }
+
+            @Override
+            public void afterRecord(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+                complete(record);
+                commitIfDue(consumer);
+            }
+        };
+    }
+
+    /**
+     * Batch interceptor tracking each poll. Batch listeners report completion per record,
+     * normally through {@link KeyOrderedExecutor}.
+     *
+     * @return BatchInterceptor for batch listener containers
+     */
+    public <K, V> BatchInterceptor<K, V> batchInterceptor() {
+        return new BatchInterceptor<>() {
+            @Override
+            public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                track(records);
+                return records;
+            }
+
+            @Override
+            public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+                commitIfDue(consumer);
+            }
+
+            @Override
+            public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+                commitIfDue(consumer);
+            }
+        };
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> committableOffsets(Collection<TopicPartition> owned) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition tp : owned) {
+            PartitionOffsets partitionOffsets = partitions.get(tp);
+            if (partitionOffsets == null) {
+                continue;
+            }
+            long committable = partitionOffsets.committable();
+            if (committable > partitionOffsets.committed) {
+                offsets.put(tp, new OffsetAndMetadata(committable));
+            }
+        }
+        return offsets;
+    }
+
+    private void markCommitted(TopicPartition tp, long offset) {
+        PartitionOffsets partitionOffsets = partitions.get(tp);
+        if (partitionOffsets != null && offset > partitionOffsets.committed) {
+            partitionOffsets.committed = offset;
+        }
+    }
+
+    private static final class PartitionOffsets {
+        private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+        private final AtomicLong highestCompleted = new AtomicLong(-1);
+        private final AtomicInteger completedSinceCommit = new AtomicInteger();
+        // Only read and written on the consumer thread owning the partition
+        private long committed = -1;
+        private long lastCommitTime = System.currentTimeMillis();
+
+        private void track(long offset) {
+            inFlight.add(offset);
+        }
+
+        private void complete(long offset) {
+            highestCompleted.accumulateAndGet(offset, Math::max);
+            if (inFlight.remove(offset)) {
+                completedSinceCommit.incrementAndGet();
+            }
+        }
+
+        private boolean isDue(long now, int commitCount, long commitIntervalMs) {
+            return completedSinceCommit.get() >= commitCount || now - lastCommitTime >= commitIntervalMs;
+        }
+
+        private void resetDue(long now) {
+            completedSinceCommit.set(0);
+            lastCommitTime = now;
+        }
+
+        /**
+         * The next offset to consume: the lowest offset still in flight, or the one after the
+         * highest completed offset when nothing is in flight.
+         */
+        private long committable() {
+            Iterator<Long> lowest = inFlight.iterator();
+            return lowest.hasNext() ? lowest.next() : highestCompleted.get() + 1;
+        }
+    }
+}
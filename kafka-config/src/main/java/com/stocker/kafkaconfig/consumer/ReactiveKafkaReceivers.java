@@ -0,0 +1,137 @@
+package com.stocker.kafkaconfig.consumer;
+
+import com.stocker.kafkaconfig.KafkaConsumerConfig;
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import com.stocker.kafkaconfig.transport.EventTransport;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Demand-driven Kafka consumption for reactive handlers.
+ * Unlike a {@code @KafkaListener} that subscribes to the handler and returns, the receiver only
+ * fetches as many records as the pipeline can take: records are spread over a fixed number of
+ * lanes by key, each lane handles its records one at a time, and the consumer is paused while
+ * every lane is busy. A record's offset is acknowledged once its handler completes and committed
+ * asynchronously in batches; offsets completed out of order are held back until the gap before
+ * them is filled, so a restart never skips unfinished work.
+ */
+@Component
+@Slf4j
+public class ReactiveKafkaReceivers {
+
+    private final KafkaConsumerConfig kafkaConsumerConfig;
+    private final KafkaMetrics kafkaMetrics;
+    private final EventTransport eventTransport;
+    private final Disposable.Composite receivers = Disposables.composite();
+
+    @Value("${kafka.consumer.reactive.concurrency:0}")
+    private int concurrency;
+
+    @Value("${kafka.consumer.reactive.prefetch:256}")
+    private int prefetch;
+
+    @Value("${kafka.consumer.reactive.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${kafka.consumer.reactive.commit-interval-ms:1000}")
+    private long commitIntervalMs;
+
+    @Value("${kafka.consumer.reactive.commit-batch-size:500}")
+    private int commitBatchSize;
+
+    @Value("${kafka.consumer.reactive.max-deferred-commits:1000}")
+    private int maxDeferredCommits;
+
+    public ReactiveKafkaReceivers(KafkaConsumerConfig kafkaConsumerConfig, KafkaMetrics kafkaMetrics,
+                                  EventTransport eventTransport) {
+        this.kafkaConsumerConfig = kafkaConsumerConfig;
+        this.kafkaMetrics = kafkaMetrics;
+        this.eventTransport = eventTransport;
+    }
+
+    /**
+     * Start consuming topics with a reactive handler.
+     * The receiver runs until the application shuts down and reconnects with backoff if the
+     * consumer fails. Handler errors are logged and the record is acknowledged so a poison
+     * record cannot stall its partition.
+     *
+     * @param groupId The consumer group id
+     * @param topics The topics to subscribe to
+     * @param handler The reactive handler for a single record
+     * @return Disposable that stops the receiver
+     */
+    public Disposable start(String groupId, Collection<String> topics,
+                            Function<ConsumerRecord<String, Object>, ? extends Publisher<?>> handler) {
+        int lanes = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        Disposable receiver = eventTransport.receiver(receiverOptions(groupId, topics))
+                .receive(prefetch)
+                .groupBy(record -> lane(record, lanes), prefetch)
+                .flatMap(lane -> lane.concatMap(record -> process(record, handler)), lanes)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Reactive receiver for {} failed, restarting: {}",
+                                topics, signal.failure().getMessage())))
+                .subscribe();
+        receivers.add(receiver);
+        log.info("Reactive receiver started for {} in group {} with {} lanes", topics, groupId, lanes);
+        return receiver;
+    }
+
+    private ReceiverOptions<String, Object> receiverOptions(String groupId, Collection<String> topics) {
+        Map<String, Object> props = new HashMap<>(kafkaConsumerConfig.consumerConfigs());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        return ReceiverOptions.<String, Object>create(props)
+                .commitInterval(Duration.ofMillis(commitIntervalMs))
+                .commitBatchSize(commitBatchSize)
+                .maxDeferredCommits(maxDeferredCommits)
+                .addAssignListener(partitions -> log.info("Partitions assigned to {}: {}", groupId, partitions))
+                .addRevokeListener(partitions -> log.info("Partitions revoked from {}: {}", groupId, partitions))
+                .subscription(topics);
+    }
+
+    private Mono<Void> process(ReceiverRecord<String, Object> record,
+                               Function<ConsumerRecord<String, Object>, ? extends Publisher<?>> handler) {
+        long start = System.nanoTime();
+        return Flux.from(handler.apply(record))
+                .then()
+                .doOnSuccess(v -> kafkaMetrics.recordProcessing(
+                        record.topic(), record.value(), record.timestamp(), start, true))
+                .doOnError(ex -> {
+                    kafkaMetrics.recordProcessing(record.topic(), record.value(), record.timestamp(), start, false);
+                    log.error("Error handling record {}-{}@{}: {}",
+                            record.topic(), record.partition(), record.offset(), ex.getMessage());
+                })
+                .onErrorResume(ex -> Mono.empty())
+                .then(Mono.fromRunnable(record.receiverOffset()::acknowledge));
+    }
+
+    private static int lane(ConsumerRecord<String, Object> record, int lanes) {
+        // Same key, same lane: records of one aggregate are handled in offset order
+        Object key = record.key() != null ? record.key() : record.partition();
+        return Math.floorMod(key.hashCode(), lanes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        receivers.dispose();
+    }
+}
@@ -0,0 +1,150 @@
+package com.stocker.kafkaconfig.dedupe;
+
+import com.stocker.kafkaconfig.routing.EventHeaders;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Makes consumers idempotent by remembering which events they have processed.
+ * An event is identified by its {@link EventHeaders#EVENT_ID} header, or by its topic, partition
+ * and offset when the producer did not stamp one. Recently seen ids are kept in a bounded
+ * in-memory tier so redelivered records are rejected without a database round trip; new ids are
+ * claimed in the service's processed_events table, whose primary key decides the race between
+ * concurrent or restarted consumers. The claim and the work run in one transaction, so writes the
+ * work makes through the same database commit with the claim, and a failed event leaves no claim
+ * behind and can be retried. Work outside the database, such as sending a command, is not rolled
+ * back, but its event is only recorded once it succeeded.
+ * Ids older than the retention are purged periodically; the retention must be longer than the
+ * time an event can still be redelivered, such as the retention of the topics consumed.
+ */
+@Component
+@Slf4j
+public class ProcessedEventStore {
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO processed_events (consumer, event_id, processed_at) " +
+            "VALUES (:consumer, :eventId, :processedAt) ON CONFLICT DO NOTHING";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM processed_events WHERE ctid IN (SELECT ctid FROM processed_events "
+                    + "WHERE processed_at < :cutoff LIMIT :limit)";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final RecentEventIds recentEventIds;
+    private final Duration retention;
+    private final Duration purgeInterval;
+    private final int purgeBatchSize;
+
+    private Disposable purgeSubscription;
+
+    public ProcessedEventStore(DatabaseClient databaseClient,
+                               TransactionalOperator transactionalOperator,
+                               @Value("${kafka.dedupe.memory-capacity:65536}") int memoryCapacity,
+                               @Value("${kafka.dedupe.retention-hours:168}") long retentionHours,
+                               @Value("${kafka.dedupe.purge-interval-ms:3600000}") long purgeIntervalMs,
+                               @Value("${kafka.dedupe.purge-batch-size:5000}") int purgeBatchSize) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.recentEventIds = new RecentEventIds(memoryCapacity);
+        this.retention = Duration.ofHours(retentionHours);
+        this.purgeInterval = Duration.ofMillis(purgeIntervalMs);
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        purgeSubscription = Flux.interval(purgeInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> purge(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purgeSubscription != null) {
+            purgeSubscription.dispose();
+        }
+    }
+
+    /**
+     * Run the work for a record unless the consumer has already processed its event.
+     *
+     * @param consumer The name of the consuming component, usually its group id
+     * @param record   The record being processed
+     * @param work     Supplier of the processing pipeline, only invoked for new events
+     * @return Mono emitting the result of the work, or empty for a duplicate
+     */
+    public <T> Mono<T> processOnce(String consumer, ConsumerRecord<?, ?> record, Supplier<? extends Mono<T>> work) {
+        String eventId = eventId(record);
+        String memoryKey = consumer + ":" + eventId;
+        if (recentEventIds.contains(memoryKey)) {
+            log.debug("Skipping duplicate event {} for {}", eventId, consumer);
+            return Mono.empty();
+        }
+        return claim(consumer, eventId)
+                .flatMap(claimed -> {
+                    if (!claimed) {
+                        log.info("Skipping already processed event {} for {}", eventId, consumer);
+                        return Mono.<T>empty();
+                    }
+                    return work.get();
+                })
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(result -> recentEventIds.add(memoryKey));
+    }
+
+    /**
+     * Delete the ids processed before the retention, in batches until none are left.
+     *
+     * @return Mono<Long> emitting the number of ids deleted
+     */
+    public Mono<Long> purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        return databaseClient.sql(PURGE_SQL)
+                .bind("cutoff", cutoff)
+                .bind("limit", purgeBatchSize)
+                .fetch()
+                .rowsUpdated()
+                .repeat()
+                .takeUntil(count -> count < purgeBatchSize)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        log.info("Purged {} processed event ids older than {}", count, cutoff);
+                    }
+                })
+                .onErrorResume(ex -> {
+                    log.warn("Processed event purge failed, will retry on next run: {}", ex.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    private Mono<Boolean> claim(String consumer, String eventId) {
+        return databaseClient.sql(CLAIM_SQL)
+                .bind("consumer", consumer)
+                .bind("eventId", eventId)
+                .bind("processedAt", LocalDateTime.now())
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    private static String eventId(ConsumerRecord<?, ?> record) {
+        String eventId = EventHeaders.eventId(record.headers());
+        return eventId != null ? eventId : record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+}
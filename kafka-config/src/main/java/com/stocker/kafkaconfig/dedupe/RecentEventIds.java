@@ -0,0 +1,80 @@
+package com.stocker.kafkaconfig.dedupe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free set of recently processed event ids.
+ * Ids are reduced to 64-bit fingerprints and stored in a set-associative table: each fingerprint
+ * maps to a bucket of {@link #WAYS} slots, and when a bucket is full one of its slots is
+ * overwritten. Memory is fixed at eight bytes per slot, lookups touch a single cache line and
+ * never block, and an evicted id simply falls through to the persistent tier.
+ */
+final class RecentEventIds {
+
+    private static final int WAYS = 8;
+    private static final long EMPTY = 0L;
+
+    private final AtomicLongArray slots;
+    private final int bucketMask;
+
+    RecentEventIds(int capacity) {
+        int buckets = 1;
+        while (buckets * WAYS < capacity) {
+            buckets <<= 1;
+        }
+        this.slots = new AtomicLongArray(buckets * WAYS);
+        this.bucketMask = buckets - 1;
+    }
+
+    boolean contains(String eventId) {
+        long fingerprint = fingerprint(eventId);
+        int base = bucket(fingerprint);
+        for (int i = 0; i < WAYS; i++) {
+            if (slots.get(base + i) == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void add(String eventId) {
+        long fingerprint = fingerprint(eventId);
+        int base = bucket(fingerprint);
+        for (int i = 0; i < WAYS; i++) {
+            long current = slots.get(base + i);
+            if (current == fingerprint
+                    || (current == EMPTY && slots.compareAndSet(base + i, EMPTY, fingerprint))) {
+                return;
+            }
+        }
+        // Bucket full: overwrite a slot picked from the fingerprint's high bits
+        slots.set(base + (int) (fingerprint >>> 61), fingerprint);
+    }
+
+    void remove(String eventId) {
+        long fingerprint = fingerprint(eventId);
+        int base = bucket(fingerprint);
+        for (int i = 0; i < WAYS; i++) {
+            slots.compareAndSet(base + i, fingerprint, EMPTY);
+        }
+    }
+
+    private int bucket(long fingerprint) {
+        return ((int) fingerprint & bucketMask) * WAYS;
+    }
+
+    private static long fingerprint(String eventId) {
+        // FNV-1a over the UTF-16 chars followed by the murmur3 finalizer
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < eventId.length(); i++) {
+            hash ^= eventId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1L : hash;
+    }
+}
@@ -0,0 +1,183 @@
+package com.stocker.kafkaconfig.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the Kafka hot paths.
+ * Producer side: send latency until acknowledgement, records per bulk send, serialized record
+ * size, serialization time and send errors, tagged by topic and event type. Consumer side:
+ * handler processing time and end-to-end latency from the record timestamp. Meters are
+ * registered once per topic, event type and outcome and reused for every record. With the Kafka
+ * transport, the clients' own metrics, including per-partition consumer lag, are bound to the
+ * same registry by the producer and consumer factories and the reactive receivers.
+ */
+@Component
+public class KafkaMetrics {
+
+    /** Config key under which the instance is handed to serializers. */
+    public static final String CONFIG = "stocker.kafka.metrics";
+
+    private static final String TOPIC = "topic";
+    private static final String EVENT_TYPE = "event.type";
+    private static final String OUTCOME = "outcome";
+
+    private final MeterRegistry registry;
+    private final DistributionSummary batchRecords;
+    private final Map<MeterKey, Timer> sendTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> sendErrors = new ConcurrentHashMap<>();
+    private final Map<MeterKey, SerializationMeters> serializationMeters = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Timer> processingTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Timer> endToEndTimers = new ConcurrentHashMap<>();
+
+    public KafkaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.batchRecords = DistributionSummary.builder("kafka.producer.batch.records")
+                .description("Records per bulk send")
+                .register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Record the outcome of a single send.
+     *
+     * @param topic      The topic sent to
+     * @param event      The event sent
+     * @param startNanos {@link System#nanoTime()} when the send was started
+     * @param error      The send failure, or null on success
+     */
+    public void recordSend(String topic, Object event, long startNanos, Throwable error) {
+        sendTimers.computeIfAbsent(MeterKey.of(topic, event, error == null ? "success" : "error"),
+                        key -> Timer.builder("kafka.producer.send")
+                                .description("Time from send until the broker acknowledged the record")
+                                .tags(TOPIC, key.topic(), EVENT_TYPE, key.eventType(), OUTCOME, key.tag())
+                                .publishPercentileHistogram()
+                                .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (error != null) {
+            sendErrors.computeIfAbsent(MeterKey.of(topic, event, error.getClass().getSimpleName()),
+                            key -> Counter.builder("kafka.producer.errors")
+                                    .description("Records the producer failed to send")
+                                    .tags(TOPIC, key.topic(), EVENT_TYPE, key.eventType(), "exception", key.tag())
+                                    .register(registry))
+                    .increment();
+        }
+    }
+
+    /**
+     * Record the size of a bulk send.
+     *
+     * @param records The number of records handed to the producer at once
+     */
+    public void recordBatch(int records) {
+        batchRecords.record(records);
+    }
+
+    /**
+     * Record the cost of serializing a record value.
+     *
+     * @param topic  The topic the record is sent to
+     * @param event  The serialized event
+     * @param format The wire format used
+     * @param nanos  Time spent serializing
+     * @param bytes  Size of the serialized value
+     */
+    public void recordSerialization(String topic, Object event, String format, long nanos, int bytes) {
+        SerializationMeters meters = serializationMeters.computeIfAbsent(MeterKey.of(topic, event, format),
+                key -> new SerializationMeters(
+                        Timer.builder("kafka.producer.serialization")
+                                .description("Time spent serializing record values")
+                                .tags(TOPIC, key.topic(), EVENT_TYPE, key.eventType(), "format", key.tag())
+                                .register(registry),
+                        DistributionSummary.builder("kafka.producer.record.size")
+                                .description("Serialized size of record values")
+                                .baseUnit("bytes")
+                                .tags(TOPIC, key.topic(), EVENT_TYPE, key.eventType(), "format", key.tag())
+                                .register(registry)));
+        meters.time().record(nanos, TimeUnit.NANOSECONDS);
+        meters.size().record(bytes);
+    }
+
+    /**
+     * Record the handling of a consumed record.
+     *
+     * @param topic       The topic the record was consumed from
+     * @param event       The consumed event
+     * @param timestampMs The record timestamp
+     * @param startNanos  {@link System#nanoTime()} when handling started
+     * @param success     Whether the handler completed successfully
+     */
+    public void recordProcessing(String topic, Object event, long timestampMs, long startNanos, boolean success) {
+        processingTimers.computeIfAbsent(MeterKey.of(topic, event, success ? "success" : "error"),
+                        key -> Timer.builder("kafka.consumer.processing")
+                                .description("Time spent handling a consumed record")
+                                .tags(TOPIC, key.topic(), EVENT_TYPE, key.eventType(), OUTCOME, key.tag())
+                                .publishPercentileHistogram()
+                                .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (timestampMs > 0) {
+            endToEndTimers.computeIfAbsent(MeterKey.of(topic, event, ""),
+                            key -> Timer.builder("kafka.consumer.end-to-end")
+                                    .description("Time from the record timestamp until it was handled")
+                                    .tags(TOPIC, key.topic(), EVENT_TYPE, key.eventType())
+                                    .publishPercentileHistogram()
+                                    .register(registry))
+                    .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - timestampMs)));
+        }
+    }
+
+    /**
+     * Number of records handled so far for a topic.
+     *
+     * @param topic The consumed topic
+     * @return the count of the processing timers for the topic
+     */
+    public long processingCount(String topic) {
+        return registry.find("kafka.consumer.processing").tag(TOPIC, topic).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    /**
+     * Total handler time recorded so far for a topic.
+     *
+     * @param topic The consumed topic
+     * @param unit  The unit to return the time in
+     * @return the total time of the processing timers for the topic
+     */
+    public double processingTime(String topic, TimeUnit unit) {
+        return registry.find("kafka.consumer.processing").tag(TOPIC, topic).timers().stream()
+                .mapToDouble(timer -> timer.totalTime(unit))
+                .sum();
+    }
+
+    /**
+     * Identifies the meters of a topic and event class; {@code tag} holds the outcome, format or
+     * exception the meter is also tagged with. The event class, not its name, is part of the key so
+     * the lookup does not build a string per record.
+     */
+    private record MeterKey(String topic, Class<?> eventClass, String tag) {
+
+        static MeterKey of(String topic, Object event, String tag) {
+            return new MeterKey(topic, event != null ? event.getClass() : null, tag);
+        }
+
+        String eventType() {
+            return eventClass != null ? eventClass.getSimpleName() : "none";
+        }
+    }
+
+    private record SerializationMeters(Timer time, DistributionSummary size) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.stocker.kafkaconfig.outbox;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row of the outbox_events table waiting to be published to Kafka.
+ */
+@Value
+public class OutboxRecord {
+    long id;
+    String eventId;
+    String topic;
+    String eventKey;
+    String eventType;
+    String payload;
+    LocalDateTime createdAt;
+}
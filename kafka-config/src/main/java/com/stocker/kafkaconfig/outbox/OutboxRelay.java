@@ -0,0 +1,171 @@
+package com.stocker.kafkaconfig.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocker.kafkaconfig.KafkaEventUtils;
+import com.stocker.kafkaconfig.routing.EventHeaders;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Relays outbox rows to Kafka.
+ * A batch of rows is claimed in insertion order in a short transaction, published with
+ * {@link KafkaEventUtils#sendRecords} outside of any transaction, and deleted in a second short
+ * transaction, so no connection or row lock is held while waiting on the broker.
+ * A claim sets {@code claimed_until} on the batch, and no batch is claimed while another claim is
+ * live; claims are taken under a Postgres advisory lock. Only one relay per database publishes at
+ * a time, which keeps events with the same key in order.
+ * If Kafka is slow or unavailable the claim is released and the rows are retried on the next poll,
+ * so the request path never waits on the broker. Rows of a relay that dies while publishing are
+ * claimed again once the claim expires. Rows published but not deleted are sent again; consumers
+ * drop them by their event id.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private static final long RELAY_LOCK_ID = 0x0B0C5E1AL;
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(:lockId) AS locked";
+
+    private static final String CLAIM_SQL =
+            "UPDATE outbox_events SET claimed_until = now() + :claimMs * interval '1 millisecond' "
+                    + "WHERE id IN (SELECT id FROM outbox_events ORDER BY id LIMIT :limit) "
+                    + "AND NOT EXISTS (SELECT 1 FROM outbox_events WHERE claimed_until > now()) "
+                    + "RETURNING id, event_id, topic, event_key, event_type, payload, created_at";
+
+    private static final String RELEASE_SQL = "UPDATE outbox_events SET claimed_until = NULL WHERE id = ANY(:ids)";
+
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE id = ANY(:ids)";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final KafkaEventUtils kafkaEventUtils;
+    private final ObjectMapper objectMapper;
+
+    @Value("${kafka.outbox.relay.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    @Value("${kafka.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    // Longer than the producer's delivery.timeout.ms, so a live relay never loses its claim
+    @Value("${kafka.outbox.relay.claim-timeout-ms:180000}")
+    private long claimTimeoutMs;
+
+    private Disposable subscription;
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.interval(Duration.ofMillis(pollIntervalMs))
+                .onBackpressureDrop()
+                .concatMap(tick -> drain(), 1)
+                .subscribe();
+        log.info("Outbox relay started, polling every {} ms in batches of {}", pollIntervalMs, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Publish batches until the outbox is drained.
+     *
+     * @return Mono<Long> emitting the number of events published
+     */
+    public Mono<Long> drain() {
+        return relayBatch()
+                .repeat()
+                .takeUntil(count -> count < batchSize)
+                .reduce(0L, Long::sum)
+                .onErrorResume(ex -> {
+                    log.warn("Outbox relay failed, will retry on next poll: {}", ex.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    private Mono<Long> relayBatch() {
+        return claimBatch()
+                .filter(batch -> !batch.isEmpty())
+                .flatMap(batch -> Mono.defer(() -> kafkaEventUtils.sendRecords(toProducerRecords(batch)))
+                        .onErrorResume(ex -> update(RELEASE_SQL, batch).then(Mono.error(ex)))
+                        .then(update(DELETE_SQL, batch).as(transactionalOperator::transactional))
+                        .thenReturn((long) batch.size()))
+                .defaultIfEmpty(0L);
+    }
+
+    private Mono<List<OutboxRecord>> claimBatch() {
+        return databaseClient.sql(LOCK_SQL)
+                .bind("lockId", RELAY_LOCK_ID)
+                .map(row -> row.get("locked", Boolean.class))
+                .one()
+                .filter(Boolean.TRUE::equals)
+                .flatMap(locked -> databaseClient.sql(CLAIM_SQL)
+                        .bind("claimMs", claimTimeoutMs)
+                        .bind("limit", batchSize)
+                        .map(row -> new OutboxRecord(
+                                row.get("id", Long.class),
+                                row.get("event_id", String.class),
+                                row.get("topic", String.class),
+                                row.get("event_key", String.class),
+                                row.get("event_type", String.class),
+                                row.get("payload", String.class),
+                                row.get("created_at", LocalDateTime.class)))
+                        .all()
+                        // RETURNING does not keep the order of the subquery
+                        .sort(Comparator.comparing(OutboxRecord::getId))
+                        .collectList())
+                .as(transactionalOperator::transactional);
+    }
+
+    private List<ProducerRecord<String, Object>> toProducerRecords(List<OutboxRecord> batch) {
+        List<ProducerRecord<String, Object>> records = new ArrayList<>(batch.size());
+        for (OutboxRecord outboxRecord : batch) {
+            // The record carries the time the event was written, so end-to-end latency includes the outbox delay
+            long timestamp = outboxRecord.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            ProducerRecord<String, Object> record = new ProducerRecord<>(outboxRecord.getTopic(), null, timestamp,
+                    outboxRecord.getEventKey(), readEvent(outboxRecord));
+            record.headers().add(EventHeaders.EVENT_ID, outboxRecord.getEventId().getBytes(StandardCharsets.UTF_8));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private Object readEvent(OutboxRecord outboxRecord) {
+        try {
+            return objectMapper.readValue(outboxRecord.getPayload(), Class.forName(outboxRecord.getEventType()));
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to read outbox event " + outboxRecord.getId(), ex);
+        }
+    }
+
+    private Mono<Void> update(String sql, List<OutboxRecord> batch) {
+        Long[] ids = batch.stream().map(OutboxRecord::getId).toArray(Long[]::new);
+        return databaseClient.sql(sql)
+                .bind("ids", ids)
+                .then();
+    }
+}
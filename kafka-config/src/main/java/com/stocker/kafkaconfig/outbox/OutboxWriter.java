@@ -0,0 +1,112 @@
+package com.stocker.kafkaconfig.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Writes events to the service's outbox_events table.
+ * The insert joins the caller's reactive transaction, so an event is only
+ * recorded for publishing if the business write it belongs to commits.
+ * Each row gets an event id that is published as a header and stays the same
+ * if the relay has to send the row again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxWriter {
+
+    private static final String INSERT_COLUMNS =
+            "INSERT INTO outbox_events (event_id, topic, event_key, event_type, payload, created_at) VALUES ";
+
+    /**
+     * Rows per multi-row insert, keeping the bind parameters well below the Postgres limit.
+     */
+    private static final int ROWS_PER_INSERT = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (event_id, topic, event_key, event_type, payload, created_at) " +
+            "VALUES (:eventId, :topic, :eventKey, :eventType, :payload, :createdAt)";
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Append an event to the outbox.
+     *
+     * @param topic The topic the event will be published to
+     * @param key   The key for the event, which also defines its ordering group
+     * @param event The event object
+     * @return Mono<Void> that completes when the outbox row is written
+     */
+    public Mono<Void> append(String topic, String key, Object event) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(event))
+                .flatMap(payload -> databaseClient.sql(INSERT_SQL)
+                        .bind("eventId", UUID.randomUUID().toString())
+                        .bind("topic", topic)
+                        .bind("eventKey", key)
+                        .bind("eventType", event.getClass().getName())
+                        .bind("payload", payload)
+                        .bind("createdAt", LocalDateTime.now())
+                        .then())
+                .doOnSuccess(v -> log.debug("Event {} for key {} added to outbox for topic {}",
+                        event.getClass().getSimpleName(), key, topic));
+    }
+
+    /**
+     * Append several events for one topic with multi-row inserts, keeping their order.
+     * The event ids are given by the caller, so an event written again after a retry or replay
+     * carries the same id and is recognised by the consumers' deduplication.
+     *
+     * @param topic            The topic the events will be published to
+     * @param events           The event objects
+     * @param keyExtractor     Returns the key of an event
+     * @param eventIdExtractor Returns the id of an event, at most 36 characters
+     * @return Mono<Void> that completes when all outbox rows are written
+     */
+    public <T> Mono<Void> appendAll(String topic, List<T> events, Function<T, String> keyExtractor,
+                                    Function<T, String> eventIdExtractor) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.range(0, (events.size() + ROWS_PER_INSERT - 1) / ROWS_PER_INSERT)
+                .map(chunk -> events.subList(chunk * ROWS_PER_INSERT,
+                        Math.min(events.size(), (chunk + 1) * ROWS_PER_INSERT)))
+                .concatMap(chunk -> Mono.fromCallable(() -> insertAll(topic, chunk, keyExtractor, eventIdExtractor))
+                        .flatMap(DatabaseClient.GenericExecuteSpec::then))
+                .then()
+                .doOnSuccess(v -> log.debug("{} events added to outbox for topic {}", events.size(), topic));
+    }
+
+    private <T> DatabaseClient.GenericExecuteSpec insertAll(String topic, List<T> events,
+                                                            Function<T, String> keyExtractor,
+                                                            Function<T, String> eventIdExtractor) throws Exception {
+        StringBuilder sql = new StringBuilder(INSERT_COLUMNS);
+        for (int i = 0; i < events.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:eventId").append(i).append(", :topic, :eventKey").append(i)
+                    .append(", :eventType").append(i).append(", :payload").append(i).append(", :createdAt)");
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("topic", topic)
+                .bind("createdAt", LocalDateTime.now());
+        for (int i = 0; i < events.size(); i++) {
+            T event = events.get(i);
+            String key = keyExtractor.apply(event);
+            spec = spec.bind("eventId" + i, eventIdExtractor.apply(event))
+                    .bind("eventType" + i, event.getClass().getName())
+                    .bind("payload" + i, objectMapper.writeValueAsString(event));
+            spec = key != null ? spec.bind("eventKey" + i, key) : spec.bindNull("eventKey" + i, String.class);
+        }
+        return spec;
+    }
+}
@@ -0,0 +1,106 @@
+package com.stocker.kafkaconfig.partition;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partitions every order lifecycle event by its orderId.
+ * Events exposing {@code getOrderId()} are placed by the orderId whatever key they were sent with,
+ * so an order's payment, dispatch and delivery events land on the same partition number as its
+ * order events. With the same partition count on every topic (see {@code KafkaTopicConfig}) a
+ * consumer subscribed to several lifecycle topics sees all events of an order. Other keyed
+ * records are placed by their key. Both use murmur2 like the default partitioner, so a key equal
+ * to the orderId ends up where it always did.
+ * Records without key or orderId stick to one partition per topic until the producer starts a
+ * new batch, which fills batches instead of spreading single records over every partition.
+ */
+public class OrderAffinityPartitioner implements Partitioner {
+
+    private static final ClassValue<Method> ORDER_ID_ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                Method accessor = type.getMethod("getOrderId");
+                return accessor.getReturnType() == String.class ? accessor : null;
+            } catch (NoSuchMethodException ex) {
+                return null;
+            }
+        }
+    };
+
+    private final Map<String, Integer> stickyPartitions = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionCountForTopic(topic);
+        String orderId = orderId(value);
+        if (orderId != null) {
+            return Utils.toPositive(Utils.murmur2(orderId.getBytes(StandardCharsets.UTF_8))) % numPartitions;
+        }
+        if (keyBytes != null) {
+            return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+        }
+        return stickyPartitions.computeIfAbsent(topic, t -> nextPartition(t, -1, cluster));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void onNewBatch(String topic, Cluster cluster, int prevPartition) {
+        // Only move on if no other thread has switched the sticky partition already
+        stickyPartitions.computeIfPresent(topic, (t, current) ->
+                current == prevPartition ? nextPartition(t, prevPartition, cluster) : current);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * The orderId an event belongs to, if it has one.
+     *
+     * @param value The record value
+     * @return the orderId, or null if the value does not carry one
+     */
+    public static String orderId(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Method accessor = ORDER_ID_ACCESSORS.get(value.getClass());
+        if (accessor == null) {
+            return null;
+        }
+        try {
+            return (String) accessor.invoke(value);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    private static int nextPartition(String topic, int previous, Cluster cluster) {
+        List<PartitionInfo> available = cluster.availablePartitionsForTopic(topic);
+        if (available.isEmpty()) {
+            return ThreadLocalRandom.current().nextInt(cluster.partitionCountForTopic(topic));
+        }
+        if (available.size() == 1) {
+            return available.get(0).partition();
+        }
+        int next;
+        do {
+            next = available.get(ThreadLocalRandom.current().nextInt(available.size())).partition();
+        } while (next == previous);
+        return next;
+    }
+}
@@ -0,0 +1,54 @@
+package com.stocker.kafkaconfig.retry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The delays of the retry topics that failed records move through before the dead-letter topic.
+ * Each main topic has one retry topic per tier, named {@code <topic>-retry-<delay>}
+ * (e.g. {@code order-events-retry-10s}), and a {@code <topic>-dlt} topic.
+ */
+public class RetryTiers {
+
+    private final List<Duration> delays;
+
+    public RetryTiers(List<Duration> delays) {
+        this.delays = List.copyOf(delays);
+    }
+
+    public List<Duration> getDelays() {
+        return delays;
+    }
+
+    /**
+     * The number of retry tiers.
+     *
+     * @return the number of retries before a record is dead-lettered
+     */
+    public int size() {
+        return delays.size();
+    }
+
+    /**
+     * Name of the retry topic of a tier.
+     *
+     * @param topic The main topic
+     * @param tier  The zero-based tier
+     * @return the retry topic name
+     */
+    public String retryTopic(String topic, int tier) {
+        Duration delay = delays.get(tier);
+        String suffix = delay.toMillis() % 1000 == 0 ? delay.toSeconds() + "s" : delay.toMillis() + "ms";
+        return topic + "-retry-" + suffix;
+    }
+
+    /**
+     * Name of the dead-letter topic.
+     *
+     * @param topic The main topic
+     * @return the dead-letter topic name
+     */
+    public String deadLetterTopic(String topic) {
+        return topic + "-dlt";
+    }
+}
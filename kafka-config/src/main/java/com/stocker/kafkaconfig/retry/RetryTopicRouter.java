@@ -0,0 +1,131 @@
+package com.stocker.kafkaconfig.retry;
+
+import com.stocker.kafkaconfig.KafkaEventUtils;
+import com.stocker.kafkaconfig.consumer.ReactiveKafkaReceivers;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Non-blocking retries for consumers.
+ * A record whose handler fails is republished to the next retry topic of {@link RetryTiers}
+ * and the main partition moves on, so a failing downstream does not hold up healthy records.
+ * Retry topics are consumed by reactive receivers that wait until a record is due before running
+ * the handler again; once every tier is exhausted the record goes to the dead-letter topic.
+ * Retried records keep their key and event headers, so per-key dedupe still applies, but they
+ * are no longer ordered with later records of the same key.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryTopicRouter {
+
+    public static final String ORIGINAL_TOPIC = "retry-original-topic";
+    public static final String GROUP = "retry-group";
+    public static final String ATTEMPT = "retry-attempt";
+    public static final String DUE_AT = "retry-due-at";
+    public static final String EXCEPTION = "retry-exception";
+
+    private static final String RETRY_HEADER_PREFIX = "retry-";
+
+    private final RetryTiers retryTiers;
+    private final KafkaEventUtils kafkaEventUtils;
+    private final ReactiveKafkaReceivers reactiveKafkaReceivers;
+
+    /**
+     * Run a handler and send the record to the next retry tier if it fails.
+     *
+     * @param group   The consumer group handling the record
+     * @param record  The record to handle
+     * @param handler The reactive handler for a single record
+     * @return Mono<Void> that completes once the record is handled or forwarded
+     */
+    public Mono<Void> withRetry(String group, ConsumerRecord<String, Object> record,
+                                Function<ConsumerRecord<String, Object>, ? extends Publisher<?>> handler) {
+        return Mono.defer(() -> Flux.from(handler.apply(record)).then())
+                .onErrorResume(ex -> forward(group, record, ex));
+    }
+
+    /**
+     * Start consuming the retry topics of a main topic for a consumer group.
+     * Records forwarded by other groups sharing the topic are ignored.
+     *
+     * @param group   The consumer group of the main listener
+     * @param topic   The main topic
+     * @param handler The same handler the main listener uses
+     */
+    public void startRetryReceivers(String group, String topic,
+                                    Function<ConsumerRecord<String, Object>, ? extends Publisher<?>> handler) {
+        for (int tier = 0; tier < retryTiers.size(); tier++) {
+            // One receiver per tier, so short delays are never queued behind long ones
+            reactiveKafkaReceivers.start(group + "-retry", List.of(retryTiers.retryTopic(topic, tier)),
+                    record -> group.equals(header(record.headers(), GROUP))
+                            ? Mono.delay(untilDue(record)).then(withRetry(group, record, handler))
+                            : Mono.empty());
+        }
+    }
+
+    private Mono<Void> forward(String group, ConsumerRecord<String, Object> record, Throwable ex) {
+        String originalTopic = header(record.headers(), ORIGINAL_TOPIC);
+        if (originalTopic == null) {
+            originalTopic = record.topic();
+        }
+        String attemptHeader = header(record.headers(), ATTEMPT);
+        int attempt = attemptHeader != null ? Integer.parseInt(attemptHeader) : 0;
+        boolean deadLetter = attempt >= retryTiers.size();
+        String target = deadLetter
+                ? retryTiers.deadLetterTopic(originalTopic)
+                : retryTiers.retryTopic(originalTopic, attempt);
+
+        ProducerRecord<String, Object> forwarded = new ProducerRecord<>(target, record.key(), record.value());
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(RETRY_HEADER_PREFIX)) {
+                forwarded.headers().add(header);
+            }
+        }
+        addHeader(forwarded.headers(), ORIGINAL_TOPIC, originalTopic);
+        addHeader(forwarded.headers(), GROUP, group);
+        addHeader(forwarded.headers(), ATTEMPT, Integer.toString(attempt + 1));
+        addHeader(forwarded.headers(), EXCEPTION, ex.getClass().getName() + ": " + ex.getMessage());
+        if (deadLetter) {
+            log.error("Record {}-{}@{} failed after {} retries, sending to {}: {}",
+                    record.topic(), record.partition(), record.offset(), attempt, target, ex.getMessage());
+        } else {
+            long dueAt = System.currentTimeMillis() + retryTiers.getDelays().get(attempt).toMillis();
+            addHeader(forwarded.headers(), DUE_AT, Long.toString(dueAt));
+            log.warn("Record {}-{}@{} failed, retrying through {}: {}",
+                    record.topic(), record.partition(), record.offset(), target, ex.getMessage());
+        }
+        return kafkaEventUtils.sendRecords(List.of(forwarded))
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
+                .then();
+    }
+
+    private static Duration untilDue(ConsumerRecord<String, Object> record) {
+        String dueAt = header(record.headers(), DUE_AT);
+        long wait = dueAt != null ? Long.parseLong(dueAt) - System.currentTimeMillis() : 0;
+        return Duration.ofMillis(Math.max(0, wait));
+    }
+
+    private static String header(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static void addHeader(Headers headers, String key, String value) {
+        headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
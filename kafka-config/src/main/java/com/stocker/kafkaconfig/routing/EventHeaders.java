@@ -0,0 +1,95 @@
+package com.stocker.kafkaconfig.routing;
+
+import com.stocker.kafkaconfig.codec.EventSchemaRegistry;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record headers describing the event carried by a record.
+ * Consumers can route or drop a record from these headers without deserializing its payload.
+ */
+public final class EventHeaders {
+
+    /** Simple class name of the event, e.g. {@code OrderCreatedEvent}. */
+    public static final String EVENT_TYPE = "event-type";
+
+    /** Schema version of the event, see {@link EventSchemaRegistry}. */
+    public static final String EVENT_VERSION = "event-version";
+
+    /** Unique id of the event, stable across re-sends of the same event. */
+    public static final String EVENT_ID = "event-id";
+
+    private static final Map<Class<?>, Header[]> HEADERS_BY_TYPE = new ConcurrentHashMap<>();
+
+    private EventHeaders() {
+    }
+
+    /**
+     * Add the id, type and version headers for an event, keeping any the record already has.
+     *
+     * @param headers The headers of the outgoing record
+     * @param event   The event carried by the record
+     */
+    public static void stamp(Headers headers, Object event) {
+        if (event == null) {
+            return;
+        }
+        if (headers.lastHeader(EVENT_ID) == null) {
+            headers.add(EVENT_ID, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (headers.lastHeader(EVENT_TYPE) == null) {
+            for (Header header : HEADERS_BY_TYPE.computeIfAbsent(event.getClass(), EventHeaders::headersFor)) {
+                headers.add(header);
+            }
+        }
+    }
+
+    /**
+     * Read the event id of a record.
+     *
+     * @param headers The headers of the received record
+     * @return the event id, or null if the record was not stamped
+     */
+    public static String eventId(Headers headers) {
+        Header header = headers.lastHeader(EVENT_ID);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Read the event type of a record.
+     *
+     * @param headers The headers of the received record
+     * @return the event type, or null if the record was not stamped
+     */
+    public static String eventType(Headers headers) {
+        Header header = headers.lastHeader(EVENT_TYPE);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Read the event version of a record.
+     *
+     * @param headers The headers of the received record
+     * @return the event version, or 1 if the record was not stamped
+     */
+    public static int eventVersion(Headers headers) {
+        Header header = headers.lastHeader(EVENT_VERSION);
+        return header != null ? Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8)) : 1;
+    }
+
+    private static Header[] headersFor(Class<?> type) {
+        EventSchemaRegistry registry = EventSchemaRegistry.getDefault();
+        int version = registry.hasSchema(type) ? registry.latestVersion(type) : 1;
+        // Header instances are immutable, so one pair is shared by every record of the type
+        return new Header[] {
+                new RecordHeader(EVENT_TYPE, type.getSimpleName().getBytes(StandardCharsets.UTF_8)),
+                new RecordHeader(EVENT_VERSION, Integer.toString(version).getBytes(StandardCharsets.UTF_8))
+        };
+    }
+}
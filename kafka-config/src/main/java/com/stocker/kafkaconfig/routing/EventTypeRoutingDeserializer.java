@@ -0,0 +1,59 @@
+package com.stocker.kafkaconfig.routing;
+
+import com.stocker.kafkaconfig.codec.EventCodecDeserializer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Value deserializer that only parses the event types a listener asked for.
+ * The accepted types are read from {@link #ACCEPTED_TYPES_CONFIG}, usually set per listener with
+ * {@code @KafkaListener(properties = ...)}. Records whose {@link EventHeaders#EVENT_TYPE} header
+ * names another type come back as {@code null} without their payload being read, and are then
+ * discarded by the container's record filter. Records without the header are always parsed.
+ */
+public class EventTypeRoutingDeserializer implements Deserializer<Object> {
+
+    /** Consumer property holding the comma separated event types to deserialize. Empty means all. */
+    public static final String ACCEPTED_TYPES_CONFIG = "stocker.routing.accepted-types";
+
+    private final EventCodecDeserializer delegate = new EventCodecDeserializer();
+    private Set<String> acceptedTypes = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+        Object value = configs.get(ACCEPTED_TYPES_CONFIG);
+        if (value != null) {
+            acceptedTypes = Arrays.stream(value.toString().split(","))
+                    .map(String::trim)
+                    .filter(type -> !type.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (!acceptedTypes.isEmpty()) {
+            String eventType = EventHeaders.eventType(headers);
+            if (eventType != null && !acceptedTypes.contains(eventType)) {
+                return null;
+            }
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
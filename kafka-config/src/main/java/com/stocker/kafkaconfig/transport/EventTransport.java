@@ -0,0 +1,43 @@
+package com.stocker.kafkaconfig.transport;
+
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+
+import java.util.Map;
+
+/**
+ * Creates the clients that carry events between services.
+ * {@link com.stocker.kafkaconfig.KafkaEventUtils}, the {@code @KafkaListener} containers and
+ * {@link com.stocker.kafkaconfig.consumer.ReactiveKafkaReceivers} obtain their producers and
+ * consumers here, so the transport is chosen with {@code kafka.transport} without touching the
+ * services: {@code kafka} (default) talks to the brokers, {@code in-memory} keeps every topic
+ * inside the JVM.
+ */
+public interface EventTransport {
+
+    /**
+     * Create a producer factory.
+     *
+     * @param configs The producer configuration
+     * @return ProducerFactory creating producers for this transport
+     */
+    ProducerFactory<String, Object> producerFactory(Map<String, Object> configs);
+
+    /**
+     * Create a consumer factory for listener containers.
+     *
+     * @param configs The consumer configuration
+     * @return ConsumerFactory creating consumers for this transport
+     */
+    ConsumerFactory<String, Object> consumerFactory(Map<String, Object> configs);
+
+    /**
+     * Create a reactive receiver.
+     *
+     * @param options The receiver options, including the consumer configuration
+     * @return KafkaReceiver consuming through this transport
+     */
+    KafkaReceiver<String, Object> receiver(ReceiverOptions<String, Object> options);
+}
@@ -0,0 +1,51 @@
+package com.stocker.kafkaconfig.transport;
+
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.MicrometerConsumerListener;
+import reactor.kafka.receiver.ReceiverOptions;
+
+import java.util.Map;
+
+/**
+ * Transport backed by the Kafka brokers in {@code spring.kafka.bootstrap-servers}.
+ * Every factory and receiver binds the Kafka client metrics to the meter registry.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.transport", havingValue = "kafka", matchIfMissing = true)
+@RequiredArgsConstructor
+public class KafkaTransport implements EventTransport {
+
+    private final KafkaMetrics kafkaMetrics;
+
+    @Override
+    public ProducerFactory<String, Object> producerFactory(Map<String, Object> configs) {
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configs);
+        factory.addListener(new MicrometerProducerListener<>(kafkaMetrics.getRegistry()));
+        return factory;
+    }
+
+    @Override
+    public ConsumerFactory<String, Object> consumerFactory(Map<String, Object> configs) {
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(configs);
+        // Binds the client metrics, including records-lag per partition
+        factory.addListener(new MicrometerConsumerListener<>(kafkaMetrics.getRegistry()));
+        return factory;
+    }
+
+    @Override
+    public KafkaReceiver<String, Object> receiver(ReceiverOptions<String, Object> options) {
+        // Binds the client metrics of the receiver's consumer, as for the listener containers
+        return KafkaReceiver.create(options.consumerListener(
+                new MicrometerConsumerListener(kafkaMetrics.getRegistry())));
+    }
+}
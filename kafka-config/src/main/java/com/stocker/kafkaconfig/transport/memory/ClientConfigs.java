@@ -0,0 +1,52 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.common.KafkaException;
+
+import java.util.Map;
+
+/**
+ * Reads Kafka client properties the way the Kafka clients do, for the in-memory clients.
+ */
+final class ClientConfigs {
+
+    private ClientConfigs() {
+    }
+
+    static int intValue(Map<String, ?> configs, String key, int defaultValue) {
+        Object value = configs.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number number ? number.intValue() : Integer.parseInt(value.toString().trim());
+    }
+
+    static String stringValue(Map<String, ?> configs, String key, String defaultValue) {
+        Object value = configs.get(key);
+        return value != null ? value.toString().trim() : defaultValue;
+    }
+
+    /**
+     * Instantiate a class configured by class, class name or instance. The caller configures it.
+     *
+     * @param configs The client configuration
+     * @param key     The property holding the class
+     * @param type    The expected type
+     * @return the instance, or null if the property is not set
+     */
+    static <T> T instance(Map<String, ?> configs, String key, Class<T> type) {
+        Object value = configs.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (type.isInstance(value)) {
+            return type.cast(value);
+        }
+        try {
+            Class<?> configured = value instanceof Class<?> c ? c
+                    : Class.forName(value.toString().trim(), true, Thread.currentThread().getContextClassLoader());
+            return type.cast(configured.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new KafkaException("Could not instantiate " + value + " for " + key, ex);
+        }
+    }
+}
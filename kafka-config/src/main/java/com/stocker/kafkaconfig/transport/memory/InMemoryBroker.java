@@ -0,0 +1,192 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Topics, partitions and consumer groups of the in-memory transport.
+ * Topics are created on first use with {@code partitions} partitions, each a ring buffer holding
+ * the last {@code partitionCapacity} records. Offsets grow per partition exactly as on a broker,
+ * so keys, partitioning and ordering behave as with Kafka; records older than the capacity are
+ * dropped like records past the retention limit.
+ * Brokers are shared per JVM through {@link #shared(String, int, int)}, so services running
+ * together in one JVM, each in its own Spring context, exchange records like with Kafka.
+ */
+public class InMemoryBroker {
+
+    static final Node NODE = new Node(0, "in-memory", 0);
+
+    private static final Map<String, InMemoryBroker> SHARED = new ConcurrentHashMap<>();
+
+    private final int partitions;
+    private final int partitionCapacity;
+    private final Map<String, InMemoryPartition[]> topics = new ConcurrentHashMap<>();
+    private final Map<String, Cluster> clusters = new ConcurrentHashMap<>();
+    private final Map<String, InMemoryGroup> groups = new ConcurrentHashMap<>();
+
+    // Bumped on every append; pollers waiting for data sleep on the monitor only while it is unchanged
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object signal = new Object();
+
+    public InMemoryBroker(int partitions, int partitionCapacity) {
+        this.partitions = partitions;
+        this.partitionCapacity = partitionCapacity;
+    }
+
+    /**
+     * The broker of this JVM registered under a name, created on first use.
+     *
+     * @param name              The name of the broker
+     * @param partitions        The partitions per topic
+     * @param partitionCapacity The records kept per partition
+     * @return the broker shared by every caller using the name
+     * @throws IllegalStateException if the broker was created with other settings
+     */
+    public static InMemoryBroker shared(String name, int partitions, int partitionCapacity) {
+        InMemoryBroker broker = SHARED.computeIfAbsent(name, n -> new InMemoryBroker(partitions, partitionCapacity));
+        if (broker.partitions != partitions || broker.partitionCapacity != partitionCapacity) {
+            throw new IllegalStateException("In-memory broker " + name + " has " + broker.partitions
+                    + " partitions of " + broker.partitionCapacity + " records, not " + partitions
+                    + " partitions of " + partitionCapacity + " records");
+        }
+        return broker;
+    }
+
+    /**
+     * Append a record to a partition.
+     *
+     * @param topicPartition The partition to append to
+     * @param record         The serialized record
+     * @return the offset of the record
+     */
+    public long append(TopicPartition topicPartition, StoredRecord record) {
+        long offset = topic(topicPartition.topic())[topicPartition.partition()].append(record);
+        version.incrementAndGet();
+        if (waiters.get() > 0) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Read records of a partition starting at an offset.
+     *
+     * @param topicPartition The partition to read
+     * @param offset         The first offset to read
+     * @param maxRecords     The maximum number of records to return
+     * @param out            The list the records are added to
+     * @return the offset of the first record read, later than {@code offset} if older records were dropped
+     */
+    public long read(TopicPartition topicPartition, long offset, int maxRecords, List<StoredRecord> out) {
+        return topic(topicPartition.topic())[topicPartition.partition()].read(offset, maxRecords, out);
+    }
+
+    public long logStartOffset(TopicPartition topicPartition) {
+        return topic(topicPartition.topic())[topicPartition.partition()].logStartOffset();
+    }
+
+    public long endOffset(TopicPartition topicPartition) {
+        return topic(topicPartition.topic())[topicPartition.partition()].endOffset();
+    }
+
+    public int partitionCount(String topic) {
+        return topic(topic).length;
+    }
+
+    public Set<String> topics() {
+        return Set.copyOf(topics.keySet());
+    }
+
+    /**
+     * Cluster metadata for a topic, as seen by partitioners.
+     *
+     * @param topic The topic
+     * @return Cluster with a single node leading every partition of the topic
+     */
+    public Cluster cluster(String topic) {
+        return clusters.computeIfAbsent(topic, t -> new Cluster("in-memory", List.of(NODE),
+                partitionInfos(t), Set.of(), Set.of()));
+    }
+
+    public List<PartitionInfo> partitionInfos(String topic) {
+        List<PartitionInfo> infos = new ArrayList<>();
+        Node[] replicas = {NODE};
+        for (int partition = 0; partition < partitionCount(topic); partition++) {
+            infos.add(new PartitionInfo(topic, partition, NODE, replicas, replicas));
+        }
+        return infos;
+    }
+
+    public InMemoryGroup group(String groupId) {
+        return groups.computeIfAbsent(groupId, id -> new InMemoryGroup(id, this::partitionCount));
+    }
+
+    /**
+     * The current data version, to be passed to {@link #awaitData(long, long)}.
+     *
+     * @return a value that changes whenever records are appended
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Wait until records were appended after {@code seenVersion}, {@link #signalAll()} was called
+     * or the timeout expired.
+     *
+     * @param seenVersion  The version read before looking for records
+     * @param timeoutNanos The maximum time to wait
+     */
+    public void awaitData(long seenVersion, long timeoutNanos) throws InterruptedException {
+        if (timeoutNanos <= 0) {
+            return;
+        }
+        waiters.incrementAndGet();
+        try {
+            long deadline = System.nanoTime() + timeoutNanos;
+            synchronized (signal) {
+                long remaining = timeoutNanos;
+                while (version.get() == seenVersion && remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(signal, remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wake up every poller, e.g. after a consumer was woken up or a group rebalanced.
+     */
+    public void signalAll() {
+        version.incrementAndGet();
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private InMemoryPartition[] topic(String topic) {
+        return topics.computeIfAbsent(topic, t -> {
+            InMemoryPartition[] created = new InMemoryPartition[partitions];
+            for (int partition = 0; partition < partitions; partition++) {
+                created[partition] = new InMemoryPartition(partitionCapacity);
+            }
+            return created;
+        });
+    }
+}
@@ -0,0 +1,532 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.NoOffsetForPartitionException;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.InvalidGroupIdException;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Consumer of the in-memory transport.
+ * Behaves like a Kafka consumer for the operations the listener containers and reactive receivers
+ * use: group subscriptions with rebalance callbacks, polling with {@code max.poll.records},
+ * pause/resume, seeks and commits to the group. Like the Kafka consumer it must only be used from
+ * one thread, except for {@link #wakeup()}. Rebalances are not coordinated between members: a
+ * member gives up its partitions at its next poll, so records in flight during a rebalance may be
+ * handled twice. The consumer never commits on its own; topic patterns and offset lookups by time
+ * are not supported.
+ */
+@Slf4j
+public class InMemoryConsumer<K, V> implements Consumer<K, V> {
+
+    private final InMemoryBroker broker;
+    private final InMemoryGroup group;
+    private final String memberId;
+    private final Deserializer<K> keyDeserializer;
+    private final Deserializer<V> valueDeserializer;
+    private final int maxPollRecords;
+    private final String autoOffsetReset;
+
+    private final Map<TopicPartition, Long> positions = new LinkedHashMap<>();
+    private final Set<TopicPartition> paused = new HashSet<>();
+    private final List<StoredRecord> fetchBuffer = new ArrayList<>();
+    private Set<String> subscription = Set.of();
+    private ConsumerRebalanceListener rebalanceListener;
+    private int knownGeneration = -1;
+    private int fetchRotation;
+    private volatile boolean wakeupRequested;
+    private boolean closed;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryConsumer(InMemoryBroker broker, Map<String, Object> configs) {
+        this.broker = broker;
+        String groupId = ClientConfigs.stringValue(configs, ConsumerConfig.GROUP_ID_CONFIG, null);
+        this.group = groupId != null && !groupId.isEmpty() ? broker.group(groupId) : null;
+        this.memberId = ClientConfigs.stringValue(configs, ConsumerConfig.CLIENT_ID_CONFIG, "consumer")
+                + "-" + UUID.randomUUID();
+        this.keyDeserializer = ClientConfigs.instance(configs, ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
+                Deserializer.class);
+        this.valueDeserializer = ClientConfigs.instance(configs, ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+                Deserializer.class);
+        this.keyDeserializer.configure(configs, true);
+        this.valueDeserializer.configure(configs, false);
+        this.maxPollRecords = ClientConfigs.intValue(configs, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+        this.autoOffsetReset = ClientConfigs.stringValue(configs, ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+    }
+
+    @Override
+    public ConsumerRecords<K, V> poll(Duration timeout) {
+        ensureOpen();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        do {
+            if (wakeupRequested) {
+                wakeupRequested = false;
+                throw new WakeupException();
+            }
+            rebalanceIfNeeded();
+            long version = broker.version();
+            Map<TopicPartition, List<ConsumerRecord<K, V>>> fetched = fetch();
+            if (!fetched.isEmpty()) {
+                return new ConsumerRecords<>(fetched);
+            }
+            try {
+                broker.awaitData(version, deadline - System.nanoTime());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptException(ex);
+            }
+        } while (System.nanoTime() < deadline);
+        return ConsumerRecords.empty();
+    }
+
+    @Override
+    @Deprecated
+    public ConsumerRecords<K, V> poll(long timeoutMs) {
+        return poll(Duration.ofMillis(timeoutMs));
+    }
+
+    private Map<TopicPartition, List<ConsumerRecord<K, V>>> fetch() {
+        Map<TopicPartition, List<ConsumerRecord<K, V>>> fetched = new LinkedHashMap<>();
+        List<TopicPartition> partitions = new ArrayList<>(positions.keySet());
+        int remaining = maxPollRecords;
+        // Start at a different partition on every poll so a busy partition cannot starve the others
+        int start = partitions.isEmpty() ? 0 : Math.floorMod(fetchRotation++, partitions.size());
+        for (int i = 0; i < partitions.size() && remaining > 0; i++) {
+            TopicPartition partition = partitions.get((start + i) % partitions.size());
+            if (paused.contains(partition)) {
+                continue;
+            }
+            long position = positions.get(partition);
+            fetchBuffer.clear();
+            long offset = broker.read(partition, position, remaining, fetchBuffer);
+            if (offset > position) {
+                log.warn("Records {}..{} of {} were dropped from the in-memory partition before being consumed",
+                        position, offset - 1, partition);
+            }
+            List<ConsumerRecord<K, V>> records = new ArrayList<>(fetchBuffer.size());
+            for (StoredRecord stored : fetchBuffer) {
+                try {
+                    records.add(toConsumerRecord(partition, offset, stored));
+                } catch (RuntimeException ex) {
+                    if (records.isEmpty() && fetched.isEmpty()) {
+                        positions.put(partition, offset);
+                        throw new RecordDeserializationException(partition, offset,
+                                "Error deserializing record " + partition + "@" + offset, ex);
+                    }
+                    // Return what was read so far, the next poll fails on this record
+                    break;
+                }
+                offset++;
+            }
+            positions.put(partition, offset);
+            if (!records.isEmpty()) {
+                fetched.put(partition, records);
+                remaining -= records.size();
+            }
+            if (records.size() < fetchBuffer.size()) {
+                break;
+            }
+        }
+        return fetched;
+    }
+
+    private ConsumerRecord<K, V> toConsumerRecord(TopicPartition partition, long offset, StoredRecord stored) {
+        Headers headers = new RecordHeaders(stored.getHeaders());
+        K key = keyDeserializer.deserialize(partition.topic(), headers, stored.getKey());
+        V value = valueDeserializer.deserialize(partition.topic(), headers, stored.getValue());
+        return new ConsumerRecord<>(partition.topic(), partition.partition(), offset, stored.getTimestamp(),
+                TimestampType.CREATE_TIME,
+                stored.getKey() != null ? stored.getKey().length : -1,
+                stored.getValue() != null ? stored.getValue().length : -1,
+                key, value, headers, Optional.empty());
+    }
+
+    private void rebalanceIfNeeded() {
+        if (group == null || subscription.isEmpty() || group.generation() == knownGeneration) {
+            return;
+        }
+        knownGeneration = group.generation();
+        List<TopicPartition> assigned = group.assignment(memberId);
+        revokeAll();
+        for (TopicPartition partition : assigned) {
+            positions.put(partition, initialPosition(partition));
+        }
+        if (rebalanceListener != null) {
+            rebalanceListener.onPartitionsAssigned(List.copyOf(assigned));
+        }
+    }
+
+    private void revokeAll() {
+        if (positions.isEmpty()) {
+            return;
+        }
+        if (rebalanceListener != null) {
+            rebalanceListener.onPartitionsRevoked(List.copyOf(positions.keySet()));
+        }
+        positions.clear();
+        paused.clear();
+    }
+
+    private long initialPosition(TopicPartition partition) {
+        OffsetAndMetadata committed = group != null ? group.committed(partition) : null;
+        if (committed != null) {
+            return Math.max(committed.offset(), broker.logStartOffset(partition));
+        }
+        return switch (autoOffsetReset) {
+            case "earliest" -> broker.logStartOffset(partition);
+            case "latest" -> broker.endOffset(partition);
+            default -> throw new NoOffsetForPartitionException(partition);
+        };
+    }
+
+    @Override
+    public void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+        ensureOpen();
+        if (group == null) {
+            throw new InvalidGroupIdException("To use the group management functionality a group.id is required");
+        }
+        subscription = Set.copyOf(topics);
+        rebalanceListener = listener;
+        group.join(memberId, subscription);
+        broker.signalAll();
+    }
+
+    @Override
+    public void subscribe(Collection<String> topics) {
+        subscribe(topics, null);
+    }
+
+    @Override
+    public void subscribe(Pattern pattern, ConsumerRebalanceListener listener) {
+        throw new UnsupportedOperationException("Pattern subscriptions are not supported by the in-memory transport");
+    }
+
+    @Override
+    public void subscribe(Pattern pattern) {
+        subscribe(pattern, null);
+    }
+
+    @Override
+    public void unsubscribe() {
+        revokeAll();
+        if (group != null && !subscription.isEmpty()) {
+            group.leave(memberId);
+            broker.signalAll();
+        }
+        subscription = Set.of();
+        knownGeneration = -1;
+    }
+
+    @Override
+    public void assign(Collection<TopicPartition> partitions) {
+        ensureOpen();
+        positions.keySet().retainAll(partitions);
+        paused.retainAll(partitions);
+        for (TopicPartition partition : partitions) {
+            positions.computeIfAbsent(partition, this::initialPosition);
+        }
+    }
+
+    @Override
+    public Set<TopicPartition> assignment() {
+        return Set.copyOf(positions.keySet());
+    }
+
+    @Override
+    public Set<String> subscription() {
+        return subscription;
+    }
+
+    @Override
+    public void commitSync() {
+        commitSync(Duration.ZERO);
+    }
+
+    @Override
+    public void commitSync(Duration timeout) {
+        commitSync(currentPositions());
+    }
+
+    @Override
+    public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        ensureOpen();
+        if (group == null) {
+            throw new InvalidGroupIdException("To commit offsets a group.id is required");
+        }
+        group.commit(offsets);
+    }
+
+    @Override
+    public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets, Duration timeout) {
+        commitSync(offsets);
+    }
+
+    @Override
+    public void commitAsync() {
+        commitAsync(null);
+    }
+
+    @Override
+    public void commitAsync(OffsetCommitCallback callback) {
+        commitAsync(currentPositions(), callback);
+    }
+
+    @Override
+    public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+        Exception error = null;
+        try {
+            commitSync(offsets);
+        } catch (KafkaException ex) {
+            error = ex;
+        }
+        if (callback != null) {
+            callback.onComplete(offsets, error);
+        }
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> currentPositions() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        positions.forEach((partition, position) -> offsets.put(partition, new OffsetAndMetadata(position)));
+        return offsets;
+    }
+
+    @Override
+    public void seek(TopicPartition partition, long offset) {
+        if (!positions.containsKey(partition)) {
+            throw new IllegalStateException("No current assignment for partition " + partition);
+        }
+        positions.put(partition, offset);
+    }
+
+    @Override
+    public void seek(TopicPartition partition, OffsetAndMetadata offsetAndMetadata) {
+        seek(partition, offsetAndMetadata.offset());
+    }
+
+    @Override
+    public void seekToBeginning(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions.isEmpty() ? assignment() : partitions) {
+            seek(partition, broker.logStartOffset(partition));
+        }
+    }
+
+    @Override
+    public void seekToEnd(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions.isEmpty() ? assignment() : partitions) {
+            seek(partition, broker.endOffset(partition));
+        }
+    }
+
+    @Override
+    public long position(TopicPartition partition) {
+        Long position = positions.get(partition);
+        if (position == null) {
+            throw new IllegalStateException("You can only check the position for partitions assigned to this consumer.");
+        }
+        return position;
+    }
+
+    @Override
+    public long position(TopicPartition partition, Duration timeout) {
+        return position(partition);
+    }
+
+    @Override
+    @Deprecated
+    public OffsetAndMetadata committed(TopicPartition partition) {
+        return group != null ? group.committed(partition) : null;
+    }
+
+    @Override
+    @Deprecated
+    public OffsetAndMetadata committed(TopicPartition partition, Duration timeout) {
+        return committed(partition);
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> committed(Set<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            committed.put(partition, group != null ? group.committed(partition) : null);
+        }
+        return committed;
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> committed(Set<TopicPartition> partitions, Duration timeout) {
+        return committed(partitions);
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+        return Map.of();
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic) {
+        return broker.partitionInfos(topic);
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic, Duration timeout) {
+        return partitionsFor(topic);
+    }
+
+    @Override
+    public Map<String, List<PartitionInfo>> listTopics() {
+        Map<String, List<PartitionInfo>> topics = new HashMap<>();
+        for (String topic : broker.topics()) {
+            topics.put(topic, broker.partitionInfos(topic));
+        }
+        return topics;
+    }
+
+    @Override
+    public Map<String, List<PartitionInfo>> listTopics(Duration timeout) {
+        return listTopics();
+    }
+
+    @Override
+    public Set<TopicPartition> paused() {
+        return Set.copyOf(paused);
+    }
+
+    @Override
+    public void pause(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            if (!positions.containsKey(partition)) {
+                throw new IllegalStateException("No current assignment for partition " + partition);
+            }
+            paused.add(partition);
+        }
+    }
+
+    @Override
+    public void resume(Collection<TopicPartition> partitions) {
+        paused.removeAll(partitions);
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch) {
+        throw new UnsupportedOperationException("Offset lookups by time are not supported by the in-memory transport");
+    }
+
+    @Override
+    public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch,
+                                                                   Duration timeout) {
+        return offsetsForTimes(timestampsToSearch);
+    }
+
+    @Override
+    public Map<TopicPartition, Long> beginningOffsets(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        partitions.forEach(partition -> offsets.put(partition, broker.logStartOffset(partition)));
+        return offsets;
+    }
+
+    @Override
+    public Map<TopicPartition, Long> beginningOffsets(Collection<TopicPartition> partitions, Duration timeout) {
+        return beginningOffsets(partitions);
+    }
+
+    @Override
+    public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        partitions.forEach(partition -> offsets.put(partition, broker.endOffset(partition)));
+        return offsets;
+    }
+
+    @Override
+    public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions, Duration timeout) {
+        return endOffsets(partitions);
+    }
+
+    @Override
+    public OptionalLong currentLag(TopicPartition partition) {
+        Long position = positions.get(partition);
+        return position != null ? OptionalLong.of(broker.endOffset(partition) - position) : OptionalLong.empty();
+    }
+
+    @Override
+    public ConsumerGroupMetadata groupMetadata() {
+        return new ConsumerGroupMetadata(group != null ? group.getGroupId() : "", knownGeneration,
+                memberId, Optional.empty());
+    }
+
+    @Override
+    public void enforceRebalance() {
+        if (group != null) {
+            group.rebalance();
+            broker.signalAll();
+        }
+    }
+
+    @Override
+    public void enforceRebalance(String reason) {
+        enforceRebalance();
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ZERO);
+    }
+
+    @Override
+    public void close(Duration timeout) {
+        if (closed) {
+            return;
+        }
+        try {
+            unsubscribe();
+        } finally {
+            closed = true;
+            keyDeserializer.close();
+            valueDeserializer.close();
+        }
+    }
+
+    @Override
+    public void wakeup() {
+        wakeupRequested = true;
+        broker.signalAll();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("This consumer has already been closed.");
+        }
+    }
+}
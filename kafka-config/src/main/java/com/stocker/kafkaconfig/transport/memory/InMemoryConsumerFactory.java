@@ -0,0 +1,58 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Consumer factory creating {@link InMemoryConsumer}s.
+ * Group id, client id and the properties of a {@code @KafkaListener} override the base
+ * configuration as with {@code DefaultKafkaConsumerFactory}. The consumers never auto-commit.
+ */
+public class InMemoryConsumerFactory<K, V> implements ConsumerFactory<K, V> {
+
+    private final InMemoryBroker broker;
+    private final Map<String, Object> configs;
+
+    public InMemoryConsumerFactory(InMemoryBroker broker, Map<String, Object> configs) {
+        this.broker = broker;
+        this.configs = new HashMap<>(configs);
+    }
+
+    @Override
+    public Consumer<K, V> createConsumer(String groupId, String clientIdPrefix, String clientIdSuffix) {
+        return createConsumer(groupId, clientIdPrefix, clientIdSuffix, null);
+    }
+
+    @Override
+    public Consumer<K, V> createConsumer(String groupId, String clientIdPrefix, String clientIdSuffix,
+                                         Properties properties) {
+        Map<String, Object> consumerConfigs = new HashMap<>(configs);
+        if (properties != null) {
+            properties.stringPropertyNames().forEach(name -> consumerConfigs.put(name, properties.getProperty(name)));
+        }
+        if (groupId != null) {
+            consumerConfigs.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        }
+        if (clientIdPrefix != null) {
+            consumerConfigs.put(ConsumerConfig.CLIENT_ID_CONFIG,
+                    clientIdPrefix + (clientIdSuffix != null ? clientIdSuffix : ""));
+        }
+        return new InMemoryConsumer<>(broker, consumerConfigs);
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return false;
+    }
+
+    @Override
+    public Map<String, Object> getConfigurationProperties() {
+        return Collections.unmodifiableMap(configs);
+    }
+}
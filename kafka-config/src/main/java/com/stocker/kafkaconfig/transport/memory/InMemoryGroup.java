@@ -0,0 +1,97 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * A consumer group of the in-memory transport.
+ * Holds the committed offsets and splits the partitions of each subscribed topic into contiguous
+ * ranges over the members subscribed to it, in join order, like Kafka's range assignor: members
+ * subscribed to co-partitioned topics get the same partition numbers of each. Every join or leave
+ * starts a new generation, which members pick up at their next poll.
+ */
+public class InMemoryGroup {
+
+    private final String groupId;
+    private final ToIntFunction<String> partitionCount;
+    private final Map<TopicPartition, OffsetAndMetadata> committed = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> members = new LinkedHashMap<>();
+    private Map<String, List<TopicPartition>> assignments = Map.of();
+    private int generation;
+
+    InMemoryGroup(String groupId, ToIntFunction<String> partitionCount) {
+        this.groupId = groupId;
+        this.partitionCount = partitionCount;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public synchronized void join(String memberId, Set<String> topics) {
+        members.put(memberId, Set.copyOf(topics));
+        rebalance();
+    }
+
+    public synchronized void leave(String memberId) {
+        if (members.remove(memberId) != null) {
+            rebalance();
+        }
+    }
+
+    public synchronized int generation() {
+        return generation;
+    }
+
+    public synchronized List<TopicPartition> assignment(String memberId) {
+        return assignments.getOrDefault(memberId, List.of());
+    }
+
+    public void commit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        committed.putAll(offsets);
+    }
+
+    public OffsetAndMetadata committed(TopicPartition topicPartition) {
+        return committed.get(topicPartition);
+    }
+
+    /**
+     * Recompute the assignment and start a new generation.
+     */
+    public synchronized void rebalance() {
+        Map<String, List<TopicPartition>> next = new HashMap<>();
+        Set<String> topics = new TreeSet<>();
+        for (Map.Entry<String, Set<String>> member : members.entrySet()) {
+            next.put(member.getKey(), new ArrayList<>());
+            topics.addAll(member.getValue());
+        }
+        for (String topic : topics) {
+            List<String> subscribed = members.entrySet().stream()
+                    .filter(member -> member.getValue().contains(topic))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            int partitions = partitionCount.applyAsInt(topic);
+            int perMember = partitions / subscribed.size();
+            int extra = partitions % subscribed.size();
+            int partition = 0;
+            for (int i = 0; i < subscribed.size(); i++) {
+                List<TopicPartition> assigned = next.get(subscribed.get(i));
+                for (int count = perMember + (i < extra ? 1 : 0); count > 0; count--) {
+                    assigned.add(new TopicPartition(topic, partition++));
+                }
+            }
+        }
+        assignments = next;
+        generation++;
+    }
+}
@@ -0,0 +1,52 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import java.util.List;
+
+/**
+ * A partition of the in-memory transport: a fixed-size ring buffer indexed by offset.
+ * Appends take the partition's lock, so producers of one partition are serialized and offsets
+ * are assigned in append order.
+ */
+class InMemoryPartition {
+
+    private final StoredRecord[] ring;
+    private final int mask;
+    private long endOffset;
+
+    InMemoryPartition(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new StoredRecord[size];
+        this.mask = size - 1;
+    }
+
+    synchronized long append(StoredRecord record) {
+        long offset = endOffset++;
+        ring[(int) (offset & mask)] = record;
+        return offset;
+    }
+
+    /**
+     * Copy records into {@code out}, starting at {@code offset} or at the oldest record still held.
+     *
+     * @return the offset of the first record copied
+     */
+    synchronized long read(long offset, int maxRecords, List<StoredRecord> out) {
+        long from = Math.max(offset, logStartOffset());
+        long to = Math.min(endOffset, from + maxRecords);
+        for (long next = from; next < to; next++) {
+            out.add(ring[(int) (next & mask)]);
+        }
+        return from;
+    }
+
+    synchronized long logStartOffset() {
+        return Math.max(0, endOffset - ring.length);
+    }
+
+    synchronized long endOffset() {
+        return endOffset;
+    }
+}
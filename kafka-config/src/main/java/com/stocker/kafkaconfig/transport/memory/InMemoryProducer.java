@@ -0,0 +1,163 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Producer of the in-memory transport.
+ * Records are serialized and partitioned with the configured serializers and partitioner, then
+ * appended to the partition before {@code send} returns, so the returned future is already
+ * complete. The producer is thread-safe and holds nothing but the broker reference, so one
+ * instance is shared and {@code close} has no effect. Transactions are not supported.
+ */
+public class InMemoryProducer<K, V> implements Producer<K, V> {
+
+    private final InMemoryBroker broker;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final Partitioner partitioner;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    public InMemoryProducer(InMemoryBroker broker, Map<String, Object> configs) {
+        this.broker = broker;
+        this.keySerializer = ClientConfigs.instance(configs, ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, Serializer.class);
+        this.valueSerializer = ClientConfigs.instance(configs, ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, Serializer.class);
+        this.keySerializer.configure(configs, true);
+        this.valueSerializer.configure(configs, false);
+        this.partitioner = ClientConfigs.instance(configs, ProducerConfig.PARTITIONER_CLASS_CONFIG, Partitioner.class);
+        if (partitioner != null) {
+            partitioner.configure(configs);
+        }
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<K, V> record) {
+        return send(record, null);
+    }
+
+    @Override
+    public Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+        String topic = record.topic();
+        Headers headers = new RecordHeaders(record.headers().toArray());
+        byte[] key;
+        byte[] value;
+        try {
+            key = keySerializer.serialize(topic, headers, record.key());
+            value = valueSerializer.serialize(topic, headers, record.value());
+        } catch (RuntimeException ex) {
+            // Thrown to the caller like the Kafka producer does
+            throw ex instanceof SerializationException ? ex : new SerializationException(ex.getMessage(), ex);
+        }
+        int partition = record.partition() != null ? record.partition() : partition(record, key, value);
+        long timestamp = record.timestamp() != null ? record.timestamp() : System.currentTimeMillis();
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        long offset = broker.append(topicPartition, new StoredRecord(timestamp, key, value, headers.toArray()));
+        RecordMetadata metadata = new RecordMetadata(topicPartition, offset, 0, timestamp,
+                key != null ? key.length : -1, value != null ? value.length : -1);
+        if (callback != null) {
+            callback.onCompletion(metadata, null);
+        }
+        return CompletableFuture.completedFuture(metadata);
+    }
+
+    @SuppressWarnings("deprecation")
+    private int partition(ProducerRecord<K, V> record, byte[] key, byte[] value) {
+        String topic = record.topic();
+        if (partitioner != null) {
+            Cluster cluster = broker.cluster(topic);
+            int partition = partitioner.partition(topic, record.key(), key, record.value(), value, cluster);
+            if (key == null) {
+                // Every send is a batch of its own here, so sticky partitioners move on after each record
+                partitioner.onNewBatch(topic, cluster, partition);
+            }
+            return partition;
+        }
+        int partitions = broker.partitionCount(topic);
+        return key != null
+                ? Utils.toPositive(Utils.murmur2(key)) % partitions
+                : Utils.toPositive(roundRobin.getAndIncrement()) % partitions;
+    }
+
+    @Override
+    public void flush() {
+        // Records are appended when sent
+    }
+
+    @Override
+    public List<PartitionInfo> partitionsFor(String topic) {
+        return broker.partitionInfos(topic);
+    }
+
+    @Override
+    public Map<MetricName, ? extends Metric> metrics() {
+        return Map.of();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void close(Duration timeout) {
+    }
+
+    @Override
+    public void initTransactions() {
+        throw transactionsNotSupported();
+    }
+
+    @Override
+    public void beginTransaction() {
+        throw transactionsNotSupported();
+    }
+
+    @Override
+    @Deprecated
+    public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets, String consumerGroupId) {
+        throw transactionsNotSupported();
+    }
+
+    @Override
+    public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                         ConsumerGroupMetadata groupMetadata) {
+        throw transactionsNotSupported();
+    }
+
+    @Override
+    public void commitTransaction() {
+        throw transactionsNotSupported();
+    }
+
+    @Override
+    public void abortTransaction() {
+        throw transactionsNotSupported();
+    }
+
+    private static UnsupportedOperationException transactionsNotSupported() {
+        return new UnsupportedOperationException("Transactions are not supported by the in-memory transport");
+    }
+}
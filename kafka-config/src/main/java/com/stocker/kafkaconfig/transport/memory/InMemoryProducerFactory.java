@@ -0,0 +1,32 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Producer factory handing out one shared {@link InMemoryProducer}.
+ */
+public class InMemoryProducerFactory<K, V> implements ProducerFactory<K, V> {
+
+    private final Map<String, Object> configs;
+    private final InMemoryProducer<K, V> producer;
+
+    public InMemoryProducerFactory(InMemoryBroker broker, Map<String, Object> configs) {
+        this.configs = new HashMap<>(configs);
+        this.producer = new InMemoryProducer<>(broker, this.configs);
+    }
+
+    @Override
+    public Producer<K, V> createProducer() {
+        return producer;
+    }
+
+    @Override
+    public Map<String, Object> getConfigurationProperties() {
+        return Collections.unmodifiableMap(configs);
+    }
+}
@@ -0,0 +1,62 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import com.stocker.kafkaconfig.transport.EventTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+
+import java.util.Map;
+
+/**
+ * Transport keeping every topic inside the JVM, selected with {@code kafka.transport=in-memory}.
+ * Producers and consumers use the configured serializers, deserializers and partitioner, so
+ * records are keyed, partitioned, ordered, routed and committed as with Kafka, without a broker.
+ * Intended for benchmarks and for running services together in one JVM; records are lost when
+ * the JVM stops. Every Spring context in the JVM with the same
+ * {@code kafka.transport.in-memory.broker} name uses the same {@link InMemoryBroker}.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.transport", havingValue = "in-memory")
+@Slf4j
+public class InMemoryTransport implements EventTransport {
+
+    private final InMemoryBroker broker;
+
+    public InMemoryTransport(@Value("${kafka.transport.in-memory.broker:default}") String brokerName,
+                             @Value("${kafka.topics.partitions:3}") int partitions,
+                             @Value("${kafka.transport.in-memory.partition-capacity:65536}") int partitionCapacity) {
+        this.broker = InMemoryBroker.shared(brokerName, partitions, partitionCapacity);
+        log.info("Using the in-memory event transport with broker {} and {} partitions per topic",
+                brokerName, partitions);
+    }
+
+    public InMemoryBroker getBroker() {
+        return broker;
+    }
+
+    @Override
+    public ProducerFactory<String, Object> producerFactory(Map<String, Object> configs) {
+        return new InMemoryProducerFactory<>(broker, configs);
+    }
+
+    @Override
+    public ConsumerFactory<String, Object> consumerFactory(Map<String, Object> configs) {
+        return new InMemoryConsumerFactory<>(broker, configs);
+    }
+
+    @Override
+    public KafkaReceiver<String, Object> receiver(ReceiverOptions<String, Object> options) {
+        return KafkaReceiver.create(new reactor.kafka.receiver.internals.ConsumerFactory() {
+            @Override
+            public <K, V> Consumer<K, V> createConsumer(ReceiverOptions<K, V> config) {
+                return new InMemoryConsumer<>(broker, config.consumerProperties());
+            }
+        }, options);
+    }
+}
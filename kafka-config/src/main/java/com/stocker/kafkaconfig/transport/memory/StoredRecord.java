@@ -0,0 +1,16 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import lombok.Value;
+import org.apache.kafka.common.header.Header;
+
+/**
+ * A record as held by the in-memory transport, serialized like on a broker.
+ * Its offset is its position in the partition.
+ */
+@Value
+public class StoredRecord {
+    long timestamp;
+    byte[] key;
+    byte[] value;
+    Header[] headers;
+}
@@ -0,0 +1,217 @@
+package com.stocker.kafkaconfig.codec;
+
+import com.stocker.common.events.cart.CartCreatedEvent;
+import com.stocker.common.events.cart.ItemAddedToCartEvent;
+import com.stocker.common.events.cart.ItemRemovedFromCartEvent;
+import com.stocker.common.events.delivery.OrderDeliveredEvent;
+import com.stocker.common.events.dispatch.OrderDispatchedEvent;
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.models.Order.OrderStatus;
+import com.stocker.common.models.OrderItem;
+import com.stocker.common.models.Payment.PaymentMethod;
+import com.stocker.common.models.Payment.PaymentStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Encodes and decodes every event type, and reads events written with older schema versions.
+ */
+class BinaryEventCodecTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 3, 14, 9, 26, 53, 589_793_238);
+
+    private final BinaryEventCodec codec =
+            new BinaryEventCodec(EventSchemaRegistry.load(BinaryEventCodecTest.class.getClassLoader()));
+
+    static Stream<Object> populatedEvents() {
+        return Stream.of(
+                CartCreatedEvent.builder().cartId("cart-1").userId("user-1").build(),
+                ItemAddedToCartEvent.builder()
+                        .cartId("cart-1")
+                        .cartItemId("item-1")
+                        .productId("product-1")
+                        .productName("Widget")
+                        .quantity(3)
+                        .unitPrice(new BigDecimal("19.90"))
+                        .subtotal(new BigDecimal("59.70"))
+                        .build(),
+                ItemRemovedFromCartEvent.builder().cartId("cart-1").cartItemId("item-1").productId("product-1").build(),
+                OrderCreatedEvent.builder()
+                        .orderId("order-1")
+                        .userId("user-1")
+                        .cartId("cart-1")
+                        .items(List.of(orderItem("order-item-1", 2), orderItem("order-item-2", 1)))
+                        .totalAmount(new BigDecimal("59.70"))
+                        .shippingAddress("1 Main Street")
+                        .createdAt(AT)
+                        .build(),
+                OrderStatusUpdatedEvent.builder()
+                        .orderId("order-1")
+                        .previousStatus(OrderStatus.CREATED)
+                        .newStatus(OrderStatus.CANCELLED)
+                        .reason("Payment timed out")
+                        .updatedAt(AT)
+                        .build(),
+                PaymentProcessedEvent.builder()
+                        .paymentId("payment-1")
+                        .orderId("order-1")
+                        .userId("user-1")
+                        .amount(new BigDecimal("59.70"))
+                        .status(PaymentStatus.COMPLETED)
+                        .paymentMethod(PaymentMethod.CREDIT_CARD)
+                        .transactionId("tx-1")
+                        .processedAt(AT)
+                        .build(),
+                OrderDispatchedEvent.builder()
+                        .dispatchId("dispatch-1")
+                        .orderId("order-1")
+                        .shippingAddress("1 Main Street")
+                        .trackingNumber("TRK-1")
+                        .carrier("Carrier")
+                        .dispatchedAt(AT)
+                        .estimatedDeliveryDate(AT.plusDays(3))
+                        .build(),
+                OrderDeliveredEvent.builder()
+                        .deliveryId("delivery-1")
+                        .dispatchId("dispatch-1")
+                        .orderId("order-1")
+                        .trackingNumber("TRK-1")
+                        .deliveryAddress("1 Main Street")
+                        .receiverName("Receiver")
+                        .deliveryNotes("Left at the door")
+                        .deliveredAt(AT)
+                        .build());
+    }
+
+    static Stream<Object> emptyEvents() {
+        return Stream.of(
+                new CartCreatedEvent(),
+                new ItemAddedToCartEvent(),
+                new ItemRemovedFromCartEvent(),
+                new OrderCreatedEvent(),
+                OrderCreatedEvent.builder().orderId("order-1").items(List.of(new OrderItem())).build(),
+                new OrderStatusUpdatedEvent(),
+                new PaymentProcessedEvent(),
+                new OrderDispatchedEvent(),
+                new OrderDeliveredEvent());
+    }
+
+    @ParameterizedTest
+    @MethodSource("populatedEvents")
+    void populatedEventRoundTrips(Object event) {
+        assertThat(codec.supports(event)).isTrue();
+
+        byte[] encoded = codec.encode(event);
+
+        assertThat(BinaryEventCodec.isBinary(encoded)).isTrue();
+        assertThat(codec.decode(encoded)).isEqualTo(event);
+    }
+
+    @ParameterizedTest
+    @MethodSource("emptyEvents")
+    void eventWithNullFieldsRoundTrips(Object event) {
+        assertThat(codec.decode(codec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void decimalsKeepTheirScale() {
+        ItemAddedToCartEvent event = ItemAddedToCartEvent.builder().unitPrice(new BigDecimal("5.000")).build();
+
+        ItemAddedToCartEvent decoded = (ItemAddedToCartEvent) codec.decode(codec.encode(event));
+
+        assertThat(decoded.getUnitPrice().scale()).isEqualTo(3);
+    }
+
+    @Test
+    void eventWrittenWithAnOlderVersionIsReadWithAppendedFieldsUnset() {
+        BinaryEventCodec v1 = new BinaryEventCodec(EventSchemaRegistry.load(schemasFrom("codec/evolution-v1.properties")));
+        BinaryEventCodec v2 = new BinaryEventCodec(EventSchemaRegistry.load(schemasFrom("codec/evolution-v2.properties")));
+        EvolvingEvent event = new EvolvingEvent();
+        event.setId("evolving-1");
+        event.setAmount(new BigDecimal("12.50"));
+        event.setNote("appended in v2");
+        event.setQuantity(7);
+
+        EvolvingEvent decoded = (EvolvingEvent) v2.decode(v1.encode(event));
+
+        assertThat(decoded.getId()).isEqualTo("evolving-1");
+        assertThat(decoded.getAmount()).isEqualTo(new BigDecimal("12.50"));
+        assertThat(decoded.getNote()).isNull();
+        assertThat(decoded.getQuantity()).isNull();
+        assertThat(v2.decode(v2.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void eventWrittenWithAnUnknownVersionIsRejected() {
+        BinaryEventCodec v1 = new BinaryEventCodec(EventSchemaRegistry.load(schemasFrom("codec/evolution-v1.properties")));
+        BinaryEventCodec v2 = new BinaryEventCodec(EventSchemaRegistry.load(schemasFrom("codec/evolution-v2.properties")));
+        EvolvingEvent event = new EvolvingEvent();
+        event.setId("evolving-1");
+
+        byte[] encoded = v2.encode(event);
+
+        assertThatThrownBy(() -> v1.decode(encoded)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void nonBinaryDataIsRejected() {
+        byte[] json = "{\"orderId\":\"order-1\"}".getBytes();
+
+        assertThat(BinaryEventCodec.isBinary(json)).isFalse();
+        assertThatThrownBy(() -> codec.decode(json)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OrderItem orderItem(String orderItemId, int quantity) {
+        return OrderItem.builder()
+                .orderItemId(orderItemId)
+                .orderId("order-1")
+                .productId("product-" + orderItemId)
+                .productName("Widget")
+                .quantity(quantity)
+                .unitPrice(new BigDecimal("19.90"))
+                .subtotal(new BigDecimal("19.90").multiply(BigDecimal.valueOf(quantity)))
+                .build();
+    }
+
+    /**
+     * Class loader whose only schema file is the given test resource.
+     */
+    private static ClassLoader schemasFrom(String resource) {
+        ClassLoader parent = BinaryEventCodecTest.class.getClassLoader();
+        return new ClassLoader(parent) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                if (!EventSchemaRegistry.RESOURCE.equals(name)) {
+                    return super.getResources(name);
+                }
+                return Collections.enumeration(List.of(parent.getResource(resource)));
+            }
+        };
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class EvolvingEvent {
+        private String id;
+        private BigDecimal amount;
+        private String note;
+        private Integer quantity;
+    }
+}
@@ -0,0 +1,126 @@
+package com.stocker.kafkaconfig.consumer;
+
+import com.stocker.kafkaconfig.metrics.KafkaMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the records of one key in submission order and the records of different keys in parallel.
+ */
+class KeyOrderedExecutorTest {
+
+    private static final String TOPIC = "order-events";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final KeyOrderedExecutor executor =
+            new KeyOrderedExecutor(4, 4, new OffsetCommitManager(), new KafkaMetrics(new SimpleMeterRegistry()));
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void recordsOfOneKeyRunInSubmissionOrder() {
+        List<ConsumerRecord<String, String>> records = interleaved(8, 50);
+        Map<String, List<Long>> handled = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        executor.execute(records, record -> Mono.fromRunnable(() -> {
+            AtomicInteger running = inFlight.computeIfAbsent(record.key(), key -> new AtomicInteger());
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            // Uneven handling times would reorder the records of a key if they were not serialized
+            sleep(record.offset() % 3);
+            handled.computeIfAbsent(record.key(), key -> new CopyOnWriteArrayList<>()).add(record.offset());
+            running.decrementAndGet();
+        })).block(TIMEOUT);
+
+        assertThat(overlaps).hasValue(0);
+        assertThat(handled).hasSize(8);
+        handled.forEach((key, offsets) -> assertThat(offsets)
+                .hasSize(50)
+                .isSortedAccordingTo(Long::compare));
+    }
+
+    @Test
+    void recordsOfDifferentKeysRunInParallel() {
+        List<ConsumerRecord<String, String>> records = interleaved(4, 1);
+        CountDownLatch allStarted = new CountDownLatch(4);
+        List<Boolean> metOthers = new CopyOnWriteArrayList<>();
+
+        // Each handler waits for the others to start, which only succeeds if all four run at once
+        executor.execute(records, record -> Mono.fromRunnable(() -> {
+            allStarted.countDown();
+            metOthers.add(await(allStarted));
+        })).block(TIMEOUT);
+
+        assertThat(metOthers).hasSize(4).containsOnly(true);
+    }
+
+    @Test
+    void failedRecordDoesNotStopTheRestOfItsKey() {
+        List<ConsumerRecord<String, String>> records = interleaved(1, 3);
+        List<Long> handled = new CopyOnWriteArrayList<>();
+
+        executor.execute(records, record -> record.offset() == 0
+                ? Mono.error(new IllegalStateException("Handler failed"))
+                : Mono.fromRunnable(() -> handled.add(record.offset()))).block(TIMEOUT);
+
+        assertThat(handled).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void parallelismIsBoundedByTheMaximum() {
+        executor.setParallelism(100);
+        assertThat(executor.getParallelism()).isEqualTo(4);
+
+        executor.setParallelism(0);
+        assertThat(executor.getParallelism()).isEqualTo(1);
+    }
+
+    /**
+     * Records of {@code keys} keys on one partition, the keys taking turns.
+     */
+    private static List<ConsumerRecord<String, String>> interleaved(int keys, int perKey) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        LongStream.range(0, (long) keys * perKey).forEach(offset -> records.add(
+                new ConsumerRecord<>(TOPIC, 0, offset, "order-" + offset % keys, "event-" + offset)));
+        return records;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.stocker.kafkaconfig.transport.memory;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exchanges records between Spring contexts of one JVM over the in-memory transport.
+ */
+class InMemoryTransportTest {
+
+    private static final String TOPIC = "order-events";
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(InMemoryTransport.class)
+            .withPropertyValues("kafka.transport=in-memory", "kafka.transport.in-memory.broker=round-trip");
+
+    @Test
+    void recordSentInOneContextIsReceivedInAnother() {
+        runner.run(producerContext -> runner.run(consumerContext -> {
+            InMemoryTransport sending = producerContext.getBean(InMemoryTransport.class);
+            InMemoryTransport receiving = consumerContext.getBean(InMemoryTransport.class);
+            assertThat(receiving.getBroker()).isSameAs(sending.getBroker());
+
+            try (Consumer<String, Object> consumer = receiving.consumerFactory(Map.of(
+                    ConsumerConfig.GROUP_ID_CONFIG, "round-trip-group",
+                    ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                    ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                    ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class)).createConsumer()) {
+                consumer.subscribe(List.of(TOPIC));
+
+                Producer<String, Object> producer = sending.producerFactory(Map.of(
+                        ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                        ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class)).createProducer();
+                producer.send(new ProducerRecord<>(TOPIC, "order-1", "created")).get();
+
+                List<ConsumerRecord<String, Object>> received = new ArrayList<>();
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (received.isEmpty() && System.nanoTime() < deadline) {
+                    consumer.poll(Duration.ofMillis(100)).forEach(received::add);
+                }
+
+                assertThat(received).singleElement().satisfies(record -> {
+                    assertThat(record.key()).isEqualTo("order-1");
+                    assertThat(record.value()).isEqualTo("created");
+                });
+            }
+        }));
+    }
+
+    @Test
+    void contextsWithOtherBrokerNamesAreIsolated() {
+        runner.run(first -> runner.withPropertyValues("kafka.transport.in-memory.broker=isolated")
+                .run(second -> assertThat(second.getBean(InMemoryTransport.class).getBroker())
+                        .isNotSameAs(first.getBean(InMemoryTransport.class).getBroker())));
+    }
+
+    @Test
+    void sharedBrokerRejectsOtherSettings() {
+        InMemoryBroker.shared("settings", 3, 16);
+
+        assertThat(InMemoryBroker.shared("settings", 3, 16)).isSameAs(InMemoryBroker.shared("settings", 3, 16));
+        assertThatThrownBy(() -> InMemoryBroker.shared("settings", 6, 16))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -1,11 +1,21 @@
 package com.stocker.orderservice;
 
+import com.stocker.common.axon.AggregateCacheConfig;
+import com.stocker.common.axon.EventProcessingConfig;
+import com.stocker.common.axon.command.CommandBusConfig;
+import com.stocker.common.axon.deadline.DeadlineConfig;
+import com.stocker.common.axon.eventstore.EventStoreConfig;
+import com.stocker.common.axon.saga.SagaStoreConfig;
+import com.stocker.common.axon.serialization.SerializerConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @SpringBootApplication
+@Import({AggregateCacheConfig.class, CommandBusConfig.class, EventProcessingConfig.class,
+        SerializerConfig.class, EventStoreConfig.class, SagaStoreConfig.class, DeadlineConfig.class})
 public class OrderServiceApplication {
 
     public static void main(String[] args) {
@@ -1,9 +1,11 @@
 package com.stocker.orderservice.domain;
 
 import com.stocker.common.commands.order.CreateOrderCommand;
+import com.stocker.common.commands.order.TimeOutOrderCommand;
 import com.stocker.common.commands.order.UpdateOrderStatusCommand;
 import com.stocker.common.events.order.OrderCreatedEvent;
 import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.order.OrderTimedOutEvent;
 import com.stocker.common.models.OrderItem;
 import lombok.NoArgsConstructor;
 import org.axonframework.commandhandling.CommandHandler;
@@ -13,14 +15,19 @@ import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.spring.stereotype.Aggregate;
 
 import java.math.BigDecimal;
-import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
-@Aggregate
+@Aggregate(cache = "aggregateCache")
 @NoArgsConstructor
 public class Order {
 
+    private static final Set<OrderStatus> TERMINAL_STATUSES =
+            EnumSet.of(OrderStatus.PAYMENT_FAILED, OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
     @AggregateIdentifier
     private String orderId;
     private String userId;
@@ -29,21 +36,20 @@ public class Order {
     private BigDecimal totalAmount;
     private String shippingAddress;
     private OrderStatus status;
-    private Instant createdAt;
-    private Instant updatedAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 
     @CommandHandler
     public Order(CreateOrderCommand command) {
-        AggregateLifecycle.apply(new OrderCreatedEvent(
-                command.getOrderId(),
-                command.getUserId(),
-                command.getCartId(),
-                command.getItems(),
-                command.getTotalAmount(),
-                command.getShippingAddress(),
-                OrderStatus.CREATED.toString(),
-                Instant.now()
-        ));
+        AggregateLifecycle.apply(OrderCreatedEvent.builder()
+                .orderId(command.getOrderId())
+                .userId(command.getUserId())
+                .cartId(command.getCartId())
+                .items(command.getItems())
+                .totalAmount(command.getTotalAmount())
+                .shippingAddress(command.getShippingAddress())
+                .createdAt(LocalDateTime.now())
+                .build());
     }
 
     @EventSourcingHandler
@@ -51,26 +57,44 @@ public class Order {
         this.orderId = event.getOrderId();
         this.userId = event.getUserId();
         this.cartId = event.getCartId();
-        this.items = new ArrayList<>(event.getItems());
+        this.items = event.getItems() != null ? new ArrayList<>(event.getItems()) : new ArrayList<>();
         this.totalAmount = event.getTotalAmount();
         this.shippingAddress = event.getShippingAddress();
-        this.status = OrderStatus.valueOf(event.getStatus());
+        this.status = OrderStatus.CREATED;
         this.createdAt = event.getCreatedAt();
         this.updatedAt = event.getCreatedAt();
     }
 
     @CommandHandler
     public void handle(UpdateOrderStatusCommand command) {
-        AggregateLifecycle.apply(new OrderStatusUpdatedEvent(
-                command.getOrderId(),
-                command.getStatus(),
-                Instant.now()
-        ));
+        AggregateLifecycle.apply(OrderStatusUpdatedEvent.builder()
+                .orderId(orderId)
+                .previousStatus(status != null ? com.stocker.common.models.Order.OrderStatus.valueOf(status.name()) : null)
+                .newStatus(command.getStatus())
+                .reason(command.getReason())
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Give up on an order that stopped making progress; its saga compensates and sets the status.
+     * Orders that already finished are left alone.
+     */
+    @CommandHandler
+    public void handle(TimeOutOrderCommand command) {
+        if (TERMINAL_STATUSES.contains(status)) {
+            return;
+        }
+        AggregateLifecycle.apply(OrderTimedOutEvent.builder()
+                .orderId(orderId)
+                .reason(command.getReason())
+                .timedOutAt(LocalDateTime.now())
+                .build());
     }
 
     @EventSourcingHandler
     public void on(OrderStatusUpdatedEvent event) {
-        this.status = OrderStatus.valueOf(event.getStatus());
+        this.status = OrderStatus.valueOf(event.getNewStatus().name());
         this.updatedAt = event.getUpdatedAt();
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ public enum OrderStatus {
     PAYMENT_FAILED,
     PROCESSING,
     DISPATCHED,
+    IN_TRANSIT,
     DISPATCH_FAILED,       // New status for dispatch failure
     DELIVERY_FAILED,       // New status for delivery failure
     DELIVERED,
@@ -2,46 +2,124 @@ package com.stocker.orderservice.kafka;
 
 import com.stocker.common.commands.order.UpdateOrderStatusCommand;
 import com.stocker.common.events.delivery.OrderDeliveredEvent;
+import com.stocker.common.events.dispatch.OrderDispatchedEvent;
+import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.models.Payment.PaymentStatus;
+import com.stocker.kafkaconfig.consumer.ReactiveKafkaReceivers;
+import com.stocker.kafkaconfig.retry.RetryTopicRouter;
 import com.stocker.orderservice.domain.OrderStatus;
 import com.stocker.orderservice.service.OrderService;
+import com.stocker.orderservice.service.dto.OrderDTO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 /**
  * Kafka consumer for order-related events.
  * This class is responsible for consuming events from Kafka topics and processing them.
+ * Only active with {@code orchestration.mode=choreography}, where it moves the order through
+ * its steps from the other services' events: paid or payment failed, dispatched and delivered.
+ * In saga mode the {@code OrderSaga} does this.
  */
 @Component
+@ConditionalOnProperty(name = "orchestration.mode", havingValue = "choreography")
 @RequiredArgsConstructor
 @Slf4j
 public class OrderEventConsumer {
 
+    private static final String CONSUMER_GROUP = "order-service-group";
+
+    private static final List<String> TOPICS = List.of("payment-events", "dispatch-events", "delivery-events");
+
     private final OrderService orderService;
+    private final ReactiveKafkaReceivers reactiveKafkaReceivers;
+    private final RetryTopicRouter retryTopicRouter;
 
     /**
-     * Listen for OrderDeliveredEvent from the delivery-events topic.
+     * Start the reactive receiver for the payment-events, dispatch-events and delivery-events topics.
+     * Records are fetched only as fast as order updates complete, and offsets are committed
+     * once the update for a record has finished. Failed updates are retried through
+     * the retry topics of each topic.
+     */
+    @PostConstruct
+    public void start() {
+        reactiveKafkaReceivers.start(CONSUMER_GROUP, TOPICS,
+                record -> retryTopicRouter.withRetry(CONSUMER_GROUP, record, this::handleRecord));
+        TOPICS.forEach(topic -> retryTopicRouter.startRetryReceivers(CONSUMER_GROUP, topic, this::handleRecord));
+    }
+
+    private Mono<OrderDTO> handleRecord(ConsumerRecord<String, Object> record) {
+        Object value = record.value();
+        if (value instanceof PaymentProcessedEvent event) {
+            return handlePaymentProcessedEvent(event);
+        }
+        if (value instanceof OrderDispatchedEvent event) {
+            return handleOrderDispatchedEvent(event);
+        }
+        if (value instanceof OrderDeliveredEvent event) {
+            return handleOrderDeliveredEvent(event);
+        }
+        return Mono.empty();
+    }
+
+    /**
+     * Handle PaymentProcessedEvent from the payment-events topic.
+     * A completed payment moves the order to PAID, a failed one to PAYMENT_FAILED.
+     *
+     * @param event The PaymentProcessedEvent received from Kafka
+     * @return Mono that completes when the order status has been updated
+     */
+    public Mono<OrderDTO> handlePaymentProcessedEvent(PaymentProcessedEvent event) {
+        log.info("Received PaymentProcessedEvent from Kafka: {}", event);
+
+        OrderStatus status;
+        if (event.getStatus() == PaymentStatus.COMPLETED) {
+            status = OrderStatus.PAID;
+        } else if (event.getStatus() == PaymentStatus.FAILED) {
+            status = OrderStatus.PAYMENT_FAILED;
+        } else {
+            log.info("Payment {} of order {} is {}, no update needed",
+                    event.getPaymentId(), event.getOrderId(), event.getStatus());
+            return Mono.empty();
+        }
+        return updateStatus(event.getOrderId(), status);
+    }
+
+    /**
+     * Handle OrderDispatchedEvent from the dispatch-events topic.
+     * When an order is dispatched, update the order status to DISPATCHED.
+     *
+     * @param event The OrderDispatchedEvent received from Kafka
+     * @return Mono that completes when the order status has been updated
+     */
+    public Mono<OrderDTO> handleOrderDispatchedEvent(OrderDispatchedEvent event) {
+        log.info("Received OrderDispatchedEvent from Kafka: {}", event);
+        return updateStatus(event.getOrderId(), OrderStatus.DISPATCHED);
+    }
+
+    /**
+     * Handle OrderDeliveredEvent from the delivery-events topic.
      * When an order is delivered, update the order status to DELIVERED.
      *
      * @param event The OrderDeliveredEvent received from Kafka
+     * @return Mono that completes when the order status has been updated
      */
-    @KafkaListener(topics = "delivery-events", groupId = "order-service-group")
-    public void handleOrderDeliveredEvent(@Payload OrderDeliveredEvent event) {
+    public Mono<OrderDTO> handleOrderDeliveredEvent(OrderDeliveredEvent event) {
         log.info("Received OrderDeliveredEvent from Kafka: {}", event);
         
-        if ("DELIVERED".equals(event.getStatus())) {
-            log.info("Order delivered: {}, updating order status", event.getOrderId());
-            
-            // Update the order status to DELIVERED
-            orderService.updateOrderStatus(event.getOrderId(), OrderStatus.DELIVERED.name())
-                .subscribe(
-                    order -> log.info("Order status updated to DELIVERED: {}", order),
-                    error -> log.error("Error updating order status: {}", error.getMessage())
-                );
-        } else {
-            log.info("Order not delivered properly, status: {}, no update needed", event.getStatus());
-        }
+        // The event is only published once the delivery has been completed
+        return updateStatus(event.getOrderId(), OrderStatus.DELIVERED);
+    }
+
+    private Mono<OrderDTO> updateStatus(String orderId, OrderStatus status) {
+        return orderService.updateOrderStatus(orderId, status)
+                .doOnSuccess(order -> log.info("Order status updated to {}: {}", status, order))
+                .doOnError(error -> log.error("Error updating order {} to {}: {}", orderId, status, error.getMessage()));
     }
-}
\ No newline at end of file
+}
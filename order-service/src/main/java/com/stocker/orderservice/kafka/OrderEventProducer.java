@@ -3,14 +3,21 @@ package com.stocker.orderservice.kafka;
 import com.stocker.common.events.order.OrderCreatedEvent;
 import com.stocker.common.events.order.OrderStatusUpdatedEvent;
 import com.stocker.kafkaconfig.KafkaEventUtils;
+import com.stocker.kafkaconfig.outbox.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.function.Function;
+
 /**
  * Kafka producer for order events.
  * This class is responsible for sending order-related events to Kafka topics.
+ * Events are only published with {@code orchestration.mode=choreography}, where the other
+ * services act on them; in saga mode nothing consumes them, so they are dropped.
  */
 @Component
 @RequiredArgsConstructor
@@ -18,8 +25,12 @@ import reactor.core.publisher.Mono;
 public class OrderEventProducer {
 
     private final KafkaEventUtils kafkaEventUtils;
+    private final OutboxWriter outboxWriter;
     private static final String TOPIC = "order-events";
 
+    @Value("${orchestration.mode:saga}")
+    private String orchestrationMode;
+
     /**
      * Send an OrderCreatedEvent to the order-events Kafka topic.
      *
@@ -27,6 +38,9 @@ public class OrderEventProducer {
      * @return Mono<Void> that completes when the event is sent
      */
     public Mono<Void> sendOrderCreatedEvent(OrderCreatedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
         log.info("Sending OrderCreatedEvent to Kafka: {}", event);
         return kafkaEventUtils.sendEvent(TOPIC, event.getOrderId(), event)
                 .then();
@@ -38,6 +52,9 @@ public class OrderEventProducer {
      * @param event The OrderCreatedEvent to send
      */
     public void sendOrderCreatedEventAsync(OrderCreatedEvent event) {
+        if (!publishing()) {
+            return;
+        }
         log.info("Sending OrderCreatedEvent to Kafka asynchronously: {}", event);
         kafkaEventUtils.sendEventAsync(TOPIC, event.getOrderId(), event);
     }
@@ -49,6 +66,9 @@ public class OrderEventProducer {
      * @return Mono<Void> that completes when the event is sent
      */
     public Mono<Void> sendOrderStatusUpdatedEvent(OrderStatusUpdatedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
         log.info("Sending OrderStatusUpdatedEvent to Kafka: {}", event);
         return kafkaEventUtils.sendEvent(TOPIC, event.getOrderId(), event)
                 .then();
@@ -60,7 +80,76 @@ public class OrderEventProducer {
      * @param event The OrderStatusUpdatedEvent to send
      */
     public void sendOrderStatusUpdatedEventAsync(OrderStatusUpdatedEvent event) {
+        if (!publishing()) {
+            return;
+        }
         log.info("Sending OrderStatusUpdatedEvent to Kafka asynchronously: {}", event);
         kafkaEventUtils.sendEventAsync(TOPIC, event.getOrderId(), event);
     }
-}
\ No newline at end of file
+
+    /**
+     * Add an OrderCreatedEvent to the outbox for publishing to the order-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The OrderCreatedEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueueOrderCreatedEvent(OrderCreatedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
+        log.debug("Adding OrderCreatedEvent to outbox: {}", event.getOrderId());
+        return outboxWriter.append(TOPIC, event.getOrderId(), event);
+    }
+
+    /**
+     * Add an OrderStatusUpdatedEvent to the outbox for publishing to the order-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The OrderStatusUpdatedEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueueOrderStatusUpdatedEvent(OrderStatusUpdatedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
+        log.debug("Adding OrderStatusUpdatedEvent to outbox: {}", event.getOrderId());
+        return outboxWriter.append(TOPIC, event.getOrderId(), event);
+    }
+
+    /**
+     * Add OrderCreatedEvents to the outbox in one statement, in the given order.
+     * Must be called inside the transaction that persists the changes the events describe.
+     *
+     * @param events   The OrderCreatedEvents to publish
+     * @param eventIds Returns the id an event is published with
+     * @return Mono<Void> that completes when the events are written to the outbox
+     */
+    public Mono<Void> enqueueOrderCreatedEvents(List<OrderCreatedEvent> events, Function<OrderCreatedEvent, String> eventIds) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
+        log.debug("Adding {} OrderCreatedEvents to outbox", events.size());
+        return outboxWriter.appendAll(TOPIC, events, OrderCreatedEvent::getOrderId, eventIds);
+    }
+
+    /**
+     * Add OrderStatusUpdatedEvents to the outbox in one statement, in the given order.
+     * Must be called inside the transaction that persists the changes the events describe.
+     *
+     * @param events   The OrderStatusUpdatedEvents to publish
+     * @param eventIds Returns the id an event is published with
+     * @return Mono<Void> that completes when the events are written to the outbox
+     */
+    public Mono<Void> enqueueOrderStatusUpdatedEvents(List<OrderStatusUpdatedEvent> events, Function<OrderStatusUpdatedEvent, String> eventIds) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
+        log.debug("Adding {} OrderStatusUpdatedEvents to outbox", events.size());
+        return outboxWriter.appendAll(TOPIC, events, OrderStatusUpdatedEvent::getOrderId, eventIds);
+    }
+
+    private boolean publishing() {
+        return "choreography".equals(orchestrationMode);
+    }
+}
@@ -9,75 +9,53 @@ import com.stocker.orderservice.repository.entity.OrderEntity;
 import com.stocker.orderservice.repository.entity.OrderItemEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.ReplayStatus;
+import org.axonframework.messaging.annotation.MessageIdentifier;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
 import org.axonframework.queryhandling.QueryHandler;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.Instant;
-import java.util.stream.Collectors;
-
 @Component
+@ProcessingGroup("order-projection")
 @RequiredArgsConstructor
 @Slf4j
 public class OrderProjection {
 
+    private static final String PENDING_WRITES = OrderProjection.class.getName() + ".pendingWrites";
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
+    private final OrderProjectionWriter orderProjectionWriter;
 
     @EventHandler
-    public void on(OrderCreatedEvent event) {
+    public void on(OrderCreatedEvent event, @MessageIdentifier String eventId, ReplayStatus replayStatus) {
         log.info("Handling OrderCreatedEvent: {}", event.getOrderId());
-        
-        OrderEntity orderEntity = new OrderEntity();
-        orderEntity.setOrderId(event.getOrderId());
-        orderEntity.setUserId(event.getUserId());
-        orderEntity.setCartId(event.getCartId());
-        orderEntity.setTotalAmount(event.getTotalAmount());
-        orderEntity.setShippingAddress(event.getShippingAddress());
-        orderEntity.setStatus(OrderStatus.valueOf(event.getStatus()));
-        orderEntity.setCreatedAt(event.getCreatedAt());
-        orderEntity.setUpdatedAt(event.getCreatedAt());
-        
-        orderRepository.save(orderEntity).subscribe(
-            savedOrder -> {
-                log.info("Order saved: {}", savedOrder.getOrderId());
-                
-                // Save order items
-                event.getItems().forEach(item -> {
-                    OrderItemEntity orderItemEntity = new OrderItemEntity();
-                    orderItemEntity.setOrderItemId(item.getOrderItemId());
-                    orderItemEntity.setOrderId(event.getOrderId());
-                    orderItemEntity.setProductId(item.getProductId());
-                    orderItemEntity.setProductName(item.getProductName());
-                    orderItemEntity.setQuantity(item.getQuantity());
-                    orderItemEntity.setUnitPrice(item.getUnitPrice());
-                    
-                    orderItemRepository.save(orderItemEntity).subscribe(
-                        savedItem -> log.info("Order item saved: {}", savedItem.getOrderItemId()),
-                        error -> log.error("Error saving order item: {}", error.getMessage())
-                    );
-                });
-            },
-            error -> log.error("Error saving order: {}", error.getMessage())
-        );
+        pendingWrites().add(event, eventId, !replayStatus.isReplay());
     }
 
     @EventHandler
-    public void on(OrderStatusUpdatedEvent event) {
+    public void on(OrderStatusUpdatedEvent event, @MessageIdentifier String eventId, ReplayStatus replayStatus) {
         log.info("Handling OrderStatusUpdatedEvent: {}", event.getOrderId());
-        
-        orderRepository.findById(event.getOrderId())
-            .flatMap(orderEntity -> {
-                orderEntity.setStatus(OrderStatus.valueOf(event.getStatus()));
-                orderEntity.setUpdatedAt(event.getUpdatedAt());
-                return orderRepository.save(orderEntity);
-            })
-            .subscribe(
-                updatedOrder -> log.info("Order status updated: {}", updatedOrder.getOrderId()),
-                error -> log.error("Error updating order status: {}", error.getMessage())
-            );
+        pendingWrites().add(event, eventId, !replayStatus.isReplay());
+    }
+
+    /**
+     * Collects the events of the processor's current batch; they are written in one transaction
+     * when the batch commits, and a failed write fails the batch so it is retried. Replayed events
+     * were published when first handled, so they only update the tables.
+     */
+    private OrderProjectionWriter.Batch pendingWrites() {
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+        return unitOfWork.getOrComputeResource(PENDING_WRITES, key -> {
+            OrderProjectionWriter.Batch batch = new OrderProjectionWriter.Batch();
+            unitOfWork.onPrepareCommit(u -> orderProjectionWriter.write(batch).block());
+            return batch;
+        });
     }
 
     @QueryHandler
@@ -0,0 +1,64 @@
+package com.stocker.orderservice.query;
+
+import com.stocker.common.axon.rebuild.ProjectionRebuild;
+import com.stocker.common.axon.rebuild.RebuildTable;
+import com.stocker.common.axon.rebuild.RebuildWriter;
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.models.OrderItem;
+import com.stocker.orderservice.domain.OrderStatus;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Rebuilds the {@code orders} and {@code order_items} tables of {@link OrderProjection}.
+ */
+@Component
+public class OrderProjectionRebuild implements ProjectionRebuild {
+
+    private static final List<String> ORDER_COLUMNS = List.of("id", "user_id", "cart_id", "total_amount",
+            "shipping_address", "status", "created_at", "updated_at");
+    private static final List<String> ITEM_COLUMNS = List.of("id", "order_id", "product_id", "product_name",
+            "quantity", "unit_price", "subtotal");
+
+    @Override
+    public String processingGroup() {
+        return "order-projection";
+    }
+
+    @Override
+    public List<RebuildTable> tables() {
+        return List.of(new RebuildTable("orders", ORDER_COLUMNS), new RebuildTable("order_items", ITEM_COLUMNS));
+    }
+
+    @Override
+    public Fold newFold(RebuildWriter writer) {
+        return event -> {
+            if (event.getPayloadType() == OrderCreatedEvent.class) {
+                OrderCreatedEvent created = (OrderCreatedEvent) event.getPayload();
+                writer.write("orders", created.getOrderId(), created.getUserId(), created.getCartId(),
+                        created.getTotalAmount(), created.getShippingAddress(), OrderStatus.CREATED.name(),
+                        created.getCreatedAt(), created.getCreatedAt());
+                if (created.getItems() != null) {
+                    for (OrderItem item : created.getItems()) {
+                        writer.write("order_items", item.getOrderItemId(), created.getOrderId(),
+                                item.getProductId(), item.getProductName(), item.getQuantity(),
+                                item.getUnitPrice(), subtotal(item));
+                    }
+                }
+            } else if (event.getPayloadType() == OrderStatusUpdatedEvent.class) {
+                OrderStatusUpdatedEvent updated = (OrderStatusUpdatedEvent) event.getPayload();
+                writer.update("orders", updated.getOrderId(),
+                        "status", updated.getNewStatus().name(), "updated_at", updated.getUpdatedAt());
+            }
+        };
+    }
+
+    private static BigDecimal subtotal(OrderItem item) {
+        return item.getSubtotal() != null || item.getUnitPrice() == null
+                ? item.getSubtotal()
+                : item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+}
@@ -0,0 +1,227 @@
+package com.stocker.orderservice.query;
+
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.models.OrderItem;
+import com.stocker.orderservice.domain.OrderStatus;
+import com.stocker.orderservice.kafka.OrderEventProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a batch of order events to the read model in one transaction.
+ * Order headers and items are inserted with multi-row inserts, status updates are applied with
+ * one {@code UPDATE ... FROM (VALUES ...)}, and the matching outbox rows are written alongside.
+ * Inserts skip rows that already exist, so replaying a batch is harmless: only orders actually
+ * inserted are published. Outbox rows carry the Axon event's identifier as their event id, so an
+ * event written again is recognised by the consumers' deduplication.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderProjectionWriter {
+
+    /**
+     * Rows per statement, keeping the bind parameters well below the Postgres limit.
+     */
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private static final List<Column<OrderCreatedEvent>> ORDER_COLUMNS = List.of(
+            new Column<>("id", String.class, OrderCreatedEvent::getOrderId),
+            new Column<>("user_id", String.class, OrderCreatedEvent::getUserId),
+            new Column<>("cart_id", String.class, OrderCreatedEvent::getCartId),
+            new Column<>("total_amount", BigDecimal.class, OrderCreatedEvent::getTotalAmount),
+            new Column<>("shipping_address", String.class, OrderCreatedEvent::getShippingAddress),
+            new Column<>("status", String.class, event -> OrderStatus.CREATED.name()),
+            new Column<>("created_at", LocalDateTime.class, OrderCreatedEvent::getCreatedAt),
+            new Column<>("updated_at", LocalDateTime.class, OrderCreatedEvent::getCreatedAt));
+
+    private static final List<Column<OrderItemRow>> ITEM_COLUMNS = List.of(
+            new Column<>("id", String.class, row -> row.item().getOrderItemId()),
+            new Column<>("order_id", String.class, OrderItemRow::orderId),
+            new Column<>("product_id", String.class, row -> row.item().getProductId()),
+            new Column<>("product_name", String.class, row -> row.item().getProductName()),
+            new Column<>("quantity", Integer.class, row -> row.item().getQuantity()),
+            new Column<>("unit_price", BigDecimal.class, row -> row.item().getUnitPrice()),
+            new Column<>("subtotal", BigDecimal.class, OrderItemRow::subtotal));
+
+    private final DatabaseClient databaseClient;
+    private final OrderEventProducer orderEventProducer;
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * Write the events collected in a batch.
+     *
+     * @param batch The events, in the order they were handled
+     * @return Mono<Void> that completes when the transaction is committed
+     */
+    public Mono<Void> write(Batch batch) {
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        List<OrderCreatedEvent> created = batch.created;
+        List<OrderStatusUpdatedEvent> statusUpdates = new ArrayList<>(batch.latestStatusUpdates().values());
+        return insertAll("orders", ORDER_COLUMNS, created)
+                .flatMap(insertedIds -> insertAll("order_items", ITEM_COLUMNS, itemRows(created))
+                        .then(orderEventProducer.enqueueOrderCreatedEvents(created.stream()
+                                .filter(event -> insertedIds.contains(event.getOrderId())
+                                        && batch.eventIds.containsKey(event))
+                                .toList(), batch.eventIds::get)))
+                .then(updateStatuses(statusUpdates))
+                .flatMap(updatedIds -> orderEventProducer.enqueueOrderStatusUpdatedEvents(batch.statusUpdates.stream()
+                        .filter(event -> updatedIds.contains(event.getOrderId()) && batch.eventIds.containsKey(event))
+                        .toList(), batch.eventIds::get))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(v -> log.info("Order batch written: {} created, {} status updates",
+                        created.size(), batch.statusUpdates.size()));
+    }
+
+    /**
+     * @return Mono emitting the ids of the rows inserted, without those that already existed
+     */
+    private <T> Mono<Set<String>> insertAll(String table, List<Column<T>> columns, List<T> rows) {
+        return chunks(rows)
+                .concatMap(chunk -> {
+                    StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                            .append(String.join(", ", columns.stream().map(Column::name).toList()))
+                            .append(") VALUES ");
+                    for (int i = 0; i < chunk.size(); i++) {
+                        sql.append(i == 0 ? "(" : ", (");
+                        for (int c = 0; c < columns.size(); c++) {
+                            sql.append(c == 0 ? ":p" : ", :p").append(i).append('_').append(c);
+                        }
+                        sql.append(')');
+                    }
+                    sql.append(" ON CONFLICT (id) DO NOTHING RETURNING id");
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        for (int c = 0; c < columns.size(); c++) {
+                            spec = columns.get(c).bind(spec, "p" + i + "_" + c, chunk.get(i));
+                        }
+                    }
+                    return spec.map(row -> row.get("id", String.class)).all();
+                })
+                .collect(Collectors.toSet());
+    }
+
+    private Mono<Set<String>> updateStatuses(List<OrderStatusUpdatedEvent> updates) {
+        return chunks(updates)
+                .concatMap(chunk -> {
+                    StringBuilder sql = new StringBuilder(
+                            "UPDATE orders AS o SET status = v.status, updated_at = v.updated_at FROM (VALUES ");
+                    for (int i = 0; i < chunk.size(); i++) {
+                        sql.append(i == 0 ? "" : ", ")
+                                .append("(:id").append(i)
+                                .append(", CAST(:status").append(i).append(" AS VARCHAR)")
+                                .append(", CAST(:updatedAt").append(i).append(" AS TIMESTAMP))");
+                    }
+                    sql.append(") AS v (id, status, updated_at) WHERE o.id = v.id RETURNING o.id");
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        OrderStatusUpdatedEvent event = chunk.get(i);
+                        spec = spec.bind("id" + i, event.getOrderId())
+                                .bind("status" + i, event.getNewStatus().name())
+                                .bind("updatedAt" + i, event.getUpdatedAt());
+                    }
+                    return spec.map(row -> row.get("id", String.class)).all();
+                })
+                .collect(Collectors.toSet());
+    }
+
+    private static <T> Flux<List<T>> chunks(List<T> rows) {
+        return Flux.range(0, (rows.size() + ROWS_PER_STATEMENT - 1) / ROWS_PER_STATEMENT)
+                .map(chunk -> rows.subList(chunk * ROWS_PER_STATEMENT,
+                        Math.min(rows.size(), (chunk + 1) * ROWS_PER_STATEMENT)));
+    }
+
+    private static List<OrderItemRow> itemRows(List<OrderCreatedEvent> events) {
+        List<OrderItemRow> rows = new ArrayList<>();
+        for (OrderCreatedEvent event : events) {
+            if (event.getItems() != null) {
+                event.getItems().forEach(item -> rows.add(new OrderItemRow(event.getOrderId(), item)));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Order events handled in one unit of work, waiting to be written.
+     */
+    public static class Batch {
+
+        private final List<OrderCreatedEvent> created = new ArrayList<>();
+        private final List<OrderStatusUpdatedEvent> statusUpdates = new ArrayList<>();
+        /**
+         * The Axon event identifiers of the events to publish
+         */
+        private final Map<Object, String> eventIds = new IdentityHashMap<>();
+
+        /**
+         * @param eventId The identifier of the Axon event
+         * @param publish Whether the event is also added to the outbox
+         */
+        public void add(OrderCreatedEvent event, String eventId, boolean publish) {
+            created.add(event);
+            if (publish) {
+                eventIds.put(event, eventId);
+            }
+        }
+
+        /**
+         * @param eventId The identifier of the Axon event
+         * @param publish Whether the event is also added to the outbox
+         */
+        public void add(OrderStatusUpdatedEvent event, String eventId, boolean publish) {
+            statusUpdates.add(event);
+            if (publish) {
+                eventIds.put(event, eventId);
+            }
+        }
+
+        public boolean isEmpty() {
+            return created.isEmpty() && statusUpdates.isEmpty();
+        }
+
+        /**
+         * Only the last status of an order in the batch needs to be written.
+         */
+        private Map<String, OrderStatusUpdatedEvent> latestStatusUpdates() {
+            Map<String, OrderStatusUpdatedEvent> latest = new LinkedHashMap<>();
+            statusUpdates.forEach(event -> latest.put(event.getOrderId(), event));
+            return latest;
+        }
+    }
+
+    private record OrderItemRow(String orderId, OrderItem item) {
+
+        BigDecimal subtotal() {
+            return item.getSubtotal() != null || item.getUnitPrice() == null
+                    ? item.getSubtotal()
+                    : item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+        }
+    }
+
+    private record Column<T>(String name, Class<?> type, Function<T, Object> value) {
+
+        DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String parameter, T row) {
+            Object v = value.apply(row);
+            return v != null ? spec.bind(parameter, v) : spec.bindNull(parameter, type);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.stocker.orderservice.saga;
+
+import com.stocker.common.commands.dispatch.CancelDispatchCommand;
+import com.stocker.common.commands.payment.RefundPaymentCommand;
+import com.stocker.common.commands.payment.VoidPaymentCommand;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.events.payment.PaymentCapturedEvent;
+import com.stocker.common.models.Order;
+import com.stocker.common.models.Payment.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.messaging.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Undoes payment and dispatch results that arrive after the {@link OrderSaga} of their order
+ * ended, typically because a step timed out while its command was still running. Once the saga
+ * ended nothing is associated with the payment or dispatch any more, so the order's own events
+ * decide: an authorization is voided, a capture refunded and a preparation cancelled when the
+ * order was cancelled or its payment failed. The saga stores that status before it ends, so the
+ * order is known to be given up as soon as the saga stops taking results; the read model could
+ * still show the previous status. The commands are idempotent, so results the saga already
+ * compensated are left as they are.
+ * The processor starts at the head of the event store, so only results arriving after it was
+ * first deployed are looked at.
+ */
+@Component
+@ProcessingGroup(LateResultCompensator.PROCESSING_GROUP)
+@ConditionalOnProperty(name = "orchestration.mode", havingValue = "saga", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class LateResultCompensator {
+
+    static final String PROCESSING_GROUP = "order-late-results";
+
+    private static final Set<Order.OrderStatus> ABANDONED_STATUSES =
+            EnumSet.of(Order.OrderStatus.CANCELLED, Order.OrderStatus.PAYMENT_FAILED);
+
+    private final EventStore eventStore;
+    private final CommandGateway commandGateway;
+
+    @EventHandler
+    public void on(PaymentAuthorizedEvent event) {
+        if (event.getStatus() != PaymentStatus.AUTHORIZED || !abandoned(event.getOrderId())) {
+            return;
+        }
+        log.warn("Payment {} authorized after order {} was given up, voiding it", event.getPaymentId(), event.getOrderId());
+        commandGateway.send(VoidPaymentCommand.builder()
+                .paymentId(event.getPaymentId())
+                .orderId(event.getOrderId())
+                .reason("authorized after the order was given up")
+                .build()
+        ).exceptionally(ex -> {
+            log.error("Error voiding late payment {}: {}", event.getPaymentId(), ex.getMessage());
+            return null;
+        });
+    }
+
+    @EventHandler
+    public void on(PaymentCapturedEvent event) {
+        if (!abandoned(event.getOrderId())) {
+            return;
+        }
+        log.warn("Payment {} captured after order {} was given up, refunding it", event.getPaymentId(), event.getOrderId());
+        commandGateway.send(RefundPaymentCommand.builder()
+                .paymentId(event.getPaymentId())
+                .orderId(event.getOrderId())
+                .reason("captured after the order was given up")
+                .build()
+        ).exceptionally(ex -> {
+            log.error("Error refunding late payment {}: {}", event.getPaymentId(), ex.getMessage());
+            return null;
+        });
+    }
+
+    @EventHandler
+    public void on(DispatchPreparedEvent event) {
+        if (!"PREPARED".equals(event.getStatus()) || !abandoned(event.getOrderId())) {
+            return;
+        }
+        log.warn("Dispatch {} prepared after order {} was given up, cancelling it", event.getDispatchId(), event.getOrderId());
+        commandGateway.send(CancelDispatchCommand.builder()
+                .dispatchId(event.getDispatchId())
+                .orderId(event.getOrderId())
+                .reason("prepared after the order was given up")
+                .build()
+        ).exceptionally(ex -> {
+            log.error("Error cancelling late dispatch {}: {}", event.getDispatchId(), ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Whether the last status stored by the order is one its saga gives up with.
+     */
+    private boolean abandoned(String orderId) {
+        return eventStore.readEvents(orderId, 0).asStream()
+                .map(Message::getPayload)
+                .filter(OrderStatusUpdatedEvent.class::isInstance)
+                .map(payload -> ((OrderStatusUpdatedEvent) payload).getNewStatus())
+                .reduce((previous, latest) -> latest)
+                .map(ABANDONED_STATUSES::contains)
+                .orElse(false);
+    }
+}
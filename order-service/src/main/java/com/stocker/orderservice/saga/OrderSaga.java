@@ -1,122 +1,232 @@
 package com.stocker.orderservice.saga;
 
 import com.stocker.common.commands.delivery.DeliverOrderCommand;
+import com.stocker.common.commands.dispatch.CancelDispatchCommand;
 import com.stocker.common.commands.dispatch.DispatchOrderCommand;
+import com.stocker.common.commands.dispatch.PrepareDispatchCommand;
+import com.stocker.common.commands.dispatch.ReleaseDispatchCommand;
 import com.stocker.common.commands.order.UpdateOrderStatusCommand;
-import com.stocker.common.commands.payment.ProcessPaymentCommand;
+import com.stocker.common.commands.payment.AuthorizePaymentCommand;
+import com.stocker.common.commands.payment.CapturePaymentCommand;
+import com.stocker.common.commands.payment.RefundPaymentCommand;
+import com.stocker.common.commands.payment.VoidPaymentCommand;
 import com.stocker.common.events.delivery.OrderDeliveredEvent;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
 import com.stocker.common.events.dispatch.OrderDispatchedEvent;
 import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.order.OrderTimedOutEvent;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.events.payment.PaymentCapturedEvent;
 import com.stocker.common.events.payment.PaymentProcessedEvent;
-import com.stocker.orderservice.domain.OrderStatus;
+import com.stocker.common.models.Order;
+import com.stocker.common.models.Payment.PaymentMethod;
+import com.stocker.common.models.Payment.PaymentStatus;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.deadline.DeadlineManager;
+import org.axonframework.deadline.annotation.DeadlineHandler;
 import org.axonframework.modelling.saga.EndSaga;
 import org.axonframework.modelling.saga.SagaEventHandler;
 import org.axonframework.modelling.saga.SagaLifecycle;
 import org.axonframework.modelling.saga.StartSaga;
 import org.axonframework.spring.stereotype.Saga;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 
+/**
+ * Runs an order through payment, dispatch and delivery.
+ * The payment is authorized while the dispatch is prepared; once both succeeded the payment is
+ * captured and the dispatch released, otherwise the one that succeeded is undone.
+ * Each step has a deadline; when the step's result does not arrive in time the order is
+ * compensated and the saga ends, so no saga waits forever on a lost event. Compensation refunds a
+ * captured payment or voids an authorized one, and cancels a prepared or released dispatch.
+ * Results arriving after the saga ended are undone by {@link LateResultCompensator}. The saga also
+ * ends as soon as the order reaches a terminal status by other means.
+ * Only active with {@code orchestration.mode=saga}, the default; with {@code choreography} the
+ * services' Kafka consumers drive the order instead.
+ */
 @Saga
+@ConditionalOnProperty(name = "orchestration.mode", havingValue = "saga", matchIfMissing = true)
 @Slf4j
 public class OrderSaga {
 
+    static final String PAYMENT_DEADLINE = "order-payment";
+    static final String DISPATCH_DEADLINE = "order-dispatch";
+    static final String DELIVERY_DEADLINE = "order-delivery";
+
+    private static final Set<Order.OrderStatus> TERMINAL_STATUSES =
+            EnumSet.of(Order.OrderStatus.PAYMENT_FAILED, Order.OrderStatus.DELIVERED, Order.OrderStatus.CANCELLED);
+
     @Autowired
     private transient CommandGateway commandGateway;
 
+    @Autowired
+    private transient DeadlineManager deadlineManager;
+
+    @Autowired
+    private transient OrderSagaDeadlines deadlines;
+
+    private String stepDeadlineName;
+    private String stepDeadlineId;
+    private String paymentId;
+    private String dispatchId;
+    // Results of the parallel steps, null while pending
+    private Boolean paymentAuthorized;
+    private Boolean dispatchPrepared;
+    private boolean paymentCaptured;
+    // Set once the dispatch is confirmed, not when it is requested
+    private boolean dispatchReleased;
+
     @StartSaga
     @SagaEventHandler(associationProperty = "orderId")
     public void handle(OrderCreatedEvent event) {
         log.info("Starting saga for order: {}", event.getOrderId());
         
-        // Associate the saga with the payment ID to correlate future events
-        String paymentId = UUID.randomUUID().toString();
+        // Associate the saga with the payment and dispatch IDs to correlate future events
+        paymentId = UUID.randomUUID().toString();
+        dispatchId = UUID.randomUUID().toString();
         SagaLifecycle.associateWith("paymentId", paymentId);
+        SagaLifecycle.associateWith("dispatchId", dispatchId);
         
-        // Process payment
-        ProcessPaymentCommand paymentCommand = ProcessPaymentCommand.builder()
+        // Authorize the payment and prepare the dispatch at the same time; both are joined before capture
+        AuthorizePaymentCommand authorizeCommand = AuthorizePaymentCommand.builder()
                 .paymentId(paymentId)
                 .orderId(event.getOrderId())
+                .userId(event.getUserId())
                 .amount(event.getTotalAmount())
-                .paymentMethod("CREDIT_CARD") // Default payment method
+                .paymentMethod(PaymentMethod.CREDIT_CARD) // Default payment method
+                .build();
+        PrepareDispatchCommand prepareCommand = PrepareDispatchCommand.builder()
+                .dispatchId(dispatchId)
+                .orderId(event.getOrderId())
+                .shippingAddress(event.getShippingAddress())
                 .build();
         
-        log.info("Sending ProcessPaymentCommand: {}", paymentCommand);
-        commandGateway.send(paymentCommand)
+        log.info("Sending AuthorizePaymentCommand: {} and PrepareDispatchCommand: {}", authorizeCommand, prepareCommand);
+        commandGateway.send(authorizeCommand)
+            .exceptionally(ex -> {
+                log.error("Error authorizing payment for order {}: {}", event.getOrderId(), ex.getMessage());
+                return null;
+            });
+        commandGateway.send(prepareCommand)
             .exceptionally(ex -> {
-                log.error("Error processing payment: {}", ex.getMessage());
-                // Compensating transaction
-                commandGateway.send(new UpdateOrderStatusCommand(
-                        event.getOrderId(),
-                        OrderStatus.PAYMENT_FAILED.toString()
-                ));
+                log.error("Error preparing dispatch for order {}: {}", event.getOrderId(), ex.getMessage());
                 return null;
             });
+        // Covers authorization, preparation and capture; a command that failed outright is compensated here
+        scheduleStep(PAYMENT_DEADLINE, deadlines.getPayment(), event.getOrderId());
     }
     
     @SagaEventHandler(associationProperty = "paymentId")
-    public void handle(PaymentProcessedEvent event) {
-        log.info("Handling PaymentProcessedEvent: {}", event.getPaymentId());
+    public void handle(PaymentAuthorizedEvent event) {
+        log.info("Handling PaymentAuthorizedEvent: {}, status: {}", event.getPaymentId(), event.getStatus());
+        paymentAuthorized = event.getStatus() == PaymentStatus.AUTHORIZED;
+        join(event.getOrderId());
+    }
+    
+    @SagaEventHandler(associationProperty = "dispatchId")
+    public void handle(DispatchPreparedEvent event) {
+        log.info("Handling DispatchPreparedEvent: {}, status: {}", event.getDispatchId(), event.getStatus());
+        dispatchPrepared = "PREPARED".equals(event.getStatus());
+        join(event.getOrderId());
+    }
+    
+    /**
+     * Once both the authorization and the preparation are in, capture the payment, or undo
+     * whichever of the two succeeded.
+     */
+    private void join(String orderId) {
+        if (paymentAuthorized == null || dispatchPrepared == null) {
+            return;
+        }
+        if (paymentAuthorized && dispatchPrepared) {
+            log.info("Payment authorized and dispatch prepared for order {}, capturing payment", orderId);
+            commandGateway.send(CapturePaymentCommand.builder()
+                    .paymentId(paymentId)
+                    .orderId(orderId)
+                    .build()
+            ).exceptionally(ex -> {
+                log.error("Error capturing payment for order {}: {}", orderId, ex.getMessage());
+                return null;
+            });
+            return;
+        }
+        compensate(orderId, paymentAuthorized ? "dispatch preparation failed" : "payment authorization failed");
+        giveUp(orderId, paymentAuthorized ? Order.OrderStatus.CANCELLED : Order.OrderStatus.PAYMENT_FAILED,
+                paymentAuthorized ? "Dispatch preparation failed" : "Payment authorization failed");
+        cancelStep();
+        SagaLifecycle.end();
+    }
+    
+    @SagaEventHandler(associationProperty = "paymentId")
+    public void handle(PaymentCapturedEvent event) {
+        log.info("Handling PaymentCapturedEvent: {}", event.getPaymentId());
+        paymentCaptured = true;
+        updateStatus(event.getOrderId(), Order.OrderStatus.PAYMENT_COMPLETED, null);
         
-        // Update order status based on payment result
-        if ("COMPLETED".equals(event.getStatus())) {
-            try {
-                // Payment successful, update order status
-                commandGateway.send(new UpdateOrderStatusCommand(
-                        event.getOrderId(),
-                        OrderStatus.PAID.toString()
-                )).exceptionally(ex -> {
-                    log.error("Error updating order status to PAID: {}", ex.getMessage());
-                    return null;
-                });
-                
-                // Proceed with dispatch
-                String dispatchId = UUID.randomUUID().toString();
-                SagaLifecycle.associateWith("dispatchId", dispatchId);
-                
-                DispatchOrderCommand dispatchCommand = DispatchOrderCommand.builder()
-                        .dispatchId(dispatchId)
-                        .orderId(event.getOrderId())
-                        .carrier("DEFAULT_CARRIER")
-                        .build();
-                
-                log.info("Sending DispatchOrderCommand: {}", dispatchCommand);
-                commandGateway.send(dispatchCommand)
-                    .exceptionally(ex -> {
-                        log.error("Error dispatching order: {}", ex.getMessage());
-                        // Compensating transaction - mark order as payment-only
-                        commandGateway.send(new UpdateOrderStatusCommand(
-                                event.getOrderId(),
-                                OrderStatus.DISPATCH_FAILED.toString()
-                        ));
-                        return null;
-                    });
-            } catch (Exception ex) {
-                log.error("Error in payment processing saga: {}", ex.getMessage());
-                // Compensating transaction
-                commandGateway.send(new UpdateOrderStatusCommand(
-                        event.getOrderId(),
-                        OrderStatus.ERROR.toString()
-                )).exceptionally(ex -> {
-                    log.error("Error updating order status to ERROR: {}", ex.getMessage());
-                    return null;
-                });
-                SagaLifecycle.end();
-            }
-        } else {
-            // Payment failed, update order status and end saga
-            commandGateway.send(new UpdateOrderStatusCommand(
-                    event.getOrderId(),
-                    OrderStatus.PAYMENT_FAILED.toString()
-            )).exceptionally(ex -> {
-                log.error("Error updating order status to PAYMENT_FAILED: {}", ex.getMessage());
+        ReleaseDispatchCommand releaseCommand = ReleaseDispatchCommand.builder()
+                .dispatchId(dispatchId)
+                .orderId(event.getOrderId())
+                .build();
+        log.info("Sending ReleaseDispatchCommand: {}", releaseCommand);
+        scheduleStep(DISPATCH_DEADLINE, deadlines.getDispatch(), event.getOrderId());
+        commandGateway.send(releaseCommand)
+            .exceptionally(ex -> {
+                log.error("Error releasing dispatch for order {}: {}", event.getOrderId(), ex.getMessage());
                 return null;
             });
+    }
+    
+    /**
+     * Sequential payment of sagas started before payments were split into authorize and capture.
+     */
+    @SagaEventHandler(associationProperty = "paymentId")
+    public void handle(PaymentProcessedEvent event) {
+        log.info("Handling PaymentProcessedEvent: {}, status: {}", event.getPaymentId(), event.getStatus());
+        
+        if (event.getStatus() != PaymentStatus.COMPLETED) {
+            // Payment failed, nothing was taken; update order status and end saga
+            giveUp(event.getOrderId(), Order.OrderStatus.PAYMENT_FAILED, "Payment " + event.getStatus());
+            cancelStep();
+            SagaLifecycle.end();
+            return;
+        }
+        
+        paymentId = event.getPaymentId();
+        paymentCaptured = true;
+        try {
+            updateStatus(event.getOrderId(), Order.OrderStatus.PAYMENT_COMPLETED, null);
+            
+            // Proceed with dispatch
+            dispatchId = UUID.randomUUID().toString();
+            SagaLifecycle.associateWith("dispatchId", dispatchId);
+            
+            DispatchOrderCommand dispatchCommand = DispatchOrderCommand.builder()
+                    .dispatchId(dispatchId)
+                    .orderId(event.getOrderId())
+                    .build();
             
+            log.info("Sending DispatchOrderCommand: {}", dispatchCommand);
+            scheduleStep(DISPATCH_DEADLINE, deadlines.getDispatch(), event.getOrderId());
+            commandGateway.send(dispatchCommand)
+                .exceptionally(ex -> {
+                    log.error("Error dispatching order {}: {}", event.getOrderId(), ex.getMessage());
+                    // The cancelled status comes back to the saga, which refunds the payment and ends
+                    updateStatus(event.getOrderId(), Order.OrderStatus.CANCELLED, "Dispatch failed: " + ex.getMessage());
+                    return null;
+                });
+        } catch (Exception ex) {
+            log.error("Error in payment processing saga: {}", ex.getMessage());
+            compensate(event.getOrderId(), "payment handling failed");
+            giveUp(event.getOrderId(), Order.OrderStatus.CANCELLED, "Payment handling failed: " + ex.getMessage());
+            cancelStep();
             SagaLifecycle.end();
         }
     }
@@ -124,16 +234,11 @@ public class OrderSaga {
     @SagaEventHandler(associationProperty = "dispatchId")
     public void handle(OrderDispatchedEvent event) {
         log.info("Handling OrderDispatchedEvent: {}", event.getDispatchId());
+        // Known to be with the carrier only now; a failed one-step dispatch leaves nothing to cancel
+        dispatchReleased = true;
         
         try {
-            // Update order status
-            commandGateway.send(new UpdateOrderStatusCommand(
-                    event.getOrderId(),
-                    OrderStatus.DISPATCHED.toString()
-            )).exceptionally(ex -> {
-                log.error("Error updating order status to DISPATCHED: {}", ex.getMessage());
-                return null;
-            });
+            updateStatus(event.getOrderId(), Order.OrderStatus.DISPATCHED, null);
             
             // Proceed with delivery
             String deliveryId = UUID.randomUUID().toString();
@@ -149,26 +254,19 @@ public class OrderSaga {
                     .build();
             
             log.info("Sending DeliverOrderCommand: {}", deliverCommand);
+            scheduleStep(DELIVERY_DEADLINE, deadlines.getDelivery(), event.getOrderId());
             commandGateway.send(deliverCommand)
                 .exceptionally(ex -> {
-                    log.error("Error delivering order: {}", ex.getMessage());
-                    // Compensating transaction - mark order as dispatched-only
-                    commandGateway.send(new UpdateOrderStatusCommand(
-                            event.getOrderId(),
-                            OrderStatus.DELIVERY_FAILED.toString()
-                    ));
+                    log.error("Error delivering order {}: {}", event.getOrderId(), ex.getMessage());
+                    // The cancelled status comes back to the saga, which compensates and ends
+                    updateStatus(event.getOrderId(), Order.OrderStatus.CANCELLED, "Delivery failed: " + ex.getMessage());
                     return null;
                 });
         } catch (Exception ex) {
             log.error("Error in dispatch processing saga: {}", ex.getMessage());
-            // Compensating transaction
-            commandGateway.send(new UpdateOrderStatusCommand(
-                    event.getOrderId(),
-                    OrderStatus.ERROR.toString()
-            )).exceptionally(ex -> {
-                log.error("Error updating order status to ERROR during dispatch: {}", ex.getMessage());
-                return null;
-            });
+            compensate(event.getOrderId(), "dispatch handling failed");
+            giveUp(event.getOrderId(), Order.OrderStatus.CANCELLED, "Dispatch handling failed: " + ex.getMessage());
+            cancelStep();
             SagaLifecycle.end();
         }
     }
@@ -177,23 +275,134 @@ public class OrderSaga {
     @SagaEventHandler(associationProperty = "deliveryId")
     public void handle(OrderDeliveredEvent event) {
         log.info("Handling OrderDeliveredEvent: {}", event.getDeliveryId());
-        
-        try {
-            // Update order status to delivered
-            commandGateway.send(new UpdateOrderStatusCommand(
-                    event.getOrderId(),
-                    OrderStatus.DELIVERED.toString()
-            )).exceptionally(ex -> {
-                log.error("Error updating order status to delivered: {}", ex.getMessage());
-                return null;
-            });
-            
-            log.info("Order saga completed for order: {}", event.getOrderId());
-        } catch (Exception ex) {
-            log.error("Error in delivery processing saga: {}", ex.getMessage());
-            // Even if there's an error, we end the saga as this is the final step
-            // But we should log the error for monitoring
-            log.error("Order saga completed with errors for order: {}", event.getOrderId());
+        cancelStep();
+        updateStatus(event.getOrderId(), Order.OrderStatus.DELIVERED, null);
+        log.info("Order saga completed for order: {}", event.getOrderId());
+    }
+
+    @SagaEventHandler(associationProperty = "orderId")
+    public void handle(OrderStatusUpdatedEvent event) {
+        if (TERMINAL_STATUSES.contains(event.getNewStatus())) {
+            log.info("Order {} reached {}, ending saga", event.getOrderId(), event.getNewStatus());
+            if (event.getNewStatus() != Order.OrderStatus.DELIVERED) {
+                compensate(event.getOrderId(), "order " + event.getNewStatus().name().toLowerCase());
+            }
+            cancelStep();
+            SagaLifecycle.end();
+        }
+    }
+
+    /**
+     * The {@link StuckOrderSweeper} found the order past its step deadline, which was lost, e.g.
+     * with a restart; time out the current step now.
+     */
+    @SagaEventHandler(associationProperty = "orderId")
+    public void handle(OrderTimedOutEvent event) {
+        String step = stepDeadlineName;
+        cancelStep();
+        if (DELIVERY_DEADLINE.equals(step)) {
+            onDeliveryDeadline(event.getOrderId());
+        } else if (DISPATCH_DEADLINE.equals(step)) {
+            onDispatchDeadline(event.getOrderId());
+        } else {
+            onPaymentDeadline(event.getOrderId());
+        }
+    }
+
+    @DeadlineHandler(deadlineName = PAYMENT_DEADLINE)
+    public void onPaymentDeadline(String orderId) {
+        compensate(orderId, "payment timed out");
+        timeOut(orderId, "payment", Order.OrderStatus.PAYMENT_FAILED);
+    }
+
+    @DeadlineHandler(deadlineName = DISPATCH_DEADLINE)
+    public void onDispatchDeadline(String orderId) {
+        compensate(orderId, "dispatch timed out");
+        timeOut(orderId, "dispatch", Order.OrderStatus.CANCELLED);
+    }
+
+    @DeadlineHandler(deadlineName = DELIVERY_DEADLINE)
+    public void onDeliveryDeadline(String orderId) {
+        compensate(orderId, "delivery timed out");
+        timeOut(orderId, "delivery", Order.OrderStatus.CANCELLED);
+    }
+
+    /**
+     * Replace the deadline of the previous step with the one of the step just started.
+     */
+    private void scheduleStep(String deadlineName, Duration timeout, String orderId) {
+        cancelStep();
+        stepDeadlineName = deadlineName;
+        stepDeadlineId = deadlineManager.schedule(timeout, deadlineName, orderId);
+    }
+
+    private void cancelStep() {
+        if (stepDeadlineId != null) {
+            deadlineManager.cancelSchedule(stepDeadlineName, stepDeadlineId);
+            stepDeadlineName = null;
+            stepDeadlineId = null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Give back the payment and cancel the dispatch, as far as they got: a captured payment is
+     * refunded and an authorized one voided, a prepared or released dispatch is cancelled.
+     */
+    private void compensate(String orderId, String reason) {
+        if (paymentCaptured) {
+            commandGateway.send(RefundPaymentCommand.builder().paymentId(paymentId).orderId(orderId).reason(reason).build())
+                .exceptionally(ex -> {
+                    log.error("Error refunding payment of order {}: {}", orderId, ex.getMessage());
+                    return null;
+                });
+        } else if (Boolean.TRUE.equals(paymentAuthorized)) {
+            commandGateway.send(VoidPaymentCommand.builder().paymentId(paymentId).orderId(orderId).reason(reason).build())
+                .exceptionally(ex -> {
+                    log.error("Error voiding payment of order {}: {}", orderId, ex.getMessage());
+                    return null;
+                });
+        }
+        if (Boolean.TRUE.equals(dispatchPrepared) || dispatchReleased) {
+            commandGateway.send(CancelDispatchCommand.builder().dispatchId(dispatchId).orderId(orderId).reason(reason).build())
+                .exceptionally(ex -> {
+                    log.error("Error cancelling dispatch of order {}: {}", orderId, ex.getMessage());
+                    return null;
+                });
+        }
+    }
+
+    private void updateStatus(String orderId, Order.OrderStatus status, String reason) {
+        commandGateway.send(UpdateOrderStatusCommand.builder()
+                .orderId(orderId)
+                .status(status)
+                .reason(reason)
+                .build()
+        ).exceptionally(ex -> {
+            log.error("Error updating order {} status to {}: {}", orderId, status, ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Store the order's final status before the saga ends, waiting for the order to take it.
+     * Once the saga is gone its late results are undone by the {@link LateResultCompensator},
+     * which reads the status from the order's events; storing it first leaves no moment where
+     * neither takes care of them. If the status cannot be stored the saga stays, and the step is
+     * retried by the event processor or timed out again by the {@link StuckOrderSweeper}.
+     */
+    private void giveUp(String orderId, Order.OrderStatus status, String reason) {
+        commandGateway.sendAndWait(UpdateOrderStatusCommand.builder()
+                .orderId(orderId)
+                .status(status)
+                .reason(reason)
+                .build());
+    }
+
+    private void timeOut(String orderId, String step, Order.OrderStatus compensation) {
+        log.warn("Order {} timed out waiting for {}, marking it {}", orderId, step, compensation);
+        giveUp(orderId, compensation, step + " timed out");
+        stepDeadlineName = null;
+        stepDeadlineId = null;
+        SagaLifecycle.end();
+    }
+}
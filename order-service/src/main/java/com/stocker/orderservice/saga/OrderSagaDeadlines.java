@@ -0,0 +1,28 @@
+package com.stocker.orderservice.saga;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * How long the {@link OrderSaga} waits for each step before compensating.
+ * The {@link StuckOrderSweeper} uses the same limits for orders whose deadline was lost.
+ */
+@Component
+@Getter
+public class OrderSagaDeadlines {
+
+    private final Duration payment;
+    private final Duration dispatch;
+    private final Duration delivery;
+
+    public OrderSagaDeadlines(@Value("${order.saga.payment-timeout-ms:300000}") long paymentTimeoutMs,
+                              @Value("${order.saga.dispatch-timeout-ms:3600000}") long dispatchTimeoutMs,
+                              @Value("${order.saga.delivery-timeout-ms:604800000}") long deliveryTimeoutMs) {
+        this.payment = Duration.ofMillis(paymentTimeoutMs);
+        this.dispatch = Duration.ofMillis(dispatchTimeoutMs);
+        this.delivery = Duration.ofMillis(deliveryTimeoutMs);
+    }
+}
@@ -0,0 +1,186 @@
+package com.stocker.orderservice.saga;
+
+import com.stocker.common.commands.order.TimeOutOrderCommand;
+import com.stocker.common.commands.order.UpdateOrderStatusCommand;
+import com.stocker.common.models.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Times out orders that stopped making progress.
+ * The {@link OrderSaga}'s step deadlines live in memory and are lost when the service restarts,
+ * and a saga may be gone altogether; the sweeper is the backstop for both. An order is stuck when
+ * it is still in a step well past that step's deadline:
+ * <ul>
+ *     <li>If its saga is still in the saga store, the saga would have timed out the step had the
+ *     deadline fired, so the deadline was lost. The order is timed out with a
+ *     {@link TimeOutOrderCommand}, and the saga compensates the step like its deadline would.</li>
+ *     <li>Without a saga nothing will move the order any more, and nothing is left to compensate
+ *     it either; it is cancelled.</li>
+ * </ul>
+ * Orders are handled in batches, and the run is reported in the log and as the
+ * {@code orders.stuck.cancelled} counter. A Postgres advisory lock makes sure only one instance
+ * sweeps at a time.
+ * The step deadlines only hold for the saga, so the sweeper only runs with
+ * {@code orchestration.mode=saga}; in choreography mode nothing would compensate a cancelled
+ * order, and orders still moving through the services would be cancelled under them.
+ */
+@Component
+@ConditionalOnExpression("${order.sweeper.enabled:true} and '${orchestration.mode:saga}' == 'saga'")
+@RequiredArgsConstructor
+@Slf4j
+public class StuckOrderSweeper {
+
+    private static final long SWEEPER_LOCK_ID = 0x0DE5A6A5L;
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(:lockId) AS locked";
+
+    // Matches the partial index idx_orders_in_progress_updated_at; sagas are found by the association's primary key
+    private static final String SELECT_SQL =
+            "SELECT id, status, updated_at, EXISTS (SELECT 1 FROM association_value_entry "
+                    + "WHERE association_value = orders.id AND association_key = 'orderId' "
+                    + "AND saga_type = :sagaType) AS has_saga FROM orders "
+                    + "WHERE status IN ('CREATED', 'PAYMENT_PENDING', 'PAYMENT_COMPLETED', 'PROCESSING', "
+                    + "'DISPATCHED', 'IN_TRANSIT') "
+                    + "AND ((status IN ('CREATED', 'PAYMENT_PENDING') AND updated_at < :paymentCutoff) "
+                    + "OR (status IN ('PAYMENT_COMPLETED', 'PROCESSING') AND updated_at < :dispatchCutoff) "
+                    + "OR (status IN ('DISPATCHED', 'IN_TRANSIT') AND updated_at < :deliveryCutoff)) "
+                    + "ORDER BY updated_at LIMIT :limit";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final CommandGateway commandGateway;
+    private final OrderSagaDeadlines deadlines;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${order.sweeper.interval-ms:60000}")
+    private long intervalMs;
+
+    @Value("${order.sweeper.grace-ms:600000}")
+    private long graceMs;
+
+    @Value("${order.sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.sweeper.concurrency:32}")
+    private int concurrency;
+
+    private Disposable subscription;
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.interval(Duration.ofMillis(intervalMs))
+                .onBackpressureDrop()
+                .concatMap(tick -> sweep(), 1)
+                .subscribe();
+        log.info("Stuck order sweeper started, sweeping every {} ms in batches of {}", intervalMs, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Cancel one batch of stuck orders. A cancelled order only drops out of the query once the
+     * projection wrote its new status, so further batches are left to the next run instead of
+     * selecting the same orders again.
+     *
+     * @return Mono<Long> emitting the number of orders cancelled
+     */
+    public Mono<Long> sweep() {
+        return databaseClient.sql(LOCK_SQL)
+                .bind("lockId", SWEEPER_LOCK_ID)
+                .map(row -> row.get("locked", Boolean.class))
+                .one()
+                .filter(Boolean.TRUE::equals)
+                .flatMap(locked -> findStuck()
+                        .flatMap(this::cancel, concurrency)
+                        .collectList())
+                .as(transactionalOperator::transactional)
+                .map(this::report)
+                .defaultIfEmpty(0L)
+                .onErrorResume(ex -> {
+                    log.warn("Stuck order sweep failed, will retry on next run: {}", ex.getMessage());
+                    return Mono.just(0L);
+                });
+    }
+
+    private Flux<StuckOrder> findStuck() {
+        LocalDateTime now = LocalDateTime.now();
+        Duration grace = Duration.ofMillis(graceMs);
+        return databaseClient.sql(SELECT_SQL)
+                .bind("paymentCutoff", now.minus(deadlines.getPayment()).minus(grace))
+                .bind("dispatchCutoff", now.minus(deadlines.getDispatch()).minus(grace))
+                .bind("deliveryCutoff", now.minus(deadlines.getDelivery()).minus(grace))
+                .bind("limit", batchSize)
+                .bind("sagaType", OrderSaga.class.getName())
+                .map(row -> new StuckOrder(
+                        row.get("id", String.class),
+                        row.get("status", String.class),
+                        row.get("updated_at", LocalDateTime.class),
+                        Boolean.TRUE.equals(row.get("has_saga", Boolean.class))))
+                .all();
+    }
+
+    private Mono<StuckOrder> cancel(StuckOrder order) {
+        String reason = "Stuck in " + order.status() + " since " + order.updatedAt();
+        Object command = order.hasSaga()
+                ? TimeOutOrderCommand.builder().orderId(order.id()).reason(reason).build()
+                : UpdateOrderStatusCommand.builder()
+                        .orderId(order.id())
+                        .status(Order.OrderStatus.CANCELLED)
+                        .reason(reason)
+                        .build();
+        if (!order.hasSaga()) {
+            log.warn("Stuck order {} has no saga left, cancelling it without compensation", order.id());
+        }
+        return Mono.fromFuture(() -> commandGateway.send(command))
+                .thenReturn(order)
+                .onErrorResume(ex -> {
+                    log.warn("Unable to cancel stuck order {}: {}", order.id(), ex.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private long report(List<StuckOrder> cancelled) {
+        if (cancelled.isEmpty()) {
+            return 0L;
+        }
+        Map<String, Integer> byStatus = new TreeMap<>();
+        for (StuckOrder order : cancelled) {
+            byStatus.merge(order.status(), 1, Integer::sum);
+            Counter.builder("orders.stuck.cancelled")
+                    .description("Orders cancelled by the sweeper, by the status they were stuck in")
+                    .tag("status", order.status())
+                    .register(meterRegistry)
+                    .increment();
+        }
+        log.warn("Cancelled {} stuck orders, by status: {}", cancelled.size(), byStatus);
+        return cancelled.size();
+    }
+
+    private record StuckOrder(String id, String status, LocalDateTime updatedAt, boolean hasSaga) {
+    }
+}
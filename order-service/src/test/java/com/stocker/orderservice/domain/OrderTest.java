@@ -0,0 +1,91 @@
+package com.stocker.orderservice.domain;
+
+import com.stocker.common.commands.order.TimeOutOrderCommand;
+import com.stocker.common.commands.order.UpdateOrderStatusCommand;
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.order.OrderTimedOutEvent;
+import org.axonframework.test.aggregate.AggregateTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.axonframework.test.matchers.Matchers.andNoMore;
+import static org.axonframework.test.matchers.Matchers.exactSequenceOf;
+import static org.axonframework.test.matchers.Matchers.payloadsMatching;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Times out orders still in progress and leaves finished ones alone.
+ */
+class OrderTest {
+
+    private static final String ORDER_ID = "order-1";
+
+    private AggregateTestFixture<Order> fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new AggregateTestFixture<>(Order.class);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = com.stocker.common.models.Order.OrderStatus.class,
+            names = {"DELIVERED", "CANCELLED", "PAYMENT_FAILED"})
+    void finishedOrderIgnoresTimeOut(com.stocker.common.models.Order.OrderStatus finished) {
+        fixture.given(created(), statusUpdated(finished))
+                .when(new TimeOutOrderCommand(ORDER_ID, "Stuck in DISPATCHED"))
+                .expectSuccessfulHandlerExecution()
+                .expectNoEvents();
+    }
+
+    @Test
+    void orderInProgressTimesOut() {
+        fixture.given(created(), statusUpdated(com.stocker.common.models.Order.OrderStatus.DISPATCHED))
+                .when(new TimeOutOrderCommand(ORDER_ID, "Stuck in DISPATCHED"))
+                .expectEventsMatching(payloadsMatching(exactSequenceOf(
+                        allOf(instanceOf(OrderTimedOutEvent.class),
+                                hasProperty("orderId", equalTo(ORDER_ID)),
+                                hasProperty("reason", equalTo("Stuck in DISPATCHED"))),
+                        andNoMore())));
+    }
+
+    @Test
+    void statusUpdateRecordsThePreviousStatus() {
+        fixture.given(created())
+                .when(new UpdateOrderStatusCommand(ORDER_ID,
+                        com.stocker.common.models.Order.OrderStatus.PAYMENT_COMPLETED, null))
+                .expectEventsMatching(payloadsMatching(exactSequenceOf(
+                        allOf(instanceOf(OrderStatusUpdatedEvent.class),
+                                hasProperty("previousStatus", equalTo(com.stocker.common.models.Order.OrderStatus.CREATED)),
+                                hasProperty("newStatus",
+                                        equalTo(com.stocker.common.models.Order.OrderStatus.PAYMENT_COMPLETED))),
+                        andNoMore())));
+    }
+
+    private static OrderCreatedEvent created() {
+        return OrderCreatedEvent.builder()
+                .orderId(ORDER_ID)
+                .userId("user-1")
+                .cartId("cart-1")
+                .totalAmount(new BigDecimal("59.70"))
+                .shippingAddress("1 Main Street")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static OrderStatusUpdatedEvent statusUpdated(com.stocker.common.models.Order.OrderStatus status) {
+        return OrderStatusUpdatedEvent.builder()
+                .orderId(ORDER_ID)
+                .newStatus(status)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+}
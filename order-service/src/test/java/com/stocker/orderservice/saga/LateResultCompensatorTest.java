@@ -0,0 +1,101 @@
+package com.stocker.orderservice.saga;
+
+import com.stocker.common.commands.dispatch.CancelDispatchCommand;
+import com.stocker.common.commands.payment.VoidPaymentCommand;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderStatusUpdatedEvent;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.models.Order.OrderStatus;
+import com.stocker.common.models.Payment.PaymentStatus;
+import org.axonframework.commandhandling.gateway.DefaultCommandGateway;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.axonframework.messaging.Message;
+import org.axonframework.test.utils.RecordingCommandBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Undoes results of orders whose events show them given up, as soon as those events are stored.
+ */
+class LateResultCompensatorTest {
+
+    private static final String ORDER_ID = "order-1";
+
+    private EmbeddedEventStore eventStore;
+    private RecordingCommandBus commandBus;
+    private LateResultCompensator compensator;
+    private long sequence;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = EmbeddedEventStore.builder().storageEngine(new InMemoryEventStorageEngine()).build();
+        commandBus = new RecordingCommandBus();
+        compensator = new LateResultCompensator(eventStore,
+                DefaultCommandGateway.builder().commandBus(commandBus).build());
+        store(OrderCreatedEvent.builder().orderId(ORDER_ID).createdAt(LocalDateTime.now()).build());
+    }
+
+    @AfterEach
+    void shutdown() {
+        eventStore.shutDown();
+    }
+
+    @Test
+    void authorizationOfACancelledOrderIsVoided() {
+        store(statusUpdated(OrderStatus.CANCELLED));
+
+        compensator.on(authorized());
+
+        assertThat(commandBus.getDispatchedCommands())
+                .extracting(Message::getPayload)
+                .containsExactly(new VoidPaymentCommand("payment-1", ORDER_ID, "authorized after the order was given up"));
+    }
+
+    @Test
+    void preparationOfAnOrderWithAFailedPaymentIsCancelled() {
+        store(statusUpdated(OrderStatus.PAYMENT_FAILED));
+
+        compensator.on(DispatchPreparedEvent.builder().dispatchId("dispatch-1").orderId(ORDER_ID).status("PREPARED").build());
+
+        assertThat(commandBus.getDispatchedCommands())
+                .extracting(Message::getPayload)
+                .containsExactly(new CancelDispatchCommand("dispatch-1", ORDER_ID, "prepared after the order was given up"));
+    }
+
+    @Test
+    void resultsOfAnOrderInProgressAreLeftToItsSaga() {
+        store(statusUpdated(OrderStatus.PAYMENT_PENDING));
+
+        compensator.on(authorized());
+
+        assertThat(commandBus.getDispatchedCommands()).isEmpty();
+    }
+
+    private static PaymentAuthorizedEvent authorized() {
+        return PaymentAuthorizedEvent.builder()
+                .paymentId("payment-1")
+                .orderId(ORDER_ID)
+                .status(PaymentStatus.AUTHORIZED)
+                .build();
+    }
+
+    private static OrderStatusUpdatedEvent statusUpdated(OrderStatus status) {
+        return OrderStatusUpdatedEvent.builder()
+                .orderId(ORDER_ID)
+                .newStatus(status)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void store(Object event) {
+        eventStore.publish(new GenericDomainEventMessage<>("Order", ORDER_ID, sequence++, event));
+    }
+}
@@ -0,0 +1,299 @@
+package com.stocker.orderservice.saga;
+
+import com.stocker.common.commands.delivery.DeliverOrderCommand;
+import com.stocker.common.commands.dispatch.CancelDispatchCommand;
+import com.stocker.common.commands.dispatch.DispatchOrderCommand;
+import com.stocker.common.commands.dispatch.PrepareDispatchCommand;
+import com.stocker.common.commands.dispatch.ReleaseDispatchCommand;
+import com.stocker.common.commands.order.UpdateOrderStatusCommand;
+import com.stocker.common.commands.payment.AuthorizePaymentCommand;
+import com.stocker.common.commands.payment.CapturePaymentCommand;
+import com.stocker.common.commands.payment.RefundPaymentCommand;
+import com.stocker.common.commands.payment.VoidPaymentCommand;
+import com.stocker.common.events.delivery.OrderDeliveredEvent;
+import com.stocker.common.events.dispatch.DispatchPreparedEvent;
+import com.stocker.common.events.dispatch.OrderDispatchedEvent;
+import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.common.events.order.OrderTimedOutEvent;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.events.payment.PaymentCapturedEvent;
+import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.models.Order.OrderStatus;
+import com.stocker.common.models.Payment.PaymentStatus;
+import org.axonframework.test.saga.SagaTestFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.axonframework.test.matchers.Matchers.andNoMore;
+import static org.axonframework.test.matchers.Matchers.exactSequenceOf;
+import static org.axonframework.test.matchers.Matchers.payloadsMatching;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Compensates an order and ends its saga when a step runs past its deadline.
+ */
+class OrderSagaTest {
+
+    private static final String ORDER_ID = "order-1";
+
+    private final OrderSagaDeadlines deadlines = new OrderSagaDeadlines(300_000, 3_600_000, 604_800_000);
+
+    private SagaTestFixture<OrderSaga> fixture;
+    // Generated by the saga, picked up from its commands as it sends them
+    private String paymentId;
+    private String dispatchId;
+    private String deliveryId;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new SagaTestFixture<>(OrderSaga.class);
+        fixture.registerResource(deadlines);
+        fixture.setCallbackBehavior((command, metaData) -> {
+            if (command instanceof AuthorizePaymentCommand authorize) {
+                paymentId = authorize.getPaymentId();
+            } else if (command instanceof PrepareDispatchCommand prepare) {
+                dispatchId = prepare.getDispatchId();
+            } else if (command instanceof DeliverOrderCommand deliver) {
+                deliveryId = deliver.getDeliveryId();
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void paymentDeadlineWithoutAnyResultFailsThePayment() {
+        fixture.givenAPublished(orderCreated())
+                .whenTimeElapses(deadlines.getPayment())
+                .expectTriggeredDeadlinesWithName(OrderSaga.PAYMENT_DEADLINE)
+                .expectDispatchedCommands(statusUpdate(OrderStatus.PAYMENT_FAILED, "payment timed out"))
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void paymentDeadlineAfterTheAuthorizationVoidsThePayment() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .whenTimeElapses(deadlines.getPayment())
+                .expectDispatchedCommands(
+                        new VoidPaymentCommand(paymentId, ORDER_ID, "payment timed out"),
+                        statusUpdate(OrderStatus.PAYMENT_FAILED, "payment timed out"))
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void paymentDeadlineBeforeTheCaptureVoidsThePaymentAndCancelsTheDispatch() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .whenTimeElapses(deadlines.getPayment())
+                .expectDispatchedCommands(
+                        new VoidPaymentCommand(paymentId, ORDER_ID, "payment timed out"),
+                        new CancelDispatchCommand(dispatchId, ORDER_ID, "payment timed out"),
+                        statusUpdate(OrderStatus.PAYMENT_FAILED, "payment timed out"))
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void capturedPaymentReleasesTheDispatchUnderTheDispatchDeadline() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .whenPublishingA(paymentCaptured())
+                .expectDispatchedCommands(
+                        statusUpdate(OrderStatus.PAYMENT_COMPLETED, null),
+                        new ReleaseDispatchCommand(dispatchId, ORDER_ID))
+                .expectScheduledDeadlineWithName(deadlines.getDispatch(), OrderSaga.DISPATCH_DEADLINE)
+                .expectActiveSagas(1);
+    }
+
+    @Test
+    void paymentIsCapturedOnceAuthorizedAndPrepared() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .whenPublishingA(dispatchPrepared())
+                .expectDispatchedCommands(new CapturePaymentCommand(paymentId, ORDER_ID))
+                .expectActiveSagas(1);
+    }
+
+    @Test
+    void dispatchedOrderIsHandedToDelivery() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .andThenAPublished(paymentCaptured())
+                .whenPublishingA(orderDispatched())
+                .expectDispatchedCommandsMatching(payloadsMatching(exactSequenceOf(
+                        equalTo((Object) statusUpdate(OrderStatus.DISPATCHED, null)),
+                        allOf(instanceOf(DeliverOrderCommand.class),
+                                hasProperty("dispatchId", equalTo(dispatchId)),
+                                hasProperty("trackingNumber", equalTo("TRK-1"))),
+                        andNoMore())))
+                .expectScheduledDeadlineWithName(deadlines.getDelivery(), OrderSaga.DELIVERY_DEADLINE)
+                .expectActiveSagas(1);
+    }
+
+    @Test
+    void deliveredOrderEndsTheSaga() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .andThenAPublished(paymentCaptured())
+                .andThenAPublished(orderDispatched())
+                .whenPublishingA(OrderDeliveredEvent.builder()
+                        .deliveryId(deliveryId)
+                        .dispatchId(dispatchId)
+                        .orderId(ORDER_ID)
+                        .deliveredAt(LocalDateTime.now())
+                        .build())
+                .expectDispatchedCommands(statusUpdate(OrderStatus.DELIVERED, null))
+                .expectNoScheduledDeadlines()
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void completedSequentialPaymentDispatchesTheOrder() {
+        fixture.givenAPublished(orderCreated())
+                .whenPublishingA(paymentProcessed(PaymentStatus.COMPLETED))
+                .expectDispatchedCommandsMatching(payloadsMatching(exactSequenceOf(
+                        equalTo((Object) statusUpdate(OrderStatus.PAYMENT_COMPLETED, null)),
+                        allOf(instanceOf(DispatchOrderCommand.class), hasProperty("orderId", equalTo(ORDER_ID))),
+                        andNoMore())))
+                .expectScheduledDeadlineWithName(deadlines.getDispatch(), OrderSaga.DISPATCH_DEADLINE)
+                .expectActiveSagas(1);
+    }
+
+    @Test
+    void dispatchDeadlineWithoutADispatchOnlyRefundsThePayment() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentProcessed(PaymentStatus.COMPLETED))
+                .whenTimeElapses(deadlines.getDispatch())
+                .expectDispatchedCommands(
+                        new RefundPaymentCommand(paymentId, ORDER_ID, "dispatch timed out"),
+                        statusUpdate(OrderStatus.CANCELLED, "dispatch timed out"))
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void failedSequentialPaymentFailsTheOrder() {
+        fixture.givenAPublished(orderCreated())
+                .whenPublishingA(paymentProcessed(PaymentStatus.FAILED))
+                .expectDispatchedCommands(statusUpdate(OrderStatus.PAYMENT_FAILED, "Payment FAILED"))
+                .expectNoScheduledDeadlines()
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void dispatchDeadlineRefundsThePaymentAndCancelsTheDispatch() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .andThenAPublished(paymentCaptured())
+                .whenTimeElapses(deadlines.getDispatch())
+                .expectTriggeredDeadlinesWithName(OrderSaga.DISPATCH_DEADLINE)
+                .expectDispatchedCommands(
+                        new RefundPaymentCommand(paymentId, ORDER_ID, "dispatch timed out"),
+                        new CancelDispatchCommand(dispatchId, ORDER_ID, "dispatch timed out"),
+                        statusUpdate(OrderStatus.CANCELLED, "dispatch timed out"))
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void deliveryDeadlineRefundsThePaymentAndCancelsTheDispatch() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .andThenAPublished(paymentCaptured())
+                .andThenAPublished(orderDispatched())
+                .whenTimeElapses(deadlines.getDelivery())
+                .expectTriggeredDeadlinesWithName(OrderSaga.DELIVERY_DEADLINE)
+                .expectDispatchedCommands(
+                        new RefundPaymentCommand(paymentId, ORDER_ID, "delivery timed out"),
+                        new CancelDispatchCommand(dispatchId, ORDER_ID, "delivery timed out"),
+                        statusUpdate(OrderStatus.CANCELLED, "delivery timed out"))
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void timeOutFromTheSweeperCompensatesTheCurrentStep() {
+        fixture.givenAPublished(orderCreated())
+                .andThenAPublished(paymentAuthorized())
+                .andThenAPublished(dispatchPrepared())
+                .andThenAPublished(paymentCaptured())
+                .whenPublishingA(new OrderTimedOutEvent(ORDER_ID, "Stuck in PAYMENT_COMPLETED", LocalDateTime.now()))
+                .expectDispatchedCommands(
+                        new RefundPaymentCommand(paymentId, ORDER_ID, "dispatch timed out"),
+                        new CancelDispatchCommand(dispatchId, ORDER_ID, "dispatch timed out"),
+                        statusUpdate(OrderStatus.CANCELLED, "dispatch timed out"))
+                .expectNoScheduledDeadlines()
+                .expectActiveSagas(0);
+    }
+
+    @Test
+    void timeOutFromTheSweeperBeforeAnyResultFailsThePayment() {
+        fixture.givenAPublished(orderCreated())
+                .whenPublishingA(new OrderTimedOutEvent(ORDER_ID, "Stuck in CREATED", LocalDateTime.now()))
+                .expectDispatchedCommands(statusUpdate(OrderStatus.PAYMENT_FAILED, "payment timed out"))
+                .expectNoScheduledDeadlines()
+                .expectActiveSagas(0);
+    }
+
+    private OrderCreatedEvent orderCreated() {
+        return OrderCreatedEvent.builder()
+                .orderId(ORDER_ID)
+                .userId("user-1")
+                .cartId("cart-1")
+                .totalAmount(new BigDecimal("59.70"))
+                .shippingAddress("1 Main Street")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private PaymentAuthorizedEvent paymentAuthorized() {
+        return PaymentAuthorizedEvent.builder()
+                .paymentId(paymentId)
+                .orderId(ORDER_ID)
+                .status(PaymentStatus.AUTHORIZED)
+                .build();
+    }
+
+    private DispatchPreparedEvent dispatchPrepared() {
+        return DispatchPreparedEvent.builder()
+                .dispatchId(dispatchId)
+                .orderId(ORDER_ID)
+                .status("PREPARED")
+                .build();
+    }
+
+    private PaymentCapturedEvent paymentCaptured() {
+        return PaymentCapturedEvent.builder()
+                .paymentId(paymentId)
+                .orderId(ORDER_ID)
+                .build();
+    }
+
+    private PaymentProcessedEvent paymentProcessed(PaymentStatus status) {
+        return PaymentProcessedEvent.builder()
+                .paymentId(paymentId)
+                .orderId(ORDER_ID)
+                .status(status)
+                .build();
+    }
+
+    private OrderDispatchedEvent orderDispatched() {
+        return OrderDispatchedEvent.builder()
+                .dispatchId(dispatchId)
+                .orderId(ORDER_ID)
+                .trackingNumber("TRK-1")
+                .build();
+    }
+
+    private static UpdateOrderStatusCommand statusUpdate(OrderStatus status, String reason) {
+        return new UpdateOrderStatusCommand(ORDER_ID, status, reason);
+    }
+}
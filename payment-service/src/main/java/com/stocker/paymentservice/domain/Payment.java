@@ -1,7 +1,15 @@
 package com.stocker.paymentservice.domain;
 
+import com.stocker.common.commands.payment.AuthorizePaymentCommand;
+import com.stocker.common.commands.payment.CapturePaymentCommand;
 import com.stocker.common.commands.payment.ProcessPaymentCommand;
+import com.stocker.common.commands.payment.RefundPaymentCommand;
+import com.stocker.common.commands.payment.VoidPaymentCommand;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.events.payment.PaymentCapturedEvent;
 import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.events.payment.PaymentRefundedEvent;
+import com.stocker.common.events.payment.PaymentVoidedEvent;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.CommandHandler;
@@ -14,7 +22,7 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
-@Aggregate
+@Aggregate(cache = "aggregateCache")
 @NoArgsConstructor
 @Slf4j
 public class Payment {
@@ -25,6 +33,7 @@ public class Payment {
     private BigDecimal amount;
     private PaymentStatus status;
     private String paymentMethod;
+    private String transactionId;
     private Instant createdAt;
 
     @CommandHandler
@@ -68,6 +77,125 @@ public class Payment {
         }
     }
 
+    /**
+     * Authorize the amount without taking it; the gateway call is the slow part of a payment.
+     * The authorization is captured or voided later.
+     */
+    @CommandHandler
+    public Payment(AuthorizePaymentCommand command) {
+        log.info("Authorizing payment for order: {}, amount: {}", command.getOrderId(), command.getAmount());
+
+        com.stocker.common.models.Payment.PaymentStatus status;
+        String transactionId;
+        try {
+            PaymentProcessingResult result = processPayment(
+                    command.getOrderId(),
+                    command.getAmount(),
+                    command.getPaymentMethod().name()
+            );
+            status = result.getStatus() == PaymentStatus.COMPLETED
+                    ? com.stocker.common.models.Payment.PaymentStatus.AUTHORIZED
+                    : com.stocker.common.models.Payment.PaymentStatus.FAILED;
+            transactionId = result.getTransactionId();
+        } catch (Exception ex) {
+            log.error("Error authorizing payment for order: {}", command.getOrderId(), ex);
+            status = com.stocker.common.models.Payment.PaymentStatus.FAILED;
+            transactionId = null;
+        }
+
+        log.info("Payment authorization for order: {}, status: {}", command.getOrderId(), status);
+        AggregateLifecycle.apply(PaymentAuthorizedEvent.builder()
+                .paymentId(command.getPaymentId())
+                .orderId(command.getOrderId())
+                .userId(command.getUserId())
+                .amount(command.getAmount())
+                .status(status)
+                .paymentMethod(command.getPaymentMethod())
+                .transactionId(transactionId)
+                .authorizedAt(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    @CommandHandler
+    public void handle(CapturePaymentCommand command) {
+        if (status == PaymentStatus.COMPLETED) {
+            return;
+        }
+        if (status != PaymentStatus.AUTHORIZED) {
+            throw new IllegalStateException("Payment " + paymentId + " cannot be captured in status " + status);
+        }
+        AggregateLifecycle.apply(PaymentCapturedEvent.builder()
+                .paymentId(paymentId)
+                .orderId(orderId)
+                .amount(amount)
+                .transactionId(transactionId)
+                .capturedAt(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    @CommandHandler
+    public void handle(VoidPaymentCommand command) {
+        if (status == PaymentStatus.VOIDED || status == PaymentStatus.FAILED) {
+            return;
+        }
+        if (status != PaymentStatus.AUTHORIZED) {
+            throw new IllegalStateException("Payment " + paymentId + " cannot be voided in status " + status);
+        }
+        AggregateLifecycle.apply(PaymentVoidedEvent.builder()
+                .paymentId(paymentId)
+                .orderId(orderId)
+                .reason(command.getReason())
+                .voidedAt(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Return a captured payment, for orders cancelled after the payment was taken.
+     */
+    @CommandHandler
+    public void handle(RefundPaymentCommand command) {
+        if (status == PaymentStatus.REFUNDED) {
+            return;
+        }
+        if (status != PaymentStatus.COMPLETED) {
+            throw new IllegalStateException("Payment " + paymentId + " cannot be refunded in status " + status);
+        }
+        AggregateLifecycle.apply(PaymentRefundedEvent.builder()
+                .paymentId(paymentId)
+                .orderId(orderId)
+                .amount(amount)
+                .transactionId(transactionId)
+                .reason(command.getReason())
+                .refundedAt(java.time.LocalDateTime.now())
+                .build());
+    }
+
+    @EventSourcingHandler
+    public void on(PaymentAuthorizedEvent event) {
+        this.paymentId = event.getPaymentId();
+        this.orderId = event.getOrderId();
+        this.amount = event.getAmount();
+        this.status = PaymentStatus.valueOf(event.getStatus().toString());
+        this.paymentMethod = event.getPaymentMethod().toString();
+        this.transactionId = event.getTransactionId();
+        this.createdAt = event.getAuthorizedAt().atZone(java.time.ZoneId.systemDefault()).toInstant();
+    }
+
+    @EventSourcingHandler
+    public void on(PaymentCapturedEvent event) {
+        this.status = PaymentStatus.COMPLETED;
+    }
+
+    @EventSourcingHandler
+    public void on(PaymentVoidedEvent event) {
+        this.status = PaymentStatus.VOIDED;
+    }
+
+    @EventSourcingHandler
+    public void on(PaymentRefundedEvent event) {
+        this.status = PaymentStatus.REFUNDED;
+    }
+
     @EventSourcingHandler
     public void on(PaymentProcessedEvent event) {
         this.paymentId = event.getPaymentId();
@@ -75,6 +203,7 @@ public class Payment {
         this.amount = event.getAmount();
         this.status = PaymentStatus.valueOf(event.getStatus().toString());
         this.paymentMethod = event.getPaymentMethod().toString();
+        this.transactionId = event.getTransactionId();
         this.createdAt = event.getProcessedAt().atZone(java.time.ZoneId.systemDefault()).toInstant();
     }
     
@@ -3,7 +3,9 @@ package com.stocker.paymentservice.domain;
 public enum PaymentStatus {
     PENDING,
     PROCESSING,
+    AUTHORIZED,
     COMPLETED,
     FAILED,
+    VOIDED,
     REFUNDED
 }
\ No newline at end of file
@@ -2,36 +2,80 @@ package com.stocker.paymentservice.kafka;
 
 import com.stocker.common.commands.payment.ProcessPaymentCommand;
 import com.stocker.common.events.order.OrderCreatedEvent;
+import com.stocker.kafkaconfig.consumer.KeyOrderedExecutor;
+import com.stocker.kafkaconfig.dedupe.ProcessedEventStore;
+import com.stocker.kafkaconfig.retry.RetryTopicRouter;
+import com.stocker.kafkaconfig.routing.EventTypeRoutingDeserializer;
 import com.stocker.paymentservice.domain.PaymentStatus;
 import com.stocker.paymentservice.service.PaymentService;
+import com.stocker.paymentservice.service.dto.PaymentDTO;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * Kafka consumer for payment-related events.
  * This class is responsible for consuming events from Kafka topics and processing them.
+ * Only active with {@code orchestration.mode=choreography}; in saga mode the order service's saga
+ * sends the payment commands.
  */
 @Component
+@ConditionalOnProperty(name = "orchestration.mode", havingValue = "choreography")
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentEventConsumer {
 
+    private static final String CONSUMER_GROUP = "payment-service-group";
+
     private final PaymentService paymentService;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final ProcessedEventStore processedEventStore;
+    private final RetryTopicRouter retryTopicRouter;
+
+    /**
+     * Start the receivers for the order-events retry topics.
+     */
+    @PostConstruct
+    public void startRetries() {
+        retryTopicRouter.startRetryReceivers(CONSUMER_GROUP, "order-events", this::handleRecord);
+    }
 
     /**
      * Listen for OrderCreatedEvent from the order-events topic.
      * When an order is created, we need to process the payment.
+     * Records are consumed in batches; payments for different orders are processed
+     * in parallel while events of the same order keep their order. Other order events
+     * are dropped from their headers without being deserialized, and redelivered
+     * events are skipped so a payment is only created once per order. Failed records
+     * are retried through the retry topics instead of blocking the partition.
      *
-     * @param event The OrderCreatedEvent received from Kafka
+     * @param records The batch of records received from Kafka
      */
-    @KafkaListener(topics = "order-events", groupId = "payment-service-group")
-    public void handleOrderCreatedEvent(@Payload OrderCreatedEvent event) {
-        log.info("Received OrderCreatedEvent from Kafka: {}", event);
+    @KafkaListener(topics = "order-events", groupId = CONSUMER_GROUP,
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = EventTypeRoutingDeserializer.ACCEPTED_TYPES_CONFIG + "=OrderCreatedEvent")
+    public void handleOrderCreatedEvents(List<ConsumerRecord<String, Object>> records) {
+        log.debug("Received batch of {} records from order-events", records.size());
+        keyOrderedExecutor.execute(records, record -> retryTopicRouter.withRetry(CONSUMER_GROUP, record, this::handleRecord))
+            .block();
+    }
+
+    private Mono<PaymentDTO> handleRecord(ConsumerRecord<String, Object> record) {
+        return record.value() instanceof OrderCreatedEvent event
+                ? processedEventStore.processOnce(CONSUMER_GROUP, record, () -> handleOrderCreatedEvent(event))
+                : Mono.empty();
+    }
+
+    private Mono<PaymentDTO> handleOrderCreatedEvent(OrderCreatedEvent event) {
+        log.info("Received OrderCreatedEvent from Kafka: {}", event.getOrderId());
         
         // Create a process payment command
         ProcessPaymentCommand command = ProcessPaymentCommand.builder()
@@ -42,15 +86,13 @@ public class PaymentEventConsumer {
             .build();
         
         // Process the payment
-        paymentService.processPayment(
+        return paymentService.processPayment(
                 command.getPaymentId(), 
                 command.getOrderId(), 
                 command.getAmount(), 
                 command.getPaymentMethod()
             )
-            .subscribe(
-                payment -> log.info("Payment processed: {}", payment),
-                error -> log.error("Error processing payment: {}", error.getMessage())
-            );
+            .doOnSuccess(payment -> log.info("Payment processed: {}", payment))
+            .doOnError(error -> log.error("Error processing payment: {}", error.getMessage()));
     }
 }
\ No newline at end of file
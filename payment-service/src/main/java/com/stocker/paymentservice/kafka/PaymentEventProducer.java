@@ -2,14 +2,18 @@ package com.stocker.paymentservice.kafka;
 
 import com.stocker.common.events.payment.PaymentProcessedEvent;
 import com.stocker.kafkaconfig.KafkaEventUtils;
+import com.stocker.kafkaconfig.outbox.OutboxWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 /**
  * Kafka producer for payment events.
  * This class is responsible for sending payment-related events to Kafka topics.
+ * Events are only published with {@code orchestration.mode=choreography}, where the other
+ * services act on them; in saga mode nothing consumes them, so they are dropped.
  */
 @Component
 @RequiredArgsConstructor
@@ -17,8 +21,12 @@ import reactor.core.publisher.Mono;
 public class PaymentEventProducer {
 
     private final KafkaEventUtils kafkaEventUtils;
+    private final OutboxWriter outboxWriter;
     private static final String TOPIC = "payment-events";
 
+    @Value("${orchestration.mode:saga}")
+    private String orchestrationMode;
+
     /**
      * Send a PaymentProcessedEvent to the payment-events Kafka topic.
      *
@@ -26,8 +34,11 @@ public class PaymentEventProducer {
      * @return Mono<Void> that completes when the event is sent
      */
     public Mono<Void> sendPaymentProcessedEvent(PaymentProcessedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
         log.info("Sending PaymentProcessedEvent to Kafka: {}", event);
-        return kafkaEventUtils.sendEvent(TOPIC, event.getPaymentId(), event)
+        return kafkaEventUtils.sendEvent(TOPIC, event.getOrderId(), event)
                 .then();
     }
 
@@ -37,7 +48,29 @@ public class PaymentEventProducer {
      * @param event The PaymentProcessedEvent to send
      */
     public void sendPaymentProcessedEventAsync(PaymentProcessedEvent event) {
+        if (!publishing()) {
+            return;
+        }
         log.info("Sending PaymentProcessedEvent to Kafka asynchronously: {}", event);
-        kafkaEventUtils.sendEventAsync(TOPIC, event.getPaymentId(), event);
+        kafkaEventUtils.sendEventAsync(TOPIC, event.getOrderId(), event);
+    }
+
+    /**
+     * Add a PaymentProcessedEvent to the outbox for publishing to the payment-events Kafka topic.
+     * Must be called inside the transaction that persists the change the event describes.
+     *
+     * @param event The PaymentProcessedEvent to publish
+     * @return Mono<Void> that completes when the event is written to the outbox
+     */
+    public Mono<Void> enqueuePaymentProcessedEvent(PaymentProcessedEvent event) {
+        if (!publishing()) {
+            return Mono.empty();
+        }
+        log.debug("Adding PaymentProcessedEvent to outbox: {}", event.getPaymentId());
+        return outboxWriter.append(TOPIC, event.getOrderId(), event);
+    }
+
+    private boolean publishing() {
+        return "choreography".equals(orchestrationMode);
     }
-}
\ No newline at end of file
+}
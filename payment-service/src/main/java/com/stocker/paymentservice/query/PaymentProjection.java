@@ -1,28 +1,45 @@
 package com.stocker.paymentservice.query;
 
+import com.stocker.common.axon.ProjectionNotifier;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.events.payment.PaymentCapturedEvent;
 import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.events.payment.PaymentRefundedEvent;
+import com.stocker.common.events.payment.PaymentVoidedEvent;
 import com.stocker.paymentservice.domain.PaymentStatus;
+import com.stocker.paymentservice.kafka.PaymentEventProducer;
 import com.stocker.paymentservice.repository.PaymentRepository;
 import com.stocker.paymentservice.repository.entity.PaymentEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.ReplayStatus;
+import org.axonframework.eventhandling.SequenceNumber;
 import org.axonframework.queryhandling.QueryHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.UUID;
 
 @Component
+@ProcessingGroup("payment-projection")
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentProjection {
 
     private final PaymentRepository paymentRepository;
+    private final PaymentEventProducer paymentEventProducer;
+    private final TransactionalOperator transactionalOperator;
+    private final ProjectionNotifier projectionNotifier;
 
     @EventHandler
-    public void on(PaymentProcessedEvent event) {
+    public void on(PaymentProcessedEvent event, @SequenceNumber long sequenceNumber, ReplayStatus replayStatus) {
         log.info("Handling PaymentProcessedEvent: {}, status: {}", event.getPaymentId(), event.getStatus());
         
         // Convert LocalDateTime to Instant
@@ -39,11 +56,74 @@ public class PaymentProjection {
                 .updatedAt(processedAt)
                 .build();
         
+        // Save the read model and queue the Kafka event in one local transaction;
+        // replayed events were published when first handled
         paymentRepository.save(paymentEntity)
-            .doOnSuccess(savedPayment -> log.info("Payment saved: {}, status: {}", 
-                savedPayment.getId(), savedPayment.getStatus()))
+            .flatMap(savedPayment -> replayStatus.isReplay()
+                ? Mono.just(savedPayment)
+                : paymentEventProducer.enqueuePaymentProcessedEvent(event).thenReturn(savedPayment))
+            .as(transactionalOperator::transactional)
+            .doOnSuccess(savedPayment -> {
+                log.info("Payment saved: {}, status: {}", savedPayment.getId(), savedPayment.getStatus());
+                projectionNotifier.applied(event.getPaymentId(), sequenceNumber);
+            })
             .doOnError(error -> log.error("Error saving payment: {}", error.getMessage()))
-            .subscribe();
+            .block();
+    }
+
+    @EventHandler
+    public void on(PaymentAuthorizedEvent event, @SequenceNumber long sequenceNumber) {
+        log.info("Handling PaymentAuthorizedEvent: {}, status: {}", event.getPaymentId(), event.getStatus());
+
+        Instant authorizedAt = event.getAuthorizedAt().atZone(ZoneId.systemDefault()).toInstant();
+        PaymentEntity paymentEntity = PaymentEntity.builder()
+                .id(event.getPaymentId())
+                .orderId(event.getOrderId())
+                .amount(event.getAmount())
+                .status(event.getStatus().toString())
+                .paymentMethod(event.getPaymentMethod().toString())
+                .transactionId(event.getTransactionId() != null ? event.getTransactionId() : UUID.randomUUID().toString())
+                .createdAt(authorizedAt)
+                .updatedAt(authorizedAt)
+                .build();
+
+        save(paymentRepository.save(paymentEntity), event.getPaymentId(), sequenceNumber);
+    }
+
+    @EventHandler
+    public void on(PaymentCapturedEvent event, @SequenceNumber long sequenceNumber) {
+        log.info("Handling PaymentCapturedEvent: {}", event.getPaymentId());
+        updateStatus(event.getPaymentId(), PaymentStatus.COMPLETED, event.getCapturedAt(), sequenceNumber);
+    }
+
+    @EventHandler
+    public void on(PaymentVoidedEvent event, @SequenceNumber long sequenceNumber) {
+        log.info("Handling PaymentVoidedEvent: {}, reason: {}", event.getPaymentId(), event.getReason());
+        updateStatus(event.getPaymentId(), PaymentStatus.VOIDED, event.getVoidedAt(), sequenceNumber);
+    }
+
+    @EventHandler
+    public void on(PaymentRefundedEvent event, @SequenceNumber long sequenceNumber) {
+        log.info("Handling PaymentRefundedEvent: {}, reason: {}", event.getPaymentId(), event.getReason());
+        updateStatus(event.getPaymentId(), PaymentStatus.REFUNDED, event.getRefundedAt(), sequenceNumber);
+    }
+
+    private void updateStatus(String paymentId, PaymentStatus status, LocalDateTime at, long sequenceNumber) {
+        save(paymentRepository.findById(paymentId)
+                .flatMap(paymentEntity -> {
+                    paymentEntity.setStatus(status.toString());
+                    paymentEntity.setUpdatedAt(at.atZone(ZoneId.systemDefault()).toInstant());
+                    return paymentRepository.save(paymentEntity);
+                }), paymentId, sequenceNumber);
+    }
+
+    private void save(Mono<PaymentEntity> write, String paymentId, long sequenceNumber) {
+        write.doOnSuccess(savedPayment -> {
+                log.info("Payment saved: {}, status: {}", savedPayment.getId(), savedPayment.getStatus());
+                projectionNotifier.applied(paymentId, sequenceNumber);
+            })
+            .doOnError(error -> log.error("Error saving payment: {}", error.getMessage()))
+            .block();
     }
 
     @QueryHandler
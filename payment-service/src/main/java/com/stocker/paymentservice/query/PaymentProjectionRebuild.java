@@ -0,0 +1,71 @@
+package com.stocker.paymentservice.query;
+
+import com.stocker.common.axon.rebuild.ProjectionRebuild;
+import com.stocker.common.axon.rebuild.RebuildTable;
+import com.stocker.common.axon.rebuild.RebuildWriter;
+import com.stocker.common.events.payment.PaymentAuthorizedEvent;
+import com.stocker.common.events.payment.PaymentCapturedEvent;
+import com.stocker.common.events.payment.PaymentProcessedEvent;
+import com.stocker.common.events.payment.PaymentRefundedEvent;
+import com.stocker.common.events.payment.PaymentVoidedEvent;
+import com.stocker.paymentservice.domain.PaymentStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rebuilds the {@code payments} table of {@link PaymentProjection}.
+ */
+@Component
+public class PaymentProjectionRebuild implements ProjectionRebuild {
+
+    private static final List<String> COLUMNS = List.of("id", "order_id", "amount", "status", "payment_method",
+            "transaction_id", "created_at", "updated_at");
+
+    @Override
+    public String processingGroup() {
+        return "payment-projection";
+    }
+
+    @Override
+    public List<RebuildTable> tables() {
+        return List.of(new RebuildTable("payments", COLUMNS));
+    }
+
+    @Override
+    public Fold newFold(RebuildWriter writer) {
+        return event -> {
+            if (event.getPayloadType() == PaymentProcessedEvent.class) {
+                PaymentProcessedEvent processed = (PaymentProcessedEvent) event.getPayload();
+                // Same fallback as the projection for payments without a transaction id
+                String transactionId = processed.getTransactionId() != null
+                        ? processed.getTransactionId()
+                        : UUID.randomUUID().toString();
+                writer.write("payments", processed.getPaymentId(), processed.getOrderId(), processed.getAmount(),
+                        processed.getStatus(), processed.getPaymentMethod(), transactionId,
+                        processed.getProcessedAt(), processed.getProcessedAt());
+            } else if (event.getPayloadType() == PaymentAuthorizedEvent.class) {
+                PaymentAuthorizedEvent authorized = (PaymentAuthorizedEvent) event.getPayload();
+                String transactionId = authorized.getTransactionId() != null
+                        ? authorized.getTransactionId()
+                        : UUID.randomUUID().toString();
+                writer.write("payments", authorized.getPaymentId(), authorized.getOrderId(), authorized.getAmount(),
+                        authorized.getStatus(), authorized.getPaymentMethod(), transactionId,
+                        authorized.getAuthorizedAt(), authorized.getAuthorizedAt());
+            } else if (event.getPayloadType() == PaymentCapturedEvent.class) {
+                PaymentCapturedEvent captured = (PaymentCapturedEvent) event.getPayload();
+                writer.update("payments", captured.getPaymentId(),
+                        "status", PaymentStatus.COMPLETED, "updated_at", captured.getCapturedAt());
+            } else if (event.getPayloadType() == PaymentVoidedEvent.class) {
+                PaymentVoidedEvent voided = (PaymentVoidedEvent) event.getPayload();
+                writer.update("payments", voided.getPaymentId(),
+                        "status", PaymentStatus.VOIDED, "updated_at", voided.getVoidedAt());
+            } else if (event.getPayloadType() == PaymentRefundedEvent.class) {
+                PaymentRefundedEvent refunded = (PaymentRefundedEvent) event.getPayload();
+                writer.update("payments", refunded.getPaymentId(),
+                        "status", PaymentStatus.REFUNDED, "updated_at", refunded.getRefundedAt());
+            }
+        };
+    }
+}
@@ -1,9 +1,9 @@
 package com.stocker.paymentservice.service;
 
+import com.stocker.common.axon.ConsistencyToken;
+import com.stocker.common.axon.ProjectionNotifier;
 import com.stocker.common.commands.payment.ProcessPaymentCommand;
-import com.stocker.common.events.payment.PaymentProcessedEvent;
 import com.stocker.paymentservice.domain.PaymentStatus;
-import com.stocker.paymentservice.kafka.PaymentEventProducer;
 import com.stocker.paymentservice.repository.PaymentRepository;
 import com.stocker.paymentservice.repository.entity.PaymentEntity;
 import com.stocker.paymentservice.service.dto.PaymentDTO;
@@ -25,7 +25,7 @@ public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final CommandGateway commandGateway;
-    private final PaymentEventProducer paymentEventProducer;
+    private final ProjectionNotifier projectionNotifier;
 
     @Override
     public Mono<PaymentDTO> processPayment(String paymentId, String orderId, BigDecimal amount, String paymentMethod) {
@@ -37,32 +37,13 @@ public class PaymentServiceImpl implements PaymentService {
                 .build();
         
         return Mono.fromFuture(commandGateway.send(command))
-                .then(Mono.defer(() -> 
-                    // Wait for the payment entity to be created by the event handler
-                    // Use a retry mechanism with exponential backoff
-                    paymentRepository.findById(paymentId)
-                        .retryWhen(reactor.util.retry.Retry.backoff(3, java.time.Duration.ofMillis(300))
-                            .doBeforeRetry(retrySignal -> 
-                                log.debug("Retrying to find payment entity: {}, attempt: {}", 
-                                    paymentId, retrySignal.totalRetries())
-                            )
-                        )
+                // Read once PaymentProjection has applied the payment's creation event
+                .then(projectionNotifier.awaitApplied(ConsistencyToken.created(paymentId)))
+                .then(Mono.defer(() -> paymentRepository.findById(paymentId)
                         .switchIfEmpty(Mono.error(new RuntimeException("Payment not found after processing: " + paymentId)))
                 ))
+                // PaymentProcessedEvent is published to Kafka through the outbox by PaymentProjection
                 .map(this::mapToPaymentDTO)
-                .flatMap(payment -> {
-                    // Create and send a PaymentProcessedEvent
-                    PaymentProcessedEvent event = PaymentProcessedEvent.builder()
-                            .paymentId(payment.getId())
-                            .orderId(payment.getOrderId())
-                            .amount(payment.getAmount())
-                            .status(payment.getStatus().toString())
-                            .timestamp(Instant.now())
-                            .build();
-                    
-                    return paymentEventProducer.sendPaymentProcessedEvent(event)
-                            .thenReturn(payment);
-                })
                 .doOnSuccess(payment -> log.info("Payment processed successfully: {}, status: {}", 
                     payment.getId(), payment.getStatus()))
                 .doOnError(error -> log.error("Error processing payment for order: {}", orderId, error));